@@ -155,6 +155,23 @@ suite = {
       "license" : "UPL",
     },
 
+    "org.graalvm.vm.trcview.jmh" : {
+      "subDir" : "projects",
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "org.graalvm.vm.trcview",
+        "org.graalvm.vm.trcview.libtrc",
+        "org.graalvm.vm.trcview.arch.ppc",
+        "org.graalvm.vm.trcview.arch.x86",
+        "mx:JMH_1_21",
+      ],
+      "annotationProcessors" : ["mx:JMH_1_21"],
+      "javaCompliance" : "17+",
+      "workingSets" : "trcview",
+      "testProject" : True,
+      "license" : "UPL",
+    },
+
     "org.graalvm.vm.trcview.arch.custom.test" : {
       "subDir" : "projects",
       "sourceDirs" : ["src"],
@@ -208,6 +225,23 @@ suite = {
       "license" : "UPL",
     },
 
+    "TRCVIEW_JMH" : {
+      "path" : "build/trcview-jmh.jar",
+      "subDir" : "trcview",
+      "mainClass" : "org.openjdk.jmh.Main",
+      "dependencies" : [
+        "org.graalvm.vm.trcview.jmh",
+      ],
+      "overlaps" : [
+        "utils:CORE",
+        "utils:POSIX",
+        "TRCVIEW",
+        "LIBTRC",
+      ],
+      "testDistribution" : True,
+      "license" : "UPL",
+    },
+
     "LIBTRC" : {
       "path" : "build/libtrc.jar",
       "subDir" : "core",
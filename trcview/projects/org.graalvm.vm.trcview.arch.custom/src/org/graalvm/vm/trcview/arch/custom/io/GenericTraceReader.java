@@ -48,7 +48,7 @@ public class GenericTraceReader extends ArchTraceReader {
     private List<String> strings;
 
     public GenericTraceReader(InputStream in) {
-        this(new BEInputStream(in));
+        this(BEInputStream.wrap(in));
     }
 
     public GenericTraceReader(WordInputStream in) {
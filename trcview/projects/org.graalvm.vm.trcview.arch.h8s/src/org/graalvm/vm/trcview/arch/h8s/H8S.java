@@ -22,6 +22,7 @@ public class H8S extends Architecture {
     public static final short ID = Elf.EM_H8S;
     public static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_HEX, 6, 4, 2, true);
     public static final ArchitectureTypeInfo TYPE_INFO = new ArchitectureTypeInfo(4, 2, 2, 4);
+    private static final String[] REGISTER_NAMES = {"er0", "er1", "er2", "er3", "er4", "er5", "er6", "er7", "ccr", "exr"};
 
     private static final SyscallDecoder syscallDecoder = new GenericSyscallDecoder();
     private static final CallDecoder callDecoder = new GenericCallDecoder();
@@ -86,6 +87,11 @@ public class H8S extends Architecture {
         return TYPE_INFO;
     }
 
+    @Override
+    public String[] getRegisterNames() {
+        return REGISTER_NAMES;
+    }
+
     @Override
     public Disassembler getDisassembler(TraceAnalyzer trc) {
         return new H8SDisassembler(trc);
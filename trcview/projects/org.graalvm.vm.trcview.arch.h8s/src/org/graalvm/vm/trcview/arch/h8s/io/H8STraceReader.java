@@ -53,7 +53,7 @@ public class H8STraceReader extends ArchTraceReader {
     private Event latch;
 
     public H8STraceReader(InputStream in) {
-        this(new LEInputStream(in));
+        this(LEInputStream.wrap(in));
     }
 
     private H8STraceReader(WordInputStream in) {
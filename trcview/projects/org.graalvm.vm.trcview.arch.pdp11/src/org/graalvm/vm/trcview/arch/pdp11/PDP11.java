@@ -29,6 +29,7 @@ public class PDP11 extends Architecture {
     public static final short ID = Elf.EM_PDP11;
     public static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_OCT, 6, 6, 2, false);
     public static final ArchitectureTypeInfo TYPE_INFO = new ArchitectureTypeInfo(2, 2, 2, 4);
+    private static final String[] REGISTER_NAMES = {"r0", "r1", "r2", "r3", "r4", "r5", "r6", "r7", "psw"};
 
     private static final SyscallDecoder syscallDecoder = new GenericSyscallDecoder();
     private static final CallDecoder callDecoder = new GenericCallDecoder();
@@ -119,6 +120,11 @@ public class PDP11 extends Architecture {
         }
     }
 
+    @Override
+    public String[] getRegisterNames() {
+        return REGISTER_NAMES;
+    }
+
     @Override
     public int getRegisterCount() {
         return 8;
@@ -2,14 +2,19 @@ package org.graalvm.vm.trcview.arch.pdp11.io;
 
 import java.io.IOException;
 
+import org.graalvm.vm.trcview.arch.io.ChainedCpuState;
 import org.graalvm.vm.trcview.arch.io.CpuDeltaState;
+import org.graalvm.vm.trcview.arch.io.Keyframe;
+import org.graalvm.vm.trcview.arch.io.StateCache;
 import org.graalvm.vm.util.io.WordInputStream;
 
-public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<PDP11CpuState> {
+public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<PDP11CpuState>, ChainedCpuState<PDP11CpuState> {
     // bits 0-6 = r0 - r6
     private static final int BIT_PSW = 7;
 
     private final PDP11CpuState previous;
+    private final int depth;
+    private volatile Keyframe<PDP11CpuState> materialized;
     private final short[] data;
 
     private final short mask;
@@ -20,6 +25,7 @@ public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<P
     public PDP11CpuDeltaState(WordInputStream in, PDP11CpuState previous, int tid) throws IOException {
         super(tid);
         this.previous = previous;
+        this.depth = StateCache.getDepth(previous);
 
         pc = in.read16bit();
         mask = in.read16bit();
@@ -32,13 +38,7 @@ public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<P
         for (int i = 0; i < cnt; i++) {
             insn[i] = in.read16bit();
         }
-        cnt = 0;
-        for (int i = 0; i < 8; i++) {
-            if (has(i)) {
-                cnt++;
-            }
-        }
-        data = new short[cnt];
+        data = new short[Integer.bitCount(mask & 0xFF)];
         for (int i = 0; i < data.length; i++) {
             data[i] = in.read16bit();
         }
@@ -50,17 +50,7 @@ public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<P
 
     private int offset(int bit) {
         assert has(bit);
-        if (bit == 0) {
-            return 0;
-        } else {
-            int off = 0;
-            for (int i = 0; i < bit; i++) {
-                if (has(i)) {
-                    off++;
-                }
-            }
-            return off;
-        }
+        return Integer.bitCount(mask & ((1 << bit) - 1));
     }
 
     private short getRegister(PDP11CpuState last, int id) {
@@ -75,7 +65,7 @@ public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<P
 
     @Override
     public short getRegister(int id) {
-        return getRegister(previous, id);
+        return getRegister(StateCache.previous(this), id);
     }
 
     private short getPSW(PDP11CpuState last) {
@@ -88,7 +78,7 @@ public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<P
 
     @Override
     public short getPSW() {
-        return getPSW(previous);
+        return getPSW(StateCache.previous(this));
     }
 
     @Override
@@ -101,6 +91,26 @@ public class PDP11CpuDeltaState extends PDP11CpuState implements CpuDeltaState<P
         return insn;
     }
 
+    @Override
+    public PDP11CpuState getPreviousState() {
+        return previous;
+    }
+
+    @Override
+    public int getChainDepth() {
+        return depth;
+    }
+
+    @Override
+    public Keyframe<PDP11CpuState> getMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public void setMaterialized(Keyframe<PDP11CpuState> state) {
+        materialized = state;
+    }
+
     @Override
     public PDP11CpuState resolve(PDP11CpuState last) {
         short[] registers = new short[8];
@@ -42,7 +42,7 @@ public class PDP11TraceReader extends ArchTraceReader {
     private PDP11DLV11Event dlv11j;
 
     public PDP11TraceReader(InputStream in) {
-        this(new BEInputStream(in));
+        this(BEInputStream.wrap(in));
     }
 
     public PDP11TraceReader(WordInputStream in) {
@@ -28,6 +28,9 @@ import org.graalvm.vm.trcview.net.TraceAnalyzer;
 public class PowerPC extends Architecture {
     public static final short ID = Elf.EM_PPC;
     public static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_HEX, 8, 8, 1, true);
+    private static final String[] REGISTER_NAMES = {"r0", "r1", "r2", "r3", "r4", "r5", "r6", "r7", "r8", "r9", "r10", "r11", "r12", "r13", "r14",
+                    "r15", "r16", "r17", "r18", "r19", "r20", "r21", "r22", "r23", "r24", "r25", "r26", "r27", "r28", "r29", "r30", "r31", "cr",
+                    "xer", "fpscr", "ctr", "lr", "srr0", "srr1"};
 
     private static final SyscallDecoder syscallDecoder = new PowerPCSyscallDecoder();
     private static final CallDecoder callDecoder = new GenericCallDecoder();
@@ -202,6 +205,11 @@ public class PowerPC extends Architecture {
         }
     }
 
+    @Override
+    public String[] getRegisterNames() {
+        return REGISTER_NAMES;
+    }
+
     @Override
     public int getRegisterCount() {
         return 32;
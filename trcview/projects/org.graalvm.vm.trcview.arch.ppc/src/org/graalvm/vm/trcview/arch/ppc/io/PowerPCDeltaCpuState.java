@@ -2,11 +2,14 @@ package org.graalvm.vm.trcview.arch.ppc.io;
 
 import java.io.IOException;
 
+import org.graalvm.vm.trcview.arch.io.ChainedCpuState;
 import org.graalvm.vm.trcview.arch.io.CpuDeltaState;
+import org.graalvm.vm.trcview.arch.io.Keyframe;
+import org.graalvm.vm.trcview.arch.io.StateCache;
 import org.graalvm.vm.util.io.Endianess;
 import org.graalvm.vm.util.io.WordInputStream;
 
-public class PowerPCDeltaCpuState extends PowerPCCpuState implements CpuDeltaState<PowerPCCpuState> {
+public class PowerPCDeltaCpuState extends PowerPCCpuState implements CpuDeltaState<PowerPCCpuState>, ChainedCpuState<PowerPCCpuState> {
     private final int MASK_LR = bit(0);
     private final int MASK_CTR = bit(1);
     private final int MASK_CR = bit(2);
@@ -27,10 +30,13 @@ public class PowerPCDeltaCpuState extends PowerPCCpuState implements CpuDeltaSta
     private final byte[] data;
 
     private final PowerPCCpuState last;
+    private final int depth;
+    private volatile Keyframe<PowerPCCpuState> materialized;
 
     public PowerPCDeltaCpuState(WordInputStream in, int tid, PowerPCCpuState last) throws IOException {
         super(tid);
         this.last = last;
+        this.depth = StateCache.getDepth(last);
         regmask = Byte.toUnsignedInt((byte) in.read8bit());
         insn = in.read32bit();
         step = in.read64bit();
@@ -63,15 +69,7 @@ public class PowerPCDeltaCpuState extends PowerPCCpuState implements CpuDeltaSta
         }
 
         if ((mask & bit) != 0) {
-            for (int i = 0; i < 32; i++) {
-                int b = bit(i);
-                if (b == bit) {
-                    return offset;
-                } else if ((mask & b) != 0) {
-                    offset += 4;
-                }
-            }
-            throw new AssertionError("this should be unreachable");
+            return offset + Integer.bitCount(mask & (bit - 1)) * 4;
         } else {
             return -1;
         }
@@ -160,42 +158,42 @@ public class PowerPCDeltaCpuState extends PowerPCCpuState implements CpuDeltaSta
 
     @Override
     public int getLR() {
-        return getLR(last);
+        return getLR(StateCache.previous(this));
     }
 
     @Override
     public int getCR() {
-        return getCR(last);
+        return getCR(StateCache.previous(this));
     }
 
     @Override
     public int getCTR() {
-        return getCTR(last);
+        return getCTR(StateCache.previous(this));
     }
 
     @Override
     public int getXER() {
-        return getXER(last);
+        return getXER(StateCache.previous(this));
     }
 
     @Override
     public int getFPSCR() {
-        return getFPSCR(last);
+        return getFPSCR(StateCache.previous(this));
     }
 
     @Override
     public int getGPR(int reg) {
-        return getGPR(reg, last);
+        return getGPR(reg, StateCache.previous(this));
     }
 
     @Override
     public int getSRR0() {
-        return getSRR0(last);
+        return getSRR0(StateCache.previous(this));
     }
 
     @Override
     public int getSRR1() {
-        return getSRR1(last);
+        return getSRR1(StateCache.previous(this));
     }
 
     @Override
@@ -208,6 +206,26 @@ public class PowerPCDeltaCpuState extends PowerPCCpuState implements CpuDeltaSta
         return Integer.toUnsignedLong(pc);
     }
 
+    @Override
+    public PowerPCCpuState getPreviousState() {
+        return last;
+    }
+
+    @Override
+    public int getChainDepth() {
+        return depth;
+    }
+
+    @Override
+    public Keyframe<PowerPCCpuState> getMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public void setMaterialized(Keyframe<PowerPCCpuState> state) {
+        materialized = state;
+    }
+
     @Override
     public PowerPCCpuState resolve(PowerPCCpuState lastState) {
         return new PowerPCFullCpuState(this, lastState);
@@ -77,7 +77,7 @@ public class PowerPCTraceReader extends ArchTraceReader {
     private int fullstate = 0;
 
     public PowerPCTraceReader(InputStream in) {
-        this(new BEInputStream(in));
+        this(BEInputStream.wrap(in));
     }
 
     public PowerPCTraceReader(WordInputStream in) {
@@ -38,6 +38,8 @@ import org.graalvm.vm.util.log.Trace;
 
 public class RiscV extends Architecture {
     private static final Logger log = Trace.create(RiscV.class);
+    private static final String[] REGISTER_NAMES = {"x0", "x1", "x2", "x3", "x4", "x5", "x6", "x7", "x8", "x9", "x10", "x11", "x12", "x13", "x14",
+                    "x15", "x16", "x17", "x18", "x19", "x20", "x21", "x22", "x23", "x24", "x25", "x26", "x27", "x28", "x29", "x30", "x31"};
 
     public static final short ID = Elf.EM_RISCV;
     public static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_HEX, 16, 16, 1, false);
@@ -100,6 +102,11 @@ public class RiscV extends Architecture {
         return true;
     }
 
+    @Override
+    public String[] getRegisterNames() {
+        return REGISTER_NAMES;
+    }
+
     @Override
     public Disassembler getDisassembler(TraceAnalyzer trc) {
         return new RiscVDisassembler(trc);
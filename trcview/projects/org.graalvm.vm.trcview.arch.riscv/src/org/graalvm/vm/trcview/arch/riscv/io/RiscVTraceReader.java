@@ -48,7 +48,7 @@ public class RiscVTraceReader extends ArchTraceReader {
     private int fullstate = 0;
 
     public RiscVTraceReader(InputStream in) {
-        this(new LEInputStream(in));
+        this(LEInputStream.wrap(in));
     }
 
     private RiscVTraceReader(WordInputStream in) {
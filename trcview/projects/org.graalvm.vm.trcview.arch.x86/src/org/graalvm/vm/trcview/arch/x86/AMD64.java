@@ -27,6 +27,8 @@ import org.graalvm.vm.trcview.net.TraceAnalyzer;
 public class AMD64 extends Architecture {
     public static final short ID = Elf.EM_X86_64;
     public static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_HEX, 16, 16, 1, false);
+    private static final String[] REGISTER_NAMES = {"rax", "rbx", "rcx", "rdx", "rsi", "rdi", "rbp", "rsp", "r8", "r9", "r10", "r11", "r12", "r13",
+                    "r14", "r15", "rflags"};
 
     private static final SyscallDecoder syscallDecoder = new AMD64SyscallDecoder();
     private static final CallDecoder callDecoder = new GenericCallDecoder();
@@ -91,6 +93,11 @@ public class AMD64 extends Architecture {
         return ArchitectureTypeInfo.LP64;
     }
 
+    @Override
+    public String[] getRegisterNames() {
+        return REGISTER_NAMES;
+    }
+
     @Override
     public Disassembler getDisassembler(TraceAnalyzer trc) {
         return new AMD64Disassembler(trc);
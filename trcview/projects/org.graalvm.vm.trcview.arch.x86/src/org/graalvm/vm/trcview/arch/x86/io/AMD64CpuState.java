@@ -106,6 +106,63 @@ public abstract class AMD64CpuState extends AMD64StepEvent implements CpuState {
 
     public abstract Vector128 getXMM(int i);
 
+    protected static long getRegister(AMD64CpuState state, int id) {
+        switch (id) {
+            case ID_RAX:
+                return state.getRAX();
+            case ID_RCX:
+                return state.getRCX();
+            case ID_RDX:
+                return state.getRDX();
+            case ID_RBX:
+                return state.getRBX();
+            case ID_RSP:
+                return state.getRSP();
+            case ID_RBP:
+                return state.getRBP();
+            case ID_RSI:
+                return state.getRSI();
+            case ID_RDI:
+                return state.getRDI();
+            case ID_R8:
+                return state.getR8();
+            case ID_R9:
+                return state.getR9();
+            case ID_R10:
+                return state.getR10();
+            case ID_R11:
+                return state.getR11();
+            case ID_R12:
+                return state.getR12();
+            case ID_R13:
+                return state.getR13();
+            case ID_R14:
+                return state.getR14();
+            case ID_R15:
+                return state.getR15();
+            case ID_FS:
+                return state.getFS();
+            case ID_GS:
+                return state.getGS();
+            case ID_RFL:
+                return state.getRFL();
+            default:
+                throw new IllegalArgumentException("invalid register id " + id);
+        }
+    }
+
+    /**
+     * Returns the value of register {@code id}, reading registers this state does not contain from
+     * {@code base} instead of the previous state.
+     */
+    protected long getRegister(int id, @SuppressWarnings("unused") AMD64CpuState base) {
+        return getRegister(this, id);
+    }
+
+    protected Vector128 getXMM(int i, @SuppressWarnings("unused") AMD64CpuState base) {
+        return getXMM(i);
+    }
+
     public static AMD64CpuState readRecord(WordInputStream in, int tid) throws IOException {
         byte[] machinecode = IO.readArray(in);
         return new AMD64FullCpuState(in, tid, machinecode);
@@ -2,10 +2,13 @@ package org.graalvm.vm.trcview.arch.x86.io;
 
 import java.io.IOException;
 
+import org.graalvm.vm.trcview.arch.io.ChainedCpuState;
+import org.graalvm.vm.trcview.arch.io.Keyframe;
+import org.graalvm.vm.trcview.arch.io.StateCache;
 import org.graalvm.vm.util.Vector128;
 import org.graalvm.vm.util.io.WordInputStream;
 
-public class AMD64DeltaCpuState extends AMD64CpuState {
+public class AMD64DeltaCpuState extends AMD64CpuState implements ChainedCpuState<AMD64CpuState> {
     public static final int ID_RAX = 0;
     public static final int ID_RCX = 1;
     public static final int ID_RDX = 2;
@@ -27,6 +30,8 @@ public class AMD64DeltaCpuState extends AMD64CpuState {
     public static final int ID_RFL = 18;
 
     private final AMD64CpuState previous;
+    private final int depth;
+    private volatile Keyframe<AMD64CpuState> materialized;
     private final long regMask;
     private final long rip;
     private final long[] values;
@@ -34,6 +39,7 @@ public class AMD64DeltaCpuState extends AMD64CpuState {
     public AMD64DeltaCpuState(WordInputStream in, int tid, byte[] machinecode, AMD64StepEvent last) throws IOException {
         super(tid, machinecode);
         previous = last.getState();
+        depth = StateCache.getDepth(previous);
 
         rip = in.read64bit();
         step = in.read64bit();
@@ -52,13 +58,7 @@ public class AMD64DeltaCpuState extends AMD64CpuState {
     }
 
     private int getIdx(int i) {
-        int off = 0;
-        for (int n = 0; n < i; n++) {
-            if ((regMask & (1L << n)) != 0) {
-                off++;
-            }
-        }
-        return off;
+        return Long.bitCount(regMask & ((1L << i) - 1));
     }
 
     private long get(int i) {
@@ -67,32 +67,32 @@ public class AMD64DeltaCpuState extends AMD64CpuState {
 
     @Override
     public long getRAX() {
-        return has(ID_RAX) ? get(ID_RAX) : previous.getRAX();
+        return getRegister(ID_RAX, StateCache.previous(this));
     }
 
     @Override
     public long getRBX() {
-        return has(ID_RBX) ? get(ID_RBX) : previous.getRBX();
+        return getRegister(ID_RBX, StateCache.previous(this));
     }
 
     @Override
     public long getRCX() {
-        return has(ID_RCX) ? get(ID_RCX) : previous.getRCX();
+        return getRegister(ID_RCX, StateCache.previous(this));
     }
 
     @Override
     public long getRDX() {
-        return has(ID_RDX) ? get(ID_RDX) : previous.getRDX();
+        return getRegister(ID_RDX, StateCache.previous(this));
     }
 
     @Override
     public long getRBP() {
-        return has(ID_RBP) ? get(ID_RBP) : previous.getRBP();
+        return getRegister(ID_RBP, StateCache.previous(this));
     }
 
     @Override
     public long getRSP() {
-        return has(ID_RSP) ? get(ID_RSP) : previous.getRSP();
+        return getRegister(ID_RSP, StateCache.previous(this));
     }
 
     @Override
@@ -102,78 +102,113 @@ public class AMD64DeltaCpuState extends AMD64CpuState {
 
     @Override
     public long getRSI() {
-        return has(ID_RSI) ? get(ID_RSI) : previous.getRSI();
+        return getRegister(ID_RSI, StateCache.previous(this));
     }
 
     @Override
     public long getRDI() {
-        return has(ID_RDI) ? get(ID_RDI) : previous.getRDI();
+        return getRegister(ID_RDI, StateCache.previous(this));
     }
 
     @Override
     public long getR8() {
-        return has(ID_R8) ? get(ID_R8) : previous.getR8();
+        return getRegister(ID_R8, StateCache.previous(this));
     }
 
     @Override
     public long getR9() {
-        return has(ID_R9) ? get(ID_R9) : previous.getR9();
+        return getRegister(ID_R9, StateCache.previous(this));
     }
 
     @Override
     public long getR10() {
-        return has(ID_R10) ? get(ID_R10) : previous.getR10();
+        return getRegister(ID_R10, StateCache.previous(this));
     }
 
     @Override
     public long getR11() {
-        return has(ID_R11) ? get(ID_R11) : previous.getR11();
+        return getRegister(ID_R11, StateCache.previous(this));
     }
 
     @Override
     public long getR12() {
-        return has(ID_R12) ? get(ID_R12) : previous.getR12();
+        return getRegister(ID_R12, StateCache.previous(this));
     }
 
     @Override
     public long getR13() {
-        return has(ID_R13) ? get(ID_R13) : previous.getR13();
+        return getRegister(ID_R13, StateCache.previous(this));
     }
 
     @Override
     public long getR14() {
-        return has(ID_R14) ? get(ID_R14) : previous.getR14();
+        return getRegister(ID_R14, StateCache.previous(this));
     }
 
     @Override
     public long getR15() {
-        return has(ID_R15) ? get(ID_R15) : previous.getR15();
+        return getRegister(ID_R15, StateCache.previous(this));
     }
 
     @Override
     public long getRFL() {
-        return has(ID_RFL) ? get(ID_RFL) : previous.getRFL();
+        return getRegister(ID_RFL, StateCache.previous(this));
     }
 
     @Override
     public long getFS() {
-        return has(ID_FS) ? get(ID_FS) : previous.getFS();
+        return getRegister(ID_FS, StateCache.previous(this));
     }
 
     @Override
     public long getGS() {
-        return has(ID_GS) ? get(ID_GS) : previous.getGS();
+        return getRegister(ID_GS, StateCache.previous(this));
     }
 
     @Override
     public Vector128 getXMM(int i) {
+        return getXMM(i, StateCache.previous(this));
+    }
+
+    @Override
+    protected long getRegister(int id, AMD64CpuState base) {
+        return has(id) ? get(id) : getRegister(base, id);
+    }
+
+    @Override
+    protected Vector128 getXMM(int i, AMD64CpuState base) {
         int id = 19 + i * 2;
         if (has(id)) {
             long hi = get(id + 0);
             long lo = get(id + 1);
             return new Vector128(hi, lo);
         } else {
-            return previous.getXMM(i);
+            return base.getXMM(i);
         }
     }
+    @Override
+    public AMD64CpuState getPreviousState() {
+        return previous;
+    }
+
+    @Override
+    public int getChainDepth() {
+        return depth;
+    }
+
+    @Override
+    public Keyframe<AMD64CpuState> getMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public void setMaterialized(Keyframe<AMD64CpuState> state) {
+        materialized = state;
+    }
+
+    @Override
+    public AMD64CpuState resolve(AMD64CpuState base) {
+        return new AMD64FullCpuState(this, base);
+    }
+
 }
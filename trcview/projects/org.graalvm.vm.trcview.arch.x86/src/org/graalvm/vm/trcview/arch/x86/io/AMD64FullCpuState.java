@@ -89,6 +89,34 @@ public class AMD64FullCpuState extends AMD64CpuState {
         step = state.getStep();
     }
 
+    public AMD64FullCpuState(AMD64CpuState state, AMD64CpuState base) {
+        super(state.getTid(), state.getMachinecode());
+        rax = state.getRegister(ID_RAX, base);
+        rbx = state.getRegister(ID_RBX, base);
+        rcx = state.getRegister(ID_RCX, base);
+        rdx = state.getRegister(ID_RDX, base);
+        rsi = state.getRegister(ID_RSI, base);
+        rdi = state.getRegister(ID_RDI, base);
+        rbp = state.getRegister(ID_RBP, base);
+        rsp = state.getRegister(ID_RSP, base);
+        r8 = state.getRegister(ID_R8, base);
+        r9 = state.getRegister(ID_R9, base);
+        r10 = state.getRegister(ID_R10, base);
+        r11 = state.getRegister(ID_R11, base);
+        r12 = state.getRegister(ID_R12, base);
+        r13 = state.getRegister(ID_R13, base);
+        r14 = state.getRegister(ID_R14, base);
+        r15 = state.getRegister(ID_R15, base);
+        rip = state.getRIP();
+        fs = state.getRegister(ID_FS, base);
+        gs = state.getRegister(ID_GS, base);
+        for (int i = 0; i < xmm.length; i++) {
+            xmm[i] = state.getXMM(i, base);
+        }
+        rfl = state.getRegister(ID_RFL, base);
+        step = state.getStep();
+    }
+
     @Override
     public long getRAX() {
         return rax;
@@ -0,0 +1,87 @@
+package org.graalvm.vm.trcview.arch.x86.io;
+
+import java.nio.charset.StandardCharsets;
+
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.arch.io.IoEvent;
+
+/**
+ * I/O of a read/write/readv/writev syscall. The trace only contains the buffer address, so the
+ * data is read from the memory trace in {@link #resolve(MemoryTrace)}. This happens in the memory
+ * stage of the analysis, once all memory events up to this event were applied; the decoder never
+ * touches the memory trace.
+ */
+public class AMD64IoEvent extends IoEvent {
+    private static final int MAX_STR_SIZE = 16 * 1024 * 1024; // 16MiB
+
+    private final long addr;
+    private final long size;
+    private final boolean vector;
+
+    private volatile String value;
+
+    public AMD64IoEvent(int tid, long step, int channel, boolean input, long addr, long size, boolean vector) {
+        super(tid, step, channel, input, null);
+        this.addr = addr;
+        this.size = size;
+        this.vector = vector;
+    }
+
+    private static String str(MemoryTrace mem, long addr, long sz, long step) {
+        if (sz > 0) {
+            int size = (int) sz;
+            if (size > MAX_STR_SIZE) {
+                size = MAX_STR_SIZE;
+            }
+            byte[] buf = new byte[size];
+            for (int i = 0; i < size; i++) {
+                try {
+                    buf[i] = mem.getByte(addr + i, step);
+                } catch (MemoryNotMappedException e) {
+                    return new String(buf, 0, i, StandardCharsets.ISO_8859_1);
+                }
+            }
+            return new String(buf, StandardCharsets.ISO_8859_1);
+        } else {
+            return null;
+        }
+    }
+
+    // iov: array of struct iovec { void* base; size_t len; }
+    private static String strv(MemoryTrace mem, long iov, long size, long step) {
+        StringBuilder buf = new StringBuilder();
+        for (long sz = 0, i = 0; sz < size; i += 16) {
+            try {
+                long base = mem.getWord(iov + i, step);
+                long len = mem.getWord(iov + i + 8, step);
+                long remaining = size - sz;
+                String s = str(mem, base, remaining < len ? remaining : len, step);
+                if (s == null) {
+                    break;
+                } else {
+                    buf.append(s);
+                    sz += len;
+                }
+            } catch (MemoryNotMappedException e) {
+                break;
+            }
+        }
+        return buf.toString();
+    }
+
+    public void resolve(MemoryTrace mem) {
+        String s;
+        if (vector) {
+            s = strv(mem, addr, size, getStep());
+        } else {
+            s = str(mem, addr, size, getStep());
+        }
+        value = s == null ? "" : s;
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+}
@@ -2,20 +2,26 @@ package org.graalvm.vm.trcview.arch.x86.io;
 
 import java.io.IOException;
 
+import org.graalvm.vm.trcview.arch.io.ChainedCpuState;
+import org.graalvm.vm.trcview.arch.io.Keyframe;
+import org.graalvm.vm.trcview.arch.io.StateCache;
 import org.graalvm.vm.util.Vector128;
 import org.graalvm.vm.util.io.WordInputStream;
 
-public class AMD64SmallDeltaCpuState extends AMD64CpuState {
+public class AMD64SmallDeltaCpuState extends AMD64CpuState implements ChainedCpuState<AMD64CpuState> {
     private final byte reg;
     private final long value;
     private final long rip;
     private final int efl;
 
-    private AMD64CpuState previous;
+    private final AMD64CpuState previous;
+    private final int depth;
+    private volatile Keyframe<AMD64CpuState> materialized;
 
     public AMD64SmallDeltaCpuState(WordInputStream in, int tid, byte[] machinecode, AMD64StepEvent last) throws IOException {
         super(tid, machinecode);
         previous = last.getState();
+        depth = StateCache.getDepth(previous);
 
         rip = in.read64bit();
         step = in.read64bit();
@@ -25,38 +31,38 @@ public class AMD64SmallDeltaCpuState extends AMD64CpuState {
         if (reg == ID_RFL) {
             efl = (int) value;
         } else {
-            efl = (int) previous.getRFL();
+            efl = (int) StateCache.previous(this).getRFL();
         }
     }
 
     @Override
     public long getRAX() {
-        return reg == ID_RAX ? value : previous.getRAX();
+        return getRegister(ID_RAX, StateCache.previous(this));
     }
 
     @Override
     public long getRBX() {
-        return reg == ID_RBX ? value : previous.getRBX();
+        return getRegister(ID_RBX, StateCache.previous(this));
     }
 
     @Override
     public long getRCX() {
-        return reg == ID_RCX ? value : previous.getRCX();
+        return getRegister(ID_RCX, StateCache.previous(this));
     }
 
     @Override
     public long getRDX() {
-        return reg == ID_RDX ? value : previous.getRDX();
+        return getRegister(ID_RDX, StateCache.previous(this));
     }
 
     @Override
     public long getRBP() {
-        return reg == ID_RBP ? value : previous.getRBP();
+        return getRegister(ID_RBP, StateCache.previous(this));
     }
 
     @Override
     public long getRSP() {
-        return reg == ID_RSP ? value : previous.getRSP();
+        return getRegister(ID_RSP, StateCache.previous(this));
     }
 
     @Override
@@ -66,52 +72,52 @@ public class AMD64SmallDeltaCpuState extends AMD64CpuState {
 
     @Override
     public long getRSI() {
-        return reg == ID_RSI ? value : previous.getRSI();
+        return getRegister(ID_RSI, StateCache.previous(this));
     }
 
     @Override
     public long getRDI() {
-        return reg == ID_RDI ? value : previous.getRDI();
+        return getRegister(ID_RDI, StateCache.previous(this));
     }
 
     @Override
     public long getR8() {
-        return reg == ID_R8 ? value : previous.getR8();
+        return getRegister(ID_R8, StateCache.previous(this));
     }
 
     @Override
     public long getR9() {
-        return reg == ID_R9 ? value : previous.getR9();
+        return getRegister(ID_R9, StateCache.previous(this));
     }
 
     @Override
     public long getR10() {
-        return reg == ID_R10 ? value : previous.getR10();
+        return getRegister(ID_R10, StateCache.previous(this));
     }
 
     @Override
     public long getR11() {
-        return reg == ID_R11 ? value : previous.getR11();
+        return getRegister(ID_R11, StateCache.previous(this));
     }
 
     @Override
     public long getR12() {
-        return reg == ID_R12 ? value : previous.getR12();
+        return getRegister(ID_R12, StateCache.previous(this));
     }
 
     @Override
     public long getR13() {
-        return reg == ID_R13 ? value : previous.getR13();
+        return getRegister(ID_R13, StateCache.previous(this));
     }
 
     @Override
     public long getR14() {
-        return reg == ID_R14 ? value : previous.getR14();
+        return getRegister(ID_R14, StateCache.previous(this));
     }
 
     @Override
     public long getR15() {
-        return reg == ID_R15 ? value : previous.getR15();
+        return getRegister(ID_R15, StateCache.previous(this));
     }
 
     @Override
@@ -121,16 +127,57 @@ public class AMD64SmallDeltaCpuState extends AMD64CpuState {
 
     @Override
     public long getFS() {
-        return reg == ID_FS ? value : previous.getFS();
+        return getRegister(ID_FS, StateCache.previous(this));
     }
 
     @Override
     public long getGS() {
-        return reg == ID_GS ? value : previous.getGS();
+        return getRegister(ID_GS, StateCache.previous(this));
     }
 
     @Override
     public Vector128 getXMM(int i) {
-        return previous.getXMM(i);
+        return StateCache.previous(this).getXMM(i);
     }
+
+    @Override
+    protected long getRegister(int id, AMD64CpuState base) {
+        if (id == ID_RFL) {
+            return efl;
+        } else if (id == reg) {
+            return value;
+        } else {
+            return getRegister(base, id);
+        }
+    }
+
+    @Override
+    protected Vector128 getXMM(int i, AMD64CpuState base) {
+        return base.getXMM(i);
+    }
+    @Override
+    public AMD64CpuState getPreviousState() {
+        return previous;
+    }
+
+    @Override
+    public int getChainDepth() {
+        return depth;
+    }
+
+    @Override
+    public Keyframe<AMD64CpuState> getMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public void setMaterialized(Keyframe<AMD64CpuState> state) {
+        materialized = state;
+    }
+
+    @Override
+    public AMD64CpuState resolve(AMD64CpuState base) {
+        return new AMD64FullCpuState(this, base);
+    }
+
 }
@@ -2,51 +2,57 @@ package org.graalvm.vm.trcview.arch.x86.io;
 
 import java.io.IOException;
 
+import org.graalvm.vm.trcview.arch.io.ChainedCpuState;
+import org.graalvm.vm.trcview.arch.io.Keyframe;
+import org.graalvm.vm.trcview.arch.io.StateCache;
 import org.graalvm.vm.util.Vector128;
 import org.graalvm.vm.util.io.WordInputStream;
 
-public class AMD64TinyDeltaCpuState extends AMD64CpuState {
+public class AMD64TinyDeltaCpuState extends AMD64CpuState implements ChainedCpuState<AMD64CpuState> {
     private final long rip;
     private final int efl;
 
-    private AMD64CpuState previous;
+    private final AMD64CpuState previous;
+    private final int depth;
+    private volatile Keyframe<AMD64CpuState> materialized;
 
     public AMD64TinyDeltaCpuState(WordInputStream in, int tid, byte[] machinecode, AMD64StepEvent last) throws IOException {
         super(tid, machinecode);
         previous = last.getState();
+        depth = StateCache.getDepth(previous);
         rip = in.read64bit();
         step = in.read64bit();
-        efl = (int) previous.getRFL();
+        efl = (int) StateCache.previous(this).getRFL();
     }
 
     @Override
     public long getRAX() {
-        return previous.getRAX();
+        return getRegister(ID_RAX, StateCache.previous(this));
     }
 
     @Override
     public long getRBX() {
-        return previous.getRBX();
+        return getRegister(ID_RBX, StateCache.previous(this));
     }
 
     @Override
     public long getRCX() {
-        return previous.getRCX();
+        return getRegister(ID_RCX, StateCache.previous(this));
     }
 
     @Override
     public long getRDX() {
-        return previous.getRDX();
+        return getRegister(ID_RDX, StateCache.previous(this));
     }
 
     @Override
     public long getRBP() {
-        return previous.getRBP();
+        return getRegister(ID_RBP, StateCache.previous(this));
     }
 
     @Override
     public long getRSP() {
-        return previous.getRSP();
+        return getRegister(ID_RSP, StateCache.previous(this));
     }
 
     @Override
@@ -56,52 +62,52 @@ public class AMD64TinyDeltaCpuState extends AMD64CpuState {
 
     @Override
     public long getRSI() {
-        return previous.getRSI();
+        return getRegister(ID_RSI, StateCache.previous(this));
     }
 
     @Override
     public long getRDI() {
-        return previous.getRDI();
+        return getRegister(ID_RDI, StateCache.previous(this));
     }
 
     @Override
     public long getR8() {
-        return previous.getR8();
+        return getRegister(ID_R8, StateCache.previous(this));
     }
 
     @Override
     public long getR9() {
-        return previous.getR9();
+        return getRegister(ID_R9, StateCache.previous(this));
     }
 
     @Override
     public long getR10() {
-        return previous.getR10();
+        return getRegister(ID_R10, StateCache.previous(this));
     }
 
     @Override
     public long getR11() {
-        return previous.getR11();
+        return getRegister(ID_R11, StateCache.previous(this));
     }
 
     @Override
     public long getR12() {
-        return previous.getR12();
+        return getRegister(ID_R12, StateCache.previous(this));
     }
 
     @Override
     public long getR13() {
-        return previous.getR13();
+        return getRegister(ID_R13, StateCache.previous(this));
     }
 
     @Override
     public long getR14() {
-        return previous.getR14();
+        return getRegister(ID_R14, StateCache.previous(this));
     }
 
     @Override
     public long getR15() {
-        return previous.getR15();
+        return getRegister(ID_R15, StateCache.previous(this));
     }
 
     @Override
@@ -111,16 +117,55 @@ public class AMD64TinyDeltaCpuState extends AMD64CpuState {
 
     @Override
     public long getFS() {
-        return previous.getFS();
+        return getRegister(ID_FS, StateCache.previous(this));
     }
 
     @Override
     public long getGS() {
-        return previous.getGS();
+        return getRegister(ID_GS, StateCache.previous(this));
     }
 
     @Override
     public Vector128 getXMM(int i) {
-        return previous.getXMM(i);
+        return StateCache.previous(this).getXMM(i);
     }
+
+    @Override
+    protected long getRegister(int id, AMD64CpuState base) {
+        if (id == ID_RFL) {
+            return efl;
+        } else {
+            return getRegister(base, id);
+        }
+    }
+
+    @Override
+    protected Vector128 getXMM(int i, AMD64CpuState base) {
+        return base.getXMM(i);
+    }
+    @Override
+    public AMD64CpuState getPreviousState() {
+        return previous;
+    }
+
+    @Override
+    public int getChainDepth() {
+        return depth;
+    }
+
+    @Override
+    public Keyframe<AMD64CpuState> getMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public void setMaterialized(Keyframe<AMD64CpuState> state) {
+        materialized = state;
+    }
+
+    @Override
+    public AMD64CpuState resolve(AMD64CpuState base) {
+        return new AMD64FullCpuState(this, base);
+    }
+
 }
@@ -2,13 +2,11 @@ package org.graalvm.vm.trcview.arch.x86.io;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 
 import org.graalvm.vm.posix.elf.Symbol;
 import org.graalvm.vm.trcview.analysis.Analyzer;
-import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
 import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
 import org.graalvm.vm.trcview.arch.Architecture;
 import org.graalvm.vm.trcview.arch.io.ArchTraceReader;
@@ -17,7 +15,6 @@ import org.graalvm.vm.trcview.arch.io.CpuState;
 import org.graalvm.vm.trcview.arch.io.EofEvent;
 import org.graalvm.vm.trcview.arch.io.Event;
 import org.graalvm.vm.trcview.arch.io.GenericMemoryEvent;
-import org.graalvm.vm.trcview.arch.io.IoEvent;
 import org.graalvm.vm.trcview.arch.io.MemoryDumpEvent;
 import org.graalvm.vm.trcview.arch.io.MemoryEventI128;
 import org.graalvm.vm.trcview.arch.io.MemoryEventI16;
@@ -54,8 +51,6 @@ public class AMD64TraceReader extends ArchTraceReader implements Analyzer {
     private static final byte FLAG_DATA = 1;
     private static final byte FLAG_WRITE = 2;
 
-    private static final int MAX_STR_SIZE = 16 * 1024 * 1024; // 16MiB
-
     private static final int MAX_DELTA_LENGTH = 1000;
 
     private WordInputStream in;
@@ -68,7 +63,7 @@ public class AMD64TraceReader extends ArchTraceReader implements Analyzer {
     private AMD64StepEvent lastStep;
 
     public AMD64TraceReader(InputStream in) {
-        this(new BEInputStream(in));
+        this(BEInputStream.wrap(in));
     }
 
     public AMD64TraceReader(WordInputStream in) {
@@ -80,26 +75,6 @@ public class AMD64TraceReader extends ArchTraceReader implements Analyzer {
         return this;
     }
 
-    private String str(long addr, long sz, long step) {
-        if (sz > 0) {
-            int size = (int) sz;
-            if (size > MAX_STR_SIZE) {
-                size = MAX_STR_SIZE;
-            }
-            byte[] buf = new byte[size];
-            for (int i = 0; i < size; i++) {
-                try {
-                    buf[i] = mem.getByte(addr + i, step);
-                } catch (MemoryNotMappedException e) {
-                    return new String(buf, 0, i, StandardCharsets.ISO_8859_1);
-                }
-            }
-            return new String(buf, StandardCharsets.ISO_8859_1);
-        } else {
-            return null;
-        }
-    }
-
     private byte[] readMachinecode() throws IOException {
         int len = in.read8bit();
         byte[] code = new byte[len];
@@ -138,97 +113,25 @@ public class AMD64TraceReader extends ArchTraceReader implements Analyzer {
         }
         lastStep = stored;
 
+        // only the buffer address is recorded here, the data is read from memory in process()
+        // which runs in the memory stage of the analysis
         if (mem != null && last != null) {
             AMD64CpuState state = last.getState();
             last = null;
             long rax = state.getRAX();
-            if (rax == Syscalls.SYS_read) { // read(int fd, long addr, long sz)
-                long step = stored.getStep();
-                int file = (int) state.getRDI();
-                if (file >= 0 && file <= 2) {
-                    long addr = state.getRSI();
-                    long size = stored.getState().getRAX();
-                    if (size > 0) {
-                        String s = str(addr, size, step);
-                        if (s != null) {
-                            int ch = file == 2 ? 1 : 0;
-                            return new IoEvent(state.getTid(), step, ch, true, s);
-                        }
-                    }
-                }
-            } else if (rax == Syscalls.SYS_write) { // write(int fd, long addr, long sz)
-                long step = state.getStep();
-                int file = (int) state.getRDI();
-                if (file >= 0 && file <= 2) {
-                    long addr = state.getRSI();
-                    long size = stored.getState().getRAX();
-                    if (size > 0) {
-                        String s = str(addr, size, step);
-                        if (s != null) {
-                            int ch = file == 2 ? 1 : 0;
-                            return new IoEvent(state.getTid(), step, ch, false, s);
-                        }
-                    }
-                }
-            } else if (rax == Syscalls.SYS_readv) { // readv(int fd, iov* iov, int cnt)
-                long step = stored.getStep();
-                int file = (int) state.getRDI();
-                if (file >= 0 && file <= 2) {
-                    long iov = state.getRSI();
-                    long size = stored.getState().getRAX();
-                    if (size > 0) {
-                        StringBuilder buf = new StringBuilder();
-                        for (long sz = 0, i = 0; sz < size; i += 16) {
-                            try {
-                                long base = mem.getWord(iov + i, step);
-                                long len = mem.getWord(iov + i + 8, step);
-                                long remaining = size - sz;
-                                String s = str(base, remaining < len ? remaining : len, step);
-                                if (s == null) {
-                                    break;
-                                } else {
-                                    buf.append(s);
-                                    sz += len;
-                                }
-                            } catch (MemoryNotMappedException e) {
-                                break;
-                            }
-                        }
-                        if (buf.length() > 0) {
-                            int ch = file == 2 ? 1 : 0;
-                            return new IoEvent(state.getTid(), step, ch, true, buf.toString());
-                        }
-                    }
-                }
-            } else if (rax == Syscalls.SYS_writev) { // writev(int fd, iov* iov, int cnt)
-                long step = state.getStep();
-                int file = (int) state.getRDI();
-                if (file >= 0 && file <= 2) {
-                    long iov = state.getRSI();
-                    long size = stored.getState().getRAX();
-                    if (size > 0) {
-                        StringBuilder buf = new StringBuilder();
-                        for (long sz = 0, i = 0; sz < size; i += 16) {
-                            try {
-                                long base = mem.getWord(iov + i, step);
-                                long len = mem.getWord(iov + i + 8, step);
-                                long remaining = size - sz;
-                                String s = str(base, remaining < len ? remaining : len, step);
-                                if (s == null) {
-                                    break;
-                                } else {
-                                    buf.append(s);
-                                    sz += len;
-                                }
-                            } catch (MemoryNotMappedException e) {
-                                break;
-                            }
-                        }
-                        if (buf.length() > 0) {
-                            int ch = file == 2 ? 1 : 0;
-                            return new IoEvent(state.getTid(), step, ch, false, buf.toString());
-                        }
-                    }
+            int file = (int) state.getRDI();
+            long addr = state.getRSI();
+            long size = stored.getState().getRAX();
+            if (file >= 0 && file <= 2 && size > 0) {
+                int ch = file == 2 ? 1 : 0;
+                if (rax == Syscalls.SYS_read) { // read(int fd, long addr, long sz)
+                    return new AMD64IoEvent(state.getTid(), stored.getStep(), ch, true, addr, size, false);
+                } else if (rax == Syscalls.SYS_write) { // write(int fd, long addr, long sz)
+                    return new AMD64IoEvent(state.getTid(), state.getStep(), ch, false, addr, size, false);
+                } else if (rax == Syscalls.SYS_readv) { // readv(int fd, iov* iov, int cnt)
+                    return new AMD64IoEvent(state.getTid(), stored.getStep(), ch, true, addr, size, true);
+                } else if (rax == Syscalls.SYS_writev) { // writev(int fd, iov* iov, int cnt)
+                    return new AMD64IoEvent(state.getTid(), state.getStep(), ch, false, addr, size, true);
                 }
             }
         }
@@ -380,7 +283,9 @@ public class AMD64TraceReader extends ArchTraceReader implements Analyzer {
 
     @Override
     public void process(Event event, Node node, CpuState state) {
-        // nothing
+        if (event instanceof AMD64IoEvent) {
+            ((AMD64IoEvent) event).resolve(mem);
+        }
     }
 
     @Override
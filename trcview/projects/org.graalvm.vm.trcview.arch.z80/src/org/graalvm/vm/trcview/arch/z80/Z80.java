@@ -22,6 +22,7 @@ public class Z80 extends Architecture {
     public static final short ID = Elf.EM_Z80;
     public static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_HEX, 4, 4, 1, false);
     public static final ArchitectureTypeInfo TYPE_INFO = new ArchitectureTypeInfo(2, 1, 1, 2);
+    private static final String[] REGISTER_NAMES = {"af", "bc", "de", "hl", "ix", "iy", "sp"};
 
     private static final SyscallDecoder syscallDecoder = new GenericSyscallDecoder();
     private static final CallDecoder callDecoder = new GenericCallDecoder();
@@ -86,6 +87,11 @@ public class Z80 extends Architecture {
         return TYPE_INFO;
     }
 
+    @Override
+    public String[] getRegisterNames() {
+        return REGISTER_NAMES;
+    }
+
     @Override
     public Disassembler getDisassembler(TraceAnalyzer trc) {
         return new Z80Disassembler(trc);
@@ -50,7 +50,7 @@ public class Z80TraceReader extends ArchTraceReader {
     private byte irq = 0;
 
     public Z80TraceReader(InputStream in) {
-        this(new LEInputStream(in));
+        this(LEInputStream.wrap(in));
     }
 
     private Z80TraceReader(WordInputStream in) {
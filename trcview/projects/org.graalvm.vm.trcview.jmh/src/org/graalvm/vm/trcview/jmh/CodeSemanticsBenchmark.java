@@ -0,0 +1,124 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.analysis.SymbolTable;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.ppc.PowerPC;
+import org.graalvm.vm.trcview.data.CodeSemantics;
+import org.graalvm.vm.trcview.data.CodeTypeMap;
+import org.graalvm.vm.trcview.data.MemoryAccessMap;
+import org.graalvm.vm.trcview.data.MemoryTypeMap;
+import org.graalvm.vm.trcview.data.ir.RegisterOperand;
+import org.graalvm.vm.trcview.data.type.VariableType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Type resolution over the register chains which {@link CodeSemantics} builds for a synthetic
+ * program of register moves, arithmetic and type constraints. PowerPC is used as architecture, since
+ * it has a fixed set of 32 general purpose registers for which semantics are tracked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CodeSemanticsBenchmark {
+    public static final int INSTRUCTIONS = 4096;
+    public static final int STEPS = 200_000;
+    public static final int QUERIES = 100;
+    private static final int REGISTERS = 32;
+
+    private CodeSemantics semantics;
+    private long[] pcs;
+    private RegisterOperand[] operands;
+
+    private static long pc(int insn) {
+        return TraceGenerator.CODE_BASE + insn * 4;
+    }
+
+    @Setup
+    public void setup() {
+        Architecture arch = Architecture.getArchitecture(PowerPC.ID);
+        SymbolTable symbols = new SymbolTable(arch.getFormat(), Collections.emptyNavigableMap());
+        semantics = new CodeSemantics(new CodeTypeMap(arch.getRegisterCount()), new MemoryTypeMap(), symbols, new MemoryAccessMap(), new MemoryTrace(false), arch);
+
+        // every instruction always does the same thing, like real code
+        Random rng = new Random(42);
+        int[] kind = new int[INSTRUCTIONS];
+        int[] dst = new int[INSTRUCTIONS];
+        int[] src = new int[INSTRUCTIONS];
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            kind[i] = rng.nextInt(4);
+            dst[i] = rng.nextInt(REGISTERS);
+            src[i] = rng.nextInt(REGISTERS);
+        }
+
+        // execute loops of random length over the program
+        long last = -1;
+        int insn = 0;
+        for (int step = 0; step < STEPS; step++) {
+            long pc = pc(insn);
+            semantics.setPC(pc);
+            if (last != -1) {
+                semantics.chain(last);
+            }
+            last = pc;
+            RegisterOperand d = new RegisterOperand(dst[insn]);
+            RegisterOperand s = new RegisterOperand(src[insn]);
+            switch (kind[insn]) {
+                case 0:
+                    semantics.read(src[insn]);
+                    semantics.write(dst[insn]);
+                    semantics.move(d, s);
+                    break;
+                case 1:
+                    semantics.read(src[insn]);
+                    semantics.read(dst[insn]);
+                    semantics.write(dst[insn]);
+                    semantics.arithmetic(d, false);
+                    break;
+                case 2:
+                    semantics.read(src[insn]);
+                    semantics.constraint(s, VariableType.POINTER_I64);
+                    break;
+                default:
+                    semantics.write(dst[insn]);
+                    semantics.set(d, VariableType.S64);
+                    break;
+            }
+            insn = rng.nextInt(32) == 0 ? rng.nextInt(INSTRUCTIONS) : (insn + 1) % INSTRUCTIONS;
+        }
+        semantics.finish();
+
+        pcs = new long[QUERIES];
+        operands = new RegisterOperand[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            pcs[i] = pc(rng.nextInt(INSTRUCTIONS));
+            operands[i] = new RegisterOperand(rng.nextInt(REGISTERS));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void resolve(Blackhole bh) {
+        for (int i = 0; i < QUERIES; i++) {
+            bh.consume(semantics.resolve(pcs[i], operands[i]));
+        }
+    }
+}
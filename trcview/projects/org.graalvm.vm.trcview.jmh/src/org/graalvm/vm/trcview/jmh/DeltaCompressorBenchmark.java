@@ -0,0 +1,58 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.storage.DeltaCompressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Delta compression of consecutive CPU states as done by the trace index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DeltaCompressorBenchmark {
+    // size of a serialized AMD64 state
+    @Param({"424"}) public int size;
+    @Param({"1", "16"}) public int changes;
+
+    private byte[] last;
+    private byte[] current;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() {
+        Random rng = new Random(42);
+        last = new byte[size];
+        rng.nextBytes(last);
+        current = last.clone();
+        for (int i = 0; i < changes; i++) {
+            current[rng.nextInt(size)] ^= 1 + rng.nextInt(255);
+        }
+        compressed = DeltaCompressor.compress(last, current);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return DeltaCompressor.compress(last, current);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return DeltaCompressor.decompress(last, compressed);
+    }
+}
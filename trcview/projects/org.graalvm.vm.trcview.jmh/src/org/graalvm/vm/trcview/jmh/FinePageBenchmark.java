@@ -0,0 +1,64 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.analysis.memory.FinePage;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.Protection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * History lookups in a single {@link FinePage} with a configurable number of updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FinePageBenchmark {
+    public static final int QUERIES = 10_000;
+    private static final long BASE = 0x10000;
+
+    @Param({"1000", "100000"}) public int updates;
+
+    private FinePage page;
+    private long[] addresses;
+    private long[] steps;
+
+    @Setup
+    public void setup() {
+        Random rng = new Random(42);
+        page = new FinePage(BASE, 0, 0, null, new Protection(true, true, false));
+        for (int i = 0; i < updates; i++) {
+            page.addUpdate(BASE + rng.nextInt(4096 / 8) * 8, (byte) 8, rng.nextLong(), i + 1, null, null, false);
+        }
+        addresses = new long[QUERIES];
+        steps = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            addresses[i] = BASE + rng.nextInt(4096);
+            steps[i] = rng.nextInt(updates) + 1;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void getLastUpdate(Blackhole bh) throws MemoryNotMappedException {
+        for (int i = 0; i < QUERIES; i++) {
+            bh.consume(page.getLastUpdate(addresses[i], steps[i]));
+        }
+    }
+}
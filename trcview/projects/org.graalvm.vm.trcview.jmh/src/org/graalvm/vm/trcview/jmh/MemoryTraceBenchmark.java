@@ -0,0 +1,99 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.analysis.memory.Protection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Recording and querying memory accesses in {@link MemoryTrace}. One operation is one access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MemoryTraceBenchmark {
+    public static final int ACCESSES = 100_000;
+    private static final long BASE = 0x10000;
+    private static final int SIZE = 0x10000;
+
+    @Param({"true", "false"}) public boolean packed;
+
+    private long[] addresses;
+    private long[] values;
+    private MemoryTrace populated;
+    private MemoryTrace empty;
+
+    private static MemoryTrace create(boolean packed) {
+        MemoryTrace mem = new MemoryTrace(false, packed);
+        mem.mmap(BASE, SIZE, new Protection(true, true, false), null, 0, 0, null, null);
+        return mem;
+    }
+
+    @Setup
+    public void setup() {
+        Random rng = new Random(42);
+        addresses = new long[ACCESSES];
+        values = new long[ACCESSES];
+        for (int i = 0; i < ACCESSES; i++) {
+            addresses[i] = BASE + rng.nextInt(SIZE / 8) * 8;
+            values[i] = rng.nextLong();
+        }
+        populated = create(packed);
+        for (int i = 0; i < ACCESSES; i++) {
+            populated.write(addresses[i], (byte) 8, values[i], i + 1, null, null, false);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        empty = create(packed);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public MemoryTrace write() {
+        MemoryTrace mem = empty;
+        for (int i = 0; i < ACCESSES; i++) {
+            mem.write(addresses[i], (byte) 8, values[i], i + 1, null, null, false);
+        }
+        return mem;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public MemoryTrace read() {
+        MemoryTrace mem = empty;
+        for (int i = 0; i < ACCESSES; i++) {
+            mem.read(addresses[i], (byte) 8, i + 1, null, null);
+        }
+        return mem;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void getWord(Blackhole bh) throws MemoryNotMappedException {
+        for (int i = 0; i < ACCESSES; i++) {
+            // query each address at the middle of the trace
+            bh.consume(populated.getWord(addresses[i], ACCESSES / 2));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.analysis.Search;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Navigation in the call tree of a parsed AMD64 trace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SearchBenchmark {
+    public static final int STEPS = 200_000;
+    public static final int QUERIES = 1_000;
+    // nextPC walks the tree linearly and is much slower than instruction
+    public static final int PC_QUERIES = 50;
+
+    private BlockNode root;
+    private long[] steps;
+    private Node[] nodes;
+    private long[] pcs;
+
+    @Setup
+    public void setup() throws IOException {
+        root = TraceParserBenchmark.parse(TraceGenerator.amd64(STEPS, 42), false, false);
+        Random rng = new Random(42);
+        steps = new long[QUERIES];
+        nodes = new Node[QUERIES];
+        pcs = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            steps[i] = rng.nextInt(STEPS);
+            nodes[i] = Search.instruction(root, steps[i]);
+            // the start of a subroutine, see TraceGenerator
+            pcs[i] = TraceGenerator.CODE_BASE + rng.nextInt(64) * 0x1000;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void instruction(Blackhole bh) {
+        for (int i = 0; i < QUERIES; i++) {
+            bh.consume(Search.instruction(root, steps[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PC_QUERIES)
+    public void nextPC(Blackhole bh) {
+        for (int i = 0; i < PC_QUERIES; i++) {
+            bh.consume(Search.nextPC(nodes[i], pcs[i]));
+        }
+    }
+}
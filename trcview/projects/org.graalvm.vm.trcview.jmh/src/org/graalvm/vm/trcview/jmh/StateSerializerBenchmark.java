@@ -0,0 +1,111 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.jmh.TraceGenerator.GenericState;
+import org.graalvm.vm.trcview.libtrc.GenericTrace;
+import org.graalvm.vm.trcview.libtrc.StateSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * State serialization in libtrc: the reflective serializer, the method handle based serializer
+ * and a complete delta step of {@link GenericTrace}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StateSerializerBenchmark {
+    private static final String[] ASM = {"nop"};
+    private static final byte[] MACHINECODE = {(byte) 0x90};
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            // discard
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discard
+        }
+    }
+
+    private StateSerializer<GenericState> serializer;
+    private GenericState[] states;
+    private ByteBuffer buffer;
+    private GenericTrace<GenericState> trace;
+    private int index;
+    private long step;
+
+    @Setup
+    public void setup() throws IOException {
+        serializer = new StateSerializer<>(GenericState.class);
+        buffer = ByteBuffer.allocate(serializer.getSize());
+        trace = new GenericTrace<>(new NullOutputStream(), GenericState.class);
+
+        // consecutive states which differ in the pc and a few registers
+        Random rng = new Random(42);
+        states = new GenericState[256];
+        long pc = TraceGenerator.CODE_BASE;
+        long sp = TraceGenerator.STACK_BASE;
+        long[] r = new long[4];
+        for (int i = 0; i < states.length; i++) {
+            pc += 1 + rng.nextInt(8);
+            if (rng.nextInt(8) == 0) {
+                sp -= 8;
+            }
+            r[rng.nextInt(r.length)] = rng.nextLong();
+            GenericState state = new GenericState();
+            state.pc = pc;
+            state.sp = sp;
+            state.r0 = r[0];
+            state.r1 = r[1];
+            state.r2 = r[2];
+            state.r3 = r[3];
+            states[i] = state;
+        }
+    }
+
+    private GenericState next() {
+        GenericState state = states[index];
+        index = (index + 1) % states.length;
+        return state;
+    }
+
+    @Benchmark
+    public byte[] reflective() throws IllegalAccessException {
+        return serializer.serialize(next());
+    }
+
+    @Benchmark
+    public ByteBuffer methodHandles() throws IllegalAccessException {
+        serializer.serialize(next(), buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public long pc() throws IllegalAccessException {
+        return serializer.getPC(next());
+    }
+
+    @Benchmark
+    public void step() throws IOException {
+        trace.step(0, step++, next(), ASM, MACHINECODE, GenericTrace.TYPE_OTHER);
+    }
+}
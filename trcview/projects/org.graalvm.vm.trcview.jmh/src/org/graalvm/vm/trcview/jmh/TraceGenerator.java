@@ -0,0 +1,295 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.trcview.arch.none.None;
+import org.graalvm.vm.trcview.arch.x86.AMD64;
+import org.graalvm.vm.trcview.arch.x86.io.AMD64TraceReader;
+import org.graalvm.vm.trcview.libtrc.GenericTrace;
+import org.graalvm.vm.trcview.libtrc.ProgramCounter;
+import org.graalvm.vm.trcview.libtrc.Register;
+import org.graalvm.vm.trcview.libtrc.StateFormat;
+import org.graalvm.vm.util.io.BEOutputStream;
+
+/**
+ * Generates synthetic but well-formed trace files. The generated programs consist of a number of
+ * subroutines which call each other up to a maximum depth, plus memory reads and writes to a data
+ * segment and pushes to the stack, so the parser builds a realistic call tree and memory trace.
+ */
+public class TraceGenerator {
+    public static final String ARCH_GENERIC = "generic";
+    public static final String ARCH_AMD64 = "amd64";
+
+    public static final long CODE_BASE = 0x400000;
+    public static final long DATA_BASE = 0x600000;
+    public static final long DATA_SIZE = 0x10000;
+    public static final long STACK_BASE = 0x7ff000000000L;
+    public static final long STACK_SIZE = 0x10000;
+
+    private static final int MAGIC = 0x58545243;
+    private static final int FUNCTIONS = 64;
+    private static final int MAX_DEPTH = 32;
+
+    private static final byte[] NOP = {(byte) 0x90};
+    private static final byte[] CALL = {(byte) 0xe8, 0, 0, 0, 0};
+    private static final byte[] RET = {(byte) 0xc3};
+
+    @StateFormat("PC=${pc} SP=${sp} R0=${r0} R1=${r1} R2=${r2} R3=${r3}")
+    public static class GenericState {
+        @ProgramCounter @Register public long pc;
+        @Register public long sp;
+        @Register public long r0;
+        @Register public long r1;
+        @Register public long r2;
+        @Register public long r3;
+    }
+
+    private enum Kind {
+        OTHER,
+        CALL,
+        RET
+    }
+
+    /**
+     * Produces the control flow of the synthetic program, independent of the trace format.
+     */
+    private static class Program {
+        private final Random rng;
+        private final Deque<Long> stack = new ArrayDeque<>();
+
+        long pc = CODE_BASE;
+        long sp = STACK_BASE + STACK_SIZE - 8;
+        Kind kind;
+
+        Program(long seed) {
+            rng = new Random(seed);
+        }
+
+        Random rng() {
+            return rng;
+        }
+
+        // decides the type of the instruction at pc
+        void decode() {
+            int r = rng.nextInt(16);
+            if (r == 0 && stack.size() < MAX_DEPTH) {
+                kind = Kind.CALL;
+            } else if (r == 1 && !stack.isEmpty()) {
+                kind = Kind.RET;
+            } else {
+                kind = Kind.OTHER;
+            }
+        }
+
+        // computes the state after the instruction at pc
+        void execute() {
+            switch (kind) {
+                case CALL:
+                    stack.push(pc + CALL.length);
+                    sp -= 8;
+                    pc = CODE_BASE + rng.nextInt(FUNCTIONS) * 0x1000;
+                    break;
+                case RET:
+                    pc = stack.pop();
+                    sp += 8;
+                    break;
+                default:
+                    pc += NOP.length;
+                    break;
+            }
+        }
+    }
+
+    public static byte[] generate(String arch, int steps, long seed) throws IOException {
+        switch (arch) {
+            case ARCH_GENERIC:
+                return generic(steps, seed);
+            case ARCH_AMD64:
+                return amd64(steps, seed);
+            default:
+                throw new IllegalArgumentException("unknown architecture " + arch);
+        }
+    }
+
+    public static short getArchitectureId(String arch) {
+        switch (arch) {
+            case ARCH_GENERIC:
+                return None.ID;
+            case ARCH_AMD64:
+                return AMD64.ID;
+            default:
+                throw new IllegalArgumentException("unknown architecture " + arch);
+        }
+    }
+
+    public static byte[] generic(int steps, long seed) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        GenericTrace<GenericState> trc = new GenericTrace<>(buf, GenericState.class);
+        trc.setAddressWidth(16);
+        trc.setWordWidth(16);
+        trc.setMachinecodeSize(5);
+        trc.mmap(0, 0, DATA_SIZE, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_PRIVATE | Mman.MAP_ANONYMOUS, 0, -1, DATA_BASE, null);
+        trc.mmap(0, 0, STACK_SIZE, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_PRIVATE | Mman.MAP_ANONYMOUS, 0, -1, STACK_BASE, null);
+
+        Program p = new Program(seed);
+        Random rng = p.rng();
+        GenericState state = new GenericState();
+        for (long step = 0; step < steps; step++) {
+            state.pc = p.pc;
+            state.sp = p.sp;
+            p.decode();
+            switch (p.kind) {
+                case CALL:
+                    trc.step(0, step, state, new String[]{"call"}, CALL, GenericTrace.TYPE_CALL);
+                    trc.writeI64(0, p.sp - 8, p.pc + CALL.length);
+                    break;
+                case RET:
+                    trc.step(0, step, state, new String[]{"ret"}, RET, GenericTrace.TYPE_RET);
+                    trc.readI64(0, p.sp);
+                    break;
+                default:
+                    trc.step(0, step, state, new String[]{"nop"}, NOP, GenericTrace.TYPE_OTHER);
+                    if (rng.nextInt(4) == 0) {
+                        long addr = DATA_BASE + rng.nextInt((int) DATA_SIZE / 8) * 8;
+                        if (rng.nextBoolean()) {
+                            trc.writeI64(0, addr, rng.nextLong());
+                        } else {
+                            trc.readI64(0, addr);
+                        }
+                    }
+                    break;
+            }
+            p.execute();
+            if (rng.nextInt(8) == 0) {
+                state.r0 = rng.nextLong();
+            }
+            state.r1 = step;
+        }
+        return buf.toByteArray();
+    }
+
+    private static void writeMachinecode(BEOutputStream out, byte[] code) throws IOException {
+        out.write8bit((byte) code.length);
+        out.write(code);
+    }
+
+    private static void writeMmap(BEOutputStream out, long addr, long len) throws IOException {
+        out.write8bit(AMD64TraceReader.TYPE_MMAP);
+        out.write32bit(0);
+        out.write64bit(0);
+        out.write64bit(len);
+        out.write32bit(Mman.PROT_READ | Mman.PROT_WRITE);
+        out.write32bit(Mman.MAP_PRIVATE | Mman.MAP_ANONYMOUS);
+        out.write32bit(-1);
+        out.write64bit(0);
+        out.write64bit(addr);
+        out.write16bit((short) 0); // filename
+        out.write32bit(0); // data
+    }
+
+    private static void writeMemory(BEOutputStream out, long addr, boolean write, long value) throws IOException {
+        out.write8bit(AMD64TraceReader.TYPE_MEMORY);
+        out.write32bit(0);
+        out.write8bit((byte) (write ? 3 : 1)); // FLAG_DATA | FLAG_WRITE
+        out.write8bit((byte) 8);
+        out.write64bit(addr);
+        out.write64bit(value);
+    }
+
+    public static byte[] amd64(int steps, long seed) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        BEOutputStream out = new BEOutputStream(buf);
+        out.write32bit(MAGIC);
+        out.write16bit(AMD64.ID);
+        writeMmap(out, DATA_BASE, DATA_SIZE);
+        writeMmap(out, STACK_BASE, STACK_SIZE);
+
+        Program p = new Program(seed);
+        Random rng = p.rng();
+        long sp = p.sp;
+        for (long step = 0; step < steps; step++) {
+            p.decode();
+            byte[] code;
+            switch (p.kind) {
+                case CALL:
+                    code = CALL;
+                    break;
+                case RET:
+                    code = RET;
+                    break;
+                default:
+                    code = NOP;
+                    break;
+            }
+
+            if (step == 0) {
+                out.write8bit(AMD64TraceReader.TYPE_FULL_STATE);
+                out.write32bit(0);
+                writeMachinecode(out, code);
+                for (int i = 0; i < 16; i++) {
+                    out.write64bit(i == 4 ? p.sp : 0); // rsp
+                }
+                out.write64bit(p.pc);
+                out.write64bit(0); // fs
+                out.write64bit(0); // gs
+                out.write64bit(0x202); // rflags
+                out.write64bit(step);
+                for (int i = 0; i < 16; i++) {
+                    out.write64bit(0);
+                    out.write64bit(0);
+                }
+            } else if (p.sp != sp) {
+                // only rsp changed
+                out.write8bit(AMD64TraceReader.TYPE_SMALL_DELTA_STATE);
+                out.write32bit(0);
+                writeMachinecode(out, code);
+                out.write64bit(p.pc);
+                out.write64bit(step);
+                out.write64bit(p.sp);
+                out.write8bit((byte) 4);
+            } else if (rng.nextInt(4) == 0) {
+                // two general purpose registers changed
+                out.write8bit(AMD64TraceReader.TYPE_DELTA_STATE);
+                out.write32bit(0);
+                writeMachinecode(out, code);
+                out.write64bit(p.pc);
+                out.write64bit(step);
+                out.write8bit((byte) 2);
+                out.write8bit((byte) 0);
+                out.write64bit(rng.nextLong());
+                out.write8bit((byte) (1 + rng.nextInt(3)));
+                out.write64bit(rng.nextLong());
+            } else {
+                out.write8bit(AMD64TraceReader.TYPE_TINY_DELTA_STATE);
+                out.write32bit(0);
+                writeMachinecode(out, code);
+                out.write64bit(p.pc);
+                out.write64bit(step);
+            }
+            sp = p.sp;
+
+            switch (p.kind) {
+                case CALL:
+                    writeMemory(out, p.sp - 8, true, p.pc + CALL.length);
+                    break;
+                case RET:
+                    writeMemory(out, p.sp, false, 0);
+                    break;
+                default:
+                    if (rng.nextInt(4) == 0) {
+                        long addr = DATA_BASE + rng.nextInt((int) DATA_SIZE / 8) * 8;
+                        writeMemory(out, addr, rng.nextBoolean(), rng.nextLong());
+                    }
+                    break;
+            }
+            p.execute();
+        }
+        out.flush();
+        return buf.toByteArray();
+    }
+}
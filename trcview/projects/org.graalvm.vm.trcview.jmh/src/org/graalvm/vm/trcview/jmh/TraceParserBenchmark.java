@@ -0,0 +1,70 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.analysis.Analyzer;
+import org.graalvm.vm.trcview.arch.io.TraceFileReader;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.TraceParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full load of a trace: decoding, tree construction and analysis, reported in steps per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TraceParserBenchmark {
+    public static final int STEPS = 100_000;
+
+    @Param({TraceGenerator.ARCH_GENERIC, TraceGenerator.ARCH_AMD64}) public String arch;
+    @Param({"false", "true"}) public boolean parallel;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        data = TraceGenerator.generate(arch, STEPS, 42);
+    }
+
+    public static BlockNode parse(byte[] data, boolean parallel, boolean typeRecovery) throws IOException {
+        TraceFileReader reader = new TraceFileReader(new ByteArrayInputStream(data));
+        List<Analyzer> analyzers = new ArrayList<>();
+        if (reader.getAnalyzer() != null) {
+            analyzers.add(reader.getAnalyzer());
+        }
+        Analysis analysis = new Analysis(reader.getArchitecture(), analyzers, typeRecovery, false);
+        analysis.setParallel(parallel, null);
+        analysis.start();
+        Map<Integer, BlockNode> threads = TraceParser.parse(reader, analysis, null);
+        BlockNode root = threads.get(0);
+        analysis.finish(root);
+        return root;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public BlockNode parse() throws IOException {
+        return parse(data, parallel, false);
+    }
+}
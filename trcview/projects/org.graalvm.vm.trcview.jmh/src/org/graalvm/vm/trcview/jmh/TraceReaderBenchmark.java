@@ -0,0 +1,53 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.TraceFileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding throughput of {@link TraceFileReader#read()}, reported in steps per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TraceReaderBenchmark {
+    public static final int STEPS = 100_000;
+
+    @Param({TraceGenerator.ARCH_GENERIC, TraceGenerator.ARCH_AMD64}) public String arch;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        data = TraceGenerator.generate(arch, STEPS, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public void read(Blackhole bh) throws IOException {
+        TraceFileReader reader = new TraceFileReader(new ByteArrayInputStream(data));
+        Event event;
+        while ((event = reader.read()) != null) {
+            bh.consume(event);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.graalvm.vm.trcview.jmh;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.vm.trcview.analysis.SymbolTable;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.arch.io.StepFormat;
+import org.graalvm.vm.trcview.arch.ppc.PowerPC;
+import org.graalvm.vm.trcview.data.DynamicTypePropagation;
+import org.graalvm.vm.trcview.data.Semantics;
+import org.graalvm.vm.trcview.data.ir.MemoryOperand;
+import org.graalvm.vm.trcview.data.ir.RegisterOperand;
+import org.graalvm.vm.trcview.data.type.VariableType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heap retained by {@link DynamicTypePropagation} per traced instruction. A synthetic PowerPC
+ * program of register moves, arithmetic, type constraints, loads and stores is fed through the
+ * type propagation. The steps are allocated up front, so only the type maps, chains and access
+ * maps are counted. The footprint is reported in the {@code bytesPerStep} counter; the time
+ * includes the garbage collections used for measuring it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class TypeRecoveryFootprintBenchmark {
+    public static final int INSTRUCTIONS = 4096;
+    public static final int STEPS = 500_000;
+    private static final int REGISTERS = 32;
+
+    private Architecture arch;
+    private SymbolTable symbols;
+    private Step[] steps;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerStep;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerStep = 0;
+        }
+    }
+
+    private static class Step extends StepEvent implements CpuState {
+        private final StepFormat format;
+        private final long step;
+        private final long pc;
+        private final int kind;
+        private final int dst;
+        private final int src;
+        private final long address;
+
+        Step(StepFormat format, long step, long pc, int kind, int dst, int src, long address) {
+            super(0);
+            this.format = format;
+            this.step = step;
+            this.pc = pc;
+            this.kind = kind;
+            this.dst = dst;
+            this.src = src;
+            this.address = address;
+        }
+
+        @Override
+        public byte[] getMachinecode() {
+            return new byte[4];
+        }
+
+        @Override
+        public String[] getDisassemblyComponents() {
+            return new String[]{getMnemonic()};
+        }
+
+        @Override
+        public String getMnemonic() {
+            return "op" + kind;
+        }
+
+        @Override
+        public long getPC() {
+            return pc;
+        }
+
+        @Override
+        public InstructionType getType() {
+            return InstructionType.OTHER;
+        }
+
+        @Override
+        public long getStep() {
+            return step;
+        }
+
+        @Override
+        public CpuState getState() {
+            return this;
+        }
+
+        @Override
+        public StepFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public long get(String name) {
+            return 0;
+        }
+
+        @Override
+        public int[] getRegisterReads() {
+            switch (kind) {
+                case 0:
+                case 2:
+                case 5:
+                    return new int[]{src};
+                case 1:
+                    return new int[]{src, dst};
+                default:
+                    return new int[0];
+            }
+        }
+
+        @Override
+        public int[] getRegisterWrites() {
+            switch (kind) {
+                case 0:
+                case 1:
+                case 3:
+                case 4:
+                    return new int[]{dst};
+                default:
+                    return new int[0];
+            }
+        }
+
+        @Override
+        public void getSemantics(Semantics s) {
+            RegisterOperand d = new RegisterOperand(dst);
+            RegisterOperand r = new RegisterOperand(src);
+            switch (kind) {
+                case 0:
+                    s.move(d, r);
+                    break;
+                case 1:
+                    s.arithmetic(d, false);
+                    break;
+                case 2:
+                    s.constraint(r, VariableType.POINTER_I64);
+                    break;
+                case 3:
+                    s.set(d, VariableType.S64);
+                    break;
+                case 4:
+                    s.move(d, new MemoryOperand(address));
+                    break;
+                default:
+                    s.move(new MemoryOperand(address), r);
+                    break;
+            }
+        }
+    }
+
+    private static long pc(int insn) {
+        return TraceGenerator.CODE_BASE + insn * 4;
+    }
+
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Setup
+    public void setup() {
+        arch = Architecture.getArchitecture(PowerPC.ID);
+        symbols = new SymbolTable(arch.getFormat(), Collections.emptyNavigableMap());
+
+        // every instruction always does the same thing, like real code; loads and stores walk
+        // over a small array
+        Random rng = new Random(42);
+        int[] kind = new int[INSTRUCTIONS];
+        int[] dst = new int[INSTRUCTIONS];
+        int[] src = new int[INSTRUCTIONS];
+        long[] base = new long[INSTRUCTIONS];
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            kind[i] = rng.nextInt(6);
+            dst[i] = rng.nextInt(REGISTERS);
+            src[i] = rng.nextInt(REGISTERS);
+            base[i] = TraceGenerator.DATA_BASE + rng.nextInt((int) TraceGenerator.DATA_SIZE / 8 - 16) * 8;
+        }
+
+        // execute loops of random length over the program
+        steps = new Step[STEPS];
+        int insn = 0;
+        for (int step = 0; step < STEPS; step++) {
+            long address = base[insn] + (step % 16) * 8;
+            steps[step] = new Step(arch.getFormat(), step, pc(insn), kind[insn], dst[insn], src[insn], address);
+            insn = rng.nextInt(32) == 0 ? rng.nextInt(INSTRUCTIONS) : (insn + 1) % INSTRUCTIONS;
+        }
+    }
+
+    @Benchmark
+    public DynamicTypePropagation propagate(Footprint footprint) {
+        long before = used();
+        DynamicTypePropagation propagation = new DynamicTypePropagation(arch, symbols, new MemoryTrace(false));
+        for (Step step : steps) {
+            propagation.step(step, step);
+        }
+        propagation.finish();
+        long after = used();
+        footprint.bytesPerStep = (after - before) / STEPS;
+        return propagation;
+    }
+}
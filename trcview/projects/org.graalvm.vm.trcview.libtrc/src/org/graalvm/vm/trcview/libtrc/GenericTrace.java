@@ -1,7 +1,9 @@
 package org.graalvm.vm.trcview.libtrc;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.HashMap;
@@ -10,9 +12,10 @@ import java.util.Map;
 
 import org.graalvm.vm.posix.elf.Symbol;
 import org.graalvm.vm.util.io.BEOutputStream;
+import org.graalvm.vm.util.io.BlockCompressedOutputStream;
 import org.graalvm.vm.util.io.WordOutputStream;
 
-public class GenericTrace<T> {
+public class GenericTrace<T> implements Closeable {
     public static final int NUMBERFMT_HEX = 0;
     public static final int NUMBERFMT_OCT = 1;
 
@@ -57,7 +60,12 @@ public class GenericTrace<T> {
     private boolean isBE = true;
 
     private T lastState = null;
-    private byte[] lastSerializedState = null;
+
+    // the state of the current and the previous step and the record of the current step
+    private final int statesz;
+    private ByteBuffer currentState;
+    private ByteBuffer lastSerializedState;
+    private ByteBuffer record = ByteBuffer.allocate(256);
 
     private int numberfmt = NUMBERFMT_HEX;
     private int addrwidth = 16;
@@ -65,13 +73,24 @@ public class GenericTrace<T> {
     private int machinecodesz = 1;
 
     public GenericTrace(OutputStream out, Class<T> state) throws IOException {
-        this.out = new BEOutputStream(out);
+        this(out, state, false);
+    }
+
+    /**
+     * Creates a trace writer. Compressed traces have to be closed (or flushed) before the data is
+     * complete.
+     */
+    public GenericTrace(OutputStream out, Class<T> state, boolean compress) throws IOException {
+        this.out = new BEOutputStream(compress ? new BlockCompressedOutputStream(out) : out);
         serializer = new StateSerializer<>(state);
         int mask = serializer.getSize() / 8;
         if ((serializer.getSize() % 8) != 0) {
             mask++;
         }
         masklen = mask;
+        statesz = serializer.getSize();
+        currentState = ByteBuffer.allocate(statesz);
+        lastSerializedState = ByteBuffer.allocate(statesz);
         writeHeader();
     }
 
@@ -142,14 +161,6 @@ public class GenericTrace<T> {
         }
     }
 
-    private void writeCmdPart(String s) throws IOException {
-        int id = getString(s);
-        out.write32bit(id);
-        if (id == -1) {
-            write(s);
-        }
-    }
-
     public void setBigEndian() {
         isBE = true;
     }
@@ -167,72 +178,110 @@ public class GenericTrace<T> {
         lastState = state;
     }
 
-    public void fullStep(int tid, long step, T state, String[] asm, byte[] machinecode, byte type) throws IOException {
+    private void ensure(int length) {
+        if (record.remaining() < length) {
+            int capacity = Math.max(record.capacity() * 2, record.position() + length);
+            ByteBuffer buf = ByteBuffer.allocate(capacity);
+            record.flip();
+            buf.put(record);
+            record = buf;
+        }
+    }
+
+    private void recordString(String s) {
+        if (s == null) {
+            ensure(2);
+            record.putShort((short) 0xFFFF);
+        } else {
+            byte[] data = s.getBytes(StandardCharsets.UTF_8);
+            ensure(2 + data.length);
+            record.putShort((short) data.length);
+            record.put(data);
+        }
+    }
+
+    private void recordCmdPart(String s) {
+        int id = getString(s);
+        ensure(4);
+        record.putInt(id);
+        if (id == -1) {
+            recordString(s);
+        }
+    }
+
+    /**
+     * Serializes the state to {@link #currentState} and starts the step record in {@link #record}.
+     */
+    private void beginStep(byte kind, int tid, long step, T state) throws IOException {
         long pc;
         try {
             pc = serializer.getPC(state);
+            serializer.serialize(state, currentState);
         } catch (IllegalAccessException | IllegalArgumentException e) {
             throw new IOException("Error while serializing state: " + e, e);
         }
-        out.write8bit(RECORD_STEP);
-        out.write32bit(tid);
-        out.write64bit(step);
-        out.write64bit(pc);
-        try {
-            lastSerializedState = serializer.serialize(state);
-            out.write(lastSerializedState);
-        } catch (IllegalAccessException | IllegalArgumentException e) {
-            throw new IOException("Error while serializing state: " + e, e);
-        }
-        out.write((byte) asm.length);
+        record.clear();
+        ensure(21);
+        record.put(kind);
+        record.putInt(tid);
+        record.putLong(step);
+        record.putLong(pc);
+    }
+
+    /**
+     * Completes the step record, writes it with a single call and keeps the state for the next
+     * delta step.
+     */
+    private void endStep(String[] asm, byte[] machinecode, byte type) throws IOException {
+        ensure(1);
+        record.put((byte) asm.length);
         for (String s : asm) {
-            writeCmdPart(s);
+            recordCmdPart(s);
         }
-        out.write8bit((byte) machinecode.length);
-        out.write(machinecode);
-        out.write8bit(type);
+        ensure(2 + machinecode.length);
+        record.put((byte) machinecode.length);
+        record.put(machinecode);
+        record.put(type);
+        out.write(record.array(), 0, record.position());
+
+        ByteBuffer tmp = lastSerializedState;
+        lastSerializedState = currentState;
+        currentState = tmp;
+    }
+
+    public void fullStep(int tid, long step, T state, String[] asm, byte[] machinecode, byte type) throws IOException {
+        beginStep(RECORD_STEP, tid, step, state);
+        ensure(statesz);
+        record.put(currentState.array(), 0, statesz);
+        endStep(asm, machinecode, type);
     }
 
     public void deltaStep(int tid, long step, T state, String[] asm, byte[] machinecode, byte type) throws IOException {
-        long pc;
-        try {
-            pc = serializer.getPC(state);
-        } catch (IllegalAccessException | IllegalArgumentException e) {
-            throw new IOException("Error while serializing state: " + e, e);
+        beginStep(RECORD_DELTA_STEP, tid, step, state);
+        ensure(masklen + statesz);
+        int maskpos = record.position();
+        for (int i = 0; i < masklen; i++) {
+            record.put((byte) 0);
         }
-        out.write8bit(RECORD_DELTA_STEP);
-        out.write32bit(tid);
-        out.write64bit(step);
-        out.write64bit(pc);
-        try {
-            byte[] current = serializer.serialize(state);
-            byte[] mask = new byte[masklen];
-            int deltalen = 0;
-            for (int i = 0; i < current.length; i++) {
-                if (current[i] != lastSerializedState[i]) {
-                    mask[i / 8] |= 1 << (i % 8);
-                    deltalen++;
-                }
+        // compare 8 bytes at a time and only look at single bytes if something changed
+        byte[] current = currentState.array();
+        byte[] last = lastSerializedState.array();
+        int i = 0;
+        while (i < statesz) {
+            if (i + 8 <= statesz && currentState.getLong(i) == lastSerializedState.getLong(i)) {
+                i += 8;
+                continue;
             }
-            byte[] delta = new byte[deltalen];
-            for (int i = 0, j = 0; i < current.length; i++) {
-                if (current[i] != lastSerializedState[i]) {
-                    delta[j++] = current[i];
+            int end = Math.min(i + 8, statesz);
+            for (; i < end; i++) {
+                if (current[i] != last[i]) {
+                    int idx = maskpos + i / 8;
+                    record.put(idx, (byte) (record.get(idx) | (1 << (i % 8))));
+                    record.put(current[i]);
                 }
             }
-            out.write(mask);
-            out.write(delta);
-            lastSerializedState = current;
-        } catch (IllegalAccessException | IllegalArgumentException e) {
-            throw new IOException("Error while serializing state: " + e, e);
         }
-        out.write((byte) asm.length);
-        for (String s : asm) {
-            writeCmdPart(s);
-        }
-        out.write8bit((byte) machinecode.length);
-        out.write(machinecode);
-        out.write8bit(type);
+        endStep(asm, machinecode, type);
     }
 
     public void mmap(int tid, long addr, long len, int prot, int flags, long off, int fd, long result, String filename) throws IOException {
@@ -380,4 +429,13 @@ public class GenericTrace<T> {
         out.write32bit(data.length);
         out.write(data);
     }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
 }
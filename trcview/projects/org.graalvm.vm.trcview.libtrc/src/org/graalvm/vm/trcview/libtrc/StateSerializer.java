@@ -1,6 +1,10 @@
 package org.graalvm.vm.trcview.libtrc;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -28,6 +32,12 @@ public class StateSerializer<T> {
 
     private int size;
 
+    // (ByteBuffer, Object)void: stores all fields at their offsets, null if the fields are not
+    // accessible through method handles
+    private MethodHandle writer;
+    // (Object)long
+    private MethodHandle pcReader;
+
     private static int getSize(Field field) {
         Class<?> type = field.getType();
         if (type == byte.class) {
@@ -78,6 +88,91 @@ public class StateSerializer<T> {
         return new StateField(name, getType(field), fmt, offset);
     }
 
+    private static String getPutName(Class<?> type) {
+        if (type == byte.class) {
+            return "put";
+        } else if (type == short.class) {
+            return "putShort";
+        } else if (type == int.class) {
+            return "putInt";
+        } else if (type == long.class) {
+            return "putLong";
+        } else if (type == float.class) {
+            return "putFloat";
+        } else if (type == double.class) {
+            return "putDouble";
+        } else {
+            throw new IllegalArgumentException("invalid field type");
+        }
+    }
+
+    private static MethodHandle getReader(MethodHandles.Lookup lookup, Field field) throws IllegalAccessException {
+        try {
+            field.setAccessible(true);
+        } catch (RuntimeException e) {
+            // unreflectGetter performs the access check
+        }
+        MethodHandle getter = lookup.unreflectGetter(field);
+        return getter.asType(MethodType.methodType(field.getType(), Object.class));
+    }
+
+    /**
+     * Combines one ByteBuffer.putX(index, value) call per field into a single method handle, so
+     * that the state is serialized without reflection and without boxing.
+     */
+    private MethodHandle createWriter(MethodHandles.Lookup lookup) throws IllegalAccessException, NoSuchMethodException {
+        MethodType type = MethodType.methodType(void.class, ByteBuffer.class, Object.class);
+        MethodHandle result = MethodHandles.empty(type);
+        for (StateField layoutField : layout) {
+            Field field = getField(layoutField.getName());
+            Class<?> fieldType = field.getType();
+            MethodHandle put = lookup.findVirtual(ByteBuffer.class, getPutName(fieldType), MethodType.methodType(ByteBuffer.class, int.class, fieldType));
+            put = MethodHandles.insertArguments(put, 1, layoutField.getOffset());
+            put = put.asType(MethodType.methodType(void.class, ByteBuffer.class, fieldType));
+            MethodHandle store = MethodHandles.filterArguments(put, 1, getReader(lookup, field));
+            result = MethodHandles.foldArguments(store, result);
+        }
+        return result;
+    }
+
+    private static MethodHandle findStatic(Class<?> clazz, String name, Class<?> rtype, Class<?> ptype) {
+        try {
+            return MethodHandles.publicLookup().findStatic(clazz, name, MethodType.methodType(rtype, ptype));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private MethodHandle createPCReader(MethodHandles.Lookup lookup) throws IllegalAccessException {
+        MethodHandle getter = getReader(lookup, pc);
+        Class<?> type = pc.getType();
+        if (type == byte.class) {
+            return MethodHandles.filterReturnValue(getter, findStatic(Byte.class, "toUnsignedLong", long.class, byte.class));
+        } else if (type == short.class) {
+            return MethodHandles.filterReturnValue(getter, findStatic(Short.class, "toUnsignedLong", long.class, short.class));
+        } else if (type == int.class) {
+            return MethodHandles.filterReturnValue(getter, findStatic(Integer.class, "toUnsignedLong", long.class, int.class));
+        } else if (type == long.class) {
+            return getter;
+        } else if (type == float.class) {
+            MethodHandle bits = MethodHandles.filterReturnValue(getter, findStatic(Float.class, "floatToRawIntBits", int.class, float.class));
+            return MethodHandles.filterReturnValue(bits, findStatic(Integer.class, "toUnsignedLong", long.class, int.class));
+        } else if (type == double.class) {
+            return MethodHandles.filterReturnValue(getter, findStatic(Double.class, "doubleToRawLongBits", long.class, double.class));
+        } else {
+            throw new IllegalArgumentException("invalid field type");
+        }
+    }
+
+    private Field getField(String name) {
+        for (Field field : stateFields) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("unknown field " + name);
+    }
+
     private static boolean checkType(Class<?> type) {
         return type == byte.class || type == short.class || type == int.class || type == long.class || type == float.class || type == double.class;
     }
@@ -131,6 +226,18 @@ public class StateSerializer<T> {
             size += getSize(field);
         }
 
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            writer = createWriter(lookup);
+            if (pc != null) {
+                pcReader = createPCReader(lookup);
+            }
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            log.log(Levels.WARNING, "Cannot access state fields through method handles, using reflection: " + e.getMessage());
+            writer = null;
+            pcReader = null;
+        }
+
         log.log(Levels.INFO, "State has " + stateFields.size() + " fields with " + size + " bytes");
     }
 
@@ -150,6 +257,15 @@ public class StateSerializer<T> {
         if (pc == null) {
             throw new IllegalStateException("no pc defined");
         }
+        if (pcReader != null) {
+            try {
+                return (long) pcReader.invokeExact((Object) state);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalArgumentException(t);
+            }
+        }
         Class<?> type = pc.getType();
         if (type == byte.class) {
             return Byte.toUnsignedLong(pc.getByte(state));
@@ -168,6 +284,29 @@ public class StateSerializer<T> {
         }
     }
 
+    /**
+     * Stores the state at index 0 to {@link #getSize()} of the big endian buffer {@code buf}. The
+     * position of the buffer is not changed.
+     */
+    public void serialize(T state, ByteBuffer buf) throws IllegalArgumentException, IllegalAccessException {
+        if (writer == null) {
+            byte[] data = serialize(state);
+            buf.put(0, data);
+            return;
+        }
+        try {
+            writer.invokeExact(buf, (Object) state);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    /**
+     * Serializes the state with reflection. This is slower than {@link #serialize(Object, ByteBuffer)}
+     * but does not depend on method handle access to the fields.
+     */
     public byte[] serialize(T state) throws IllegalArgumentException, IllegalAccessException {
         byte[] result = new byte[size];
         int off = 0;
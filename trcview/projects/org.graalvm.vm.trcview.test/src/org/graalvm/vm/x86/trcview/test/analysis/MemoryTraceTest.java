@@ -1,12 +1,19 @@
 package org.graalvm.vm.x86.trcview.test.analysis;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
 import org.graalvm.vm.trcview.analysis.memory.MemorySegment;
 import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.analysis.memory.MemoryUpdate;
 import org.graalvm.vm.trcview.analysis.memory.Protection;
 import org.junit.Before;
 import org.junit.Test;
@@ -67,4 +74,56 @@ public class MemoryTraceTest {
         String act = segments.stream().map(Object::toString).collect(Collectors.joining("\n"));
         assertEquals(ref, act);
     }
+
+    @Test
+    public void bulkRead() throws MemoryNotMappedException {
+        byte[] data = new byte[16];
+        mem.read(0xf6f00ff8L, data, 9);
+        assertArrayEquals(new byte[16], data);
+
+        // write across a page boundary
+        mem.write(0xf6f00ffcL, (byte) 8, 0x0807060504030201L, 10, null, null, false);
+        mem.read(0xf6f00ff8L, data, 10);
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 1, 2, 3, 4, 5, 6, 7, 8, 0, 0, 0, 0}, data);
+        mem.read(0xf6f00ff8L, data, 9);
+        assertArrayEquals(new byte[16], data);
+
+        // the cached snapshot has to be invalidated by later writes
+        mem.write(0xf6f00ff8L, (byte) 1, 0x42, 10, null, null, false);
+        mem.read(0xf6f00ff8L, data, 10);
+        assertEquals(0x42, data[0]);
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(mem.getByte(0xf6f00ff8L + i, 10), data[i]);
+        }
+    }
+
+    @Test(expected = MemoryNotMappedException.class)
+    public void bulkReadNotMapped() throws MemoryNotMappedException {
+        mem.read(0xf6ffeff0L, new byte[32], 0);
+    }
+
+    @Test
+    public void changedBytes() {
+        mem.write(0xf6f00ffcL, (byte) 8, 0x0807060504030201L, 10, null, null, false);
+        mem.write(0xf6f00ffeL, (byte) 1, 3, 20, null, null, false);
+        BitSet changed = mem.changedBytes(0xf6f00ff8L, 16, 9, 10);
+        assertEquals(8, changed.cardinality());
+        assertEquals(4, changed.nextSetBit(0));
+        assertEquals(12, changed.nextClearBit(4));
+        assertTrue(mem.changedBytes(0xf6f00ff8L, 16, 10, 20).isEmpty());
+        assertTrue(mem.changedBytes(0xf6ffeff0L, 32, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void lastWriters() throws MemoryNotMappedException {
+        mem.write(0xf6f00000L, (byte) 4, 0x11223344, 10, null, null, false);
+        mem.write(0xf6f00002L, (byte) 1, 0x55, 20, null, null, false);
+        MemoryUpdate[] writers = mem.lastWriters(0xf6f00000L, 8, 20);
+        assertEquals(10, writers[0].instructionCount);
+        assertSame(writers[0], writers[1]);
+        assertEquals(20, writers[2].instructionCount);
+        assertEquals(10, writers[3].instructionCount);
+        assertNull(writers[4]);
+        assertNull(mem.lastWriters(0xf6f00000L, 8, 9)[0]);
+    }
 }
@@ -0,0 +1,53 @@
+package org.graalvm.vm.x86.trcview.test.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.graalvm.vm.trcview.analysis.PCIndex;
+import org.junit.Test;
+
+public class PCIndexTest {
+    @Test
+    public void empty() {
+        PCIndex index = new PCIndex();
+        assertEquals(-1, index.getNext(0x1000, 0));
+        assertEquals(-1, index.getPrevious(0x1000, 100));
+        assertEquals(0, index.getCount(0x1000));
+    }
+
+    @Test
+    public void compareWithList() {
+        Random rng = new Random(17);
+        PCIndex index = new PCIndex();
+        List<Long> steps = new ArrayList<>();
+        long step = 0;
+        for (int i = 0; i < 10000; i++) {
+            step += 1 + (rng.nextInt(10) == 0 ? rng.nextInt(1 << 20) : rng.nextInt(50));
+            steps.add(step);
+            index.add(0x1000, step);
+            index.add(0x2000, step + 1);
+        }
+        index.trim();
+
+        assertEquals(steps.size(), index.getCount(0x1000));
+        for (int i = 0; i < 20000; i++) {
+            long query = rng.nextInt((int) step + 10) - 5;
+            long next = -1;
+            long previous = -1;
+            for (long s : steps) {
+                if (s > query) {
+                    next = s;
+                    break;
+                } else if (s < query) {
+                    previous = s;
+                }
+            }
+            assertEquals(next, index.getNext(0x1000, query));
+            assertEquals(previous, index.getPrevious(0x1000, query));
+            assertEquals(next == -1 ? -1 : next + 1, index.getNext(0x2000, query + 1));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.graalvm.vm.x86.trcview.test.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Random;
+
+import org.graalvm.vm.trcview.analysis.memory.FinePage;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemoryRead;
+import org.graalvm.vm.trcview.analysis.memory.MemoryUpdate;
+import org.graalvm.vm.trcview.analysis.memory.PackedPage;
+import org.graalvm.vm.trcview.analysis.memory.Page;
+import org.graalvm.vm.trcview.analysis.memory.Protection;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackedPageTest {
+    private static final long BASE = 0x1000;
+    private static final Protection PROT = new Protection(true, true, false);
+
+    private PackedPage page;
+
+    @Before
+    public void setup() {
+        page = new PackedPage(BASE, 0, 10, null, PROT);
+    }
+
+    @Test
+    public void initialData() throws MemoryNotMappedException {
+        byte[] data = new byte[Page.SIZE];
+        data[5] = 0x42;
+        PackedPage p = new PackedPage(BASE, data, 0, 10, null, PROT);
+        assertEquals(0x42, p.getByte(BASE + 5, 10));
+        assertEquals(0x42, p.getLastByte(BASE + 5));
+        assertNull(p.getLastUpdate(BASE + 5, 10));
+    }
+
+    @Test(expected = MemoryNotMappedException.class)
+    public void notMapped() throws MemoryNotMappedException {
+        page.getLastUpdate(BASE, 9);
+    }
+
+    @Test
+    public void lastUpdate() throws MemoryNotMappedException {
+        page.addUpdate(BASE + 8, (byte) 8, 0x1122334455667788L, 20, null, null, false);
+        page.addUpdate(BASE + 10, (byte) 1, 0xAA, 30, null, null, false);
+        page.addUpdate(BASE + 8, (byte) 4, 0xCCDDEEFFL, 30, null, null, false);
+
+        assertNull(page.getLastUpdate(BASE + 8, 19));
+        assertEquals(20, page.getLastUpdate(BASE + 8, 20).instructionCount);
+        assertEquals(20, page.getLastUpdate(BASE + 15, 100).instructionCount);
+        assertEquals(0x77, page.getByte(BASE + 9, 20) & 0xFF);
+        assertEquals(0xEE, page.getByte(BASE + 9, 30) & 0xFF);
+        assertEquals(0xDD, page.getByte(BASE + 10, 30) & 0xFF);
+
+        MemoryUpdate last = page.getLastUpdate(BASE + 10, 30);
+        assertEquals(BASE + 8, last.address);
+        assertEquals(4, last.size);
+    }
+
+    @Test
+    public void nextUpdate() throws MemoryNotMappedException {
+        page.addUpdate(BASE + 4, (byte) 2, 0x1234, 20, null, null, false);
+        page.addUpdate(BASE + 6, (byte) 2, 0x5678, 30, null, null, false);
+        page.addUpdate(BASE + 4, (byte) 1, 0x99, 40, null, null, false);
+
+        assertEquals(20, page.getNextUpdate(BASE + 5, 10).instructionCount);
+        assertEquals(20, page.getNextUpdate(BASE + 5, 20).instructionCount);
+        assertNull(page.getNextUpdate(BASE + 5, 21));
+        assertEquals(40, page.getNextUpdate(BASE + 4, 21).instructionCount);
+        assertEquals(30, page.getNextUpdate(BASE + 7, 0).instructionCount);
+    }
+
+    @Test
+    public void unalignedAccess() throws MemoryNotMappedException {
+        page.addUpdate(BASE + 6, (byte) 4, 0xAABBCCDDL, 20, null, null, false);
+        assertEquals(0xDD, page.getByte(BASE + 6, 20) & 0xFF);
+        assertEquals(0xCC, page.getByte(BASE + 7, 20) & 0xFF);
+        assertEquals(0xBB, page.getByte(BASE + 8, 20) & 0xFF);
+        assertEquals(0xAA, page.getByte(BASE + 9, 20) & 0xFF);
+        assertEquals(BASE + 6, page.getLastUpdate(BASE + 9, 20).address);
+    }
+
+    @Test
+    public void bigEndian() throws MemoryNotMappedException {
+        page.addUpdate(BASE, (byte) 8, 0x0102030405060708L, 20, null, null, true);
+        assertEquals(0x01, page.getByte(BASE, 20));
+        assertEquals(0x08, page.getByte(BASE + 7, 20));
+        assertEquals(0x0807060504030201L, page.getWord(BASE, 20));
+        assertEquals(0x08, page.getLastByte(BASE + 7));
+    }
+
+    @Test
+    public void word() throws MemoryNotMappedException {
+        page.addUpdate(BASE + 16, (byte) 8, 0x1122334455667788L, 20, null, null, false);
+        assertEquals(0x1122334455667788L, page.getWord(BASE + 16, 20));
+        page.addUpdate(BASE + 17, (byte) 1, 0, 30, null, null, false);
+        assertEquals(0x1122334455660088L, page.getWord(BASE + 16, 30));
+        assertEquals(0x1122334455667788L, page.getWord(BASE + 16, 29));
+    }
+
+    @Test
+    public void previousUpdates() throws MemoryNotMappedException {
+        for (int i = 0; i < 10; i++) {
+            page.addUpdate(BASE, (byte) 1, i, 20 + i, null, null, false);
+        }
+        List<MemoryUpdate> updates = page.getPreviousUpdates(BASE, 25, 3);
+        assertEquals(3, updates.size());
+        assertEquals(25, updates.get(0).instructionCount);
+        assertEquals(24, updates.get(1).instructionCount);
+        assertEquals(23, updates.get(2).instructionCount);
+        assertEquals(10, page.getUpdates(BASE).size());
+    }
+
+    @Test
+    public void reads() throws MemoryNotMappedException {
+        page.addRead(BASE + 32, (byte) 4, 20, null, null);
+        page.addRead(BASE + 34, (byte) 4, 30, null, null);
+
+        assertNull(page.getLastRead(BASE + 32, 10));
+        assertNull(page.getLastRead(BASE + 33, 19));
+        MemoryRead read = page.getLastRead(BASE + 35, 100);
+        assertNotNull(read);
+        assertEquals(30, read.instructionCount);
+        assertEquals(20, page.getLastRead(BASE + 33, 100).instructionCount);
+        assertEquals(20, page.getNextRead(BASE + 34, 0).instructionCount);
+        assertEquals(30, page.getNextRead(BASE + 34, 21).instructionCount);
+        assertEquals(2, page.getReads(BASE + 35).size());
+        assertEquals(1, page.getReads(BASE + 37).size());
+    }
+
+    @Test
+    public void compareWithFinePage() throws MemoryNotMappedException {
+        Random rng = new Random(42);
+        FinePage fine = new FinePage(BASE, 0, 10, null, PROT);
+        long insn = 10;
+        for (int i = 0; i < 5000; i++) {
+            insn += 1 + rng.nextInt(3);
+            int size = 1 << rng.nextInt(4);
+            int off = rng.nextInt(Page.SIZE - size + 1);
+            long value = rng.nextLong();
+            boolean be = rng.nextBoolean();
+            fine.addUpdate(BASE + off, (byte) size, value, insn, null, null, be);
+            page.addUpdate(BASE + off, (byte) size, value, insn, null, null, be);
+        }
+        page.trim();
+        for (int i = 0; i < 5000; i++) {
+            long addr = BASE + rng.nextInt(Page.SIZE);
+            long step = 10 + rng.nextInt((int) insn);
+            assertEquals(fine.getByte(addr, step), page.getByte(addr, step));
+            assertEquals(fine.getLastByte(addr), page.getLastByte(addr));
+            if (addr <= BASE + Page.SIZE - 8) {
+                assertEquals(fine.getWord(addr, step), page.getWord(addr, step));
+            }
+            MemoryUpdate next = fine.getNextUpdate(addr, step);
+            MemoryUpdate packedNext = page.getNextUpdate(addr, step);
+            if (next == null) {
+                assertNull(packedNext);
+            } else {
+                assertEquals(next.instructionCount, packedNext.instructionCount);
+                assertEquals(next.address, packedNext.address);
+                assertEquals(next.value, packedNext.value);
+            }
+        }
+    }
+
+    @Test
+    public void readPage() throws MemoryNotMappedException {
+        Random rng = new Random(42);
+        long insn = 10;
+        for (int i = 0; i < 5000; i++) {
+            insn += 1 + rng.nextInt(3);
+            int size = 1 << rng.nextInt(4);
+            int off = rng.nextInt(Page.SIZE - size + 1);
+            page.addUpdate(BASE + off, (byte) size, rng.nextLong(), insn, null, null, rng.nextBoolean());
+        }
+        byte[] data = new byte[Page.SIZE];
+        byte[] ref = new byte[Page.SIZE];
+        MemoryUpdate[] updates = new MemoryUpdate[Page.SIZE];
+        for (int i = 0; i < 20; i++) {
+            long step = 10 + rng.nextInt((int) insn);
+            page.read(step, data);
+            page.getLastUpdates(BASE, Page.SIZE, step, updates, 0);
+            for (int j = 0; j < Page.SIZE; j++) {
+                ref[j] = page.getByte(BASE + j, step);
+                MemoryUpdate update = page.getLastUpdate(BASE + j, step);
+                if (update == null) {
+                    assertNull(updates[j]);
+                } else {
+                    assertEquals(update.instructionCount, updates[j].instructionCount);
+                    assertEquals(update.address, updates[j].address);
+                }
+            }
+            assertArrayEquals(ref, data);
+        }
+    }
+}
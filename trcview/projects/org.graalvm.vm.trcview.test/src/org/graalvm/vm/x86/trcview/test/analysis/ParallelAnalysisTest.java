@@ -0,0 +1,161 @@
+package org.graalvm.vm.x86.trcview.test.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.analysis.Analyzer;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.analysis.memory.MemoryUpdate;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.MemoryEventI32;
+import org.graalvm.vm.trcview.arch.io.MmapEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.TraceParser;
+import org.graalvm.vm.trcview.net.Local;
+import org.graalvm.vm.x86.trcview.test.mock.MockArchitecture;
+import org.graalvm.vm.x86.trcview.test.mock.MockStepEvent;
+import org.graalvm.vm.x86.trcview.test.mock.MockTraceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelAnalysisTest {
+    private static final long BASE = 0x10000;
+    private static final int SIZE = 0x400;
+    private static final int STEPS = 20000;
+
+    private Architecture arch;
+
+    private static class CountingAnalyzer implements Analyzer {
+        long events = 0;
+        long steps = 0;
+        long lastStep = -1;
+        boolean finished = false;
+
+        @Override
+        public void start(MemoryTrace memory, Architecture architecture) {
+            events = 0;
+        }
+
+        @Override
+        public void process(Event event, Node node, CpuState state) {
+            events++;
+            if (event instanceof StepEvent) {
+                long step = ((StepEvent) event).getStep();
+                assertEquals(lastStep + 1, step);
+                lastStep = step;
+                steps++;
+            }
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+    }
+
+    private static List<Event> generate() {
+        Random rng = new Random(4321);
+        List<Event> events = new ArrayList<>();
+        events.add(new MmapEvent(0, 0, SIZE, Mman.PROT_READ | Mman.PROT_WRITE, 0, -1, 0, null, BASE, null));
+        int depth = 0;
+        long pc = 0x1000;
+        for (int i = 0; i < STEPS; i++) {
+            InstructionType type = InstructionType.OTHER;
+            int r = rng.nextInt(10);
+            if (r == 0 && depth < 8) {
+                type = InstructionType.CALL;
+                depth++;
+            } else if (r == 1 && depth > 0) {
+                type = InstructionType.RET;
+                depth--;
+            }
+            MockStepEvent step = new MockStepEvent(0, new byte[]{(byte) r}, type);
+            step.step = i;
+            step.pc = pc;
+            events.add(step);
+            pc = type == InstructionType.CALL ? 0x2000 + rng.nextInt(4) * 0x100 : pc + 4;
+            if (rng.nextInt(2) == 0) {
+                events.add(new MemoryEventI32(false, 0, BASE + rng.nextInt(SIZE - 4), true, rng.nextInt()));
+            }
+        }
+        return events;
+    }
+
+    private static long getPC(Node node) {
+        if (node instanceof BlockNode) {
+            return ((BlockNode) node).getHead().getPC();
+        } else {
+            return ((StepEvent) node).getPC();
+        }
+    }
+
+    private Local load(boolean parallel, CountingAnalyzer analyzer) throws IOException {
+        List<Analyzer> analyzers = new ArrayList<>();
+        analyzers.add(analyzer);
+        Analysis analysis = new Analysis(arch, analyzers, false, false);
+        analysis.setParallel(parallel, null);
+        analysis.start();
+        Map<Integer, BlockNode> threads = TraceParser.parse(new MockTraceReader(generate(), arch), analysis, null);
+        BlockNode root = threads.get(0);
+        analysis.finish(root);
+        return new Local(arch, root, threads, analysis);
+    }
+
+    @Before
+    public void setup() {
+        arch = new MockArchitecture(false, false);
+        Architecture.register(arch);
+    }
+
+    @After
+    public void teardown() {
+        Architecture.unregister(arch);
+    }
+
+    @Test
+    public void sameResult() throws IOException, MemoryNotMappedException {
+        CountingAnalyzer seqAnalyzer = new CountingAnalyzer();
+        CountingAnalyzer parAnalyzer = new CountingAnalyzer();
+        Local seq = load(false, seqAnalyzer);
+        Local par = load(true, parAnalyzer);
+
+        assertEquals(true, parAnalyzer.finished);
+        assertEquals(seqAnalyzer.events, parAnalyzer.events);
+        assertEquals(STEPS, parAnalyzer.steps);
+        assertEquals(seq.getInstructionCount(), par.getInstructionCount());
+
+        for (long i = 0; i < STEPS; i += 7) {
+            assertEquals(getPC(seq.getInstruction(i)), getPC(par.getInstruction(i)));
+        }
+
+        Random rng = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            long addr = BASE + rng.nextInt(SIZE);
+            long insn = rng.nextInt(STEPS);
+            assertEquals(seq.getI8(addr, insn), par.getI8(addr, insn));
+            MemoryUpdate expected = seq.getLastWrite(addr, insn);
+            MemoryUpdate actual = par.getLastWrite(addr, insn);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected.instructionCount, actual.instructionCount);
+                assertEquals(expected.value, actual.value);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.graalvm.vm.x86.trcview.test.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.analysis.Search;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.MemoryEventI32;
+import org.graalvm.vm.trcview.arch.io.MmapEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.TraceParser;
+import org.graalvm.vm.trcview.net.Local;
+import org.graalvm.vm.x86.trcview.test.mock.MockArchitecture;
+import org.graalvm.vm.x86.trcview.test.mock.MockStepEvent;
+import org.graalvm.vm.x86.trcview.test.mock.MockTraceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchTest {
+    private static final long BASE = 0x10000;
+    private static final int STEPS = 10000;
+
+    private Architecture arch;
+    private Local trc;
+    private List<Node> linear;
+
+    private static List<Event> generate() {
+        Random rng = new Random(77);
+        List<Event> events = new ArrayList<>();
+        events.add(new MmapEvent(0, 0, 0x1000, Mman.PROT_READ | Mman.PROT_WRITE, 0, -1, 0, null, BASE, null));
+        int depth = 0;
+        for (int i = 1; i <= STEPS; i++) {
+            InstructionType type = InstructionType.OTHER;
+            int r = rng.nextInt(8);
+            if (r == 0 && depth < 10) {
+                type = InstructionType.CALL;
+                depth++;
+            } else if (r == 1 && depth > 0) {
+                type = InstructionType.RET;
+                depth--;
+            }
+            MockStepEvent step = new MockStepEvent(0, new byte[]{(byte) r}, type);
+            step.step = i;
+            step.pc = 0x1000 + 4 * i;
+            events.add(step);
+            if (rng.nextInt(3) == 0) {
+                events.add(new MemoryEventI32(false, 0, BASE + rng.nextInt(0x100), true, rng.nextInt()));
+            }
+        }
+        return events;
+    }
+
+    private static void flatten(BlockNode block, List<Node> result) {
+        for (Node n : block.getNodes()) {
+            if (n instanceof BlockNode) {
+                result.add(n);
+                flatten((BlockNode) n, result);
+            } else if (n instanceof StepEvent) {
+                result.add(n);
+            }
+        }
+    }
+
+    private static long getStep(Node node) {
+        if (node instanceof BlockNode) {
+            return ((BlockNode) node).getHead().getStep();
+        } else {
+            return ((StepEvent) node).getStep();
+        }
+    }
+
+    private static long getPC(Node node) {
+        if (node instanceof BlockNode) {
+            return ((BlockNode) node).getHead().getPC();
+        } else {
+            return ((StepEvent) node).getPC();
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        arch = new MockArchitecture(false, false);
+        Architecture.register(arch);
+
+        Analysis analysis = new Analysis(arch, Collections.emptyList(), false, false);
+        analysis.start();
+        Map<Integer, BlockNode> threads = TraceParser.parse(new MockTraceReader(generate(), arch), analysis, null);
+        BlockNode root = threads.get(0);
+        analysis.finish(root);
+        trc = new Local(arch, root, threads, analysis);
+
+        linear = new ArrayList<>();
+        flatten(root, linear);
+    }
+
+    @After
+    public void teardown() {
+        Architecture.unregister(arch);
+    }
+
+    @Test
+    public void instruction() {
+        assertEquals(STEPS, linear.size());
+        for (Node node : linear) {
+            long step = getStep(node);
+            assertSame(node, Search.instruction(trc.getRoot(), step));
+            assertSame(node, trc.getInstruction(step));
+        }
+        assertNull(trc.getInstruction(STEPS + 1));
+    }
+
+    @Test
+    public void nextStep() {
+        for (int i = 0; i < linear.size() - 1; i++) {
+            Node node = linear.get(i);
+            Node next = Search.nextStep(node);
+            if (next != null) {
+                assertEquals(getStep(node) + 1, getStep(next));
+            }
+        }
+    }
+
+    @Test
+    public void pc() {
+        for (int i = 0; i < linear.size(); i += 13) {
+            Node node = linear.get(i);
+            long pc = 0x1000 + 4 * (getStep(node) + 1 + (i % 50));
+            Node next = trc.getNextPC(node, pc);
+            assertSame(Search.nextPC(node, pc), next);
+            if (next != null) {
+                Node expected = node instanceof BlockNode ? ((BlockNode) node).getHead() : node;
+                assertSame(expected, trc.getPreviousPC(next, getPC(node)));
+            }
+        }
+        long pc = ((StepEvent) linear.get(linear.size() - 1)).getPC();
+        assertEquals(1, trc.getPCCount(pc));
+        assertEquals(0, trc.getPCCount(0));
+    }
+
+    @Test
+    public void previousStep() {
+        for (int i = 1; i < linear.size(); i++) {
+            Node node = linear.get(i);
+            Node prev = Search.previousStep(node);
+            Node expected = node.getParent();
+            for (Node n : node.getParent().getNodes()) {
+                if (n == node) {
+                    break;
+                } else if (n instanceof BlockNode || n instanceof StepEvent) {
+                    expected = n;
+                }
+            }
+            assertSame(expected, prev);
+        }
+    }
+}
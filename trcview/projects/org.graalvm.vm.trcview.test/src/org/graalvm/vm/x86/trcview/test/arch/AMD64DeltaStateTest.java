@@ -0,0 +1,255 @@
+package org.graalvm.vm.x86.trcview.test.arch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.graalvm.vm.trcview.arch.io.ChainedCpuState;
+import org.graalvm.vm.trcview.arch.io.StateCache;
+import org.graalvm.vm.trcview.arch.x86.io.AMD64CpuState;
+import org.graalvm.vm.trcview.arch.x86.io.AMD64DeltaCpuState;
+import org.graalvm.vm.trcview.arch.x86.io.AMD64SmallDeltaCpuState;
+import org.graalvm.vm.trcview.arch.x86.io.AMD64TinyDeltaCpuState;
+import org.graalvm.vm.util.io.BEInputStream;
+import org.graalvm.vm.util.io.BEOutputStream;
+import org.graalvm.vm.util.io.WordInputStream;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AMD64DeltaStateTest {
+    private static final int REGS = 19;
+    private static final int ID_RFL = 18;
+    private static final int STEPS = 3000;
+
+    private List<AMD64CpuState> states;
+    private List<long[]> expected;
+
+    private static WordInputStream stream(ByteArrayOutputStream buf) {
+        return new BEInputStream(new ByteArrayInputStream(buf.toByteArray()));
+    }
+
+    private static long[] get(AMD64CpuState state) {
+        return new long[]{state.getRAX(), state.getRCX(), state.getRDX(), state.getRBX(), state.getRSP(), state.getRBP(), state.getRSI(), state.getRDI(), state.getR8(), state.getR9(),
+                        state.getR10(), state.getR11(), state.getR12(), state.getR13(), state.getR14(), state.getR15(), state.getFS(), state.getGS(), state.getRFL(),
+                        state.getXMM(3).getI64(0), state.getRIP(), state.getStep()};
+    }
+
+    @Before
+    public void setup() throws IOException {
+        Random rng = new Random(99);
+        long[] regs = new long[REGS];
+        long xmm3hi = 0;
+        long xmm3lo = 0;
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        BEOutputStream out = new BEOutputStream(buf);
+        out.write32bit(0); // no machine code
+        for (int i = 0; i < 16; i++) {
+            regs[i] = rng.nextLong();
+            out.write64bit(regs[i]);
+        }
+        out.write64bit(0x1000); // rip
+        out.write64bit(regs[16]);
+        out.write64bit(regs[17]);
+        regs[ID_RFL] = 0x202;
+        out.write64bit(regs[ID_RFL]);
+        out.write64bit(0); // step
+        for (int i = 0; i < 16; i++) {
+            out.write64bit(0);
+            out.write64bit(0);
+        }
+        out.flush();
+
+        states = new ArrayList<>();
+        expected = new ArrayList<>();
+        AMD64CpuState state = AMD64CpuState.readRecord(stream(buf), 0);
+        states.add(state);
+        expected.add(get(state));
+
+        for (int step = 1; step < STEPS; step++) {
+            long rip = 0x1000 + step * 4;
+            buf = new ByteArrayOutputStream();
+            out = new BEOutputStream(buf);
+            out.write64bit(rip);
+            int type = rng.nextInt(3);
+            switch (type) {
+                case 0: {
+                    out.write64bit(step);
+                    boolean xmm = rng.nextInt(4) == 0;
+                    int reg = rng.nextInt(REGS);
+                    long value = reg == ID_RFL ? rng.nextInt(0x1000) : rng.nextLong();
+                    regs[reg] = value;
+                    out.write8bit((byte) (xmm ? 3 : 1));
+                    out.write8bit((byte) reg);
+                    out.write64bit(value);
+                    if (xmm) {
+                        xmm3hi = rng.nextLong();
+                        xmm3lo = rng.nextLong();
+                        out.write8bit((byte) (19 + 3 * 2));
+                        out.write64bit(xmm3hi);
+                        out.write8bit((byte) (20 + 3 * 2));
+                        out.write64bit(xmm3lo);
+                    }
+                    out.flush();
+                    state = new AMD64DeltaCpuState(stream(buf), 0, null, state);
+                    break;
+                }
+                case 1: {
+                    out.write64bit(step);
+                    int reg = rng.nextInt(REGS);
+                    long value = reg == ID_RFL ? rng.nextInt(0x1000) : rng.nextLong();
+                    regs[reg] = value;
+                    out.write64bit(value);
+                    out.write8bit((byte) reg);
+                    out.flush();
+                    state = new AMD64SmallDeltaCpuState(stream(buf), 0, null, state);
+                    break;
+                }
+                default:
+                    out.write64bit(step);
+                    out.flush();
+                    state = new AMD64TinyDeltaCpuState(stream(buf), 0, null, state);
+                    break;
+            }
+            long[] ref = new long[REGS + 3];
+            System.arraycopy(regs, 0, ref, 0, REGS);
+            ref[REGS] = xmm3hi; // element 0 of a Vector128 is the high part
+            ref[REGS + 1] = rip;
+            ref[REGS + 2] = step;
+            states.add(state);
+            expected.add(ref);
+        }
+    }
+
+    @Test
+    public void forward() {
+        for (int i = 0; i < STEPS; i++) {
+            long[] actual = get(states.get(i));
+            for (int r = 0; r < actual.length; r++) {
+                assertEquals("step " + i + " register " + r, expected.get(i)[r], actual[r]);
+            }
+        }
+    }
+
+    @Test
+    public void backward() {
+        for (int i = STEPS - 1; i >= 0; i--) {
+            long[] actual = get(states.get(i));
+            for (int r = 0; r < actual.length; r++) {
+                assertEquals("step " + i + " register " + r, expected.get(i)[r], actual[r]);
+            }
+        }
+    }
+
+    @Test
+    public void materialize() {
+        Random rng = new Random(7);
+        for (int n = 0; n < 500; n++) {
+            int i = rng.nextInt(STEPS);
+            AMD64CpuState full = StateCache.materialize(states.get(i));
+            assertTrue(!(full instanceof ChainedCpuState));
+            long[] actual = get(full);
+            for (int r = 0; r < actual.length; r++) {
+                assertEquals("step " + i + " register " + r, expected.get(i)[r], actual[r]);
+            }
+        }
+    }
+
+    @Test
+    public void keyframes() {
+        get(states.get(STEPS - 1));
+        for (int i = 1; i < STEPS; i++) {
+            ChainedCpuState<?> state = (ChainedCpuState<?>) states.get(i);
+            if (state.getChainDepth() % StateCache.MAX_DEPTH == 0) {
+                assertNotNull("step " + i, state.getMaterialized());
+            } else {
+                assertNull("step " + i, state.getMaterialized());
+            }
+        }
+    }
+
+    @Test
+    public void eviction() throws IOException {
+        AMD64CpuState last = states.get(STEPS - 1);
+        List<ChainedCpuState<AMD64CpuState>> chain = new ArrayList<>();
+        AMD64CpuState state = last;
+        for (int i = 1; i <= (2 * StateCache.CAPACITY + 2) * StateCache.MAX_DEPTH; i++) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            BEOutputStream out = new BEOutputStream(buf);
+            out.write64bit(last.getRIP());
+            out.write64bit(last.getStep() + i);
+            out.flush();
+            state = new AMD64TinyDeltaCpuState(stream(buf), 0, null, state);
+            assertEquals(last.getRAX(), state.getRAX());
+            AMD64TinyDeltaCpuState delta = (AMD64TinyDeltaCpuState) state;
+            if (delta.getChainDepth() % StateCache.MAX_DEPTH == 0) {
+                chain.add(delta);
+            }
+        }
+
+        int cached = 0;
+        for (ChainedCpuState<AMD64CpuState> keyframe : chain) {
+            if (keyframe.getMaterialized() != null) {
+                cached++;
+            }
+        }
+        assertTrue("cached " + cached + " keyframes", cached <= StateCache.CAPACITY);
+        assertNull(chain.get(0).getMaterialized());
+        assertNotNull(chain.get(chain.size() - 2).getMaterialized());
+
+        // evicted keyframes are materialized again
+        assertEquals(last.getRAX(), StateCache.materialize((AMD64CpuState) chain.get(0)).getRAX());
+        assertNotNull(chain.get(0).getMaterialized());
+    }
+
+    private static long sum(List<AMD64CpuState> states) {
+        long sum = 0;
+        for (AMD64CpuState state : states) {
+            sum += state.getRAX() + state.getRCX() + state.getRDX() + state.getRBX() + state.getRSP() + state.getRBP() + state.getRSI() + state.getRDI() + state.getR8() +
+                            state.getR9() + state.getR10() + state.getR11() + state.getR12() + state.getR13() + state.getR14() + state.getR15() + state.getFS() + state.getGS() +
+                            state.getRFL();
+        }
+        return sum;
+    }
+
+    @Test
+    public void allocation() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        long tid = Thread.currentThread().getId();
+
+        // the first pass materializes the keyframes
+        long expectedSum = sum(states);
+
+        // once the keyframes exist, register reads must not allocate
+        long start = threads.getThreadAllocatedBytes(tid);
+        long actualSum = 0;
+        for (int n = 0; n < 10; n++) {
+            actualSum += sum(states);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - start;
+        assertEquals(expectedSum * 10, actualSum);
+        assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+    }
+
+    @Test
+    public void depth() {
+        AMD64CpuState last = states.get(STEPS - 1);
+        assertEquals(STEPS - 1, ((ChainedCpuState<?>) last).getChainDepth());
+    }
+}
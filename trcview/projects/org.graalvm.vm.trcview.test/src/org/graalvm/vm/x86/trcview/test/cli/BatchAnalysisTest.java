@@ -0,0 +1,118 @@
+package org.graalvm.vm.x86.trcview.test.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.MemoryEventI32;
+import org.graalvm.vm.trcview.arch.io.MmapEvent;
+import org.graalvm.vm.trcview.cli.BatchAnalysis;
+import org.graalvm.vm.trcview.net.TraceAnalyzer;
+import org.graalvm.vm.x86.trcview.test.mock.MockArchitecture;
+import org.graalvm.vm.x86.trcview.test.mock.MockStepEvent;
+import org.graalvm.vm.x86.trcview.test.mock.MockTraceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchAnalysisTest {
+    private static final long BASE = 0x10000;
+
+    private Architecture arch;
+    private BatchAnalysis batch;
+    private TraceAnalyzer trc;
+
+    private static MockStepEvent step(long step, long pc, InstructionType type) {
+        MockStepEvent evt = new MockStepEvent(0, new byte[]{0}, type);
+        evt.step = step;
+        evt.pc = pc;
+        return evt;
+    }
+
+    @Before
+    public void setup() throws IOException {
+        arch = new MockArchitecture(false, false);
+        Architecture.register(arch);
+
+        List<Event> events = new ArrayList<>();
+        events.add(new MmapEvent(0, 0, 0x1000, Mman.PROT_READ | Mman.PROT_WRITE, 0, -1, 0, null, BASE, null));
+        events.add(step(1, 0x1000, InstructionType.CALL));
+        events.add(step(2, 0x2000, InstructionType.OTHER));
+        events.add(new MemoryEventI32(false, 0, BASE + 0x10, true, 0x64636261));
+        events.add(step(3, 0x2004, InstructionType.CALL));
+        events.add(step(4, 0x3000, InstructionType.RET));
+        events.add(step(5, 0x2008, InstructionType.RET));
+        events.add(step(6, 0x1004, InstructionType.OTHER));
+
+        batch = new BatchAnalysis();
+        batch.setParallel(false);
+        trc = batch.load(new MockTraceReader(events, arch), 0);
+    }
+
+    @After
+    public void teardown() {
+        Architecture.unregister(arch);
+    }
+
+    private static String[] lines(StringWriter buf) {
+        return buf.toString().split("\n");
+    }
+
+    @Test
+    public void symbols() {
+        StringWriter buf = new StringWriter();
+        try (PrintWriter out = new PrintWriter(buf)) {
+            BatchAnalysis.writeSymbols(trc, out);
+        }
+        String[] lines = lines(buf);
+        assertEquals(3, lines.length);
+        assertEquals("1000=\"_start\"", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("2000="));
+        assertTrue(lines[2], lines[2].startsWith("3000="));
+    }
+
+    @Test
+    public void callTree() {
+        StringWriter buf = new StringWriter();
+        try (PrintWriter out = new PrintWriter(buf)) {
+            batch.writeCallTree(trc, out);
+        }
+        String[] lines = lines(buf);
+        assertEquals(3, lines.length);
+        assertEquals("thread 0:", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("1: "));
+        assertTrue(lines[2], lines[2].startsWith("  3: "));
+    }
+
+    @Test
+    public void memory() {
+        StringWriter buf = new StringWriter();
+        try (PrintWriter out = new PrintWriter(buf)) {
+            BatchAnalysis.writeMemory(trc, 6, BASE + 0x10, BASE + 0x13, out);
+        }
+        String[] lines = lines(buf);
+        assertEquals(1, lines.length);
+        assertTrue(lines[0], lines[0].contains(" 61 62 63 64"));
+        assertTrue(lines[0], lines[0].contains(" abcd"));
+    }
+
+    @Test
+    public void statistics() {
+        assertEquals(6, batch.getStepCount());
+        assertTrue(batch.getPeakHeap() > 0);
+        StringWriter buf = new StringWriter();
+        try (PrintWriter out = new PrintWriter(buf)) {
+            batch.writeStatistics(out);
+        }
+        assertTrue(buf.toString().contains("steps=6\n"));
+    }
+}
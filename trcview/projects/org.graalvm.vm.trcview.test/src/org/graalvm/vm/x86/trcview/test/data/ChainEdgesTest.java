@@ -0,0 +1,80 @@
+package org.graalvm.vm.x86.trcview.test.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.graalvm.vm.trcview.data.ChainEdges;
+import org.graalvm.vm.trcview.data.ChainTarget;
+import org.graalvm.vm.trcview.data.MemoryChainTarget;
+import org.junit.Test;
+
+public class ChainEdgesTest {
+    private static ChainTarget target(long addr) {
+        return new MemoryChainTarget(addr, 1);
+    }
+
+    private static void check(List<ChainTarget> actual, long... addrs) {
+        HashSet<ChainTarget> expected = new HashSet<>();
+        for (long addr : addrs) {
+            expected.add(target(addr));
+        }
+        assertEquals(addrs.length, actual.size());
+        assertEquals(expected, new HashSet<>(actual));
+    }
+
+    @Test
+    public void testRows() {
+        ChainEdges edges = new ChainEdges(3);
+        assertTrue(edges.add(0, target(0x10)));
+        assertTrue(edges.add(2, target(0x20)));
+        assertTrue(edges.add(0, target(0x30)));
+        assertFalse(edges.add(0, target(0x10)));
+        assertTrue(edges.add(2, target(0x10)));
+
+        check(edges.get(0), 0x10, 0x30);
+        assertEquals(Collections.emptyList(), edges.get(1));
+        check(edges.get(2), 0x20, 0x10);
+        assertEquals(4, edges.size());
+    }
+
+    @Test
+    public void testTrim() {
+        ChainEdges edges = new ChainEdges(2);
+        for (long addr = 0; addr < 100; addr++) {
+            assertTrue(edges.add((int) (addr & 1), target(addr)));
+        }
+        edges.trim();
+        assertEquals(50, edges.get(0).size());
+        assertEquals(50, edges.get(1).size());
+
+        // adding after trim switches back to the log
+        assertFalse(edges.add(0, target(42)));
+        assertTrue(edges.add(0, target(43)));
+        assertEquals(51, edges.get(0).size());
+        assertEquals(101, edges.size());
+    }
+
+    @Test
+    public void testClear() {
+        ChainEdges edges = new ChainEdges(2);
+        for (long addr = 0; addr < 20; addr++) {
+            edges.add(0, target(addr));
+        }
+        edges.add(1, target(0x100));
+        edges.trim();
+
+        edges.clear(0);
+        assertEquals(Collections.emptyList(), edges.get(0));
+        check(edges.get(1), 0x100);
+
+        assertTrue(edges.add(0, target(5)));
+        check(edges.get(0), 5);
+        assertEquals(Arrays.asList(target(0x100)), edges.get(1));
+    }
+}
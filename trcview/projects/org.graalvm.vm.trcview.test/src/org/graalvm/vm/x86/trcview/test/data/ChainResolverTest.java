@@ -0,0 +1,122 @@
+package org.graalvm.vm.x86.trcview.test.data;
+
+import static org.junit.Assert.assertEquals;
+
+import org.graalvm.vm.trcview.data.ChainResolver;
+import org.graalvm.vm.trcview.data.ChainTarget;
+import org.graalvm.vm.trcview.data.CodeTypeMap;
+import org.graalvm.vm.trcview.data.MemoryChainTarget;
+import org.graalvm.vm.trcview.data.MemoryTypeMap;
+import org.graalvm.vm.trcview.data.RegisterChainTarget;
+import org.graalvm.vm.trcview.data.RegisterTypeMap;
+import org.graalvm.vm.trcview.data.ir.RegisterOperand;
+import org.graalvm.vm.trcview.data.type.VariableType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChainResolverTest {
+    private static final RegisterOperand R0 = new RegisterOperand(0);
+
+    private CodeTypeMap code;
+    private MemoryTypeMap mem;
+    private ChainResolver resolver;
+
+    @Before
+    public void setup() {
+        code = new CodeTypeMap(2);
+        mem = new MemoryTypeMap();
+        resolver = new ChainResolver(code, mem, false);
+
+        // 0x100 -> 0x102 -> 0x104, r0 is live everywhere
+        for (long pc = 0x100; pc <= 0x104; pc += 2) {
+            code.setLive(pc, 0, true);
+        }
+        code.chain(0x102, 0x100);
+        code.chain(0x104, 0x102);
+    }
+
+    private static void check(long mask, VariableType... types) {
+        long check = 0;
+        for (VariableType type : types) {
+            check |= type.getMask();
+        }
+        long actual = mask & ~(VariableType.CHAIN_BIT | VariableType.BREAK_BIT);
+        assertEquals(check, actual);
+    }
+
+    private ChainTarget r0(long pc) {
+        return new RegisterChainTarget(code.get(pc), 0);
+    }
+
+    private ChainTarget memory(long addr) {
+        return new MemoryChainTarget(addr, mem.getStep(addr));
+    }
+
+    @Test
+    public void testChain() {
+        code.constrain(0x100, R0, VariableType.I16);
+        code.constrain(0x104, R0, VariableType.ADDSUB_BIT);
+
+        for (long pc = 0x100; pc <= 0x104; pc += 2) {
+            long bits = resolver.resolve(r0(pc));
+            check(bits & ~VariableType.ADDSUB_BIT, VariableType.I16);
+            assertEquals(VariableType.ADDSUB_BIT, bits & VariableType.ADDSUB_BIT);
+        }
+    }
+
+    @Test
+    public void testMemoryCycle() {
+        mem.step(0x1000, 1);
+        mem.step(0x1002, 1);
+        mem.constrain(0x1000, VariableType.I8.getMask());
+        mem.constrain(0x1002, VariableType.U8.getMask());
+        mem.forwardChain(0x1000, memory(0x1002));
+        mem.forwardChain(0x1002, memory(0x1000));
+
+        check(resolver.resolve(memory(0x1000)), VariableType.I8, VariableType.U8);
+        check(resolver.resolve(memory(0x1002)), VariableType.I8, VariableType.U8);
+    }
+
+    @Test
+    public void testConstraint() {
+        code.constrain(0x100, R0, VariableType.I16);
+        check(resolver.resolve(r0(0x104)), VariableType.I16);
+
+        code.constrain(0x102, R0, VariableType.U16);
+        resolver.invalidate(code.get(0x102), 0);
+        check(resolver.resolve(r0(0x104)), VariableType.I16, VariableType.U16);
+        check(resolver.resolve(r0(0x100)), VariableType.I16, VariableType.U16);
+    }
+
+    @Test
+    public void testLink() {
+        mem.step(0x1000, 1);
+        mem.constrain(0x1000, VariableType.I8.getMask());
+        code.constrain(0x100, R0, VariableType.I16);
+
+        check(resolver.resolve(r0(0x102)), VariableType.I16);
+        check(resolver.resolve(memory(0x1000)), VariableType.I8);
+
+        // unify r0 at 0x102 with the memory cell
+        RegisterTypeMap map = code.get(0x102);
+        map.forwardChain(0, memory(0x1000));
+        mem.reverseChain(0x1000, r0(0x102));
+        resolver.invalidate(map, 0);
+        resolver.invalidate(mem.getLastCell(0x1000));
+
+        check(resolver.resolve(r0(0x100)), VariableType.I16, VariableType.I8);
+        check(resolver.resolve(memory(0x1000)), VariableType.I16, VariableType.I8);
+    }
+
+    @Test
+    public void testBreakChain() {
+        code.constrain(0x100, R0, VariableType.I16);
+        code.constrain(0x104, R0, VariableType.U16);
+        check(resolver.resolve(r0(0x104)), VariableType.I16, VariableType.U16);
+
+        code.breakChain(0x104, 0);
+        resolver.invalidate(code.get(0x104), 0);
+        check(resolver.resolve(r0(0x104)), VariableType.U16);
+        check(resolver.resolve(r0(0x100)), VariableType.I16);
+    }
+}
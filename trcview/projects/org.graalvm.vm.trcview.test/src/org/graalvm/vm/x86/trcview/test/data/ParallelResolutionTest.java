@@ -0,0 +1,335 @@
+package org.graalvm.vm.x86.trcview.test.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.graalvm.vm.trcview.analysis.SymbolTable;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.ArchTraceReader;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.MemoryEventI64;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.arch.io.StepFormat;
+import org.graalvm.vm.trcview.data.ArrayInfo;
+import org.graalvm.vm.trcview.data.ArrayRecovery;
+import org.graalvm.vm.trcview.data.DynamicTypePropagation;
+import org.graalvm.vm.trcview.data.Semantics;
+import org.graalvm.vm.trcview.data.ir.MemoryOperand;
+import org.graalvm.vm.trcview.data.ir.RegisterOperand;
+import org.graalvm.vm.trcview.data.type.VariableType;
+import org.graalvm.vm.trcview.decode.CallDecoder;
+import org.graalvm.vm.trcview.decode.SyscallDecoder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The parallel array recovery of {@link DynamicTypePropagation#transfer} has to produce exactly the
+ * same results as recovering the arrays of every code location one after another, and the memoized
+ * memory type resolution has to produce the same results in any order. Resolution caches its
+ * results, so every variant runs on its own propagation of the same trace.
+ */
+public class ParallelResolutionTest {
+    private static final int REGISTERS = 8;
+    private static final int INSTRUCTIONS = 256;
+    private static final int STEPS = 20000;
+    private static final long CODE = 0x1000;
+    private static final long DATA = 0x100000;
+    private static final int DATA_SIZE = 0x4000;
+
+    private static final StepFormat FORMAT = new StepFormat(StepFormat.NUMBERFMT_HEX, 4, 4, 1, false);
+
+    private Architecture arch;
+    private Step[] steps;
+
+    private static class Step extends StepEvent implements CpuState {
+        private final long step;
+        private final long pc;
+        private final int kind;
+        private final int dst;
+        private final int src;
+        private final long address;
+
+        Step(long step, long pc, int kind, int dst, int src, long address) {
+            super(0);
+            this.step = step;
+            this.pc = pc;
+            this.kind = kind;
+            this.dst = dst;
+            this.src = src;
+            this.address = address;
+            if (kind == 4) {
+                addRead(new MemoryEventI64(false, 0, address, false, step));
+            } else if (kind == 5) {
+                addWrite(new MemoryEventI64(false, 0, address, true, step));
+            }
+        }
+
+        @Override
+        public byte[] getMachinecode() {
+            return new byte[4];
+        }
+
+        @Override
+        public String[] getDisassemblyComponents() {
+            return new String[]{getMnemonic()};
+        }
+
+        @Override
+        public String getMnemonic() {
+            return "op" + kind;
+        }
+
+        @Override
+        public long getPC() {
+            return pc;
+        }
+
+        @Override
+        public InstructionType getType() {
+            return InstructionType.OTHER;
+        }
+
+        @Override
+        public long getStep() {
+            return step;
+        }
+
+        @Override
+        public CpuState getState() {
+            return this;
+        }
+
+        @Override
+        public StepFormat getFormat() {
+            return FORMAT;
+        }
+
+        @Override
+        public long get(String name) {
+            return 0;
+        }
+
+        @Override
+        public int[] getRegisterReads() {
+            switch (kind) {
+                case 0:
+                case 2:
+                case 5:
+                    return new int[]{src};
+                case 1:
+                    return new int[]{src, dst};
+                default:
+                    return new int[0];
+            }
+        }
+
+        @Override
+        public int[] getRegisterWrites() {
+            switch (kind) {
+                case 0:
+                case 1:
+                case 3:
+                case 4:
+                    return new int[]{dst};
+                default:
+                    return new int[0];
+            }
+        }
+
+        @Override
+        public void getSemantics(Semantics s) {
+            RegisterOperand d = new RegisterOperand(dst);
+            RegisterOperand r = new RegisterOperand(src);
+            switch (kind) {
+                case 0:
+                    s.move(d, r);
+                    break;
+                case 1:
+                    s.arithmetic(d, false);
+                    break;
+                case 2:
+                    s.constraint(r, VariableType.POINTER_I64);
+                    break;
+                case 3:
+                    s.set(d, dst % 2 == 0 ? VariableType.S64 : VariableType.F64);
+                    break;
+                case 4:
+                    s.move(d, new MemoryOperand(address));
+                    break;
+                default:
+                    s.move(new MemoryOperand(address), r);
+                    break;
+            }
+        }
+    }
+
+    @Before
+    public void setup() {
+        arch = new Architecture() {
+            @Override
+            public short getId() {
+                return 0;
+            }
+
+            @Override
+            public String getName() {
+                return null;
+            }
+
+            @Override
+            public ArchTraceReader getTraceReader(InputStream in) {
+                return null;
+            }
+
+            @Override
+            public SyscallDecoder getSyscallDecoder() {
+                return null;
+            }
+
+            @Override
+            public CallDecoder getCallDecoder() {
+                return null;
+            }
+
+            @Override
+            public int getTabSize() {
+                return 0;
+            }
+
+            @Override
+            public StepFormat getFormat() {
+                return FORMAT;
+            }
+
+            @Override
+            public boolean isSystemLevel() {
+                return false;
+            }
+
+            @Override
+            public boolean isStackedTraps() {
+                return false;
+            }
+
+            @Override
+            public int getRegisterCount() {
+                return REGISTERS;
+            }
+        };
+
+        // every instruction always does the same thing; loads and stores walk over small arrays,
+        // and the registers carry types between memory locations
+        Random rng = new Random(23);
+        int[] kind = new int[INSTRUCTIONS];
+        int[] dst = new int[INSTRUCTIONS];
+        int[] src = new int[INSTRUCTIONS];
+        long[] base = new long[INSTRUCTIONS];
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            kind[i] = rng.nextInt(6);
+            dst[i] = rng.nextInt(REGISTERS);
+            src[i] = rng.nextInt(REGISTERS);
+            base[i] = DATA + rng.nextInt(DATA_SIZE / 8 - 16) * 8;
+        }
+
+        steps = new Step[STEPS];
+        int insn = 0;
+        for (int step = 0; step < STEPS; step++) {
+            long address = base[insn] + (step % 16) * 8;
+            steps[step] = new Step(step, CODE + insn * 4, kind[insn], dst[insn], src[insn], address);
+            insn = rng.nextInt(16) == 0 ? rng.nextInt(INSTRUCTIONS) : (insn + 1) % INSTRUCTIONS;
+        }
+    }
+
+    private Semantics propagate() {
+        SymbolTable symbols = new SymbolTable(FORMAT, Collections.emptyNavigableMap());
+        DynamicTypePropagation propagation = new DynamicTypePropagation(arch, symbols, new MemoryTrace(false));
+        for (Step step : steps) {
+            propagation.step(step, step);
+        }
+        propagation.finish();
+        return propagation.getSemantics();
+    }
+
+    private static long[] getUsedAddresses(Semantics semantics) {
+        long[] used = semantics.getUsedAddresses().clone();
+        Arrays.sort(used);
+        return used;
+    }
+
+    @Test
+    public void memoryTypes() {
+        Semantics forward = propagate();
+        Semantics reverse = propagate();
+        Semantics shuffled = propagate();
+
+        long[] used = getUsedAddresses(forward);
+        assertArrayEquals(used, getUsedAddresses(reverse));
+        assertArrayEquals(used, getUsedAddresses(shuffled));
+        assertTrue(used.length > 100);
+
+        long last = STEPS - 1;
+        long[] expected = new long[used.length];
+        for (int i = 0; i < used.length; i++) {
+            expected[i] = forward.resolveMemory(used[i], last);
+        }
+
+        // the cached results must not depend on the order of resolution
+        long[] reversed = new long[used.length];
+        for (int i = used.length - 1; i >= 0; i--) {
+            reversed[i] = reverse.resolveMemory(used[i], last);
+        }
+        Integer[] order = new Integer[used.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Collections.shuffle(Arrays.asList(order), new Random(24));
+        long[] random = new long[used.length];
+        for (int i : order) {
+            random[i] = shuffled.resolveMemory(used[i], last);
+        }
+
+        assertArrayEquals(expected, reversed);
+        assertArrayEquals(expected, random);
+
+        // a resolved type is more than the SOLVED flag for some addresses
+        long solved = VariableType.SOLVED.getMask();
+        assertTrue(Arrays.stream(expected).anyMatch(x -> x != solved));
+    }
+
+    @Test
+    public void arrays() {
+        Semantics parallel = propagate();
+        Semantics serial = propagate();
+
+        long[] pcs = new long[INSTRUCTIONS];
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            pcs[i] = CODE + i * 4;
+        }
+
+        ArrayInfo[] actual = new ArrayInfo[pcs.length];
+        IntStream.range(0, pcs.length).parallel().forEach(i -> actual[i] = ArrayRecovery.recoverArray(parallel, pcs[i], true));
+
+        int found = 0;
+        for (int i = 0; i < pcs.length; i++) {
+            ArrayInfo expected = ArrayRecovery.recoverArray(serial, pcs[i], true);
+            if (expected == null) {
+                assertNull(actual[i]);
+            } else {
+                found++;
+                assertEquals(expected.getElementSize(), actual[i].getElementSize());
+                assertArrayEquals(expected.getAddresses(), actual[i].getAddresses());
+            }
+        }
+        assertTrue(found > 0);
+    }
+}
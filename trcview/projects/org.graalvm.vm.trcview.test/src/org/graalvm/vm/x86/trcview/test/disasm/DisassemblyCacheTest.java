@@ -0,0 +1,114 @@
+package org.graalvm.vm.x86.trcview.test.disasm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.disasm.DisassemblyCache;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.TraceParser;
+import org.graalvm.vm.trcview.net.Local;
+import org.graalvm.vm.x86.trcview.test.mock.MockArchitecture;
+import org.graalvm.vm.x86.trcview.test.mock.MockStepEvent;
+import org.graalvm.vm.x86.trcview.test.mock.MockTraceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DisassemblyCacheTest {
+    private static final int LOOP = 8;
+    private static final int ITERATIONS = 100;
+
+    private Architecture arch;
+    private Local trc;
+    private List<CountingStepEvent> steps;
+    private int decoded;
+
+    private class CountingStepEvent extends MockStepEvent {
+        CountingStepEvent(byte[] machinecode) {
+            super(0, machinecode, InstructionType.OTHER);
+        }
+
+        @Override
+        public String[] getDisassemblyComponents() {
+            decoded++;
+            return new String[]{"op", Integer.toString(getMachinecode()[0])};
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        arch = new MockArchitecture(false, false);
+        Architecture.register(arch);
+
+        // a loop over the same instructions, plus one instruction which is patched at runtime
+        steps = new ArrayList<>();
+        List<Event> events = new ArrayList<>();
+        int n = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int j = 0; j < LOOP; j++) {
+                byte code = (byte) (j == LOOP - 1 ? i % 2 : j);
+                CountingStepEvent step = new CountingStepEvent(new byte[]{code});
+                step.step = n++;
+                step.pc = 0x1000 + 4 * j;
+                steps.add(step);
+                events.add(step);
+            }
+        }
+
+        Analysis analysis = new Analysis(arch, Collections.emptyList(), false, false);
+        analysis.start();
+        Map<Integer, BlockNode> threads = TraceParser.parse(new MockTraceReader(events, arch), analysis, null);
+        BlockNode root = threads.get(0);
+        analysis.finish(root);
+        trc = new Local(arch, root, threads, analysis);
+    }
+
+    @After
+    public void teardown() {
+        Architecture.unregister(arch);
+    }
+
+    @Test
+    public void cache() {
+        DisassemblyCache cache = trc.getDisassemblyCache();
+        decoded = 0;
+        for (CountingStepEvent step : steps) {
+            String[] asm = cache.getDisassemblyComponents(step);
+            assertArrayEquals(new String[]{"op", Integer.toString(step.getMachinecode()[0])}, asm);
+        }
+        // the patched instruction has two different encodings
+        assertEquals(LOOP + 1, decoded);
+        assertEquals(LOOP + 1, cache.getMisses());
+        assertEquals(steps.size() - LOOP - 1, cache.getHits());
+
+        assertSame(cache.disassemble(steps.get(0)), cache.disassemble(steps.get(LOOP)));
+    }
+
+    @Test
+    public void invalidate() {
+        DisassemblyCache cache = trc.getDisassemblyCache();
+        cache.getDisassemblyComponents(steps.get(0));
+        cache.getDisassemblyComponents(steps.get(LOOP));
+        assertEquals(1, cache.getMisses());
+
+        trc.addSubroutine(0x1000, "loop", null);
+        trc.reanalyze();
+        cache.getDisassemblyComponents(steps.get(0));
+        assertEquals(2, cache.getMisses());
+
+        trc.setSymbolize(true);
+        cache.getDisassemblyComponents(steps.get(0));
+        assertEquals(3, cache.getMisses());
+    }
+}
@@ -0,0 +1,102 @@
+package org.graalvm.vm.x86.trcview.test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.Deflater;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.MmapEvent;
+import org.graalvm.vm.trcview.arch.io.TraceFileReader;
+import org.graalvm.vm.trcview.arch.x86.AMD64;
+import org.graalvm.vm.trcview.arch.x86.io.AMD64TraceReader;
+import org.graalvm.vm.util.io.BEOutputStream;
+import org.graalvm.vm.util.io.BlockCompressedOutputStream;
+import org.junit.Test;
+
+public class TraceFileReaderTest {
+    private static final int MAGIC = 0x58545243;
+    private static final int RECORDS = 5000;
+
+    private static byte[] trace() throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        BEOutputStream out = new BEOutputStream(buf);
+        out.write32bit(MAGIC);
+        out.write16bit(AMD64.ID);
+        for (int i = 0; i < RECORDS; i++) {
+            out.write8bit(AMD64TraceReader.TYPE_MMAP);
+            out.write32bit(0);
+            out.write64bit(0);
+            out.write64bit(0x1000);
+            out.write32bit(Mman.PROT_READ);
+            out.write32bit(Mman.MAP_PRIVATE | Mman.MAP_ANONYMOUS);
+            out.write32bit(-1);
+            out.write64bit(0);
+            out.write64bit(0x10000L * i);
+            out.write16bit((short) 0); // filename
+            out.write32bit(0); // data
+        }
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (BlockCompressedOutputStream out = new BlockCompressedOutputStream(buf, 4096, Deflater.BEST_SPEED)) {
+            out.write(data);
+        }
+        return buf.toByteArray();
+    }
+
+    private static void check(TraceFileReader reader, long size) throws IOException {
+        for (int i = 0; i < RECORDS; i++) {
+            Event evt = reader.read();
+            assertTrue(evt instanceof MmapEvent);
+            assertEquals(0x10000L * i, ((MmapEvent) evt).getResult());
+            assertTrue(reader.tell() <= size);
+        }
+        assertNull(reader.read());
+        assertEquals(size, reader.tell());
+    }
+
+    @Test
+    public void stream() throws IOException {
+        byte[] data = trace();
+        check(new TraceFileReader(new ByteArrayInputStream(data)), data.length);
+    }
+
+    @Test
+    public void compressedStream() throws IOException {
+        byte[] data = compress(trace());
+        try (TraceFileReader reader = new TraceFileReader(new ByteArrayInputStream(data))) {
+            check(reader, data.length);
+        }
+    }
+
+    @Test
+    public void file() throws IOException {
+        File file = File.createTempFile("trace", ".trc");
+        try {
+            byte[] data = trace();
+            Files.write(file.toPath(), data);
+            try (TraceFileReader reader = new TraceFileReader(file)) {
+                check(reader, data.length);
+            }
+
+            data = compress(data);
+            Files.write(file.toPath(), data);
+            try (TraceFileReader reader = new TraceFileReader(file)) {
+                check(reader, data.length);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.graalvm.vm.x86.trcview.test.libtrc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.graalvm.vm.trcview.libtrc.GenericTrace;
+import org.graalvm.vm.trcview.libtrc.ProgramCounter;
+import org.graalvm.vm.trcview.libtrc.Register;
+import org.graalvm.vm.trcview.libtrc.StateFormat;
+import org.graalvm.vm.trcview.libtrc.StateSerializer;
+import org.graalvm.vm.util.io.BEOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The method handle serializer and the delta encoding of {@link GenericTrace} have to produce
+ * exactly the bytes of the reflective serializer and the original byte-wise delta encoding.
+ */
+public class StateSerializerTest {
+    private static final int STEPS = 2000;
+
+    // 35 bytes: the last mask byte and the last 8 byte block of the state are incomplete
+    @StateFormat("{{pc}} a={{a}} b={{b}}")
+    public static class State {
+        @ProgramCounter @Register public long pc;
+        @Register public long a;
+        @Register public double d;
+        @Register private int b;
+        @Register(Register.FORMAT_DEC) public float f;
+        @Register(Register.FORMAT_BIN) public short s;
+        @Register(Register.FORMAT_OCT) protected byte c;
+
+        public int unused;
+
+        State copy() {
+            State state = new State();
+            state.pc = pc;
+            state.a = a;
+            state.d = d;
+            state.b = b;
+            state.f = f;
+            state.s = s;
+            state.c = c;
+            state.unused = unused;
+            return state;
+        }
+    }
+
+    private StateSerializer<State> serializer;
+    private State[] states;
+
+    @Before
+    public void setup() {
+        serializer = new StateSerializer<>(State.class);
+
+        // every step changes a random subset of the fields, sometimes none and sometimes all
+        Random rng = new Random(21);
+        states = new State[STEPS];
+        State state = new State();
+        for (int i = 0; i < STEPS; i++) {
+            state = state.copy();
+            int changes = rng.nextInt(8) == 0 ? 0x7F : rng.nextInt(0x80);
+            state.pc = (changes & 0x01) != 0 ? rng.nextLong() : state.pc + 4;
+            if ((changes & 0x02) != 0) {
+                // often only one byte changes
+                state.a = rng.nextBoolean() ? rng.nextLong() : state.a ^ (1L << rng.nextInt(64));
+            }
+            if ((changes & 0x04) != 0) {
+                state.d = rng.nextDouble();
+            }
+            if ((changes & 0x08) != 0) {
+                state.b = rng.nextInt();
+            }
+            if ((changes & 0x10) != 0) {
+                state.f = rng.nextFloat();
+            }
+            if ((changes & 0x20) != 0) {
+                state.s = (short) rng.nextInt();
+            }
+            if ((changes & 0x40) != 0) {
+                state.c = (byte) rng.nextInt();
+            }
+            state.unused = rng.nextInt();
+            states[i] = state;
+        }
+    }
+
+    @Test
+    public void layout() {
+        assertEquals(35, serializer.getSize());
+        assertEquals(7, serializer.getLayout().size());
+    }
+
+    @Test
+    public void serialize() throws IllegalAccessException {
+        ByteBuffer buf = ByteBuffer.allocate(serializer.getSize());
+        for (State state : states) {
+            serializer.serialize(state, buf);
+            assertArrayEquals(serializer.serialize(state), buf.array());
+            assertEquals(0, buf.position());
+            assertEquals(state.pc, serializer.getPC(state));
+        }
+    }
+
+    /**
+     * The step records as they were written before the method handle serializer: the state is
+     * serialized with reflection and the delta is computed byte by byte.
+     */
+    private static class ReferenceTrace {
+        private final StateSerializer<State> serializer;
+        private final BEOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private byte[] lastSerializedState;
+
+        ReferenceTrace(StateSerializer<State> serializer, BEOutputStream out) {
+            this.serializer = serializer;
+            this.out = out;
+        }
+
+        private void writeCmdPart(String s) throws IOException {
+            Integer id = strings.get(s);
+            if (id == null) {
+                strings.put(s, strings.size() + 1);
+                out.write32bit(-1);
+                byte[] data = s.getBytes(StandardCharsets.UTF_8);
+                out.write16bit((short) data.length);
+                out.write(data);
+            } else {
+                out.write32bit(id);
+            }
+        }
+
+        void step(int tid, long step, State state, String[] asm, byte[] machinecode, byte type) throws IOException, IllegalAccessException {
+            byte[] current = serializer.serialize(state);
+            out.write8bit(lastSerializedState == null ? GenericTrace.RECORD_STEP : GenericTrace.RECORD_DELTA_STEP);
+            out.write32bit(tid);
+            out.write64bit(step);
+            out.write64bit(serializer.getPC(state));
+            if (lastSerializedState == null) {
+                out.write(current);
+            } else {
+                byte[] mask = new byte[(current.length + 7) / 8];
+                ByteArrayOutputStream delta = new ByteArrayOutputStream();
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] != lastSerializedState[i]) {
+                        mask[i / 8] |= 1 << (i % 8);
+                        delta.write(current[i]);
+                    }
+                }
+                out.write(mask);
+                out.write(delta.toByteArray());
+            }
+            lastSerializedState = current;
+            out.write((byte) asm.length);
+            for (String s : asm) {
+                writeCmdPart(s);
+            }
+            out.write8bit((byte) machinecode.length);
+            out.write(machinecode);
+            out.write8bit(type);
+        }
+    }
+
+    private static String[] asm(int i) {
+        return new String[]{"op" + (i % 7), "r" + (i % 3)};
+    }
+
+    private static byte[] machinecode(int i) {
+        return new byte[]{(byte) i, (byte) (i >> 8), 0x42};
+    }
+
+    @Test
+    public void trace() throws IOException, IllegalAccessException {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (GenericTrace<State> trace = new GenericTrace<>(actual, State.class)) {
+            for (int i = 0; i < STEPS; i++) {
+                trace.step(i % 2, i, states[i], asm(i), machinecode(i), GenericTrace.TYPE_OTHER);
+            }
+        }
+
+        // the header is not affected by the serializer
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new GenericTrace<>(expected, State.class).close();
+        BEOutputStream out = new BEOutputStream(expected);
+        ReferenceTrace reference = new ReferenceTrace(serializer, out);
+        for (int i = 0; i < STEPS; i++) {
+            reference.step(i % 2, i, states[i], asm(i), machinecode(i), GenericTrace.TYPE_OTHER);
+        }
+        out.flush();
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+}
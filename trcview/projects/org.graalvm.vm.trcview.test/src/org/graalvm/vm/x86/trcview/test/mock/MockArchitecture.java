@@ -68,4 +68,9 @@ public class MockArchitecture extends Architecture {
     public boolean isStackedTraps() {
         return true;
     }
+
+    @Override
+    public String[] getRegisterNames() {
+        return new String[]{"sp"};
+    }
 }
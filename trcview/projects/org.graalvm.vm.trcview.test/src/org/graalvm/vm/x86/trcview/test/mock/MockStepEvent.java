@@ -15,6 +15,7 @@ public class MockStepEvent extends StepEvent implements CpuState {
 
     public long step;
     public long pc;
+    public long sp;
     public byte[] data;
 
     public MockStepEvent(int tid, byte[] machinecode, InstructionType type) {
@@ -55,7 +56,12 @@ public class MockStepEvent extends StepEvent implements CpuState {
 
     @Override
     public long get(String name) {
-        return 0;
+        switch (name) {
+            case "sp":
+                return sp;
+            default:
+                return 0;
+        }
     }
 
     @Override
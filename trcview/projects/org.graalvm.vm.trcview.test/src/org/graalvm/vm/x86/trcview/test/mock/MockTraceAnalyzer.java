@@ -2,6 +2,7 @@ package org.graalvm.vm.x86.trcview.test.mock;
 
 import java.awt.Color;
 import java.text.ParseException;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,7 @@ import org.graalvm.vm.trcview.arch.io.IoEvent;
 import org.graalvm.vm.trcview.data.DynamicTypePropagation;
 import org.graalvm.vm.trcview.data.TypedMemory;
 import org.graalvm.vm.trcview.decode.ABI;
+import org.graalvm.vm.trcview.disasm.DisassemblyCache;
 import org.graalvm.vm.trcview.expression.EvaluationException;
 import org.graalvm.vm.trcview.io.BlockNode;
 import org.graalvm.vm.trcview.io.Node;
@@ -189,6 +191,16 @@ public class MockTraceAnalyzer implements TraceAnalyzer {
         return null;
     }
 
+    @Override
+    public Node getPreviousPC(Node node, long pc) {
+        return null;
+    }
+
+    @Override
+    public long getPCCount(long pc) {
+        return 0;
+    }
+
     @Override
     public byte getI8(long address, long insn) throws MemoryNotMappedException {
         return 0;
@@ -209,6 +221,21 @@ public class MockTraceAnalyzer implements TraceAnalyzer {
         return 0;
     }
 
+    @Override
+    public void read(long address, byte[] dst, long insn) throws MemoryNotMappedException {
+
+    }
+
+    @Override
+    public BitSet changedBytes(long address, int length, long from, long to) {
+        return new BitSet();
+    }
+
+    @Override
+    public MemoryUpdate[] lastWriters(long address, int length, long insn) throws MemoryNotMappedException {
+        return new MemoryUpdate[length];
+    }
+
     @Override
     public MemoryRead getLastRead(long address, long insn) throws MemoryNotMappedException {
         return null;
@@ -393,4 +420,9 @@ public class MockTraceAnalyzer implements TraceAnalyzer {
     public boolean isSymbolize() {
         return false;
     }
+
+    @Override
+    public DisassemblyCache getDisassemblyCache() {
+        return null;
+    }
 }
@@ -0,0 +1,292 @@
+package org.graalvm.vm.x86.trcview.test.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemoryUpdate;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.MemoryEventI32;
+import org.graalvm.vm.trcview.arch.io.MemoryEventI8;
+import org.graalvm.vm.trcview.arch.io.MmapEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.TraceParser;
+import org.graalvm.vm.trcview.net.Indexed;
+import org.graalvm.vm.trcview.net.Local;
+import org.graalvm.vm.trcview.net.TraceAnalyzer;
+import org.graalvm.vm.trcview.storage.TraceIndex;
+import org.graalvm.vm.trcview.storage.TraceIndexWriter;
+import org.graalvm.vm.x86.trcview.test.mock.MockArchitecture;
+import org.graalvm.vm.x86.trcview.test.mock.MockStepEvent;
+import org.graalvm.vm.x86.trcview.test.mock.MockTraceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TraceIndexTest {
+    private static final long BASE = 0x10000;
+    private static final int SIZE = 0x400;
+    private static final int STEPS = 2000;
+
+    private Architecture arch;
+    private File trace;
+    private Indexed indexed;
+    private Local local;
+
+    private static List<Event> generate() {
+        Random rng = new Random(1234);
+        List<Event> events = new ArrayList<>();
+        events.add(new MmapEvent(0, 0, SIZE, Mman.PROT_READ | Mman.PROT_WRITE, 0, -1, 0, null, BASE, null));
+        int depth = 0;
+        long pc = 0x1000;
+        long sp = 0x8000;
+        for (int i = 1; i <= STEPS; i++) {
+            InstructionType type = InstructionType.OTHER;
+            int r = rng.nextInt(10);
+            if (r == 0 && depth < 6) {
+                type = InstructionType.CALL;
+                depth++;
+            } else if (r == 1 && depth > 0) {
+                type = InstructionType.RET;
+                depth--;
+            }
+            MockStepEvent step = new MockStepEvent(0, new byte[]{(byte) r}, type);
+            step.step = i;
+            step.pc = pc;
+            step.sp = sp;
+            events.add(step);
+            if (type == InstructionType.CALL) {
+                sp -= 8;
+            } else if (type == InstructionType.RET) {
+                sp += 8;
+            }
+            pc = type == InstructionType.CALL ? 0x2000 + rng.nextInt(4) * 0x100 : pc + 4;
+
+            if (rng.nextInt(3) == 0) {
+                long addr = BASE + rng.nextInt(SIZE - 4);
+                if (rng.nextBoolean()) {
+                    events.add(new MemoryEventI32(false, 0, addr, true, rng.nextInt()));
+                } else {
+                    events.add(new MemoryEventI8(false, 0, addr, true, (byte) rng.nextInt()));
+                }
+            }
+            if (rng.nextInt(4) == 0) {
+                events.add(new MemoryEventI32(false, 0, BASE + rng.nextInt(SIZE - 4), false));
+            }
+        }
+        return events;
+    }
+
+    @Before
+    public void setup() throws IOException {
+        arch = new MockArchitecture(false, false);
+        Architecture.register(arch);
+
+        trace = File.createTempFile("trace", ".trc");
+        try (FileOutputStream out = new FileOutputStream(trace)) {
+            out.write(new byte[16]);
+        }
+
+        TraceIndexWriter writer = new TraceIndexWriter(trace);
+        TraceParser.index(new MockTraceReader(generate(), arch), writer, null);
+        assertTrue(!writer.isFailed());
+        assertTrue(TraceIndex.isValid(trace));
+        indexed = new Indexed(TraceIndex.open(trace));
+
+        Analysis analysis = new Analysis(arch, Collections.emptyList(), false, false);
+        analysis.start();
+        Map<Integer, BlockNode> threads = TraceParser.parse(new MockTraceReader(generate(), arch), analysis, null);
+        BlockNode root = threads.get(0);
+        analysis.finish(root);
+        local = new Local(arch, root, threads, analysis);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Architecture.unregister(arch);
+        if (indexed != null) {
+            indexed.close();
+        }
+        File dir = TraceIndex.getIndexDirectory(trace);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+        trace.delete();
+    }
+
+    private static long getStep(Node node) {
+        if (node instanceof BlockNode) {
+            BlockNode block = (BlockNode) node;
+            return block.getHead() != null ? block.getHead().getStep() : -block.getStep();
+        } else {
+            return ((StepEvent) node).getStep();
+        }
+    }
+
+    private static void compare(TraceAnalyzer expected, TraceAnalyzer actual, BlockNode a, BlockNode b) {
+        assertEquals(getStep(a), getStep(b));
+        assertEquals(a.size(), b.size());
+        for (int i = 0; i < a.size(); i++) {
+            Node x = a.get(i);
+            Node y = b.get(i);
+            assertEquals(getStep(x), getStep(y));
+            assertEquals(x instanceof BlockNode, y instanceof BlockNode);
+            if (x instanceof BlockNode) {
+                compare(expected, actual, (BlockNode) x, (BlockNode) y);
+            } else {
+                assertEquals(((StepEvent) x).getPC(), ((StepEvent) y).getPC());
+                assertEquals(getStep(expected.getParent(x)), getStep(actual.getParent(y)));
+            }
+            Node nx = expected.getNextStep(x);
+            Node ny = actual.getNextStep(y);
+            if (nx == null) {
+                assertNull(ny);
+            } else {
+                assertEquals(getStep(nx), getStep(ny));
+            }
+            Node px = expected.getPreviousStep(x);
+            Node py = actual.getPreviousStep(y);
+            if (px == null) {
+                assertNull(py);
+            } else {
+                assertEquals(getStep(px), getStep(py));
+            }
+        }
+    }
+
+    @Test
+    public void structure() {
+        assertEquals(local.getInstructionCount(), indexed.getInstructionCount());
+        assertEquals(local.getThreadIds(), indexed.getThreadIds());
+        compare(local, indexed, local.getRoot(), indexed.getRoot());
+    }
+
+    @Test
+    public void instruction() {
+        for (long i = 1; i <= STEPS; i++) {
+            Node expected = local.getInstruction(i);
+            Node actual = indexed.getInstruction(i);
+            assertNotNull(actual);
+            assertEquals(getStep(expected), getStep(actual));
+        }
+        assertNull(indexed.getInstruction(STEPS + 1));
+    }
+
+    @Test
+    public void memory() throws MemoryNotMappedException {
+        Random rng = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            long addr = BASE + rng.nextInt(SIZE);
+            long insn = rng.nextInt(STEPS + 1);
+            assertEquals(local.getI8(addr, insn), indexed.getI8(addr, insn));
+            MemoryUpdate expected = local.getLastWrite(addr, insn);
+            MemoryUpdate actual = indexed.getLastWrite(addr, insn);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected.instructionCount, actual.instructionCount);
+                assertEquals(expected.value, actual.value);
+            }
+            if (addr < BASE + SIZE - 8) {
+                assertEquals(local.getI64(addr, insn), indexed.getI64(addr, insn));
+            }
+        }
+    }
+
+    private StepEvent getInstruction(long insn) {
+        Node node = indexed.getInstruction(insn);
+        if (node instanceof BlockNode) {
+            return ((BlockNode) node).getHead();
+        } else {
+            return (StepEvent) node;
+        }
+    }
+
+    @Test
+    public void registers() {
+        for (Event event : generate()) {
+            if (event instanceof MockStepEvent) {
+                MockStepEvent expected = (MockStepEvent) event;
+                CpuState state = getInstruction(expected.step).getState();
+                assertEquals(expected.sp, state.get("sp"));
+                assertEquals(expected.sp, state.getRegisterById(0));
+                assertEquals(expected.pc, state.get("pc"));
+            }
+        }
+    }
+
+    @Test
+    public void narrowReads() throws MemoryNotMappedException {
+        Random rng = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            long addr = BASE + rng.nextInt(SIZE - 1);
+            long insn = rng.nextInt(STEPS + 1);
+            assertEquals(local.getI16(addr, insn), indexed.getI16(addr, insn));
+            if (addr <= BASE + SIZE - 4) {
+                assertEquals(local.getI32(addr, insn), indexed.getI32(addr, insn));
+            }
+        }
+        // the last bytes of the mapping can be read without touching the unmapped memory after it
+        assertEquals(local.getI32(BASE + SIZE - 4, STEPS), indexed.getI32(BASE + SIZE - 4, STEPS));
+        assertEquals(local.getI16(BASE + SIZE - 2, STEPS), indexed.getI16(BASE + SIZE - 2, STEPS));
+    }
+
+    @Test
+    public void pc() {
+        Map<Long, List<Node>> steps = new HashMap<>();
+        for (long i = 1; i <= STEPS; i++) {
+            StepEvent step = getInstruction(i);
+            steps.computeIfAbsent(step.getPC(), x -> new ArrayList<>()).add(step);
+        }
+        for (Map.Entry<Long, List<Node>> entry : steps.entrySet()) {
+            long pc = entry.getKey();
+            List<Node> nodes = entry.getValue();
+            assertEquals(nodes.size(), indexed.getPCCount(pc));
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                Node next = indexed.getNextPC(node, pc);
+                Node previous = indexed.getPreviousPC(node, pc);
+                if (i + 1 < nodes.size()) {
+                    assertEquals(getStep(nodes.get(i + 1)), getStep(next));
+                } else {
+                    assertNull(next);
+                }
+                if (i > 0) {
+                    assertEquals(getStep(nodes.get(i - 1)), getStep(previous));
+                } else {
+                    assertNull(previous);
+                }
+            }
+        }
+        assertEquals(0, indexed.getPCCount(0x42));
+        assertNull(indexed.getNextPC(indexed.getInstruction(1), 0x42));
+    }
+
+    @Test(expected = MemoryNotMappedException.class)
+    public void notMapped() throws MemoryNotMappedException {
+        indexed.getI8(BASE + SIZE + 0x1000, STEPS);
+    }
+}
@@ -82,6 +82,8 @@ import org.graalvm.vm.trcview.data.CodeAnalyzer;
 import org.graalvm.vm.trcview.data.DynamicTypePropagation;
 import org.graalvm.vm.trcview.io.BlockNode;
 import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.ProgressListener;
+import org.graalvm.vm.trcview.io.StepIndex;
 import org.graalvm.vm.util.BitTest;
 import org.graalvm.vm.util.Vector128;
 import org.graalvm.vm.util.io.Endianess;
@@ -122,6 +124,17 @@ public class Analysis {
     private BlockNode lastCall;
     private StepEvent lastRet;
 
+    // last step seen by the memory consumers, which may run on another thread
+    private StepEvent memoryLastStep;
+
+    private boolean parallel = false;
+    private ProgressListener progress;
+    private PipelineStage memoryStage;
+    private PipelineStage codeStage;
+
+    private StepIndex stepIndex;
+    private PCIndex pcIndex;
+
     private final int regcnt;
 
     public Analysis(Architecture arch, boolean typeAnalysis, boolean codeAnalysis) {
@@ -141,6 +154,7 @@ public class Analysis {
         devices = new HashMap<>();
         memory = new MemoryTrace(arch.getFormat().be);
         nodes = new ArrayList<>();
+        pcIndex = new PCIndex();
         system = arch.isSystemLevel();
         info = arch.getTypeInfo();
         if (typeAnalysis) {
@@ -156,13 +170,34 @@ public class Analysis {
         }
     }
 
+    /**
+     * Runs the memory trace, type recovery and plugin analyzers on one pipeline stage and the code
+     * analysis on another stage instead of the parser thread. The consumers which share the memory
+     * trace stay on one thread, they depend on the memory contents at the current step.
+     */
+    public void setParallel(boolean parallel, ProgressListener progress) {
+        this.parallel = parallel;
+        this.progress = progress;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
     public void start() {
         lastStep = null;
+        memoryLastStep = null;
         steps = 0;
         idcnt = 0;
         for (Analyzer analyzer : analyzers) {
             analyzer.start(memory, arch);
         }
+        if (parallel) {
+            memoryStage = new PipelineStage("memory", this::processMemory, progress);
+            if (codeAnalyzer != null) {
+                codeStage = new PipelineStage("code", (event, node, state) -> codeAnalyzer.step((StepEvent) event), progress);
+            }
+        }
     }
 
     private void add(Node node) {
@@ -178,8 +213,10 @@ public class Analysis {
     public void process(Event event, Node node, CpuState state) {
         add(node);
 
-        for (Analyzer analyzer : analyzers) {
-            analyzer.process(event, node, state);
+        if (memoryStage != null) {
+            memoryStage.submit(event, node, state);
+        } else {
+            processMemory(event, node, state);
         }
 
         if (event instanceof StepEvent) {
@@ -192,15 +229,15 @@ public class Analysis {
                 lastRet = null;
             }
 
-            if (typeRecovery != null) {
-                typeRecovery.step(step, state);
-            }
-            if (codeAnalyzer != null) {
+            if (codeStage != null) {
+                codeStage.submit(event, node, state);
+            } else if (codeAnalyzer != null) {
                 codeAnalyzer.step(step);
             }
             if (step.isSyscall()) {
                 syscalls.add(node);
             }
+            pcIndex.add(step.getPC(), step.getStep());
             if (lastStep != null) {
                 long pc = state.getPC();
                 Symbol sym;
@@ -250,45 +287,109 @@ public class Analysis {
                     break;
                 }
             }
+        } else if (event instanceof MmapEvent) {
+            MmapEvent mmap = (MmapEvent) event;
+            if (mmap.getResult() >= 0) {
+                mappedFiles.put(mmap.getResult(), new MappedFile(mmap.getFileDescriptor(), mmap.getResult(), mmap.getLength(), mmap.getOffset(), mmap.getFilename(), -1));
+            }
+        } else if (event instanceof IoEvent) {
+            IoEvent evt = (IoEvent) event;
+            int channel = evt.getChannel();
+            List<IoEvent> ch = io.get(channel);
+            if (ch == null) {
+                ch = new ArrayList<>();
+                io.put(channel, ch);
+            }
+            ch.add(evt);
+        } else if (event instanceof DeviceDefinitionEvent) {
+            DeviceDefinitionEvent evt = (DeviceDefinitionEvent) event;
+            for (Device dev : evt.getDevices()) {
+                if (devices.containsKey(dev.getId())) {
+                    log.log(Levels.WARNING, "Device with id " + dev.getId() + " already exists");
+                }
+                devices.put(dev.getId(), dev);
+            }
+        } else if (event instanceof DeviceEvent) {
+            DeviceEvent evt = (DeviceEvent) event;
+            Device dev = devices.get(evt.getDeviceId());
+            if (dev == null) {
+                log.log(Levels.INFO, "device " + evt.getDeviceId() + " not found");
+                return;
+            }
+            long step = lastStep == null ? 0 : lastStep.getStep();
+            evt.setStep(step);
+            dev.addEvent(evt);
+            for (RegisterValue val : evt.getValues()) {
+                dev.addValue(step, val);
+            }
+            for (RegisterValue val : evt.getWrites()) {
+                dev.addWrite(step, val);
+            }
+        } else if (event instanceof DeviceRegisterEvent) {
+            long step = lastStep == null ? 0 : lastStep.getStep();
+            DeviceRegisterEvent evt = (DeviceRegisterEvent) event;
+            Device dev = devices.get(evt.getDeviceId());
+            for (RegisterValue val : evt.getValues()) {
+                dev.addValue(step, val);
+            }
+            for (RegisterValue val : evt.getReads()) {
+                dev.addRead(step, val);
+            }
+            for (RegisterValue val : evt.getWrites()) {
+                dev.addWrite(step, val);
+            }
+        }
+    }
+
+    private void processMemory(Event event, Node node, CpuState state) {
+        for (Analyzer analyzer : analyzers) {
+            analyzer.process(event, node, state);
+        }
+
+        if (event instanceof StepEvent) {
+            StepEvent step = (StepEvent) event;
+            if (typeRecovery != null) {
+                typeRecovery.step(step, state);
+            }
+            memoryLastStep = step;
         } else if (event instanceof MmapEvent) {
             MmapEvent mmap = (MmapEvent) event;
             long pc = 0;
             long insn = 0;
-            if (lastStep != null) {
-                pc = lastStep.getPC();
-                insn = lastStep.getStep();
+            if (memoryLastStep != null) {
+                pc = memoryLastStep.getPC();
+                insn = memoryLastStep.getStep();
             }
             if (mmap.getResult() >= 0) {
                 int rawprot = mmap.getProtection();
                 Protection prot = new Protection(BitTest.test(rawprot, Mman.PROT_READ), BitTest.test(rawprot, Mman.PROT_WRITE), BitTest.test(rawprot, Mman.PROT_EXEC));
-                mappedFiles.put(mmap.getResult(), new MappedFile(mmap.getFileDescriptor(), mmap.getResult(), mmap.getLength(), mmap.getOffset(), mmap.getFilename(), -1));
                 if (mmap.getData() != null) {
-                    memory.mmap(mmap.getResult(), mmap.getLength(), prot, mmap.getFilename(), mmap.getData(), pc, insn, node, lastStep);
+                    memory.mmap(mmap.getResult(), mmap.getLength(), prot, mmap.getFilename(), mmap.getData(), pc, insn, node, memoryLastStep);
                 } else {
-                    memory.mmap(mmap.getResult(), mmap.getLength(), prot, mmap.getFilename(), pc, insn, node, lastStep);
+                    memory.mmap(mmap.getResult(), mmap.getLength(), prot, mmap.getFilename(), pc, insn, node, memoryLastStep);
                 }
             }
         } else if (event instanceof MemoryEvent) {
             MemoryEvent memevent = (MemoryEvent) event;
             if (memevent.isWrite()) {
                 long insn = 0;
-                if (lastStep != null) {
-                    insn = lastStep.getStep();
+                if (memoryLastStep != null) {
+                    insn = memoryLastStep.getStep();
                 }
                 long addr = memevent.getAddress();
                 boolean be = memevent.isBigEndian();
                 if (memevent.hasData()) {
                     if (memevent.getSize() <= 8) {
                         long value = memevent.getValue();
-                        memory.write(addr, (byte) memevent.getSize(), value, insn, node, lastStep, be);
+                        memory.write(addr, (byte) memevent.getSize(), value, insn, node, memoryLastStep, be);
                     } else if (memevent.getSize() == 16) {
                         Vector128 value = memevent.getVector();
                         if (be) {
-                            memory.write(addr, (byte) 8, value.getI64(0), insn, node, lastStep, true);
-                            memory.write(addr + 8, (byte) 8, value.getI64(1), insn, node, lastStep, true);
+                            memory.write(addr, (byte) 8, value.getI64(0), insn, node, memoryLastStep, true);
+                            memory.write(addr + 8, (byte) 8, value.getI64(1), insn, node, memoryLastStep, true);
                         } else {
-                            memory.write(addr, (byte) 8, value.getI64(1), insn, node, lastStep, false);
-                            memory.write(addr + 8, (byte) 8, value.getI64(0), insn, node, lastStep, false);
+                            memory.write(addr, (byte) 8, value.getI64(1), insn, node, memoryLastStep, false);
+                            memory.write(addr + 8, (byte) 8, value.getI64(0), insn, node, memoryLastStep, false);
                         }
                     } else {
                         throw new AssertionError("unknown size: " + memevent.getSize());
@@ -296,15 +397,15 @@ public class Analysis {
                 }
             } else { /* read */
                 long insn = 0;
-                if (lastStep != null) {
-                    insn = lastStep.getStep();
+                if (memoryLastStep != null) {
+                    insn = memoryLastStep.getStep();
                 }
                 long addr = memevent.getAddress();
                 if (memevent.getSize() <= 8) {
-                    memory.read(addr, (byte) memevent.getSize(), insn, node, lastStep);
+                    memory.read(addr, (byte) memevent.getSize(), insn, node, memoryLastStep);
                 } else if (memevent.getSize() == 16) {
-                    memory.read(addr, (byte) 8, insn, node, lastStep);
-                    memory.read(addr + 8, (byte) 8, insn, node, lastStep);
+                    memory.read(addr, (byte) 8, insn, node, memoryLastStep);
+                    memory.read(addr + 8, (byte) 8, insn, node, memoryLastStep);
                 } else {
                     throw new AssertionError("unknown size: " + memevent.getSize());
                 }
@@ -312,75 +413,29 @@ public class Analysis {
         } else if (event instanceof MemoryDumpEvent) {
             MemoryDumpEvent dump = (MemoryDumpEvent) event;
             long insn = 0;
-            if (lastStep != null) {
-                insn = lastStep.getStep();
+            if (memoryLastStep != null) {
+                insn = memoryLastStep.getStep();
             }
             long addr = dump.getAddress();
             byte[] data = dump.getData();
             int i;
             for (i = 0; i < data.length - 7; i += 8) {
                 long value = Endianess.get64bitLE(data, i);
-                memory.write(addr + i, (byte) 8, value, insn, node, lastStep, false);
+                memory.write(addr + i, (byte) 8, value, insn, node, memoryLastStep, false);
             }
             for (; i < data.length; i++) {
-                memory.write(addr + i, (byte) 1, data[i], insn, node, lastStep, false);
+                memory.write(addr + i, (byte) 1, data[i], insn, node, memoryLastStep, false);
             }
         } else if (event instanceof BrkEvent) {
             BrkEvent brk = (BrkEvent) event;
             long newbrk = brk.getResult();
             long pc = 0;
             long insn = 0;
-            if (lastStep != null) {
-                pc = lastStep.getPC();
-                insn = lastStep.getStep();
-            }
-            memory.brk(newbrk, pc, insn, node, lastStep);
-        } else if (event instanceof IoEvent) {
-            IoEvent evt = (IoEvent) event;
-            int channel = evt.getChannel();
-            List<IoEvent> ch = io.get(channel);
-            if (ch == null) {
-                ch = new ArrayList<>();
-                io.put(channel, ch);
-            }
-            ch.add(evt);
-        } else if (event instanceof DeviceDefinitionEvent) {
-            DeviceDefinitionEvent evt = (DeviceDefinitionEvent) event;
-            for (Device dev : evt.getDevices()) {
-                if (devices.containsKey(dev.getId())) {
-                    log.log(Levels.WARNING, "Device with id " + dev.getId() + " already exists");
-                }
-                devices.put(dev.getId(), dev);
-            }
-        } else if (event instanceof DeviceEvent) {
-            DeviceEvent evt = (DeviceEvent) event;
-            Device dev = devices.get(evt.getDeviceId());
-            if (dev == null) {
-                log.log(Levels.INFO, "device " + evt.getDeviceId() + " not found");
-                return;
-            }
-            long step = lastStep == null ? 0 : lastStep.getStep();
-            evt.setStep(step);
-            dev.addEvent(evt);
-            for (RegisterValue val : evt.getValues()) {
-                dev.addValue(step, val);
-            }
-            for (RegisterValue val : evt.getWrites()) {
-                dev.addWrite(step, val);
-            }
-        } else if (event instanceof DeviceRegisterEvent) {
-            long step = lastStep == null ? 0 : lastStep.getStep();
-            DeviceRegisterEvent evt = (DeviceRegisterEvent) event;
-            Device dev = devices.get(evt.getDeviceId());
-            for (RegisterValue val : evt.getValues()) {
-                dev.addValue(step, val);
-            }
-            for (RegisterValue val : evt.getReads()) {
-                dev.addRead(step, val);
-            }
-            for (RegisterValue val : evt.getWrites()) {
-                dev.addWrite(step, val);
+            if (memoryLastStep != null) {
+                pc = memoryLastStep.getPC();
+                insn = memoryLastStep.getStep();
             }
+            memory.brk(newbrk, pc, insn, node, memoryLastStep);
         }
     }
 
@@ -485,7 +540,17 @@ public class Analysis {
             add(root);
         }
 
+        if (memoryStage != null) {
+            memoryStage.finish();
+            memoryStage = null;
+        }
+        if (codeStage != null) {
+            codeStage.finish();
+            codeStage = null;
+        }
+
         memory.trim();
+        pcIndex.trim();
 
         for (Analyzer analyzer : analyzers) {
             analyzer.finish();
@@ -611,6 +676,18 @@ public class Analysis {
         return nodes;
     }
 
+    public void setStepIndex(StepIndex stepIndex) {
+        this.stepIndex = stepIndex;
+    }
+
+    public StepIndex getStepIndex() {
+        return stepIndex;
+    }
+
+    public PCIndex getPCIndex() {
+        return pcIndex;
+    }
+
     public DynamicTypePropagation getTypeRecovery() {
         return typeRecovery;
     }
@@ -0,0 +1,191 @@
+package org.graalvm.vm.trcview.analysis;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Posting lists of the step numbers at which each PC was executed. The step numbers are stored as
+ * variable length deltas; every {@link #SKIP} entries the absolute step number is kept in a skip
+ * list, so a lookup only has to decode one block of deltas.
+ */
+public class PCIndex {
+    private static final int SKIP = 64;
+
+    private static class Postings {
+        byte[] data = new byte[8];
+        int length = 0;
+        long count = 0;
+        long last = 0;
+
+        long[] skipSteps = new long[1];
+        int[] skipOffsets = new int[1];
+        int skips = 0;
+
+        void add(long step) {
+            if (count > 0 && step < last) {
+                // step numbers are expected to be monotonic
+                return;
+            }
+            if (count % SKIP == 0) {
+                if (skips == skipSteps.length) {
+                    skipSteps = Arrays.copyOf(skipSteps, skips * 2);
+                    skipOffsets = Arrays.copyOf(skipOffsets, skips * 2);
+                }
+                skipSteps[skips] = step;
+                skipOffsets[skips] = length;
+                skips++;
+            } else {
+                write(step - last);
+            }
+            last = step;
+            count++;
+        }
+
+        private void write(long delta) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            long v = delta;
+            while ((v & ~0x7FL) != 0) {
+                data[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[length++] = (byte) v;
+        }
+
+        void trim() {
+            data = Arrays.copyOf(data, length);
+            skipSteps = Arrays.copyOf(skipSteps, skips);
+            skipOffsets = Arrays.copyOf(skipOffsets, skips);
+        }
+
+        private int getBlockSize(int block) {
+            if (block < skips - 1) {
+                return SKIP;
+            } else {
+                return (int) (count - (long) block * SKIP);
+            }
+        }
+
+        // index of the last block which starts at or before step, -1 if there is none
+        private int findBlock(long step) {
+            int low = 0;
+            int high = skips - 1;
+            int result = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (skipSteps[mid] <= step) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+
+        long getNext(long step) {
+            int block = findBlock(step);
+            if (block < 0) {
+                return skips > 0 ? skipSteps[0] : -1;
+            }
+            long value = skipSteps[block];
+            int pos = skipOffsets[block];
+            int n = getBlockSize(block);
+            for (int i = 1; i < n; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                value += delta;
+                if (value > step) {
+                    return value;
+                }
+            }
+            if (block + 1 < skips) {
+                return skipSteps[block + 1];
+            } else {
+                return -1;
+            }
+        }
+
+        long getPrevious(long step) {
+            int block = findBlock(step - 1);
+            if (block < 0) {
+                return -1;
+            }
+            long value = skipSteps[block];
+            long result = value;
+            int pos = skipOffsets[block];
+            int n = getBlockSize(block);
+            for (int i = 1; i < n; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                value += delta;
+                if (value >= step) {
+                    break;
+                }
+                result = value;
+            }
+            return result;
+        }
+    }
+
+    private final Map<Long, Postings> index = new HashMap<>();
+
+    public void add(long pc, long step) {
+        Postings postings = index.get(pc);
+        if (postings == null) {
+            postings = new Postings();
+            index.put(pc, postings);
+        }
+        postings.add(step);
+    }
+
+    public void trim() {
+        for (Postings postings : index.values()) {
+            postings.trim();
+        }
+    }
+
+    /**
+     * Returns the first step after {@code step} which executed {@code pc}, or -1 if there is none.
+     */
+    public long getNext(long pc, long step) {
+        Postings postings = index.get(pc);
+        if (postings == null) {
+            return -1;
+        }
+        return postings.getNext(step);
+    }
+
+    /**
+     * Returns the last step before {@code step} which executed {@code pc}, or -1 if there is none.
+     */
+    public long getPrevious(long pc, long step) {
+        Postings postings = index.get(pc);
+        if (postings == null) {
+            return -1;
+        }
+        return postings.getPrevious(step);
+    }
+
+    public long getCount(long pc) {
+        Postings postings = index.get(pc);
+        if (postings == null) {
+            return 0;
+        }
+        return postings.count;
+    }
+}
@@ -0,0 +1,163 @@
+package org.graalvm.vm.trcview.analysis;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.ProgressListener;
+import org.graalvm.vm.util.log.Levels;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * Consumer of the (event, node, state) stream of a trace which runs on its own thread. Records are
+ * handed over in batches through a bounded queue, so a slow stage applies back pressure to the
+ * parser instead of buffering the whole trace.
+ */
+public class PipelineStage {
+    private static final Logger log = Trace.create(PipelineStage.class);
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int QUEUE_SIZE = 16;
+    private static final long REPORT_INTERVAL = 1000;
+
+    private static final Batch END = new Batch(0);
+
+    @FunctionalInterface
+    public interface Consumer {
+        void process(Event event, Node node, CpuState state);
+    }
+
+    private static class Batch {
+        final Event[] events;
+        final Node[] nodes;
+        final CpuState[] states;
+        int size;
+
+        Batch(int capacity) {
+            events = new Event[capacity];
+            nodes = new Node[capacity];
+            states = new CpuState[capacity];
+            size = 0;
+        }
+    }
+
+    private final String name;
+    private final Consumer consumer;
+    private final ProgressListener progress;
+    private final BlockingQueue<Batch> queue;
+    private final Thread thread;
+
+    private Batch current;
+    private volatile Throwable error;
+
+    public PipelineStage(String name, Consumer consumer, ProgressListener progress) {
+        this.name = name;
+        this.consumer = consumer;
+        this.progress = progress;
+        queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        thread = new Thread(this::run, "trace-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void run() {
+        long count = 0;
+        long start = System.currentTimeMillis();
+        long lastTime = start;
+        long lastCount = 0;
+        try {
+            while (true) {
+                Batch batch = queue.take();
+                if (batch == END) {
+                    break;
+                }
+                if (error != null) {
+                    // drain the queue so that the producer does not block
+                    continue;
+                }
+                try {
+                    for (int i = 0; i < batch.size; i++) {
+                        consumer.process(batch.events[i], batch.nodes[i], batch.states[i]);
+                    }
+                } catch (Throwable t) {
+                    log.log(Levels.ERROR, "Error in stage " + name + ": " + t, t);
+                    error = t;
+                }
+                count += batch.size;
+                long now = System.currentTimeMillis();
+                if (progress != null && now - lastTime >= REPORT_INTERVAL) {
+                    progress.stageUpdate(name, count, (count - lastCount) * 1000 / (now - lastTime));
+                    lastTime = now;
+                    lastCount = count;
+                }
+            }
+        } catch (InterruptedException e) {
+            error = e;
+        }
+        long time = System.currentTimeMillis() - start;
+        log.log(Levels.INFO, "Stage " + name + ": " + count + " events in " + time + " ms");
+        if (progress != null) {
+            progress.stageUpdate(name, count, time > 0 ? count * 1000 / time : count);
+        }
+    }
+
+    private void checkError() {
+        Throwable t = error;
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new RuntimeException("stage " + name + " failed: " + t.getMessage(), t);
+        }
+    }
+
+    private void put(Batch batch) {
+        checkError();
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for stage " + name, e);
+        }
+    }
+
+    public void submit(Event event, Node node, CpuState state) {
+        if (current == null) {
+            current = new Batch(BATCH_SIZE);
+        }
+        int i = current.size++;
+        current.events[i] = event;
+        current.nodes[i] = node;
+        current.states[i] = state;
+        if (current.size == BATCH_SIZE) {
+            put(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Processes all remaining records and waits until the stage has terminated.
+     */
+    public void finish() {
+        try {
+            if (current != null && error == null) {
+                queue.put(current);
+            }
+            current = null;
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for stage " + name, e);
+        }
+        checkError();
+    }
+}
@@ -40,8 +40,6 @@
  */
 package org.graalvm.vm.trcview.analysis;
 
-import java.util.List;
-
 import org.graalvm.vm.trcview.arch.io.Event;
 import org.graalvm.vm.trcview.arch.io.StepEvent;
 import org.graalvm.vm.trcview.io.BlockNode;
@@ -54,11 +52,13 @@ public class Search {
             return block.getFirstNode();
         } else if (node instanceof StepEvent) {
             BlockNode block = node.getParent();
-            boolean start = false;
-            for (Node n : block.getNodes()) {
-                if (n == node) {
-                    start = true;
-                } else if (start && (n instanceof BlockNode || n instanceof StepEvent)) {
+            int start = block.indexOf(node);
+            if (start < 0) {
+                return null;
+            }
+            for (int i = start + 1; i < block.size(); i++) {
+                Node n = block.get(i);
+                if (n instanceof BlockNode || n instanceof StepEvent) {
                     return n;
                 }
             }
@@ -74,11 +74,13 @@ public class Search {
             return block.getFirstNode();
         } else if (node instanceof Event) {
             BlockNode block = node.getParent();
-            boolean start = false;
-            for (Node n : block.getNodes()) {
-                if (n == node) {
-                    start = true;
-                } else if (start && (n instanceof BlockNode || n instanceof StepEvent)) {
+            int start = block.indexOf(node);
+            if (start < 0) {
+                return null;
+            }
+            for (int i = start + 1; i < block.size(); i++) {
+                Node n = block.get(i);
+                if (n instanceof BlockNode || n instanceof StepEvent) {
                     return n;
                 }
             }
@@ -96,19 +98,17 @@ public class Search {
         if (node == block.getFirstNode()) {
             return block;
         }
-        Node last = null;
-        for (Node n : block.getNodes()) {
-            if (n == node) {
-                if (last != null) {
-                    return last;
-                } else {
-                    return block;
-                }
-            } else if (n instanceof BlockNode || n instanceof StepEvent) {
-                last = n;
+        int pos = block.indexOf(node);
+        if (pos < 0) {
+            return null;
+        }
+        for (int i = pos - 1; i >= 0; i--) {
+            Node n = block.get(i);
+            if (n instanceof BlockNode || n instanceof StepEvent) {
+                return n;
             }
         }
-        return null;
+        return block;
     }
 
     public static Node nextPC(Node startNode, long pc) {
@@ -207,30 +207,24 @@ public class Search {
                 }
             }
 
-            // TODO: use binary search here
-            List<Node> nodes = block.getNodes();
-            BlockNode previous = null;
-            for (Node node : nodes) {
-                long cnt = getInstruction(node);
-                if (cnt == insn) {
+            int pos = block.findStep(insn);
+            if (pos < block.size() && block.getIndexStep(pos) == insn) {
+                Node node = block.get(pos);
+                if (getInstruction(node) == insn) {
                     return node;
-                } else if (cnt > insn) {
-                    if (previous == null) {
-                        return null;
-                    } else {
-                        return instruction(previous, insn);
-                    }
-                } else {
-                    if (node instanceof BlockNode) {
-                        previous = (BlockNode) node;
-                    }
                 }
             }
-            if (previous != null) {
-                return instruction(previous, insn);
-            } else {
-                return null;
+
+            // the instruction can only be part of the closest preceding block
+            for (int i = pos - 1; i >= 0; i--) {
+                Node node = block.get(i);
+                if (node instanceof BlockNode) {
+                    return instruction(node, insn);
+                } else if (node instanceof StepEvent) {
+                    return null;
+                }
             }
+            return null;
         } else {
             throw new IllegalArgumentException("Not a BlockNode/RecordNode");
         }
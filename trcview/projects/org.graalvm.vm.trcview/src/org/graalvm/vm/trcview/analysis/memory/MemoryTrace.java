@@ -1,8 +1,11 @@
 package org.graalvm.vm.trcview.analysis.memory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Objects;
@@ -20,21 +23,85 @@ public class MemoryTrace {
     private static final int SIZE_THRESHOLD = 4096 * 10;
     private static final Protection PROT_RW = new Protection(true, true, false);
 
+    private static final int SNAPSHOT_CACHE_SIZE = 32;
+
     private final NavigableMap<Long, Page> pages = new TreeMap<>();
 
+    // materialized page contents for the bulk queries, keyed by page address and step
+    private final Map<SnapshotKey, byte[]> snapshots = new LinkedHashMap<SnapshotKey, byte[]>(SNAPSHOT_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Entry<SnapshotKey, byte[]> eldest) {
+            return size() > SNAPSHOT_CACHE_SIZE;
+        }
+    };
+
+    // incremented by every modification, so that writes do not have to lock the snapshot cache;
+    // only the thread which loads the trace modifies the memory trace
+    private volatile long version;
+    private long snapshotVersion; // guarded by snapshots
+
     private long brk = -1;
 
     private final boolean isBE;
+    private final boolean packed;
 
     private static long getPageAddress(long address) {
         return address & 0xFFFFFFFFFFFFF000L;
     }
 
+    private static final class SnapshotKey {
+        private final long address;
+        private final long instructionCount;
+
+        SnapshotKey(long address, long instructionCount) {
+            this.address = address;
+            this.instructionCount = instructionCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SnapshotKey)) {
+                return false;
+            }
+            SnapshotKey k = (SnapshotKey) o;
+            return k.address == address && k.instructionCount == instructionCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(address) * 31 + Long.hashCode(instructionCount);
+        }
+    }
+
     public MemoryTrace(boolean be) {
+        this(be, true);
+    }
+
+    public MemoryTrace(boolean be, boolean packed) {
         this.isBE = be;
+        this.packed = packed;
+    }
+
+    private Page createPage(long addr, long pc, long instructionCount, Node node, Protection prot) {
+        if (packed) {
+            return new PackedPage(addr, pc, instructionCount, node, prot);
+        } else {
+            return new FinePage(addr, pc, instructionCount, node, prot);
+        }
+    }
+
+    private Page createPage(long addr, byte[] data, long pc, long instructionCount, Node node, Protection prot) {
+        if (packed) {
+            return new PackedPage(addr, data, pc, instructionCount, node, prot);
+        } else {
+            return new FinePage(addr, data, pc, instructionCount, node, prot);
+        }
     }
 
     public void mmap(long address, long size, Protection prot, String name, long pc, long instructionCount, Node node, StepEvent step) {
+        invalidateSnapshots();
         long addr = getPageAddress(address);
         long sz = size;
         sz += address - addr;
@@ -42,7 +109,7 @@ public class MemoryTrace {
             Page page = pages.get(addr);
             if (page == null) {
                 // pages.put(addr, new CoarsePage(addr, pc, instructionCount, node));
-                page = new FinePage(addr, pc, instructionCount, node, prot);
+                page = createPage(addr, pc, instructionCount, node, prot);
                 if (name != null) {
                     page.setName(instructionCount, name);
                 }
@@ -63,6 +130,7 @@ public class MemoryTrace {
     }
 
     public void mmap(long address, long size, Protection prot, String name, byte[] data, long pc, long instructionCount, Node node, StepEvent step) {
+        invalidateSnapshots();
         long addr = getPageAddress(address);
         long sz = size;
         sz += address - addr;
@@ -84,11 +152,11 @@ public class MemoryTrace {
             if (page == null) {
                 if (length > 0) {
                     // pages.put(addr, new CoarsePage(addr, pageData, pc, instructionCount, node));
-                    page = new FinePage(addr, pageData, pc, instructionCount, node, prot);
+                    page = createPage(addr, pageData, pc, instructionCount, node, prot);
                     pages.put(addr, page);
                 } else {
                     // pages.put(addr, new CoarsePage(addr, pc, instructionCount, node));
-                    page = new FinePage(addr, pc, instructionCount, node, prot);
+                    page = createPage(addr, pc, instructionCount, node, prot);
                     pages.put(addr, page);
                 }
             } else {
@@ -116,6 +184,8 @@ public class MemoryTrace {
             return;
         }
 
+        invalidateSnapshots();
+
         if (brk == -1) {
             brk = getPageAddress(newbrk);
             if (brk != newbrk) {
@@ -126,7 +196,7 @@ public class MemoryTrace {
                 Page page = pages.get(p);
                 if (page == null) {
                     // pages.put(this.brk, new CoarsePage(p, pc, instructionCount, node));
-                    page = new FinePage(p, pc, instructionCount, node, PROT_RW);
+                    page = createPage(p, pc, instructionCount, node, PROT_RW);
                     page.setName(instructionCount, "[heap]");
                     pages.put(page.getAddress(), page);
                 } else {
@@ -145,7 +215,7 @@ public class MemoryTrace {
             Page page = pages.get(this.brk);
             if (page == null) {
                 // pages.put(this.brk, new CoarsePage(this.brk, pc, instructionCount, node));
-                page = new FinePage(this.brk, pc, instructionCount, node, PROT_RW);
+                page = createPage(this.brk, pc, instructionCount, node, PROT_RW);
                 pages.put(this.brk, page);
             } else {
                 if (page instanceof CoarsePage && ((CoarsePage) page).getSize() > SIZE_THRESHOLD) {
@@ -165,6 +235,7 @@ public class MemoryTrace {
             // segfault
             return;
         }
+        invalidateSnapshots();
         if (getPageAddress(addr) != getPageAddress(addr + size - 1)) {
             // write across page boundary
             long val = value;
@@ -376,6 +447,110 @@ public class MemoryTrace {
         return page.getReads(addr);
     }
 
+    private void invalidateSnapshots() {
+        version++;
+    }
+
+    private Page getPage(long addr) throws MemoryNotMappedException {
+        Page page = pages.get(getPageAddress(addr));
+        if (page == null) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x [0x%x]", addr, getPageAddress(addr)));
+        }
+        return page;
+    }
+
+    // the returned array is shared and must not be modified
+    private byte[] getSnapshot(long addr, long instructionCount) throws MemoryNotMappedException {
+        SnapshotKey key = new SnapshotKey(getPageAddress(addr), instructionCount);
+        long current = version;
+        synchronized (snapshots) {
+            if (snapshotVersion != current) {
+                snapshots.clear();
+                snapshotVersion = current;
+            }
+            byte[] snapshot = snapshots.get(key);
+            if (snapshot == null) {
+                snapshot = new byte[Page.SIZE];
+                getPage(addr).read(instructionCount, snapshot);
+                snapshots.put(key, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Read {@code dst.length} bytes starting at {@code addr} as they were at the given instruction
+     * count. Every page touched by the range is materialized once instead of resolving every byte
+     * individually.
+     *
+     * @throws MemoryNotMappedException if any byte of the range is not mapped
+     */
+    public void read(long addr, byte[] dst, long instructionCount) throws MemoryNotMappedException {
+        long ptr = addr;
+        int off = 0;
+        while (off < dst.length) {
+            int pageOffset = (int) (ptr - getPageAddress(ptr));
+            int length = Math.min(Page.SIZE - pageOffset, dst.length - off);
+            byte[] snapshot = getSnapshot(ptr, instructionCount);
+            System.arraycopy(snapshot, pageOffset, dst, off, length);
+            off += length;
+            ptr += length;
+        }
+    }
+
+    /**
+     * Compute which bytes in the range {@code [addr, addr + length)} differ between two points in
+     * time. Bit {@code i} of the result corresponds to address {@code addr + i}. Bytes which are not
+     * mapped at either point in time are reported as unchanged.
+     */
+    public BitSet changedBytes(long addr, int length, long fromInstructionCount, long toInstructionCount) {
+        BitSet result = new BitSet(length);
+        if (fromInstructionCount == toInstructionCount) {
+            return result;
+        }
+        long ptr = addr;
+        int off = 0;
+        while (off < length) {
+            int pageOffset = (int) (ptr - getPageAddress(ptr));
+            int len = Math.min(Page.SIZE - pageOffset, length - off);
+            try {
+                byte[] from = getSnapshot(ptr, fromInstructionCount);
+                byte[] to = getSnapshot(ptr, toInstructionCount);
+                for (int i = 0; i < len; i++) {
+                    if (from[pageOffset + i] != to[pageOffset + i]) {
+                        result.set(off + i);
+                    }
+                }
+            } catch (MemoryNotMappedException e) {
+                // not mapped at one of the two points in time
+            }
+            off += len;
+            ptr += len;
+        }
+        return result;
+    }
+
+    /**
+     * Find the last write for every byte in the range {@code [addr, addr + length)} at the given
+     * instruction count. Bytes which were not written since the page was mapped are {@code null};
+     * bytes written by the same access share the same {@link MemoryUpdate}.
+     *
+     * @throws MemoryNotMappedException if any byte of the range is not mapped
+     */
+    public MemoryUpdate[] lastWriters(long addr, int length, long instructionCount) throws MemoryNotMappedException {
+        MemoryUpdate[] result = new MemoryUpdate[length];
+        long ptr = addr;
+        int off = 0;
+        while (off < length) {
+            int pageOffset = (int) (ptr - getPageAddress(ptr));
+            int len = Math.min(Page.SIZE - pageOffset, length - off);
+            getPage(ptr).getLastUpdates(ptr, len, instructionCount, result, off);
+            off += len;
+            ptr += len;
+        }
+        return result;
+    }
+
     // TODO: use instructionCount to find *last* map time
     public Node getMapNode(long addr, @SuppressWarnings("unused") long instructionCount) throws MemoryNotMappedException {
         Page page = pages.get(getPageAddress(addr));
@@ -392,7 +567,7 @@ public class MemoryTrace {
     public void printStats() {
         int fine = 0;
         for (Page page : pages.values()) {
-            if (page instanceof FinePage) {
+            if (page instanceof FinePage || page instanceof PackedPage) {
                 fine++;
             }
         }
@@ -0,0 +1,545 @@
+package org.graalvm.vm.trcview.analysis.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.graalvm.vm.trcview.arch.io.MemoryEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.util.io.Endianess;
+
+/**
+ * Page which stores the write and read history in primitive columns instead of one object per
+ * access. Every access is a record consisting of the instruction count, the value (writes only)
+ * and an info word which packs offset, size, endianess and the index into the node table. Records
+ * are indexed per 8 byte slot of the page, an access which is not aligned is indexed in both slots
+ * it touches. {@link MemoryUpdate} and {@link MemoryRead} objects are only created when they are
+ * requested.
+ */
+public class PackedPage extends Page {
+    private static final int SLOT_SHIFT = 3;
+    private static final int SLOTS = SIZE >> SLOT_SHIFT;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final long OFFSET_MASK = 0xFFF;
+    private static final int SIZE_SHIFT = 12;
+    private static final long SIZE_MASK = 0xF;
+    private static final long FLAG_BE = 1L << 16;
+    private static final int REF_SHIFT = 32;
+
+    private final byte[] data = new byte[SIZE]; // initial data
+
+    private long[] writeInsn = new long[0];
+    private long[] writeValue = new long[0];
+    private long[] writeInfo = new long[0];
+    private int writeCount = 0;
+
+    private long[] readInsn = new long[0];
+    private long[] readInfo = new long[0];
+    private int readCount = 0;
+
+    private final int[][] writeIndex = new int[SLOTS][];
+    private final int[] writeIndexCount = new int[SLOTS];
+    private final int[][] readIndex = new int[SLOTS][];
+    private final int[] readIndexCount = new int[SLOTS];
+
+    // node table; consecutive accesses from the same node/step share one entry
+    private Node[] nodes = new Node[0];
+    private StepEvent[] steps = new StepEvent[0];
+    private int refCount = 0;
+
+    public PackedPage(long address, long pc, long instructionCount, Node node, Protection prot) {
+        super(address, pc, instructionCount, node, prot);
+    }
+
+    public PackedPage(long address, byte[] data, long pc, long instructionCount, Node node, Protection prot) {
+        this(address, pc, instructionCount, node, prot);
+        assert data.length == SIZE;
+        System.arraycopy(data, 0, this.data, 0, SIZE);
+    }
+
+    private static int grow(int length) {
+        if (length < INITIAL_CAPACITY) {
+            return INITIAL_CAPACITY;
+        } else {
+            return length + (length >> 1);
+        }
+    }
+
+    private static int getOffset(long info) {
+        return (int) (info & OFFSET_MASK);
+    }
+
+    private static int getSize(long info) {
+        return (int) ((info >>> SIZE_SHIFT) & SIZE_MASK);
+    }
+
+    private static boolean isBE(long info) {
+        return (info & FLAG_BE) != 0;
+    }
+
+    private static int getRef(long info) {
+        return (int) (info >>> REF_SHIFT);
+    }
+
+    private static boolean contains(long info, int off) {
+        int start = getOffset(info);
+        return start <= off && start + getSize(info) > off;
+    }
+
+    private static byte getByte(long info, long value, int off) {
+        int start = getOffset(info);
+        int size = getSize(info);
+        assert off >= start && off < start + size;
+        int idx = off - start;
+        if (size == 1) {
+            return (byte) value;
+        } else if (isBE(info)) {
+            return (byte) (value >> ((size - 1 - idx) * 8));
+        } else {
+            return (byte) (value >> (idx * 8));
+        }
+    }
+
+    private int getRef(Node node, StepEvent step) {
+        if (refCount > 0 && nodes[refCount - 1] == node && steps[refCount - 1] == step) {
+            return refCount - 1;
+        }
+        if (refCount == nodes.length) {
+            int capacity = grow(nodes.length);
+            nodes = Arrays.copyOf(nodes, capacity);
+            steps = Arrays.copyOf(steps, capacity);
+        }
+        nodes[refCount] = node;
+        steps[refCount] = step;
+        return refCount++;
+    }
+
+    private static long pack(int off, byte size, boolean be, int ref) {
+        assert size > 0 && size <= 8;
+        long info = off | ((long) size << SIZE_SHIFT) | ((long) ref << REF_SHIFT);
+        if (be) {
+            info |= FLAG_BE;
+        }
+        return info;
+    }
+
+    private static void addIndex(int[][] index, int[] count, int off, int size, int record) {
+        int first = off >> SLOT_SHIFT;
+        int last = (off + size - 1) >> SLOT_SHIFT;
+        for (int slot = first; slot <= last; slot++) {
+            int[] list = index[slot];
+            if (list == null) {
+                list = new int[INITIAL_CAPACITY];
+                index[slot] = list;
+            } else if (count[slot] == list.length) {
+                list = Arrays.copyOf(list, grow(list.length));
+                index[slot] = list;
+            }
+            list[count[slot]++] = record;
+        }
+    }
+
+    @Override
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public void addUpdate(long addr, byte size, long value, long instructionCount, Node node, StepEvent step, boolean be) {
+        assert addr >= address && addr < (address + data.length);
+        assert addr + size <= (address + data.length);
+        int off = (int) (addr - address);
+        if (writeCount == writeInsn.length) {
+            int capacity = grow(writeInsn.length);
+            writeInsn = Arrays.copyOf(writeInsn, capacity);
+            writeValue = Arrays.copyOf(writeValue, capacity);
+            writeInfo = Arrays.copyOf(writeInfo, capacity);
+        }
+        int record = writeCount++;
+        writeInsn[record] = instructionCount;
+        writeValue[record] = value;
+        writeInfo[record] = pack(off, size, be, getRef(node, step));
+        addIndex(writeIndex, writeIndexCount, off, size, record);
+
+        // does this event correspond to a step event?
+        if (step != null && node != null && node instanceof MemoryEvent) {
+            // only add the memory event to the step event if it is from the same thread
+            if (step.getTid() == node.getTid()) {
+                step.addWrite((MemoryEvent) node);
+            }
+        }
+    }
+
+    @Override
+    public void addRead(long addr, byte size, long instructionCount, Node node, StepEvent step) {
+        assert addr >= address && addr < (address + data.length);
+        assert addr + size <= (address + data.length);
+        int off = (int) (addr - address);
+        if (readCount == readInsn.length) {
+            int capacity = grow(readInsn.length);
+            readInsn = Arrays.copyOf(readInsn, capacity);
+            readInfo = Arrays.copyOf(readInfo, capacity);
+        }
+        int record = readCount++;
+        readInsn[record] = instructionCount;
+        readInfo[record] = pack(off, size, false, getRef(node, step));
+        addIndex(readIndex, readIndexCount, off, size, record);
+
+        // does this event correspond to a step event?
+        if (step != null && node != null && node instanceof MemoryEvent) {
+            // only add the memory event to the step event if it is from the same thread
+            if (step.getTid() == node.getTid()) {
+                step.addRead((MemoryEvent) node);
+            }
+        }
+    }
+
+    @Override
+    public void clear(long instructionCount, Node node, StepEvent step) {
+        for (int i = 0; i < SIZE; i += 8) {
+            addUpdate(address + i, (byte) 8, 0, instructionCount, node, step, false);
+        }
+    }
+
+    @Override
+    public void overwrite(byte[] update, long instructionCount, Node node, StepEvent step) {
+        for (int i = 0; i < SIZE; i += 8) {
+            long value = Endianess.get64bitLE(update, i);
+            addUpdate(address + i, (byte) 8, value, instructionCount, node, step, false);
+        }
+    }
+
+    private MemoryUpdate getUpdate(int record) {
+        long info = writeInfo[record];
+        int ref = getRef(info);
+        return new MemoryUpdate(isBE(info), address + getOffset(info), (byte) getSize(info), writeValue[record], writeInsn[record], nodes[ref], steps[ref]);
+    }
+
+    private MemoryRead getRead(int record) {
+        long info = readInfo[record];
+        int ref = getRef(info);
+        return new MemoryRead(address + getOffset(info), (byte) getSize(info), readInsn[record], nodes[ref], steps[ref]);
+    }
+
+    // index of the first entry in the list whose instruction count is > instructionCount
+    private static int upperBound(int[] list, int count, long[] insn, long instructionCount) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(insn[list[mid]], instructionCount) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // index of the first entry in the list whose instruction count is >= instructionCount
+    private static int lowerBound(int[] list, int count, long[] insn, long instructionCount) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(insn[list[mid]], instructionCount) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int findLast(int[] list, int count, long[] insn, long[] info, int off, long instructionCount) {
+        if (list == null) {
+            return -1;
+        }
+        for (int i = upperBound(list, count, insn, instructionCount) - 1; i >= 0; i--) {
+            int record = list[i];
+            if (contains(info[record], off)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private static int findNext(int[] list, int count, long[] insn, long[] info, int off, long instructionCount) {
+        if (list == null) {
+            return -1;
+        }
+        for (int i = lowerBound(list, count, insn, instructionCount); i < count; i++) {
+            int record = list[i];
+            if (contains(info[record], off)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private int getPageOffset(long addr) {
+        if (addr < address || addr >= address + SIZE) {
+            throw new AssertionError(String.format("wrong page for address 0x%x", addr));
+        }
+        return (int) (addr - address);
+    }
+
+    private int findLastWrite(int off, long instructionCount) {
+        int slot = off >> SLOT_SHIFT;
+        return findLast(writeIndex[slot], writeIndexCount[slot], writeInsn, writeInfo, off, instructionCount);
+    }
+
+    @Override
+    public byte getByte(long addr, long instructionCount) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        if (instructionCount < firstInstructionCount) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", addr));
+        }
+        int record = findLastWrite(off, instructionCount);
+        if (record == -1) {
+            return data[off];
+        } else {
+            return getByte(writeInfo[record], writeValue[record], off);
+        }
+    }
+
+    @Override
+    public long getWord(long addr, long instructionCount) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        if (instructionCount < firstInstructionCount) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", addr));
+        }
+        if ((off & 7) == 0) {
+            // fast path: the slot was last written by one aligned 8 byte access
+            int slot = off >> SLOT_SHIFT;
+            int[] list = writeIndex[slot];
+            if (list != null) {
+                int idx = upperBound(list, writeIndexCount[slot], writeInsn, instructionCount);
+                if (idx > 0) {
+                    long info = writeInfo[list[idx - 1]];
+                    if (getOffset(info) == off && getSize(info) == 8) {
+                        long value = writeValue[list[idx - 1]];
+                        return isBE(info) ? Long.reverseBytes(value) : value;
+                    }
+                }
+            }
+        }
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result >>>= 8;
+            result |= Byte.toUnsignedLong(getByte(addr + i, instructionCount)) << 56;
+        }
+        return result;
+    }
+
+    @Override
+    public void read(long instructionCount, byte[] dst) throws MemoryNotMappedException {
+        assert dst.length == SIZE;
+        if (instructionCount < firstInstructionCount) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", address));
+        }
+        System.arraycopy(data, 0, dst, 0, SIZE);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int[] list = writeIndex[slot];
+            if (list == null) {
+                continue;
+            }
+            // walk the writes of this slot backwards until every byte is resolved
+            int slotStart = slot << SLOT_SHIFT;
+            int slotEnd = slotStart + (1 << SLOT_SHIFT);
+            int resolved = 0;
+            for (int i = upperBound(list, writeIndexCount[slot], writeInsn, instructionCount) - 1; i >= 0 && resolved != 0xFF; i--) {
+                int record = list[i];
+                long info = writeInfo[record];
+                int start = Math.max(getOffset(info), slotStart);
+                int end = Math.min(getOffset(info) + getSize(info), slotEnd);
+                for (int off = start; off < end; off++) {
+                    int bit = 1 << (off - slotStart);
+                    if ((resolved & bit) == 0) {
+                        dst[off] = getByte(info, writeValue[record], off);
+                        resolved |= bit;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void getLastUpdates(long addr, int length, long instructionCount, MemoryUpdate[] dst, int dstOffset) throws MemoryNotMappedException {
+        int first = getPageOffset(addr);
+        assert first + length <= SIZE;
+        if (instructionCount < firstInstructionCount) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", addr));
+        }
+        // bytes written by the same access share one MemoryUpdate object
+        int lastRecord = -1;
+        MemoryUpdate lastUpdate = null;
+        for (int i = 0; i < length; i++) {
+            int record = findLastWrite(first + i, instructionCount);
+            if (record == -1) {
+                dst[dstOffset + i] = null;
+            } else {
+                if (record != lastRecord) {
+                    lastRecord = record;
+                    lastUpdate = getUpdate(record);
+                }
+                dst[dstOffset + i] = lastUpdate;
+            }
+        }
+    }
+
+    @Override
+    public byte getLastByte(long addr) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        int slot = off >> SLOT_SHIFT;
+        int[] list = writeIndex[slot];
+        if (list != null) {
+            for (int i = writeIndexCount[slot] - 1; i >= 0; i--) {
+                int record = list[i];
+                if (contains(writeInfo[record], off)) {
+                    return getByte(writeInfo[record], writeValue[record], off);
+                }
+            }
+        }
+        return data[off];
+    }
+
+    @Override
+    public MemoryUpdate getLastUpdate(long addr, long instructionCount) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        if (instructionCount < firstInstructionCount) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", addr));
+        }
+        int record = findLastWrite(off, instructionCount);
+        if (record == -1) {
+            return null;
+        } else {
+            return getUpdate(record);
+        }
+    }
+
+    @Override
+    public MemoryUpdate getNextUpdate(long addr, long instructionCount) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        int slot = off >> SLOT_SHIFT;
+        int record = findNext(writeIndex[slot], writeIndexCount[slot], writeInsn, writeInfo, off, instructionCount);
+        if (record == -1) {
+            return null;
+        } else {
+            return getUpdate(record);
+        }
+    }
+
+    @Override
+    public MemoryRead getLastRead(long addr, long instructionCount) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        if (instructionCount == firstInstructionCount) {
+            // no read until now
+            return null;
+        }
+        int slot = off >> SLOT_SHIFT;
+        int record = findLast(readIndex[slot], readIndexCount[slot], readInsn, readInfo, off, instructionCount);
+        if (record == -1) {
+            return null;
+        } else {
+            return getRead(record);
+        }
+    }
+
+    @Override
+    public MemoryRead getNextRead(long addr, long instructionCount) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        int slot = off >> SLOT_SHIFT;
+        int record = findNext(readIndex[slot], readIndexCount[slot], readInsn, readInfo, off, instructionCount);
+        if (record == -1) {
+            return null;
+        } else {
+            return getRead(record);
+        }
+    }
+
+    @Override
+    public List<MemoryUpdate> getPreviousUpdates(long addr, long instructionCount, long max) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        int slot = off >> SLOT_SHIFT;
+        int[] list = writeIndex[slot];
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<MemoryUpdate> result = new ArrayList<>();
+        for (int i = upperBound(list, writeIndexCount[slot], writeInsn, instructionCount) - 1; i >= 0 && result.size() < max; i--) {
+            int record = list[i];
+            if (contains(writeInfo[record], off)) {
+                result.add(getUpdate(record));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<MemoryRead> getReads(long addr) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        int slot = off >> SLOT_SHIFT;
+        int[] list = readIndex[slot];
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<MemoryRead> result = new ArrayList<>();
+        for (int i = 0; i < readIndexCount[slot]; i++) {
+            int record = list[i];
+            if (contains(readInfo[record], off)) {
+                result.add(getRead(record));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public List<MemoryUpdate> getUpdates(long addr) throws MemoryNotMappedException {
+        int off = getPageOffset(addr);
+        int slot = off >> SLOT_SHIFT;
+        int[] list = writeIndex[slot];
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<MemoryUpdate> result = new ArrayList<>();
+        for (int i = 0; i < writeIndexCount[slot]; i++) {
+            int record = list[i];
+            if (contains(writeInfo[record], off)) {
+                result.add(getUpdate(record));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public int getUpdateCount() {
+        return writeCount;
+    }
+
+    public int getReadCount() {
+        return readCount;
+    }
+
+    @Override
+    public void trim() {
+        writeInsn = Arrays.copyOf(writeInsn, writeCount);
+        writeValue = Arrays.copyOf(writeValue, writeCount);
+        writeInfo = Arrays.copyOf(writeInfo, writeCount);
+        readInsn = Arrays.copyOf(readInsn, readCount);
+        readInfo = Arrays.copyOf(readInfo, readCount);
+        nodes = Arrays.copyOf(nodes, refCount);
+        steps = Arrays.copyOf(steps, refCount);
+        for (int i = 0; i < SLOTS; i++) {
+            if (writeIndex[i] != null) {
+                writeIndex[i] = Arrays.copyOf(writeIndex[i], writeIndexCount[i]);
+            }
+            if (readIndex[i] != null) {
+                readIndex[i] = Arrays.copyOf(readIndex[i], readIndexCount[i]);
+            }
+        }
+    }
+}
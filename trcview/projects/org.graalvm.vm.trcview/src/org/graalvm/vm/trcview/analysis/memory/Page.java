@@ -112,6 +112,31 @@ public abstract class Page {
 
     public abstract List<MemoryUpdate> getUpdates(long addr) throws MemoryNotMappedException;
 
+    /**
+     * Materialize the content of the whole page at the given instruction count.
+     *
+     * @param instructionCount the point in time
+     * @param dst destination array of {@link #SIZE} bytes
+     * @throws MemoryNotMappedException if the page is not mapped at this point in time
+     */
+    public void read(long instructionCount, byte[] dst) throws MemoryNotMappedException {
+        assert dst.length == SIZE;
+        for (int i = 0; i < SIZE; i++) {
+            dst[i] = getByte(address + i, instructionCount);
+        }
+    }
+
+    /**
+     * Find the last write for each byte in the range {@code [addr, addr + length)} at the given
+     * instruction count. Entries without a write are set to {@code null}.
+     */
+    public void getLastUpdates(long addr, int length, long instructionCount, MemoryUpdate[] dst, int dstOffset) throws MemoryNotMappedException {
+        assert addr >= address && addr + length <= address + SIZE;
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = getLastUpdate(addr + i, instructionCount);
+        }
+    }
+
     public void trim() {
         // nothing
     }
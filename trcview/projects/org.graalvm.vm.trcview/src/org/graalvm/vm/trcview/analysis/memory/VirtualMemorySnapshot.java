@@ -15,6 +15,10 @@ public class VirtualMemorySnapshot {
         return trc.getI8(addr, insn);
     }
 
+    public void read(long addr, byte[] dst) throws MemoryNotMappedException {
+        trc.read(addr, dst, insn);
+    }
+
     public long getI64(long addr) throws MemoryNotMappedException {
         // TODO: remove assertion code
         long val1 = trc.getI64(addr, insn);
@@ -12,6 +12,7 @@ import org.graalvm.vm.posix.elf.ElfStrings;
 import org.graalvm.vm.trcview.analysis.type.ArchitectureTypeInfo;
 import org.graalvm.vm.trcview.analysis.type.UserTypeDatabase;
 import org.graalvm.vm.trcview.arch.io.ArchTraceReader;
+import org.graalvm.vm.trcview.arch.io.CpuState;
 import org.graalvm.vm.trcview.arch.io.StepFormat;
 import org.graalvm.vm.trcview.arch.none.None;
 import org.graalvm.vm.trcview.decode.ABI;
@@ -78,6 +79,15 @@ public abstract class Architecture {
         return -1;
     }
 
+    /**
+     * Names of the registers which are stored in a trace index, as accepted by
+     * {@link CpuState#get(String)}. If the architecture has register ids, the names are in id
+     * order.
+     */
+    public String[] getRegisterNames() {
+        return new String[0];
+    }
+
     public Disassembler getDisassembler(@SuppressWarnings("unused") TraceAnalyzer trc) {
         return null;
     }
@@ -0,0 +1,34 @@
+package org.graalvm.vm.trcview.arch.io;
+
+/**
+ * A CPU state which only stores the registers that changed and refers to the state of the previous
+ * step for everything else.
+ */
+public interface ChainedCpuState<T extends CpuState> extends CpuState {
+    /**
+     * Returns the state this delta is based on.
+     */
+    T getPreviousState();
+
+    /**
+     * Returns the number of delta states between this state and the closest full state, including
+     * this state.
+     */
+    int getChainDepth();
+
+    /**
+     * Materializes this delta on top of the fully resolved previous state.
+     */
+    T resolve(T previous);
+
+    /**
+     * Returns the keyframe stored with {@link #setMaterialized}, or null.
+     */
+    Keyframe<T> getMaterialized();
+
+    /**
+     * Stores the materialized keyframe of this delta, or null once the {@link StateCache} evicted
+     * it. Concurrent callers store equal states, so any stored keyframe is valid.
+     */
+    void setMaterialized(Keyframe<T> state);
+}
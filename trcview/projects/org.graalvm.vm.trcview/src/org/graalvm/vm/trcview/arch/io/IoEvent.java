@@ -38,6 +38,6 @@ public class IoEvent extends Event {
 
     @Override
     public String toString() {
-        return "IoEvent[channel=" + channel + ";" + (input ? "input" : "output") + ";value=" + DecoderUtils.str(value) + "]";
+        return "IoEvent[channel=" + channel + ";" + (input ? "input" : "output") + ";value=" + DecoderUtils.str(getValue()) + "]";
     }
 }
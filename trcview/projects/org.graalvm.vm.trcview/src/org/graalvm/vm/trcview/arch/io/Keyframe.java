@@ -0,0 +1,20 @@
+package org.graalvm.vm.trcview.arch.io;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A materialized keyframe of a delta chain, owned by the {@link StateCache} of one thread. The
+ * cache drops the reference from the delta to the keyframe when it evicts the keyframe.
+ */
+public final class Keyframe<T extends CpuState> {
+    final WeakReference<ChainedCpuState<T>> owner;
+    final T state;
+
+    // set on every use, cleared by the clock hand of the cache
+    boolean referenced;
+
+    Keyframe(ChainedCpuState<T> owner, T state) {
+        this.owner = new WeakReference<>(owner);
+        this.state = state;
+    }
+}
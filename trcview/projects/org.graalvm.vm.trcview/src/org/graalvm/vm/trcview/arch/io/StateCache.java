@@ -0,0 +1,121 @@
+package org.graalvm.vm.trcview.arch.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolution of chained delta states with bounded depth. Every {@link #MAX_DEPTH}-th delta of a
+ * chain is a keyframe: the first time it is needed, it is materialized into a full state which is
+ * stored on the delta itself. A register which is not part of a delta is read from the previous
+ * state, or from the materialized keyframe if the previous state is a keyframe, so a register read
+ * visits at most {@link #MAX_DEPTH} states and does not allocate while the keyframe is cached.
+ *
+ * Each thread keeps at most {@link #CAPACITY} keyframes. They are evicted in approximate LRU order
+ * (clock algorithm); an evicted keyframe is simply materialized again on its next use.
+ */
+public class StateCache {
+    public static final int MAX_DEPTH = 16;
+    public static final int CAPACITY = 4096;
+
+    private static final ThreadLocal<Ring> keyframes = ThreadLocal.withInitial(Ring::new);
+
+    private static class Ring {
+        private final Keyframe<?>[] entries = new Keyframe<?>[CAPACITY];
+        private int hand;
+
+        <T extends CpuState> void add(Keyframe<T> keyframe) {
+            while (true) {
+                Keyframe<?> entry = entries[hand];
+                if (entry != null && entry.referenced) {
+                    entry.referenced = false;
+                    hand = (hand + 1) % CAPACITY;
+                    continue;
+                }
+                if (entry != null) {
+                    release(entry);
+                }
+                entries[hand] = keyframe;
+                hand = (hand + 1) % CAPACITY;
+                return;
+            }
+        }
+
+        private static <T extends CpuState> void release(Keyframe<T> keyframe) {
+            ChainedCpuState<T> owner = keyframe.owner.get();
+            // another thread might have replaced the keyframe with its own copy
+            if (owner != null && owner.getMaterialized() == keyframe) {
+                owner.setMaterialized(null);
+            }
+        }
+    }
+
+    public static int getDepth(CpuState previous) {
+        if (previous instanceof ChainedCpuState) {
+            return ((ChainedCpuState<?>) previous).getChainDepth() + 1;
+        } else {
+            return 1;
+        }
+    }
+
+    private static boolean isKeyframe(ChainedCpuState<?> state) {
+        return state.getChainDepth() % MAX_DEPTH == 0;
+    }
+
+    /**
+     * Returns the state which registers that are not part of {@code state} should be read from.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends CpuState> T previous(ChainedCpuState<T> state) {
+        T previous = state.getPreviousState();
+        if (previous instanceof ChainedCpuState && isKeyframe((ChainedCpuState<T>) previous)) {
+            return materialize(previous);
+        } else {
+            return previous;
+        }
+    }
+
+    /**
+     * Returns a state which does not depend on other states and contains the same register values.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends CpuState> T materialize(T state) {
+        if (!(state instanceof ChainedCpuState)) {
+            return state;
+        }
+
+        List<ChainedCpuState<T>> chain = null;
+        T base = null;
+        T current = state;
+        while (current instanceof ChainedCpuState) {
+            ChainedCpuState<T> delta = (ChainedCpuState<T>) current;
+            Keyframe<T> keyframe = delta.getMaterialized();
+            if (keyframe != null) {
+                keyframe.referenced = true;
+                base = keyframe.state;
+                break;
+            }
+            if (chain == null) {
+                chain = new ArrayList<>();
+            }
+            chain.add(delta);
+            current = delta.getPreviousState();
+        }
+        if (chain == null) {
+            return base;
+        }
+        if (base == null) {
+            base = current;
+        }
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            ChainedCpuState<T> delta = chain.get(i);
+            base = delta.resolve(base);
+            if (isKeyframe(delta)) {
+                Keyframe<T> keyframe = new Keyframe<>(delta, base);
+                delta.setMaterialized(keyframe);
+                keyframes.get().add(keyframe);
+            }
+        }
+        return base;
+    }
+}
@@ -1,6 +1,10 @@
 package org.graalvm.vm.trcview.arch.io;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.logging.Logger;
@@ -10,19 +14,38 @@ import org.graalvm.vm.trcview.analysis.Analyzer;
 import org.graalvm.vm.trcview.arch.Architecture;
 import org.graalvm.vm.trcview.net.TraceAnalyzer;
 import org.graalvm.vm.util.io.BEInputStream;
+import org.graalvm.vm.util.io.BlockCompressedInputStream;
+import org.graalvm.vm.util.io.ByteBufferInputStream;
 import org.graalvm.vm.util.io.WordInputStream;
 import org.graalvm.vm.util.log.Trace;
 
-public class TraceFileReader extends TraceReader {
+public class TraceFileReader extends TraceReader implements Closeable {
     private static final Logger log = Trace.create(TraceReader.class);
 
     private static final int MAGIC = 0x58545243;
 
     private final WordInputStream in;
+    private final BlockCompressedInputStream compressed;
     private final ArchTraceReader reader;
 
+    /**
+     * Opens a trace file. Regular files are memory mapped, everything else (e.g. pipes) is read
+     * through a buffered stream. Compressed traces are detected automatically.
+     */
+    public TraceFileReader(File file) throws IOException {
+        this(open(file));
+    }
+
     public TraceFileReader(InputStream in) throws IOException {
-        this.in = new BEInputStream(in);
+        InputStream input = in.markSupported() ? in : new BufferedInputStream(in);
+        if (BlockCompressedInputStream.isCompressed(input)) {
+            log.info("Trace file is compressed");
+            compressed = new BlockCompressedInputStream(input);
+            input = compressed;
+        } else {
+            compressed = null;
+        }
+        this.in = BEInputStream.wrap(input);
         int magic = this.in.read32bit();
         if (magic != MAGIC) {
             throw new IOException("not a trace file");
@@ -39,6 +62,14 @@ public class TraceFileReader extends TraceReader {
         setArchitecture(arch);
     }
 
+    private static InputStream open(File file) throws IOException {
+        if (file.isFile()) {
+            return ByteBufferInputStream.map(file);
+        } else {
+            return new BufferedInputStream(new FileInputStream(file));
+        }
+    }
+
     @Override
     public Analyzer getAnalyzer() {
         return reader.getAnalyzer();
@@ -60,6 +91,16 @@ public class TraceFileReader extends TraceReader {
 
     @Override
     public long tell() {
-        return in.tell();
+        if (compressed != null) {
+            // progress is reported relative to the file size
+            return compressed.getCompressedPosition();
+        } else {
+            return in.tell();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
     }
 }
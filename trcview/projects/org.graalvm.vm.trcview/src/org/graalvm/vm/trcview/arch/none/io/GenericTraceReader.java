@@ -58,7 +58,7 @@ public class GenericTraceReader extends ArchTraceReader {
     private long stepcnt = 0;
 
     public GenericTraceReader(InputStream in) {
-        this(new BEInputStream(in));
+        this(BEInputStream.wrap(in));
     }
 
     public GenericTraceReader(WordInputStream in) {
@@ -0,0 +1,501 @@
+package org.graalvm.vm.trcview.cli;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.analysis.Analyzer;
+import org.graalvm.vm.trcview.analysis.ComputedSymbol;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemorySegment;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.arch.io.StepFormat;
+import org.graalvm.vm.trcview.arch.io.TraceFileReader;
+import org.graalvm.vm.trcview.arch.io.TraceReader;
+import org.graalvm.vm.trcview.arch.vm.analysis.VMAnalyzer;
+import org.graalvm.vm.trcview.arch.vm.analysis.VMTransformer;
+import org.graalvm.vm.trcview.data.DynamicTypePropagation;
+import org.graalvm.vm.trcview.data.Variable;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.ProgressListener;
+import org.graalvm.vm.trcview.io.TextSerializer;
+import org.graalvm.vm.trcview.io.TraceParser;
+import org.graalvm.vm.trcview.net.Local;
+import org.graalvm.vm.trcview.net.TraceAnalyzer;
+import org.graalvm.vm.util.log.Levels;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * Headless trace analysis. Loads a trace file without any UI and writes the analysis results
+ * (symbols, syscalls, call tree, memory dumps, recovered types) and load statistics to an output
+ * directory.
+ */
+public class BatchAnalysis {
+    private static final Logger log = Trace.create(BatchAnalysis.class);
+
+    private final List<Analyzer> analyzers = new ArrayList<>();
+    private final List<Constructor<? extends VMTransformer>> vmTransformers = new ArrayList<>();
+
+    private boolean typeRecovery = false;
+    private boolean codeAnalysis = false;
+    private boolean parallel = Runtime.getRuntime().availableProcessors() > 1;
+
+    private Map<Integer, BlockNode> threads;
+
+    private long loadTime;
+    private long steps;
+    private long peakHeap;
+
+    public void addAnalyzer(Analyzer analyzer) {
+        analyzers.add(analyzer);
+    }
+
+    public void addVMTransformer(Constructor<? extends VMTransformer> transformer) {
+        vmTransformers.add(transformer);
+    }
+
+    public void setTypeRecovery(boolean typeRecovery) {
+        this.typeRecovery = typeRecovery;
+    }
+
+    public void setCodeAnalysis(boolean codeAnalysis) {
+        this.codeAnalysis = codeAnalysis;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    public long getStepCount() {
+        return steps;
+    }
+
+    public long getPeakHeap() {
+        return peakHeap;
+    }
+
+    public TraceAnalyzer load(File file) throws IOException {
+        try (TraceFileReader reader = new TraceFileReader(file)) {
+            return load(reader, file.length());
+        }
+    }
+
+    public TraceAnalyzer load(TraceReader reader, long size) throws IOException {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+        }
+
+        long start = System.currentTimeMillis();
+        Architecture arch = reader.getArchitecture();
+        List<Analyzer> all = new ArrayList<>(analyzers);
+        Analyzer analyzer = reader.getAnalyzer();
+        if (analyzer != null) {
+            all.add(analyzer);
+            for (Constructor<? extends VMTransformer> clazz : vmTransformers) {
+                try {
+                    VMTransformer transformer = clazz.newInstance();
+                    if (transformer.isApplicable(arch)) {
+                        all.add(new VMAnalyzer(transformer));
+                    }
+                } catch (Throwable t) {
+                    log.log(Levels.ERROR, "Failed to instantiate VM transformer: " + t.getMessage(), t);
+                    throw new IOException(t);
+                }
+            }
+        }
+
+        Analysis analysis = new Analysis(arch, all, typeRecovery, codeAnalysis);
+        BatchProgress progress = new BatchProgress(size);
+        analysis.setParallel(parallel, progress);
+        analysis.start();
+        threads = TraceParser.parse(reader, analysis, progress);
+        BlockNode root = null;
+        for (BlockNode block : threads.values()) {
+            if (root == null || block.getStep() < root.getStep()) {
+                root = block;
+            }
+        }
+        analysis.finish(root);
+        if (root == null || root.getFirstStep() == null) {
+            throw new IOException("trace contains no steps");
+        }
+
+        TraceAnalyzer trc = new Local(arch, root, threads, analysis);
+        reader.finish(trc);
+        long end = System.currentTimeMillis();
+
+        loadTime = end - start;
+        steps = analysis.getStepCount();
+        peakHeap = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        return trc;
+    }
+
+    private static void writeSymbol(PrintWriter out, String prefix, ComputedSymbol sym) {
+        if (sym.prototype != null) {
+            out.printf("%s%x=%s\n", prefix, sym.address, TextSerializer.encode(sym.name, sym.prototype.returnType.toString(), String.join(", ", sym.prototype.getArgumentsAsString())));
+        } else {
+            out.printf("%s%x=%s\n", prefix, sym.address, TextSerializer.encode(sym.name));
+        }
+    }
+
+    /**
+     * Writes the subroutines and locations in the same format as a saved symbol file, so the
+     * result can be loaded into the UI again.
+     */
+    public static void writeSymbols(TraceAnalyzer trc, PrintWriter out) {
+        trc.getSubroutines().stream().sorted((a, b) -> Long.compareUnsigned(a.address, b.address)).forEach(sym -> writeSymbol(out, "", sym));
+        trc.getLocations().stream().sorted((a, b) -> Long.compareUnsigned(a.address, b.address)).forEach(sym -> writeSymbol(out, "LOC:", sym));
+    }
+
+    private static StepEvent step(Node node) {
+        if (node instanceof StepEvent) {
+            return (StepEvent) node;
+        } else {
+            BlockNode block = (BlockNode) node;
+            if (block.isInterrupt()) {
+                return block.getFirstStep();
+            } else {
+                return block.getHead();
+            }
+        }
+    }
+
+    public static void writeSyscalls(TraceAnalyzer trc, PrintWriter out) {
+        for (Node node : trc.getSyscalls()) {
+            StepEvent step = step(node);
+            Node nn = trc.getNextStep(node);
+            StepEvent next = null;
+            if (nn instanceof StepEvent) {
+                next = (StepEvent) nn;
+            } else if (nn instanceof BlockNode) {
+                next = ((BlockNode) nn).getHead();
+                if (next == null) {
+                    next = ((BlockNode) nn).getFirstStep();
+                }
+            }
+            CpuState ns = next == null ? null : next.getState();
+            String decoded = null;
+            if (trc.getArchitecture().getSyscallDecoder() != null) {
+                decoded = trc.getArchitecture().getSyscallDecoder().decode(step.getState(), ns, trc);
+            }
+            if (decoded == null) {
+                decoded = step.getDisassembly().replace('\t', ' ');
+            }
+            out.printf("[%d] %d: %s\n", node.getTid(), step.getStep(), decoded);
+        }
+    }
+
+    private static String getName(TraceAnalyzer trc, long pc) {
+        ComputedSymbol sym = trc.getComputedSymbol(pc);
+        if (sym != null && sym.address == pc) {
+            return sym.name;
+        } else {
+            return trc.getArchitecture().getFormat().formatAddress(pc);
+        }
+    }
+
+    private static void writeCallTree(TraceAnalyzer trc, BlockNode root, PrintWriter out) {
+        StepFormat fmt = trc.getArchitecture().getFormat();
+        // explicit stack: deep recursion in the trace must not overflow the Java stack
+        Deque<BlockNode> blocks = new ArrayDeque<>();
+        Deque<Integer> positions = new ArrayDeque<>();
+        blocks.push(root);
+        positions.push(0);
+        while (!blocks.isEmpty()) {
+            BlockNode block = blocks.peek();
+            int i = positions.pop();
+            if (i >= block.size()) {
+                blocks.pop();
+                continue;
+            }
+            positions.push(i + 1);
+            Node node = block.get(i);
+            if (!(node instanceof BlockNode)) {
+                continue;
+            }
+            BlockNode child = (BlockNode) node;
+            StringBuilder line = new StringBuilder();
+            for (int n = 1; n < blocks.size(); n++) {
+                line.append("  ");
+            }
+            StepEvent first = child.getFirstStep();
+            if (child.isInterrupt()) {
+                line.append(child.getStep()).append(": interrupt ").append(child.getInterrupt());
+            } else {
+                line.append(child.getHead().getStep()).append(": ").append(fmt.formatAddress(child.getHead().getPC())).append(" call ");
+                line.append(first == null ? "?" : getName(trc, first.getPC()));
+            }
+            out.println(line);
+            blocks.push(child);
+            positions.push(0);
+        }
+    }
+
+    public void writeCallTree(TraceAnalyzer trc, PrintWriter out) {
+        for (Entry<Integer, BlockNode> thread : new TreeMap<>(threads).entrySet()) {
+            out.printf("thread %d:\n", thread.getKey());
+            writeCallTree(trc, thread.getValue(), out);
+        }
+    }
+
+    /**
+     * Writes a hexdump of the memory range {@code start}-{@code end} (inclusive) as it was after
+     * {@code step}.
+     */
+    public static void writeMemory(TraceAnalyzer trc, long step, long start, long end, PrintWriter out) {
+        StepFormat fmt = trc.getArchitecture().getFormat();
+        for (long line = start & ~0xF; Long.compareUnsigned(line, end) <= 0 && Long.compareUnsigned(line, start & ~0xF) >= 0; line += 16) {
+            StringBuilder hex = new StringBuilder();
+            StringBuilder ascii = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                long addr = line + i;
+                if (Long.compareUnsigned(addr, start) < 0 || Long.compareUnsigned(addr, end) > 0) {
+                    hex.append("   ");
+                    ascii.append(' ');
+                    continue;
+                }
+                try {
+                    byte b = trc.getI8(addr, step);
+                    hex.append(String.format(" %02x", Byte.toUnsignedInt(b)));
+                    ascii.append(b >= 0x20 && b < 0x7F ? (char) b : '.');
+                } catch (MemoryNotMappedException e) {
+                    hex.append(" ??");
+                    ascii.append(' ');
+                }
+            }
+            out.println(fmt.formatAddress(line) + ":" + hex + "  " + ascii);
+        }
+    }
+
+    /**
+     * Writes a hexdump of all memory segments which are mapped after {@code step}.
+     */
+    public static void writeMemory(TraceAnalyzer trc, long step, PrintWriter out) {
+        for (MemorySegment segment : trc.getMemorySegments(step)) {
+            out.println(segment);
+            writeMemory(trc, step, segment.getStart(), segment.getEnd(), out);
+            out.println();
+        }
+    }
+
+    public static void writeTypes(TraceAnalyzer trc, PrintWriter out) {
+        DynamicTypePropagation types = trc.getTypeRecovery();
+        if (types == null) {
+            return;
+        }
+        out.println("# " + types.getSemantics().getStatistics());
+        for (Variable var : trc.getTypedMemory().getRecoveredTypes()) {
+            String t = var.getType() == null ? null : var.getType().toString();
+            out.printf("VAR:%x=%s\n", var.getAddress(), TextSerializer.encode(var.getRawName(), t));
+        }
+    }
+
+    public void writeStatistics(PrintWriter out) {
+        out.printf("load.time.ms=%d\n", loadTime);
+        out.printf("steps=%d\n", steps);
+        out.printf("steps.per.second=%d\n", loadTime > 0 ? steps * 1000 / loadTime : steps * 1000);
+        out.printf("heap.peak.bytes=%d\n", peakHeap);
+    }
+
+    private static PrintWriter open(File dir, String name) throws IOException {
+        return new PrintWriter(new BufferedWriter(new FileWriter(new File(dir, name))));
+    }
+
+    private class BatchProgress implements ProgressListener {
+        private final long size;
+        private final Map<String, String> stages = new TreeMap<>();
+        private long lastUpdate = 0;
+
+        BatchProgress(long size) {
+            this.size = size;
+        }
+
+        public void progressUpdate(long value) {
+            long now = System.currentTimeMillis();
+            if (now - lastUpdate < 5000) {
+                return;
+            }
+            lastUpdate = now;
+            StringBuilder buf = new StringBuilder();
+            if (size > 0) {
+                buf.append(value * 100 / size).append('%');
+            } else {
+                buf.append(value).append(" bytes");
+            }
+            synchronized (stages) {
+                for (Entry<String, String> stage : stages.entrySet()) {
+                    buf.append(", ").append(stage.getKey()).append(": ").append(stage.getValue());
+                }
+            }
+            log.info("Loading: " + buf);
+        }
+
+        @Override
+        public void stageUpdate(String stage, long events, long rate) {
+            synchronized (stages) {
+                stages.put(stage, events + " events (" + rate + "/s)");
+            }
+        }
+    }
+
+    private static void help() {
+        System.out.println("Usage: BatchAnalysis [OPTIONS] trace");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -o DIR             write results to DIR (default: current directory)");
+        System.out.println("  -a CLASS           load the VM transformer CLASS");
+        System.out.println("  -A CLASS           load the analyzer CLASS");
+        System.out.println("  -t                 enable type recovery and write types.txt");
+        System.out.println("  -c                 enable code analysis");
+        System.out.println("  -s                 process the trace on a single thread");
+        System.out.println("  -m STEP[:START-END] dump memory at STEP to memory-STEP.txt");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) {
+        Trace.setup();
+
+        BatchAnalysis batch = new BatchAnalysis();
+        File dir = new File(".");
+        String tracefile = null;
+        List<long[]> dumps = new ArrayList<>();
+
+        int i;
+        loop: for (i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equals("-o") || arg.equals("-a") || arg.equals("-A") || arg.equals("-m")) && i + 1 >= args.length) {
+                System.out.println("Syntax error: missing argument for option " + arg);
+                System.exit(1);
+            }
+            try {
+                switch (arg) {
+                    case "-o":
+                        dir = new File(args[++i]);
+                        break;
+                    case "-a":
+                        batch.addVMTransformer(((Class<? extends VMTransformer>) Class.forName(args[++i])).getConstructor());
+                        break;
+                    case "-A":
+                        batch.addAnalyzer((Analyzer) Class.forName(args[++i]).getConstructor().newInstance());
+                        break;
+                    case "-t":
+                        batch.setTypeRecovery(true);
+                        break;
+                    case "-c":
+                        batch.setCodeAnalysis(true);
+                        break;
+                    case "-s":
+                        batch.setParallel(false);
+                        break;
+                    case "-m": {
+                        String spec = args[++i];
+                        int colon = spec.indexOf(':');
+                        if (colon == -1) {
+                            dumps.add(new long[]{Long.parseLong(spec)});
+                        } else {
+                            String[] range = spec.substring(colon + 1).split("-");
+                            dumps.add(new long[]{Long.parseLong(spec.substring(0, colon)), Long.parseUnsignedLong(range[0], 16), Long.parseUnsignedLong(range[1], 16)});
+                        }
+                        break;
+                    }
+                    case "-h":
+                    case "--help":
+                        help();
+                        return;
+                    case "--":
+                        i++;
+                        break loop;
+                    default:
+                        break loop;
+                }
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                System.out.println("Failed to load the class \"" + args[i] + "\": " + e);
+                System.exit(1);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                System.out.println("Syntax error: invalid memory dump specification \"" + args[i] + "\"");
+                System.exit(1);
+            }
+        }
+
+        if (i < args.length) {
+            tracefile = args[i];
+        }
+
+        if (tracefile == null) {
+            help();
+            System.exit(1);
+        }
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.out.println("Cannot create output directory " + dir);
+            System.exit(1);
+        }
+
+        try {
+            log.info("Loading file " + tracefile + "...");
+            TraceAnalyzer trc = batch.load(new File(tracefile));
+            log.info("File loaded [" + batch.getLoadTime() + " ms]");
+
+            try (PrintWriter out = open(dir, "symbols.txt")) {
+                writeSymbols(trc, out);
+            }
+            try (PrintWriter out = open(dir, "strace.txt")) {
+                writeSyscalls(trc, out);
+            }
+            try (PrintWriter out = open(dir, "calltree.txt")) {
+                batch.writeCallTree(trc, out);
+            }
+            for (long[] dump : dumps) {
+                try (PrintWriter out = open(dir, "memory-" + dump[0] + ".txt")) {
+                    if (dump.length == 1) {
+                        writeMemory(trc, dump[0], out);
+                    } else {
+                        writeMemory(trc, dump[0], dump[1], dump[2], out);
+                    }
+                }
+            }
+            if (trc.getTypeRecovery() != null) {
+                try (PrintWriter out = open(dir, "types.txt")) {
+                    writeTypes(trc, out);
+                }
+            }
+            try (PrintWriter out = open(dir, "stats.txt")) {
+                batch.writeStatistics(out);
+            }
+            PrintWriter out = new PrintWriter(System.out);
+            batch.writeStatistics(out);
+            out.flush();
+        } catch (Throwable t) {
+            log.log(Levels.ERROR, "Analysis failed: " + t, t);
+            System.exit(1);
+        }
+    }
+}
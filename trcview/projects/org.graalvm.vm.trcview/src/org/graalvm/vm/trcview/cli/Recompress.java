@@ -0,0 +1,118 @@
+package org.graalvm.vm.trcview.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+import org.graalvm.vm.util.io.BlockCompressedInputStream;
+import org.graalvm.vm.util.io.BlockCompressedOutputStream;
+import org.graalvm.vm.util.log.Levels;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * Converts trace files between the raw and the block compressed format. Compressed input is
+ * detected automatically, so this can also be used to change the block size or compression level
+ * of an already compressed trace.
+ */
+public class Recompress {
+    private static final Logger log = Trace.create(Recompress.class);
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    public static long copy(File input, File output, boolean compress, int blockSize, int level) throws IOException {
+        try (InputStream raw = new BufferedInputStream(new FileInputStream(input), BUFFER_SIZE);
+                        InputStream in = BlockCompressedInputStream.isCompressed(raw) ? new BlockCompressedInputStream(raw) : raw;
+                        OutputStream file = new BufferedOutputStream(new FileOutputStream(output), BUFFER_SIZE);
+                        OutputStream out = compress ? new BlockCompressedOutputStream(file, blockSize, level) : file) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            long total = 0;
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    private static void help() {
+        System.out.println("Usage: Recompress [OPTIONS] input output");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -d                 write an uncompressed trace");
+        System.out.println("  -l LEVEL           deflate compression level 1-9 (default: 1)");
+        System.out.println("  -b SIZE            uncompressed frame size in KiB (default: " + BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE / 1024 + ")");
+    }
+
+    public static void main(String[] args) {
+        Trace.setup();
+
+        boolean compress = true;
+        int level = Deflater.BEST_SPEED;
+        int blockSize = BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE;
+
+        int i;
+        loop: for (i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equals("-l") || arg.equals("-b")) && i + 1 >= args.length) {
+                System.out.println("Syntax error: missing argument for option " + arg);
+                System.exit(1);
+            }
+            try {
+                switch (arg) {
+                    case "-d":
+                        compress = false;
+                        break;
+                    case "-l":
+                        level = Integer.parseInt(args[++i]);
+                        if (level < 1 || level > 9) {
+                            throw new NumberFormatException();
+                        }
+                        break;
+                    case "-b":
+                        blockSize = Integer.parseInt(args[++i]) * 1024;
+                        if (blockSize <= 0) {
+                            throw new NumberFormatException();
+                        }
+                        break;
+                    case "-h":
+                    case "--help":
+                        help();
+                        return;
+                    case "--":
+                        i++;
+                        break loop;
+                    default:
+                        break loop;
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Syntax error: invalid value \"" + args[i] + "\" for option " + arg);
+                System.exit(1);
+            }
+        }
+
+        if (args.length - i != 2) {
+            help();
+            System.exit(1);
+        }
+
+        File input = new File(args[i]);
+        File output = new File(args[i + 1]);
+        try {
+            long start = System.currentTimeMillis();
+            long size = copy(input, output, compress, blockSize, level);
+            long time = System.currentTimeMillis() - start;
+            log.info(String.format("%s: %d bytes, %s: %d bytes (%.1f%%) [%d ms]", input, input.length(), output, output.length(), output.length() * 100.0 / Math.max(1, size), time));
+        } catch (Throwable t) {
+            log.log(Levels.ERROR, "Conversion failed: " + t, t);
+            System.exit(1);
+        }
+    }
+}
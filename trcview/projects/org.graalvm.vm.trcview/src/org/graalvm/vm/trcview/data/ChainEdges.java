@@ -0,0 +1,228 @@
+package org.graalvm.vm.trcview.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chain targets of a fixed number of rows (registers), without duplicates per row. While a trace is
+ * loaded the targets are appended to a log which records the row of every entry. {@link #trim()}
+ * sorts the log into compressed sparse row form, where the targets of row {@code r} are
+ * {@code targets[offsets[r]]} to {@code targets[offsets[r + 1] - 1]}.
+ */
+public class ChainEdges {
+    // linear duplicate checks up to this many entries, hash index above
+    private static final int INDEX_THRESHOLD = 8;
+    private static final int[] NO_ROWS = new int[0];
+
+    private final int rows;
+    private ChainTarget[] targets;
+    private int size;
+
+    // log form; rowOf is not needed with only one row
+    private int[] rowOf;
+    private int[] index; // position + 1 of each entry, 0 = free
+
+    // compressed sparse row form
+    private int[] offsets;
+
+    public ChainEdges(int rows) {
+        this.rows = rows;
+        targets = new ChainTarget[1];
+        rowOf = rows > 1 ? new int[1] : null;
+    }
+
+    private int row(int i) {
+        return rowOf == null ? 0 : rowOf[i];
+    }
+
+    private static int hash(int row, ChainTarget target) {
+        int h = (target.hashCode() * 31 + row) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public boolean add(int row, ChainTarget target) {
+        if (offsets != null) {
+            expand();
+        }
+
+        if (find(row, target) != -1) {
+            return false;
+        }
+
+        if (size == targets.length) {
+            int capacity = Math.max(size * 2, 1);
+            targets = Arrays.copyOf(targets, capacity);
+            if (rowOf != null) {
+                rowOf = Arrays.copyOf(rowOf, capacity);
+            }
+        }
+        targets[size] = target;
+        if (rowOf != null) {
+            rowOf[size] = row;
+        }
+        size++;
+
+        if (index != null) {
+            if (size * 2 > index.length) {
+                reindex();
+            } else {
+                insert(size - 1);
+            }
+        } else if (size > INDEX_THRESHOLD) {
+            reindex();
+        }
+        return true;
+    }
+
+    private int find(int row, ChainTarget target) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (row(i) == row && targets[i].equals(target)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for (int i = hash(row, target) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int pos = index[i] - 1;
+            if (row(pos) == row && targets[pos].equals(target)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int pos) {
+        int mask = index.length - 1;
+        int i = hash(row(pos), targets[pos]) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = pos + 1;
+    }
+
+    private void reindex() {
+        if (size <= INDEX_THRESHOLD) {
+            index = null;
+            return;
+        }
+
+        int capacity = 16;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    // back from CSR form to log form
+    private void expand() {
+        if (rowOf != null) {
+            rowOf = new int[targets.length];
+            for (int r = 0; r < rows; r++) {
+                Arrays.fill(rowOf, offsets[r], offsets[r + 1], r);
+            }
+        }
+        offsets = null;
+        reindex();
+    }
+
+    public List<ChainTarget> get(int row) {
+        if (offsets != null) {
+            int start = offsets[row];
+            int end = offsets[row + 1];
+            if (start == end) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(Arrays.asList(targets).subList(start, end));
+        }
+
+        if (rowOf == null) {
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(targets, size)));
+        }
+
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (rowOf[i] == row) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        ChainTarget[] result = new ChainTarget[count];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (rowOf[i] == row) {
+                result[n++] = targets[i];
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    public void clear(int row) {
+        if (offsets != null) {
+            expand();
+        }
+
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (row(i) != row) {
+                targets[n] = targets[i];
+                if (rowOf != null) {
+                    rowOf[n] = rowOf[i];
+                }
+                n++;
+            }
+        }
+        if (n == size) {
+            return;
+        }
+        Arrays.fill(targets, n, size, null);
+        size = n;
+        reindex();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void trim() {
+        if (offsets != null) {
+            return;
+        }
+
+        int[] start = new int[rows + 1];
+        for (int i = 0; i < size; i++) {
+            start[row(i) + 1]++;
+        }
+        for (int r = 0; r < rows; r++) {
+            start[r + 1] += start[r];
+        }
+
+        ChainTarget[] sorted = new ChainTarget[size];
+        int[] next = Arrays.copyOf(start, rows);
+        for (int i = 0; i < size; i++) {
+            sorted[next[row(i)]++] = targets[i];
+        }
+
+        targets = sorted;
+        offsets = start;
+        if (rowOf != null) {
+            rowOf = NO_ROWS;
+        }
+        index = null;
+    }
+}
@@ -0,0 +1,533 @@
+package org.graalvm.vm.trcview.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.graalvm.vm.trcview.data.type.VariableType;
+import org.graalvm.vm.util.BitTest;
+
+/**
+ * Memoized resolution of type chains. The chains form a directed graph of register and memory
+ * cells; a type query returns the union of the type bits of everything reachable from a cell.
+ * Strongly connected cells are collapsed into one component, and every component caches the
+ * resolved bits of its closure, so a query only walks the part of the graph that was never
+ * resolved before.
+ *
+ * Changes to the cells are reported through {@link #invalidate}. Additional bits and additional
+ * chain links are merged into the existing components, everything else drops the components which
+ * can reach the changed cell so that they are resolved again on the next query.
+ */
+public class ChainResolver {
+    private final CodeTypeMap codeMap;
+    private final MemoryTypeMap memoryMap;
+    private final boolean dataflow;
+
+    // keys are RegisterChainTarget or TypedMemoryCell objects
+    private final Map<Object, Node> nodes = new HashMap<>();
+    private final Set<Object> dirty = new HashSet<>();
+    private volatile boolean empty = true;
+
+    private static class Node {
+        private final Object key;
+        private long bits;
+        private Object[] successors;
+        private Component component;
+
+        // only used while the node is resolved for the first time
+        private int index;
+        private int lowlink;
+
+        Node(Object key) {
+            this.key = key;
+        }
+    }
+
+    private static class Component {
+        private Component parent = this;
+        private final List<Node> members = new ArrayList<>();
+        private Set<Component> successors = new HashSet<>();
+        private Set<Component> predecessors = new HashSet<>();
+        private long bits;
+        private boolean dropped;
+
+        Component find() {
+            Component c = this;
+            while (c.parent != c) {
+                c.parent = c.parent.parent;
+                c = c.parent;
+            }
+            return c;
+        }
+    }
+
+    private static class Frame {
+        private final Node node;
+        private int next;
+
+        Frame(Node node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * @param dataflow only follow the reverse data flow chains ({@code resolveData}) instead of
+     *            all type chains ({@code resolve})
+     */
+    public ChainResolver(CodeTypeMap codeMap, MemoryTypeMap memoryMap, boolean dataflow) {
+        this.codeMap = codeMap;
+        this.memoryMap = memoryMap;
+        this.dataflow = dataflow;
+    }
+
+    private Object key(ChainTarget target) {
+        if (target instanceof MemoryChainTarget) {
+            MemoryChainTarget tgt = (MemoryChainTarget) target;
+            return memoryMap.getCell(tgt.address, tgt.step);
+        } else {
+            return target;
+        }
+    }
+
+    private static long bits(Object key) {
+        if (key instanceof RegisterChainTarget) {
+            RegisterChainTarget tgt = (RegisterChainTarget) key;
+            return tgt.map.getDirect(tgt.register);
+        } else {
+            return ((TypedMemoryCell) key).get();
+        }
+    }
+
+    private void targets(Object key, Collection<ChainTarget> result) {
+        if (key instanceof RegisterChainTarget) {
+            RegisterChainTarget tgt = (RegisterChainTarget) key;
+
+            int reg = tgt.register;
+            RegisterTypeMap map = tgt.map;
+            long value = map.getDirect(reg);
+
+            // decide if reverse chain is used
+            boolean liveReverse = dataflow || map.isLive(reg);
+            if (BitTest.test(value, VariableType.CHAIN_BIT) && liveReverse) {
+                for (RegisterTypeMap t : map.getExtraChain()) {
+                    result.add(new RegisterChainTarget(t, reg));
+                }
+
+                long last = map.getChain();
+                if (last != -1 && !BitTest.test(value, VariableType.BREAK_BIT)) {
+                    result.add(new RegisterChainTarget(codeMap.get(last), reg));
+                }
+            }
+
+            if (dataflow) {
+                return;
+            }
+
+            // decide if forward chain is used
+            for (RegisterTypeMap r : map.getForwardChain()) {
+                long rbits = r.getDirect(reg);
+                if (BitTest.test(rbits, VariableType.CHAIN_BIT) && !BitTest.test(rbits, VariableType.BREAK_BIT) && r.isLive(reg)) {
+                    result.add(new RegisterChainTarget(r, reg));
+                }
+            }
+
+            // add all precise chain elements
+            if (liveReverse) {
+                result.addAll(map.getReverseChain(reg));
+            }
+
+            for (ChainTarget t : map.getForwardChain(reg)) {
+                if (t instanceof RegisterChainTarget) {
+                    RegisterChainTarget rt = (RegisterChainTarget) t;
+                    if (rt.map.isLive(rt.register)) {
+                        result.add(t);
+                    }
+                } else {
+                    result.add(t);
+                }
+            }
+        } else {
+            TypedMemoryCell cell = (TypedMemoryCell) key;
+            result.addAll(cell.getReverseChain());
+            if (!dataflow) {
+                result.addAll(cell.getForwardChain());
+            }
+        }
+    }
+
+    private Object[] successors(Object key) {
+        List<ChainTarget> targets = new ArrayList<>();
+        targets(key, targets);
+        Set<Object> result = new HashSet<>();
+        for (ChainTarget t : targets) {
+            Object k = key(t);
+            if (k != null && !k.equals(key)) {
+                result.add(k);
+            }
+        }
+        return result.toArray();
+    }
+
+    private Node create(Object key) {
+        Node node = new Node(key);
+        node.bits = bits(key);
+        node.successors = successors(key);
+        nodes.put(key, node);
+        empty = false;
+        return node;
+    }
+
+    /**
+     * Get the union of all type bits reachable from the target.
+     */
+    public synchronized long resolve(ChainTarget target) {
+        Object key = key(target);
+        if (key == null) {
+            return 0;
+        }
+
+        update();
+
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = build(key);
+        }
+        return node.component.find().bits;
+    }
+
+    /**
+     * Collect every target reachable from {@code start}.
+     */
+    public synchronized void collect(ChainTarget start, Collection<ChainTarget> result) {
+        Set<Object> visited = new HashSet<>();
+        Deque<ChainTarget> todo = new ArrayDeque<>();
+        List<ChainTarget> next = new ArrayList<>();
+        todo.add(start);
+        while (!todo.isEmpty()) {
+            ChainTarget target = todo.remove();
+            Object key = key(target);
+            if (key == null) {
+                if (visited.add(target)) {
+                    result.add(target);
+                }
+                continue;
+            }
+            if (!visited.add(key)) {
+                continue;
+            }
+            result.add(target);
+            next.clear();
+            targets(key, next);
+            todo.addAll(next);
+        }
+    }
+
+    // Tarjan's algorithm for everything reachable from key that was not resolved before
+    private Node build(Object key) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Frame> frames = new ArrayDeque<>();
+        int index = 0;
+
+        Node root = create(key);
+        root.index = index;
+        root.lowlink = index;
+        index++;
+        stack.push(root);
+        frames.push(new Frame(root));
+
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            Node node = frame.node;
+            if (frame.next < node.successors.length) {
+                Object k = node.successors[frame.next++];
+                Node succ = nodes.get(k);
+                if (succ == null) {
+                    succ = create(k);
+                    succ.index = index;
+                    succ.lowlink = index;
+                    index++;
+                    stack.push(succ);
+                    frames.push(new Frame(succ));
+                } else if (succ.component == null) {
+                    // still on the stack
+                    node.lowlink = Math.min(node.lowlink, succ.index);
+                }
+                continue;
+            }
+
+            frames.pop();
+            if (node.lowlink == node.index) {
+                Component component = new Component();
+                Node member;
+                do {
+                    member = stack.pop();
+                    member.component = component;
+                    component.members.add(member);
+                    component.bits |= member.bits;
+                } while (member != node);
+
+                // every successor outside of the component is resolved already
+                for (Node n : component.members) {
+                    for (Object k : n.successors) {
+                        Component succ = nodes.get(k).component.find();
+                        if (succ != component && component.successors.add(succ)) {
+                            succ.predecessors.add(component);
+                            component.bits |= succ.bits;
+                        }
+                    }
+                }
+            }
+
+            if (!frames.isEmpty()) {
+                Node parent = frames.peek().node;
+                parent.lowlink = Math.min(parent.lowlink, node.lowlink);
+            }
+        }
+
+        return root;
+    }
+
+    /**
+     * Report a change of the type bits or the chains of a register.
+     */
+    public synchronized void invalidate(RegisterTypeMap map, int reg) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        mark(new RegisterChainTarget(map, reg));
+
+        if (!dataflow) {
+            // the forward chain of the previous instructions depends on the bits of this register
+            long last = map.getChain();
+            if (last != -1 && codeMap.contains(last)) {
+                mark(new RegisterChainTarget(codeMap.get(last), reg));
+            }
+            for (RegisterTypeMap t : map.getExtraChain()) {
+                mark(new RegisterChainTarget(t, reg));
+            }
+        }
+    }
+
+    public synchronized void invalidate(RegisterTypeMap map) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        for (int reg = 0; reg < map.getRegisterCount(); reg++) {
+            invalidate(map, reg);
+        }
+    }
+
+    /**
+     * Report a change of the type bits or the chains of a memory cell.
+     */
+    public synchronized void invalidate(TypedMemoryCell cell) {
+        if (cell != null && !nodes.isEmpty()) {
+            mark(cell);
+        }
+    }
+
+    /**
+     * Forget everything, e.g. if the liveness of registers changed.
+     */
+    public synchronized void clear() {
+        nodes.clear();
+        dirty.clear();
+        empty = true;
+    }
+
+    // cheap check for the mutators while a trace is loaded
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    private void mark(Object key) {
+        if (nodes.containsKey(key)) {
+            dirty.add(key);
+        }
+    }
+
+    private void update() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        Object[] keys = dirty.toArray();
+        dirty.clear();
+
+        for (Object key : keys) {
+            Node node = nodes.get(key);
+            if (node != null) {
+                refresh(node);
+            }
+        }
+    }
+
+    private void refresh(Node node) {
+        long bits = bits(node.key);
+        Object[] successors = successors(node.key);
+
+        Set<Object> current = new HashSet<>(Arrays.asList(successors));
+        boolean removed = (node.bits & ~bits) != 0;
+        for (Object k : node.successors) {
+            if (!current.contains(k)) {
+                removed = true;
+                break;
+            }
+        }
+
+        if (removed) {
+            drop(node);
+            return;
+        }
+
+        Set<Object> added = current;
+        added.removeAll(Arrays.asList(node.successors));
+        node.bits = bits;
+        node.successors = successors;
+
+        propagate(node.component.find(), bits);
+
+        for (Object k : added) {
+            Node succ = nodes.get(k);
+            if (succ == null) {
+                succ = build(k);
+            }
+            link(node.component.find(), succ.component.find());
+        }
+    }
+
+    private void link(Component from, Component to) {
+        if (from == to) {
+            return;
+        }
+
+        Set<Component> reachable = reachable(to);
+        if (reachable.contains(from)) {
+            // the new link closes a cycle: everything on a path from "to" to "from" becomes one
+            // component
+            Set<Component> cycle = new HashSet<>();
+            Deque<Component> todo = new ArrayDeque<>();
+            todo.add(from);
+            while (!todo.isEmpty()) {
+                Component c = todo.remove().find();
+                if (reachable.contains(c) && cycle.add(c)) {
+                    todo.addAll(c.predecessors);
+                }
+            }
+            Component merged = merge(cycle);
+            propagate(merged, merged.bits);
+        } else {
+            from.successors.add(to);
+            to.predecessors.add(from);
+            propagate(from, to.bits);
+        }
+    }
+
+    private static Set<Component> reachable(Component start) {
+        Set<Component> result = new HashSet<>();
+        Deque<Component> todo = new ArrayDeque<>();
+        todo.add(start);
+        while (!todo.isEmpty()) {
+            Component c = todo.remove().find();
+            if (result.add(c)) {
+                todo.addAll(c.successors);
+            }
+        }
+        return result;
+    }
+
+    // union the components and rewrite the links of the representative
+    private static Component merge(Set<Component> components) {
+        Component rep = null;
+        for (Component c : components) {
+            if (rep == null || c.members.size() > rep.members.size()) {
+                rep = c;
+            }
+        }
+
+        Set<Component> successors = new HashSet<>();
+        Set<Component> predecessors = new HashSet<>();
+        for (Component c : components) {
+            if (c != rep) {
+                c.parent = rep;
+                rep.members.addAll(c.members);
+                rep.bits |= c.bits;
+            }
+        }
+        for (Component c : components) {
+            for (Component s : c.successors) {
+                Component succ = s.find();
+                if (succ != rep) {
+                    successors.add(succ);
+                    succ.predecessors.add(rep);
+                }
+            }
+            for (Component p : c.predecessors) {
+                Component pred = p.find();
+                if (pred != rep && !pred.dropped) {
+                    predecessors.add(pred);
+                    pred.successors.add(rep);
+                }
+            }
+        }
+        rep.successors = successors;
+        rep.predecessors = predecessors;
+        return rep;
+    }
+
+    private static void propagate(Component start, long bits) {
+        Deque<Component> todo = new ArrayDeque<>();
+        todo.add(start);
+        boolean first = true;
+        while (!todo.isEmpty()) {
+            Component c = todo.remove().find();
+            if (c.dropped || (!first && (c.bits & bits) == bits)) {
+                continue;
+            }
+            first = false;
+            c.bits |= bits;
+            todo.addAll(c.predecessors);
+        }
+    }
+
+    // forget the component of the node and everything which can reach it
+    private void drop(Node node) {
+        Set<Component> dropped = new HashSet<>();
+        Deque<Component> todo = new ArrayDeque<>();
+        todo.add(node.component.find());
+        while (!todo.isEmpty()) {
+            Component c = todo.remove().find();
+            if (!c.dropped && dropped.add(c)) {
+                todo.addAll(c.predecessors);
+            }
+        }
+
+        for (Component c : dropped) {
+            c.dropped = true;
+            for (Node n : c.members) {
+                if (nodes.get(n.key) == n) {
+                    nodes.remove(n.key);
+                }
+                dirty.remove(n.key);
+            }
+        }
+        for (Component c : dropped) {
+            for (Component s : c.successors) {
+                s.find().predecessors.remove(c);
+            }
+        }
+    }
+
+    public synchronized int getNodeCount() {
+        return nodes.size();
+    }
+}
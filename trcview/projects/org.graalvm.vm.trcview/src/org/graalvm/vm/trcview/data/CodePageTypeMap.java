@@ -28,10 +28,6 @@ public class CodePageTypeMap {
         return memory[offset].isLive(reg);
     }
 
-    public void setResolvedType(int offset, int reg, long type) {
-        memory[offset].setResolvedType(reg, type);
-    }
-
     public void set(int offset, RegisterOperand op, VariableType type) {
         memory[offset].set(op, type);
     }
@@ -100,6 +96,12 @@ public class CodePageTypeMap {
         memory[offset].breakChain(registers);
     }
 
+    public void trim() {
+        for (RegisterTypeMap map : memory) {
+            map.trim();
+        }
+    }
+
     // similar to constraint, but used for things unrelated to types
     public void setBit(int offset, RegisterOperand op, long bit) {
         memory[offset].setBit(op, bit);
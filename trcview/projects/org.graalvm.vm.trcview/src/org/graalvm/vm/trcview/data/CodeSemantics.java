@@ -1,9 +1,7 @@
 package org.graalvm.vm.trcview.data;
 
 import java.util.Collection;
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -14,6 +12,7 @@ import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
 import org.graalvm.vm.trcview.arch.Architecture;
 import org.graalvm.vm.trcview.arch.io.MemoryEvent;
 import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.data.collection.LongSet;
 import org.graalvm.vm.trcview.data.ir.ConstOperand;
 import org.graalvm.vm.trcview.data.ir.IndexedMemoryOperand;
 import org.graalvm.vm.trcview.data.ir.IndirectIndexedMemoryOperand;
@@ -22,7 +21,6 @@ import org.graalvm.vm.trcview.data.ir.MemoryOperand;
 import org.graalvm.vm.trcview.data.ir.Operand;
 import org.graalvm.vm.trcview.data.ir.RegisterOperand;
 import org.graalvm.vm.trcview.data.type.VariableType;
-import org.graalvm.vm.util.BitTest;
 import org.graalvm.vm.util.log.Trace;
 
 public class CodeSemantics extends Semantics {
@@ -36,11 +34,13 @@ public class CodeSemantics extends Semantics {
     private final MemoryTrace memtrc;
     private final int addrsize;
 
-    private Set<Long>[] pcs;
+    private final ChainResolver types;
+    private final ChainResolver dataflow;
+
+    private LongSet[] pcs;
 
     private long maxlen = 0;
 
-    @SuppressWarnings("unchecked")
     public CodeSemantics(CodeTypeMap codeMap, MemoryTypeMap memoryMap, SymbolTable symbols, MemoryAccessMap memory, MemoryTrace memtrc, Architecture arch) {
         this.codeMap = codeMap;
         this.memoryMap = memoryMap;
@@ -48,11 +48,46 @@ public class CodeSemantics extends Semantics {
         this.memory = memory;
         this.memtrc = memtrc;
         this.addrsize = arch.getTypeInfo().getPointerSize();
+        this.types = new ChainResolver(codeMap, memoryMap, false);
+        this.dataflow = new ChainResolver(codeMap, memoryMap, true);
 
         // register live range tracking
-        pcs = new HashSet[arch.getRegisterCount()];
+        pcs = new LongSet[arch.getRegisterCount()];
         for (int i = 0; i < pcs.length; i++) {
-            pcs[i] = new HashSet<>();
+            pcs[i] = new LongSet();
+        }
+    }
+
+    // changes are only reported to the resolvers once types were resolved
+    private boolean resolved() {
+        return !types.isEmpty() || !dataflow.isEmpty();
+    }
+
+    private void changed(@SuppressWarnings("hiding") long pc) {
+        if (resolved()) {
+            RegisterTypeMap map = codeMap.get(pc);
+            types.invalidate(map);
+            dataflow.invalidate(map);
+        }
+    }
+
+    private void changed(Operand op) {
+        if (!resolved()) {
+            return;
+        }
+
+        if (op instanceof RegisterOperand) {
+            RegisterTypeMap map = codeMap.get(pc);
+            int reg = ((RegisterOperand) op).getRegister();
+            types.invalidate(map, reg);
+            dataflow.invalidate(map, reg);
+        } else {
+            Operand mop = resolve(op);
+            if (mop instanceof MemoryOperand) {
+                TypedMemoryCell cell = memoryMap.getLastCell(((MemoryOperand) mop).getAddress());
+                types.invalidate(cell);
+                dataflow.invalidate(cell);
+            }
         }
     }
 
@@ -75,7 +110,7 @@ public class CodeSemantics extends Semantics {
     public void setPC(long pc) {
         super.setPC(pc);
 
-        for (Set<Long> trail : pcs) {
+        for (LongSet trail : pcs) {
             trail.add(pc);
         }
     }
@@ -87,8 +122,9 @@ public class CodeSemantics extends Semantics {
             maxlen = pcs[reg].size();
         }
         if (!pcs[reg].isEmpty()) {
-            for (long addr : pcs[reg]) {
-                codeMap.setLive(addr, reg, true);
+            pcs[reg].forEach(addr -> codeMap.setLive(addr, reg, true));
+            if (!types.isEmpty()) {
+                types.clear();
             }
         }
         pcs[reg].clear();
@@ -101,8 +137,9 @@ public class CodeSemantics extends Semantics {
             maxlen = pcs[reg].size();
         }
         if (!pcs[reg].isEmpty()) {
-            for (long addr : pcs[reg]) {
-                codeMap.setLive(addr, reg, false);
+            pcs[reg].forEach(addr -> codeMap.setLive(addr, reg, false));
+            if (!types.isEmpty()) {
+                types.clear();
             }
         }
         pcs[reg].clear();
@@ -239,6 +276,7 @@ public class CodeSemantics extends Semantics {
             memoryMap.step(mdst, state.getStep());
             memoryMap.setBit(mdst, bits);
         }
+        changed(op);
     }
 
     @Override
@@ -269,6 +307,7 @@ public class CodeSemantics extends Semantics {
             memoryMap.step(mdst, state.getStep());
             memoryMap.set(mdst, get(src));
         }
+        changed(dst);
         unify(src, dst);
     }
 
@@ -292,7 +331,9 @@ public class CodeSemantics extends Semantics {
         } else if (op instanceof ConstOperand) {
             ConstOperand cop = (ConstOperand) op;
             cop.constrain(type);
+            return;
         }
+        changed(op);
     }
 
     @Override
@@ -320,7 +361,9 @@ public class CodeSemantics extends Semantics {
         } else if (op instanceof ConstOperand) {
             ConstOperand cop = (ConstOperand) op;
             cop.set(type);
+            return;
         }
+        changed(op);
     }
 
     @Override
@@ -342,6 +385,7 @@ public class CodeSemantics extends Semantics {
             MemoryOperand mop = resolve((IndirectIndexedMemoryOperand) op);
             memoryMap.set(mop, 0);
         }
+        changed(op);
     }
 
     @Override
@@ -370,11 +414,14 @@ public class CodeSemantics extends Semantics {
                 memoryMap.reverseChain(((MemoryOperand) opb).getAddress(), getTarget(opa));
             }
         }
+        changed(a);
+        changed(b);
     }
 
     @Override
     public void clear() {
         codeMap.clear(pc);
+        changed(pc);
     }
 
     @Override
@@ -399,6 +446,8 @@ public class CodeSemantics extends Semantics {
     @Override
     public void chain(long last) {
         codeMap.chain(pc, last);
+        changed(pc);
+        changed(last);
     }
 
     @Override
@@ -442,15 +491,18 @@ public class CodeSemantics extends Semantics {
 
     public void setMemory(long addr, long step, long value) {
         memoryMap.set(addr, step, value);
+        TypedMemoryCell cell = memoryMap.getCell(addr, step);
+        types.invalidate(cell);
+        dataflow.invalidate(cell);
     }
 
     @Override
-    public Set<ChainTarget> getMemoryReverseChain(long addr, long step) {
+    public List<ChainTarget> getMemoryReverseChain(long addr, long step) {
         return memoryMap.getReverseChain(addr, step);
     }
 
     @Override
-    public Set<ChainTarget> getMemoryForwardChain(long addr, long step) {
+    public List<ChainTarget> getMemoryForwardChain(long addr, long step) {
         return memoryMap.getForwardChain(addr, step);
     }
 
@@ -465,6 +517,14 @@ public class CodeSemantics extends Semantics {
             // the hard part here is finding all the return instructions of the subroutine
         }
 
+        types.clear();
+        dataflow.clear();
+
+        // no more steps, compact the collected data
+        codeMap.trim();
+        memoryMap.trim();
+        memory.trim();
+
         log.info("Maximum PC set size: " + maxlen);
     }
 
@@ -476,167 +536,19 @@ public class CodeSemantics extends Semantics {
 
     @Override
     public long resolve(@SuppressWarnings("hiding") long pc, RegisterOperand op, Collection<ChainTarget> result) {
-        return resolveFromSeed(new RegisterChainTarget(get(pc), op.getRegister()), result);
+        return resolve(new RegisterChainTarget(get(pc), op.getRegister()), result);
     }
 
-    private long resolveFromSeed(ChainTarget start, Collection<ChainTarget> result) {
-        long bits = 0;
-
-        Set<ChainTarget> visited = new HashSet<>();
-        Set<ChainTarget> todo = new HashSet<>();
-
-        // all back links
-        todo.add(start);
-
-        while (!todo.isEmpty()) {
-            // fetch next target
-            ChainTarget target = todo.iterator().next();
-            todo.remove(target);
-
-            if (visited.contains(target)) {
-                continue;
-            }
-
-            visited.add(target);
-
-            if (result != null) {
-                result.add(target);
-            }
-
-            if (target instanceof RegisterChainTarget) {
-                RegisterChainTarget tgt = (RegisterChainTarget) target;
-
-                RegisterOperand reg = new RegisterOperand(tgt.register);
-                RegisterTypeMap map = tgt.map;
-
-                // process target
-                long value = map.get(reg);
-                bits |= value;
-
-                // decide if reverse chain is used
-                boolean liveReverse = map.isLive(reg.getRegister());
-                if (BitTest.test(value, VariableType.CHAIN_BIT) && liveReverse) {
-                    for (RegisterTypeMap t : map.getExtraChain()) {
-                        todo.add(new RegisterChainTarget(t, reg.getRegister()));
-                    }
-
-                    long last = map.getChain();
-                    if (last != -1 && BitTest.test(value, VariableType.CHAIN_BIT) && !BitTest.test(value, VariableType.BREAK_BIT)) {
-                        todo.add(new RegisterChainTarget(get(last), reg.getRegister()));
-                    }
-                }
-
-                // decide if forward chain is used
-                for (RegisterTypeMap r : map.getForwardChain()) {
-                    boolean liveForward = r.isLive(reg.getRegister());
-                    long rbits = r.get(reg);
-                    if (BitTest.test(rbits, VariableType.CHAIN_BIT) && !BitTest.test(rbits, VariableType.BREAK_BIT) && liveForward) {
-                        todo.add(new RegisterChainTarget(r, reg.getRegister()));
-                    }
-                }
-
-                // add all precise chain elements
-                if (liveReverse) {
-                    todo.addAll(map.getReverseChain(reg)); // op or reg?
-                }
-
-                for (ChainTarget t : map.getForwardChain(reg)) {
-                    if (t instanceof RegisterChainTarget) {
-                        RegisterChainTarget rt = (RegisterChainTarget) t;
-                        if (rt.map.isLive(rt.register)) {
-                            todo.add(t);
-                        }
-                    } else {
-                        todo.add(t);
-                    }
-                }
-            } else if (target instanceof MemoryChainTarget) {
-                MemoryChainTarget tgt = (MemoryChainTarget) target;
-
-                // process target
-                long value = getMemory(tgt.address, tgt.step);
-                bits |= value;
-
-                // follow reverse chain
-                todo.addAll(getMemoryReverseChain(tgt.address, tgt.step));
-
-                // follow forward chain
-                todo.addAll(getMemoryForwardChain(tgt.address, tgt.step));
-            }
-
-            if (result == null && VariableType.SOLVED.test(bits)) {
-                return bits;
-            }
+    private long resolve(ChainTarget start, Collection<ChainTarget> result) {
+        if (result != null) {
+            types.collect(start, result);
         }
-
-        // cache value
-        bits |= VariableType.SOLVED.getMask();
-        for (ChainTarget t : visited) {
-            if (t instanceof RegisterChainTarget) {
-                RegisterChainTarget rt = (RegisterChainTarget) t;
-                rt.map.setResolvedType(rt.register, bits);
-            } else if (t instanceof MemoryChainTarget) {
-                MemoryChainTarget mt = (MemoryChainTarget) t;
-                setMemory(mt.address, mt.step, bits);
-            }
-        }
-        return bits;
+        return types.resolve(start) | VariableType.SOLVED.getMask();
     }
 
     @Override
     public long resolveData(@SuppressWarnings("hiding") long pc, RegisterOperand op) {
-        long bits = 0;
-
-        Set<ChainTarget> visited = new HashSet<>();
-        Deque<ChainTarget> todo = new LinkedList<>();
-
-        // all back links
-        todo.add(new RegisterChainTarget(get(pc), op.getRegister()));
-
-        while (!todo.isEmpty()) {
-            // fetch next target
-            ChainTarget target = todo.remove();
-
-            if (visited.contains(target)) {
-                continue;
-            }
-
-            visited.add(target);
-
-            if (target instanceof RegisterChainTarget) {
-                RegisterChainTarget tgt = (RegisterChainTarget) target;
-
-                RegisterOperand reg = new RegisterOperand(tgt.register);
-                RegisterTypeMap map = tgt.map;
-
-                // process target
-                long value = map.get(reg);
-                bits |= value;
-
-                // decide if reverse chain is used
-                if (BitTest.test(value, VariableType.CHAIN_BIT)) {
-                    for (RegisterTypeMap t : map.getExtraChain()) {
-                        todo.add(new RegisterChainTarget(t, reg.getRegister()));
-                    }
-
-                    long last = map.getChain();
-                    if (last != -1 && BitTest.test(value, VariableType.CHAIN_BIT) && !BitTest.test(value, VariableType.BREAK_BIT)) {
-                        todo.add(new RegisterChainTarget(get(last), reg.getRegister()));
-                    }
-                }
-            } else if (target instanceof MemoryChainTarget) {
-                MemoryChainTarget tgt = (MemoryChainTarget) target;
-
-                // process target
-                long value = getMemory(tgt.address, tgt.step);
-                bits |= value;
-
-                // follow reverse chain
-                todo.addAll(getMemoryReverseChain(tgt.address, tgt.step));
-            }
-        }
-
-        return bits;
+        return dataflow.resolve(new RegisterChainTarget(get(pc), op.getRegister()));
     }
 
     @Override
@@ -646,11 +558,11 @@ public class CodeSemantics extends Semantics {
 
     @Override
     public long resolveMemory(long addr, long step, Collection<ChainTarget> result) {
-        return resolveFromSeed(new MemoryChainTarget(addr, step), result);
+        return resolve(new MemoryChainTarget(addr, step), result);
     }
 
     @Override
-    public Set<StepEvent> getSteps(long addr) {
+    public Collection<StepEvent> getSteps(long addr) {
         return memory.getSteps(addr);
     }
 
@@ -665,7 +577,7 @@ public class CodeSemantics extends Semantics {
     }
 
     @Override
-    public Set<Long> getUsedAddresses() {
+    public long[] getUsedAddresses() {
         return memoryMap.getUsedAddresses();
     }
 }
@@ -2,15 +2,14 @@ package org.graalvm.vm.trcview.data;
 
 import java.util.BitSet;
 import java.util.Collections;
-import java.util.NavigableMap;
 import java.util.Set;
-import java.util.TreeMap;
 
+import org.graalvm.vm.trcview.data.collection.LongObjectMap;
 import org.graalvm.vm.trcview.data.ir.RegisterOperand;
 import org.graalvm.vm.trcview.data.type.VariableType;
 
 public class CodeTypeMap {
-    private final NavigableMap<Long, CodePageTypeMap> pages = new TreeMap<>();
+    private final LongObjectMap<CodePageTypeMap> pages = new LongObjectMap<>();
     private final int size;
 
     public CodeTypeMap(int size) {
@@ -51,10 +50,8 @@ public class CodeTypeMap {
         return map.isLive(offset, reg);
     }
 
-    public void setResolvedType(long pc, int reg, long type) {
-        CodePageTypeMap map = getMap(pc);
-        int offset = getOffset(pc);
-        map.setResolvedType(offset, reg, type);
+    public boolean contains(long pc) {
+        return getPage(pc) != null;
     }
 
     public RegisterTypeMap get(long pc) {
@@ -184,6 +181,12 @@ public class CodeTypeMap {
         getMap(addr).setBit(getOffset(addr), op, bit);
     }
 
+    public void trim() {
+        for (CodePageTypeMap page : pages.values()) {
+            page.trim();
+        }
+    }
+
     public String getStatistics() {
         return "CodeTypeMap has " + pages.size() + " pages for " + size + " registers";
     }
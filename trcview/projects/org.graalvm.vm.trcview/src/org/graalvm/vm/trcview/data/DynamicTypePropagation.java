@@ -2,6 +2,7 @@ package org.graalvm.vm.trcview.data;
 
 import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import org.graalvm.vm.trcview.analysis.ComputedSymbol;
 import org.graalvm.vm.trcview.analysis.SymbolTable;
@@ -96,27 +97,39 @@ public class DynamicTypePropagation {
         long start = System.currentTimeMillis();
 
         // transfer final data types in memory
-        log.info(semantics.getUsedAddresses().size() + " accesed memory locations");
-        for (long addr : semantics.getUsedAddresses()) {
-            long bits = semantics.resolveMemory(addr, laststep);
-            VariableType vartype = VariableType.resolve(bits, info.getPointerSize());
+        long[] used = semantics.getUsedAddresses();
+        log.info(used.length + " accesed memory locations");
+        long[] resolved = semantics.resolveMemory(used, laststep);
+        for (int i = 0; i < used.length; i++) {
+            VariableType vartype = VariableType.resolve(resolved[i], info.getPointerSize());
             if (vartype != null && !VariableType.UNKNOWN.equals(vartype) && !VariableType.CONFLICT.equals(vartype)) {
                 Type type = vartype.toType(info);
                 if (type != null) {
-                    mem.setRecoveredType(addr, type);
+                    mem.setRecoveredType(used[i], type);
                 }
             }
         }
 
+        long time = System.currentTimeMillis();
+        log.info("Types resolved [" + (time - start) + " ms]");
+
         // update code fields and discover arrays
         StructArrayRecovery arrays = new StructArrayRecovery(trc);
         log.info("Discovering arrays...");
-        loop: for (StepEvent evt : memory.getCode()) {
+
+        // the array recovery only reads the collected accesses, so it runs in parallel; the
+        // results are applied in the original order
+        StepEvent[] code = memory.getCode().toArray(new StepEvent[0]);
+        ArrayInfo[] recovered = new ArrayInfo[code.length];
+        IntStream.range(0, code.length).parallel().forEach(i -> recovered[i] = ArrayRecovery.recoverArray(semantics, code[i].getPC(), true));
+
+        loop: for (int n = 0; n < code.length; n++) {
+            StepEvent evt = code[n];
             long pc = evt.getPC();
 
             mem.setRecoveredType(pc, DefaultTypes.getCodeType(evt.getMachinecode().length));
 
-            ArrayInfo array = ArrayRecovery.recoverArray(semantics, pc, true);
+            ArrayInfo array = recovered[n];
             if (array != null) {
                 long[] addresses = array.getAddresses();
                 if (addresses.length == 0) {
@@ -215,6 +228,10 @@ public class DynamicTypePropagation {
 
         arrays.transfer();
 
+        long now = System.currentTimeMillis();
+        log.info("Arrays discovered [" + (now - time) + " ms]");
+        time = now;
+
         if (trc.getABI() != null) {
             log.info("Recovering subroutine signatures...");
 
@@ -246,8 +263,10 @@ public class DynamicTypePropagation {
         }
 
         long end = System.currentTimeMillis();
-        long time = end - start;
-        log.info("Type recovery finished [" + time + " ms]");
+        if (trc.getABI() != null) {
+            log.info("Subroutine signatures recovered [" + (end - time) + " ms]");
+        }
+        log.info("Type recovery finished [" + (end - start) + " ms]");
     }
 
     private Type getOperand(ComputedSymbol sym, Operand op, StepEvent step) {
@@ -1,16 +1,16 @@
 package org.graalvm.vm.trcview.data;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.List;
 
 import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.data.collection.LongObjectMap;
 
 public class MemoryAccessMap {
-    private final Map<Long, MemoryAccessPage> pages = new HashMap<>();
+    private final LongObjectMap<MemoryAccessPage> pages = new LongObjectMap<>();
 
     private static long getPageAddress(long address) {
         return address & 0xFFFFFFFFFFFFF000L;
@@ -30,34 +30,46 @@ public class MemoryAccessMap {
         page.access(getPageOffset(addr), step);
     }
 
-    public Set<StepEvent> getSteps(long pc) {
+    public Collection<StepEvent> getSteps(long pc) {
         long pageAddress = getPageAddress(pc);
         MemoryAccessPage page = pages.get(pageAddress);
         if (page == null) {
-            return Collections.emptySet();
+            return Collections.emptyList();
         } else {
             return page.getSteps(getPageOffset(pc));
         }
     }
 
-    public Set<Long> getPCs() {
-        Set<Long> pcs = new HashSet<>();
-        for (Entry<Long, MemoryAccessPage> entry : pages.entrySet()) {
-            long base = entry.getKey();
-            MemoryAccessPage page = entry.getValue();
-            for (int offset : page.getOffsets()) {
-                pcs.add(base + offset);
+    public long[] getPCs() {
+        long[] bases = pages.keys();
+        Arrays.sort(bases);
+
+        long[] pcs = new long[0];
+        int n = 0;
+        for (long base : bases) {
+            int[] offsets = pages.get(base).getOffsets();
+            if (n + offsets.length > pcs.length) {
+                pcs = Arrays.copyOf(pcs, Math.max(pcs.length * 2, n + offsets.length));
+            }
+            for (int offset : offsets) {
+                pcs[n++] = base + offset;
             }
         }
-        return pcs;
+        return Arrays.copyOf(pcs, n);
     }
 
-    public Set<StepEvent> getCode() {
-        Set<StepEvent> steps = new HashSet<>();
-        for (Entry<Long, MemoryAccessPage> entry : pages.entrySet()) {
-            MemoryAccessPage page = entry.getValue();
-            steps.addAll(page.getCode());
+    // first step of every PC
+    public List<StepEvent> getCode() {
+        List<StepEvent> steps = new ArrayList<>();
+        for (MemoryAccessPage page : pages.values()) {
+            page.getCode(steps);
         }
         return steps;
     }
+
+    public void trim() {
+        for (MemoryAccessPage page : pages.values()) {
+            page.trim();
+        }
+    }
 }
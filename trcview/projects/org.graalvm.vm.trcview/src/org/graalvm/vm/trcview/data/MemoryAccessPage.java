@@ -1,58 +1,118 @@
 package org.graalvm.vm.trcview.data;
 
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.data.collection.IntList;
 
 public class MemoryAccessPage {
     public static final int PAGE_SIZE = 4096;
 
-    @SuppressWarnings("unchecked") private final Set<StepEvent>[] steps = new HashSet[PAGE_SIZE];
+    // all accesses of the page in trace order; the accesses of each offset are linked through
+    // next, first and last hold index + 1 of the oldest / newest access of an offset
+    private StepEvent[] events = new StepEvent[16];
+    private final IntList next = new IntList(16);
+    private final int[] first = new int[PAGE_SIZE];
+    private final int[] last = new int[PAGE_SIZE];
 
     public void access(int offset, StepEvent step) {
-        if (steps[offset] == null) {
-            steps[offset] = new HashSet<>();
+        int tail = last[offset];
+        // steps arrive in trace order, so a repeated access can only be the newest one
+        if (tail != 0 && events[tail - 1].equals(step)) {
+            return;
         }
 
-        steps[offset].add(step);
+        int idx = next.size();
+        if (idx == events.length) {
+            events = Arrays.copyOf(events, idx * 2);
+        }
+        events[idx] = step;
+        next.add(0);
+        if (tail == 0) {
+            first[offset] = idx + 1;
+        } else {
+            next.set(tail - 1, idx + 1);
+        }
+        last[offset] = idx + 1;
     }
 
-    public Set<StepEvent> getSteps(int offset) {
-        if (steps[offset] == null) {
-            return Collections.emptySet();
+    public Collection<StepEvent> getSteps(int offset) {
+        if (first[offset] == 0) {
+            return Collections.emptyList();
         } else {
-            return Collections.unmodifiableSet(steps[offset]);
+            return new Steps(first[offset]);
         }
     }
 
     public int[] getOffsets() {
         int[] offsets = new int[PAGE_SIZE];
         int i = 0;
-        for (int offset = 0; offset < steps.length; offset++) {
-            if (steps[offset] != null) {
+        for (int offset = 0; offset < PAGE_SIZE; offset++) {
+            if (first[offset] != 0) {
                 offsets[i++] = offset;
             }
         }
 
-        int[] result = new int[i];
-        System.arraycopy(offsets, 0, result, 0, i);
-        return result;
+        return Arrays.copyOf(offsets, i);
     }
 
-    public Set<StepEvent> getCode() {
-        Set<StepEvent> result = new HashSet<>();
-        for (Set<StepEvent> s : steps) {
-            if (s != null) {
+    public void getCode(List<StepEvent> result) {
+        for (int offset = 0; offset < PAGE_SIZE; offset++) {
+            if (first[offset] != 0) {
                 // add first step
-                Iterator<StepEvent> i = s.iterator();
-                if (i.hasNext()) {
-                    result.add(i.next());
+                result.add(events[first[offset] - 1]);
+            }
+        }
+    }
+
+    public void trim() {
+        events = Arrays.copyOf(events, Math.max(next.size(), 1));
+        next.trim();
+    }
+
+    // live view on the accesses of one offset
+    private class Steps extends AbstractCollection<StepEvent> {
+        private final int head;
+
+        Steps(int head) {
+            this.head = head;
+        }
+
+        @Override
+        public Iterator<StepEvent> iterator() {
+            return new Iterator<StepEvent>() {
+                private int idx = head;
+
+                @Override
+                public boolean hasNext() {
+                    return idx != 0;
                 }
+
+                @Override
+                public StepEvent next() {
+                    if (idx == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    StepEvent step = events[idx - 1];
+                    idx = next.get(idx - 1);
+                    return step;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int idx = head; idx != 0; idx = next.get(idx - 1)) {
+                size++;
             }
+            return size;
         }
-        return result;
     }
 }
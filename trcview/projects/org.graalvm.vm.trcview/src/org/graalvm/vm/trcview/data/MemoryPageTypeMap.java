@@ -1,26 +1,39 @@
 package org.graalvm.vm.trcview.data;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 import org.graalvm.vm.trcview.data.type.VariableType;
 
 public class MemoryPageTypeMap {
-    private final List<TypedMemoryCell>[] memory;
+    // cells of each offset ordered by step, only the first counts[offset] entries are used
+    private final TypedMemoryCell[][] memory;
+    private final int[] counts;
 
-    @SuppressWarnings("unchecked")
     public MemoryPageTypeMap(int size) {
-        memory = new ArrayList[size];
+        memory = new TypedMemoryCell[size][];
+        counts = new int[size];
+    }
+
+    private TypedMemoryCell add(int offset, long step) {
+        TypedMemoryCell cell = new TypedMemoryCell(step);
+        TypedMemoryCell[] cells = memory[offset];
+        int count = counts[offset];
+        if (cells == null) {
+            cells = new TypedMemoryCell[1];
+            memory[offset] = cells;
+        } else if (count == cells.length) {
+            cells = Arrays.copyOf(cells, count * 2);
+            memory[offset] = cells;
+        }
+        cells[count] = cell;
+        counts[offset] = count + 1;
+        return cell;
     }
 
     public void step(int offset, long step) {
-        if (memory[offset] == null) {
-            memory[offset] = new ArrayList<>();
-        }
-        memory[offset].add(new TypedMemoryCell(step));
+        add(offset, step);
     }
 
     public long getStep(int offset) {
@@ -28,42 +41,69 @@ public class MemoryPageTypeMap {
     }
 
     private TypedMemoryCell last(int offset) {
-        if (memory[offset] == null) {
-            memory[offset] = new ArrayList<>();
-        }
-        if (memory[offset].isEmpty()) {
-            TypedMemoryCell cell = new TypedMemoryCell(0);
-            memory[offset].add(cell);
-            return cell;
+        if (counts[offset] == 0) {
+            return add(offset, 0);
         } else {
-            return memory[offset].get(memory[offset].size() - 1);
+            return memory[offset][counts[offset] - 1];
+        }
+    }
+
+    private int find(int offset, long step) {
+        TypedMemoryCell[] cells = memory[offset];
+        int low = 0;
+        int high = counts[offset] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(cells[mid].getStep(), step);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
         }
+        // last cell before this step or -1
+        return low - 1;
     }
 
     private TypedMemoryCell getStep(int offset, long step, boolean write) {
-        if (memory[offset] == null || memory[offset].isEmpty()) {
+        if (counts[offset] == 0) {
             if (write) {
                 // allocate memory cell if it doesn't exist already
-                if (memory[offset] == null) {
-                    memory[offset] = new ArrayList<>();
-                }
-                TypedMemoryCell cell = new TypedMemoryCell(0);
-                memory[offset].add(cell);
+                add(offset, 0);
             } else {
                 return new TypedMemoryCell(0);
             }
         }
 
-        int idx = Collections.binarySearch(memory[offset], new TypedMemoryCell(step), (a, b) -> Long.compareUnsigned(a.getStep(), b.getStep()));
-        if (idx >= 0) {
-            return memory[offset].get(idx);
+        int idx = find(offset, step);
+        if (idx < 0) {
+            return new TypedMemoryCell();
         } else {
-            int off = ~idx - 1;
-            if (off >= memory[offset].size() || off < 0) {
-                return new TypedMemoryCell();
-            } else {
-                return memory[offset].get(off);
-            }
+            return memory[offset][idx];
+        }
+    }
+
+    // existing cell at this point in time or null
+    public TypedMemoryCell getCell(int offset, long step) {
+        if (counts[offset] == 0) {
+            return null;
+        }
+
+        int idx = find(offset, step);
+        if (idx < 0) {
+            return null;
+        } else {
+            return memory[offset][idx];
+        }
+    }
+
+    public TypedMemoryCell getLastCell(int offset) {
+        if (counts[offset] == 0) {
+            return null;
+        } else {
+            return memory[offset][counts[offset] - 1];
         }
     }
 
@@ -95,17 +135,17 @@ public class MemoryPageTypeMap {
         return getStep(offset, step, false).get();
     }
 
-    public Set<ChainTarget> getForwardChain(int offset, long step) {
-        return memory[offset] == null || memory[offset].isEmpty() ? Collections.emptySet() : getStep(offset, step, false).getForwardChain();
+    public List<ChainTarget> getForwardChain(int offset, long step) {
+        return counts[offset] == 0 ? Collections.emptyList() : getStep(offset, step, false).getForwardChain();
     }
 
-    public Set<ChainTarget> getReverseChain(int offset, long step) {
-        return memory[offset] == null || memory[offset].isEmpty() ? Collections.emptySet() : getStep(offset, step, false).getReverseChain();
+    public List<ChainTarget> getReverseChain(int offset, long step) {
+        return counts[offset] == 0 ? Collections.emptyList() : getStep(offset, step, false).getReverseChain();
     }
 
     public void clear(int offset) {
-        if (memory[offset] != null) {
-            memory[offset].get(memory[offset].size() - 1).clear();
+        if (counts[offset] != 0) {
+            memory[offset][counts[offset] - 1].clear();
         }
     }
 
@@ -121,12 +161,27 @@ public class MemoryPageTypeMap {
         last(offset).setBit(bit);
     }
 
+    public void trim() {
+        for (int i = 0; i < memory.length; i++) {
+            int count = counts[i];
+            if (count == 0) {
+                continue;
+            }
+            if (memory[i].length > count) {
+                memory[i] = Arrays.copyOf(memory[i], count);
+            }
+            for (int n = 0; n < count; n++) {
+                memory[i][n].trim();
+            }
+        }
+    }
+
     public int[] getUsedOffsets() {
         int n = 0;
         int[] used = new int[memory.length];
 
         for (int i = 0; i < memory.length; i++) {
-            if (memory[i] != null && !memory[i].isEmpty()) {
+            if (counts[i] != 0) {
                 used[n++] = i;
             }
         }
@@ -1,16 +1,14 @@
 package org.graalvm.vm.trcview.data;
 
-import java.util.HashSet;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.List;
 
+import org.graalvm.vm.trcview.data.collection.LongObjectMap;
 import org.graalvm.vm.trcview.data.ir.MemoryOperand;
 import org.graalvm.vm.trcview.data.type.VariableType;
 
 public class MemoryTypeMap {
-    private final NavigableMap<Long, MemoryPageTypeMap> pages = new TreeMap<>();
+    private final LongObjectMap<MemoryPageTypeMap> pages = new LongObjectMap<>();
 
     private MemoryPageTypeMap getPage(long pc) {
         long addr = getBase(pc);
@@ -58,6 +56,24 @@ public class MemoryTypeMap {
         return getMap(addr).get(getOffset(addr), step);
     }
 
+    public TypedMemoryCell getCell(long addr, long step) {
+        MemoryPageTypeMap map = getPage(addr);
+        if (map == null) {
+            return null;
+        } else {
+            return map.getCell(getOffset(addr), step);
+        }
+    }
+
+    public TypedMemoryCell getLastCell(long addr) {
+        MemoryPageTypeMap map = getPage(addr);
+        if (map == null) {
+            return null;
+        } else {
+            return map.getLastCell(getOffset(addr));
+        }
+    }
+
     public void set(MemoryOperand addr, VariableType type) {
         set(addr.getAddress(), type.getMask());
     }
@@ -86,11 +102,11 @@ public class MemoryTypeMap {
         getMap(addr).constrain(getOffset(addr), bits);
     }
 
-    public Set<ChainTarget> getReverseChain(long addr, long step) {
+    public List<ChainTarget> getReverseChain(long addr, long step) {
         return getMap(addr).getReverseChain(getOffset(addr), step);
     }
 
-    public Set<ChainTarget> getForwardChain(long addr, long step) {
+    public List<ChainTarget> getForwardChain(long addr, long step) {
         return getMap(addr).getForwardChain(getOffset(addr), step);
     }
 
@@ -110,15 +126,27 @@ public class MemoryTypeMap {
         getMap(addr).setBit(getOffset(addr), bit);
     }
 
-    public Set<Long> getUsedAddresses() {
-        Set<Long> result = new HashSet<>();
-        for (Entry<Long, MemoryPageTypeMap> entry : pages.entrySet()) {
-            int[] offsets = entry.getValue().getUsedOffsets();
-            long base = entry.getKey();
+    public long[] getUsedAddresses() {
+        long[] bases = pages.keys();
+        Arrays.sort(bases);
+
+        long[] result = new long[0];
+        int n = 0;
+        for (long base : bases) {
+            int[] offsets = pages.get(base).getUsedOffsets();
+            if (n + offsets.length > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, n + offsets.length));
+            }
             for (int offset : offsets) {
-                result.add(base + offset);
+                result[n++] = base + offset;
             }
         }
-        return result;
+        return Arrays.copyOf(result, n);
+    }
+
+    public void trim() {
+        for (MemoryPageTypeMap page : pages.values()) {
+            page.trim();
+        }
     }
 }
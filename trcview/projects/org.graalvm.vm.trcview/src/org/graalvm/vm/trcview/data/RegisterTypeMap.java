@@ -3,6 +3,7 @@ package org.graalvm.vm.trcview.data;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.graalvm.vm.trcview.data.ir.RegisterOperand;
@@ -10,26 +11,21 @@ import org.graalvm.vm.trcview.data.type.VariableType;
 
 public class RegisterTypeMap {
     private final long[] registerTypes;
-    private final long[] resolvedTypes;
 
     private long chain = -1;
     private Set<RegisterTypeMap> reverseChain = null;
     private Set<RegisterTypeMap> forwardChain = null;
-    private Set<ChainTarget>[] reverseChainTargets;
-    private Set<ChainTarget>[] forwardChainTargets;
+    private ChainEdges reverseChainTargets = null;
+    private ChainEdges forwardChainTargets = null;
     private boolean mark = false;
 
     private boolean[] live;
 
     private final long currentPC; // debugging
 
-    @SuppressWarnings("unchecked")
     public RegisterTypeMap(int size, long pc) {
         this.currentPC = pc;
         registerTypes = new long[size];
-        resolvedTypes = new long[size];
-        reverseChainTargets = new Set[size];
-        forwardChainTargets = new Set[size];
         live = new boolean[size];
         clear();
     }
@@ -54,8 +50,8 @@ public class RegisterTypeMap {
         live[reg] = value;
     }
 
-    public void setResolvedType(int reg, long type) {
-        resolvedTypes[reg] = type & ~(VariableType.CHAIN_BIT | VariableType.BREAK_BIT);
+    public int getRegisterCount() {
+        return registerTypes.length;
     }
 
     public void clear() {
@@ -132,10 +128,10 @@ public class RegisterTypeMap {
     }
 
     public void chain(int reg, ChainTarget target) {
-        if (reverseChainTargets[reg] == null) {
-            reverseChainTargets[reg] = new HashSet<>();
+        if (reverseChainTargets == null) {
+            reverseChainTargets = new ChainEdges(registerTypes.length);
         }
-        reverseChainTargets[reg].add(target);
+        reverseChainTargets.add(reg, target);
     }
 
     public void forwardChain(RegisterOperand op, ChainTarget target) {
@@ -143,26 +139,26 @@ public class RegisterTypeMap {
     }
 
     public void forwardChain(int reg, ChainTarget target) {
-        if (forwardChainTargets[reg] == null) {
-            forwardChainTargets[reg] = new HashSet<>();
+        if (forwardChainTargets == null) {
+            forwardChainTargets = new ChainEdges(registerTypes.length);
         }
-        forwardChainTargets[reg].add(target);
+        forwardChainTargets.add(reg, target);
     }
 
-    public Set<ChainTarget> getForwardChain(RegisterOperand op) {
+    public List<ChainTarget> getForwardChain(RegisterOperand op) {
         return getForwardChain(op.getRegister());
     }
 
-    public Set<ChainTarget> getForwardChain(int reg) {
-        return forwardChainTargets[reg] != null ? forwardChainTargets[reg] : Collections.emptySet();
+    public List<ChainTarget> getForwardChain(int reg) {
+        return forwardChainTargets != null ? forwardChainTargets.get(reg) : Collections.emptyList();
     }
 
-    public Set<ChainTarget> getReverseChain(RegisterOperand op) {
+    public List<ChainTarget> getReverseChain(RegisterOperand op) {
         return getReverseChain(op.getRegister());
     }
 
-    public Set<ChainTarget> getReverseChain(int reg) {
-        return reverseChainTargets[reg] != null ? reverseChainTargets[reg] : Collections.emptySet();
+    public List<ChainTarget> getReverseChain(int reg) {
+        return reverseChainTargets != null ? reverseChainTargets.get(reg) : Collections.emptyList();
     }
 
     public void set(RegisterOperand op, VariableType type) {
@@ -182,11 +178,11 @@ public class RegisterTypeMap {
     }
 
     public long get(int reg) {
-        return registerTypes[reg] | resolvedTypes[reg];
+        return registerTypes[reg];
     }
 
     public long get(RegisterOperand op) {
-        return registerTypes[op.getRegister()] | resolvedTypes[op.getRegister()];
+        return registerTypes[op.getRegister()];
     }
 
     public long getDirect(int reg) {
@@ -200,8 +196,8 @@ public class RegisterTypeMap {
     public void breakChain(int reg) {
         registerTypes[reg] &= ~VariableType.CHAIN_BIT;
         registerTypes[reg] |= VariableType.BREAK_BIT;
-        if (reverseChainTargets[reg] != null) {
-            reverseChainTargets[reg].clear();
+        if (reverseChainTargets != null) {
+            reverseChainTargets.clear(reg);
         }
     }
 
@@ -213,6 +209,15 @@ public class RegisterTypeMap {
         }
     }
 
+    public void trim() {
+        if (reverseChainTargets != null) {
+            reverseChainTargets.trim();
+        }
+        if (forwardChainTargets != null) {
+            forwardChainTargets.trim();
+        }
+    }
+
     // similar to constraint, but used for things unrelated to types
     public void setBit(RegisterOperand op, long bit) {
         registerTypes[op.getRegister()] |= bit;
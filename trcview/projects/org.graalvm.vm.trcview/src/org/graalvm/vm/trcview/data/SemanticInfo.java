@@ -204,12 +204,12 @@ public class SemanticInfo extends Semantics {
     }
 
     @Override
-    public Set<ChainTarget> getMemoryReverseChain(long addr, long step) {
+    public List<ChainTarget> getMemoryReverseChain(long addr, long step) {
         return null;
     }
 
     @Override
-    public Set<ChainTarget> getMemoryForwardChain(long addr, long step) {
+    public List<ChainTarget> getMemoryForwardChain(long addr, long step) {
         return null;
     }
 
@@ -244,7 +244,7 @@ public class SemanticInfo extends Semantics {
     }
 
     @Override
-    public Set<StepEvent> getSteps(long addr) {
+    public Collection<StepEvent> getSteps(long addr) {
         return null;
     }
 
@@ -259,7 +259,7 @@ public class SemanticInfo extends Semantics {
     }
 
     @Override
-    public Set<Long> getUsedAddresses() {
+    public long[] getUsedAddresses() {
         return null;
     }
 
@@ -1,6 +1,7 @@
 package org.graalvm.vm.trcview.data;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.graalvm.vm.trcview.arch.io.CpuState;
@@ -61,9 +62,9 @@ public abstract class Semantics {
 
     public abstract long getMemory(long addr, long step);
 
-    public abstract Set<ChainTarget> getMemoryReverseChain(long addr, long step);
+    public abstract List<ChainTarget> getMemoryReverseChain(long addr, long step);
 
-    public abstract Set<ChainTarget> getMemoryForwardChain(long addr, long step);
+    public abstract List<ChainTarget> getMemoryForwardChain(long addr, long step);
 
     public abstract void finish();
 
@@ -77,11 +78,19 @@ public abstract class Semantics {
 
     public abstract long resolveMemory(long addr, long step, Collection<ChainTarget> result);
 
-    public abstract Set<StepEvent> getSteps(long addr);
+    public long[] resolveMemory(long[] addresses, long step) {
+        long[] result = new long[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            result[i] = resolveMemory(addresses[i], step);
+        }
+        return result;
+    }
+
+    public abstract Collection<StepEvent> getSteps(long addr);
 
     public abstract long[] getDataReads(long addr);
 
     public abstract long[] getDataWrites(long addr);
 
-    public abstract Set<Long> getUsedAddresses();
+    public abstract long[] getUsedAddresses();
 }
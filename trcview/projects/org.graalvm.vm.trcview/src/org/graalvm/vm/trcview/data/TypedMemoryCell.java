@@ -1,17 +1,18 @@
 package org.graalvm.vm.trcview.data;
 
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 import org.graalvm.vm.trcview.data.type.VariableType;
 
 public class TypedMemoryCell {
+    private static final int REVERSE = 0;
+    private static final int FORWARD = 1;
+
     private long step;
 
     private long bitfield;
-    private Set<ChainTarget> reverseChain;
-    private Set<ChainTarget> forwardChain;
+    private ChainEdges chains; // row 0: reverse chain, row 1: forward chain
 
     public TypedMemoryCell() {
         this(0);
@@ -49,12 +50,12 @@ public class TypedMemoryCell {
         return bitfield;
     }
 
-    public Set<ChainTarget> getForwardChain() {
-        return forwardChain == null ? Collections.emptySet() : forwardChain;
+    public List<ChainTarget> getForwardChain() {
+        return chains == null ? Collections.emptyList() : chains.get(FORWARD);
     }
 
-    public Set<ChainTarget> getReverseChain() {
-        return reverseChain == null ? Collections.emptySet() : reverseChain;
+    public List<ChainTarget> getReverseChain() {
+        return chains == null ? Collections.emptyList() : chains.get(REVERSE);
     }
 
     public void clear() {
@@ -62,17 +63,23 @@ public class TypedMemoryCell {
     }
 
     public void forwardChain(ChainTarget target) {
-        if (forwardChain == null) {
-            forwardChain = new HashSet<>();
+        if (chains == null) {
+            chains = new ChainEdges(2);
         }
-        forwardChain.add(target);
+        chains.add(FORWARD, target);
     }
 
     public void reverseChain(ChainTarget target) {
-        if (reverseChain == null) {
-            reverseChain = new HashSet<>();
+        if (chains == null) {
+            chains = new ChainEdges(2);
+        }
+        chains.add(REVERSE, target);
+    }
+
+    public void trim() {
+        if (chains != null) {
+            chains.trim();
         }
-        reverseChain.add(target);
     }
 
     public void setBit(long bit) {
@@ -0,0 +1,33 @@
+package org.graalvm.vm.trcview.data.collection;
+
+final class Hashing {
+    static final int MIN_CAPACITY = 8;
+
+    private Hashing() {
+        // utility class
+    }
+
+    // addresses and PCs are aligned and clustered, so the bits have to be mixed
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // power of two with a load factor of at most 1/2
+    static int capacity(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static boolean isFull(int size, int capacity) {
+        return size * 2 > capacity;
+    }
+}
@@ -0,0 +1,120 @@
+package org.graalvm.vm.trcview.data.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * Hash map from {@code long} keys to non-null values with open addressing and linear probing. In
+ * contrast to {@link java.util.HashMap} the keys are not boxed and there is no entry object per
+ * mapping. Mappings cannot be removed.
+ */
+public class LongObjectMap<V> {
+    private long[] keys;
+    private Object[] values; // null marks a free slot
+    private int size;
+
+    public LongObjectMap() {
+        this(0);
+    }
+
+    public LongObjectMap(int expected) {
+        int capacity = Hashing.capacity(expected);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = Hashing.hash(key) & mask;
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[slot(key)];
+    }
+
+    public boolean containsKey(long key) {
+        return values[slot(key)] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        int i = slot(key);
+        Object old = values[i];
+        keys[i] = key;
+        values[i] = value;
+        if (old == null) {
+            size++;
+            if (Hashing.isFull(size, keys.length)) {
+                rehash(keys.length * 2);
+            }
+        }
+        return (V) old;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+}
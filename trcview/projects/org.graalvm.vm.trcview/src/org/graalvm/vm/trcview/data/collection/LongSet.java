@@ -0,0 +1,112 @@
+package org.graalvm.vm.trcview.data.collection;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of {@code long} values with open addressing and linear probing. The value 0 marks a free
+ * slot in the table and is tracked separately.
+ */
+public class LongSet {
+    private long[] keys;
+    private boolean zero;
+    private int size;
+
+    public LongSet() {
+        this(0);
+    }
+
+    public LongSet(int expected) {
+        keys = new long[Hashing.capacity(expected)];
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = Hashing.hash(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    public boolean add(long key) {
+        if (key == 0) {
+            if (zero) {
+                return false;
+            }
+            zero = true;
+            size++;
+            return true;
+        }
+
+        int i = slot(key);
+        if (keys[i] == key) {
+            return false;
+        }
+        keys[i] = key;
+        size++;
+        if (Hashing.isFull(size, keys.length)) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return zero;
+        } else {
+            return keys[slot(key)] == key;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        for (long key : old) {
+            if (key != 0) {
+                keys[slot(key)] = key;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            zero = false;
+            size = 0;
+        }
+    }
+
+    public void forEach(LongConsumer consumer) {
+        if (zero) {
+            consumer.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int n = 0;
+        if (zero) {
+            result[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+}
@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.Page;
 import org.graalvm.vm.trcview.analysis.type.ArchitectureTypeInfo;
 import org.graalvm.vm.trcview.analysis.type.Representation;
 import org.graalvm.vm.trcview.analysis.type.Type;
@@ -20,6 +21,8 @@ import org.graalvm.vm.util.HexFormatter;
 public class DecoderUtils {
     public static final int STRING_MAXLEN = 50;
 
+    private static final int READ_CHUNK = 256;
+
     private static String hex(long x) {
         return tohex(x, 1);
     }
@@ -123,6 +126,12 @@ public class DecoderUtils {
         return '"' + buf.toString() + '"';
     }
 
+    // number of bytes to fetch with one bulk read; a chunk never crosses a page boundary
+    private static int chunk(long ptr, long remaining) {
+        long len = Math.min(remaining, READ_CHUNK);
+        return (int) Math.min(len, Page.SIZE - (ptr & (Page.SIZE - 1)));
+    }
+
     public static String cstr(long addr, long insn, TraceAnalyzer trc) {
         return cstr(addr, insn, trc, true);
     }
@@ -143,14 +152,21 @@ public class DecoderUtils {
         try {
             StringBuilder buf = new StringBuilder();
             long ptr = addr;
-            for (int i = 0; true; i++) {
-                int b = Byte.toUnsignedInt(trc.getI8(ptr++, insn));
-                if (b == 0) {
-                    return "\"" + buf + "\"";
-                }
-                buf.append(encode(b));
-                if (i >= maxlen) {
-                    return "\"" + buf + "\"...";
+            int i = 0;
+            while (true) {
+                byte[] data = new byte[chunk(ptr, maxlen + 1L - i)];
+                trc.read(ptr, data, insn);
+                ptr += data.length;
+                for (byte value : data) {
+                    int b = Byte.toUnsignedInt(value);
+                    if (b == 0) {
+                        return "\"" + buf + "\"";
+                    }
+                    buf.append(encode(b));
+                    if (i >= maxlen) {
+                        return "\"" + buf + "\"...";
+                    }
+                    i++;
                 }
             }
         } catch (MemoryNotMappedException e) {
@@ -165,14 +181,21 @@ public class DecoderUtils {
         try {
             StringBuilder buf = new StringBuilder();
             long ptr = addr;
-            for (int i = 0; i < length; i++) {
-                int b = Byte.toUnsignedInt(trc.getI8(ptr++, insn));
-                buf.append(encode(b));
-                if (i >= STRING_MAXLEN) {
-                    return "\"" + buf + "\"...";
+            long count = Math.min(length, STRING_MAXLEN + 1L);
+            for (long i = 0; i < count;) {
+                byte[] data = new byte[chunk(ptr, count - i)];
+                trc.read(ptr, data, insn);
+                for (byte value : data) {
+                    buf.append(encode(Byte.toUnsignedInt(value)));
                 }
+                ptr += data.length;
+                i += data.length;
+            }
+            if (length > STRING_MAXLEN) {
+                return "\"" + buf + "\"...";
+            } else {
+                return "\"" + buf + "\"";
             }
-            return "\"" + buf + "\"";
         } catch (MemoryNotMappedException e) {
             return ptr(addr, trc);
         }
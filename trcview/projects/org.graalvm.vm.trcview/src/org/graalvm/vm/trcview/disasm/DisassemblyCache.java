@@ -0,0 +1,133 @@
+package org.graalvm.vm.trcview.disasm;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.net.TraceAnalyzer;
+
+/**
+ * Trace wide cache for disassembled instructions. Entries are keyed by PC and machine code, so
+ * every step which executes the same instruction shares the entry. The disassembly contains symbol
+ * names, therefore the cache has to be invalidated if symbols change.
+ */
+public class DisassemblyCache {
+    private static final int CACHE_SIZE = 65536;
+
+    private final TraceAnalyzer trc;
+
+    private final Map<Key, String[]> components;
+    private final Map<Key, AssemblerInstruction> instructions;
+
+    private long hits;
+    private long misses;
+
+    private static final class Key {
+        private final long pc;
+        private final byte[] code;
+        private final int hash;
+
+        Key(long pc, byte[] code) {
+            this.pc = pc;
+            this.code = code;
+            this.hash = (int) (pc ^ (pc >>> 32)) * 31 + Arrays.hashCode(code);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return k.pc == pc && Arrays.equals(k.code, code);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public DisassemblyCache(TraceAnalyzer trc) {
+        this.trc = trc;
+        components = createMap();
+        instructions = createMap();
+        trc.addSymbolRenameListener(sym -> invalidate());
+        trc.addSymbolChangeListener(this::invalidate);
+    }
+
+    private static <T> Map<Key, T> createMap() {
+        return new LinkedHashMap<Key, T>(1024, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<Key, T> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    private static Key key(StepEvent step) {
+        byte[] code = step.getMachinecode();
+        if (code == null) {
+            return null;
+        } else {
+            return new Key(step.getPC(), code);
+        }
+    }
+
+    public synchronized String[] getDisassemblyComponents(StepEvent step) {
+        Key key = key(step);
+        if (key == null) {
+            return step.getDisassemblyComponents(trc);
+        }
+        String[] result = components.get(key);
+        if (result == null) {
+            misses++;
+            result = step.getDisassemblyComponents(trc);
+            if (result != null) {
+                components.put(key, result);
+            }
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    public synchronized AssemblerInstruction disassemble(StepEvent step) {
+        Key key = key(step);
+        if (key == null) {
+            return step.disassemble(trc);
+        }
+        AssemblerInstruction result = instructions.get(key);
+        if (result == null) {
+            misses++;
+            result = step.disassemble(trc);
+            if (result != null) {
+                instructions.put(key, result);
+            }
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    public synchronized void invalidate() {
+        components.clear();
+        instructions.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return components.size() + instructions.size();
+    }
+}
@@ -60,6 +60,9 @@ public class BlockNode extends Node implements Block {
 
     private CpuState headState;
 
+    // first step number of every child, used to binary search the children by step number
+    private long[] index;
+
     public BlockNode(StepEvent head) {
         this(head, null);
     }
@@ -102,11 +105,13 @@ public class BlockNode extends Node implements Block {
         } else {
             this.children = new ArrayList<>();
         }
+        index = null;
     }
 
     public void add(Node child) {
         children.add(child);
         child.setParent(this);
+        index = null;
     }
 
     public void trim() {
@@ -115,6 +120,101 @@ public class BlockNode extends Node implements Block {
         }
     }
 
+    private static long getFirstStep(Node node) {
+        if (node instanceof BlockNode) {
+            BlockNode b = (BlockNode) node;
+            if (b.getHead() != null) {
+                return b.getHead().getStep();
+            } else if (b.isInterrupt()) {
+                return b.getInterrupt().getStep().getStep();
+            } else {
+                StepEvent first = b.getFirstStep();
+                return first != null ? first.getStep() : -1;
+            }
+        } else if (node instanceof StepEvent) {
+            return ((StepEvent) node).getStep();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Builds the step number index of this block. Children which are not instructions inherit the
+     * step number of the previous instruction, so the index is sorted.
+     */
+    public void buildIndex() {
+        long[] result = new long[children.size()];
+        long last = head != null ? head.getStep() : Long.MIN_VALUE;
+        for (int i = 0; i < result.length; i++) {
+            Node n = children.get(i);
+            if (n instanceof StepEvent || n instanceof BlockNode) {
+                long step = getFirstStep(n);
+                if (step > last) {
+                    last = step;
+                }
+            }
+            result[i] = last;
+        }
+        index = result;
+    }
+
+    private long[] getIndex() {
+        long[] result = index;
+        if (result == null || result.length != children.size()) {
+            buildIndex();
+            result = index;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first child whose step number is greater than or equal to
+     * {@code step}, or the number of children if there is no such child.
+     */
+    public int findStep(long step) {
+        long[] idx = getIndex();
+        int low = 0;
+        int high = idx.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idx[mid] < step) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the step number of the child at position {@code i} as recorded in the index.
+     */
+    public long getIndexStep(int i) {
+        return getIndex()[i];
+    }
+
+    /**
+     * Returns the position of {@code child} in this block or -1 if it is not a child of this block.
+     */
+    public int indexOf(Node child) {
+        if (child instanceof StepEvent || child instanceof BlockNode) {
+            long[] idx = getIndex();
+            long step = getFirstStep(child);
+            for (int i = findStep(step); i < idx.length && idx[i] == step; i++) {
+                if (children.get(i) == child) {
+                    return i;
+                }
+            }
+        }
+        // not an instruction or out of order, fall back to a linear search
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) == child) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public boolean isInterrupt() {
         return interrupt != null;
     }
@@ -43,4 +43,15 @@ package org.graalvm.vm.trcview.io;
 @FunctionalInterface
 public interface ProgressListener {
     void progressUpdate(long value);
+
+    /**
+     * Reports the progress of one stage of a pipelined load.
+     *
+     * @param stage name of the stage
+     * @param events number of events the stage has processed so far
+     * @param rate events per second since the last update
+     */
+    default void stageUpdate(@SuppressWarnings("unused") String stage, @SuppressWarnings("unused") long events, @SuppressWarnings("unused") long rate) {
+        // nothing
+    }
 }
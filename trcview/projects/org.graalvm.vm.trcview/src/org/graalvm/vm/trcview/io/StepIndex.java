@@ -0,0 +1,60 @@
+package org.graalvm.vm.trcview.io;
+
+import java.util.Arrays;
+
+/**
+ * Sparse index from step number to node. Every {@link #INTERVAL} steps the node of the current
+ * instruction is recorded, a lookup returns the closest recorded node before the requested step.
+ * The remaining distance is resolved with the step index of the enclosing {@link BlockNode}s.
+ */
+public class StepIndex {
+    public static final long INTERVAL = 1024;
+
+    private long[] steps = new long[1024];
+    private Node[] nodes = new Node[1024];
+    private int size = 0;
+    private long next = Long.MIN_VALUE;
+
+    public void add(long step, Node node) {
+        if (step < next) {
+            return;
+        }
+        if (size == steps.length) {
+            steps = Arrays.copyOf(steps, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        steps[size] = step;
+        nodes[size] = node;
+        size++;
+        next = step + INTERVAL;
+    }
+
+    public void trim() {
+        steps = Arrays.copyOf(steps, size);
+        nodes = Arrays.copyOf(nodes, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the last recorded node whose step number is less than or equal to {@code step}, or
+     * null if there is none.
+     */
+    public Node getNearest(long step) {
+        int low = 0;
+        int high = size - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (steps[mid] <= step) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result >= 0 ? nodes[result] : null;
+    }
+}
@@ -5,9 +5,12 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.logging.Logger;
 
 import org.graalvm.vm.trcview.analysis.Analysis;
+import org.graalvm.vm.trcview.analysis.Analyzer;
 import org.graalvm.vm.trcview.arch.io.CpuDeltaState;
 import org.graalvm.vm.trcview.arch.io.CpuState;
 import org.graalvm.vm.trcview.arch.io.DeviceDefinitionEvent;
@@ -25,10 +28,22 @@ public class TraceParser {
 
     private static final long THRESHOLD = 10_000;
 
+    private static final int BATCH_SIZE = 4096;
+    private static final int QUEUE_SIZE = 16;
+    private static final Event[] END = new Event[0];
+
     private final TraceReader in;
     private final Analysis analysis;
+    private final Analyzer analyzer;
     private final ProgressListener progress;
 
+    // if false, only the current call stack of each thread is kept in memory
+    private final boolean retain;
+
+    // if true, events are decoded on a separate thread and progress is reported from there
+    private final boolean decoder;
+    private volatile Throwable decoderError;
+
     private final boolean system;
     private final boolean stackedTraps;
 
@@ -41,11 +56,17 @@ public class TraceParser {
 
     private CpuState lastState = null;
 
+    private final StepIndex stepIndex;
+
     @SuppressWarnings("unchecked")
-    private TraceParser(TraceReader in, Analysis analysis, ProgressListener progress) {
+    private TraceParser(TraceReader in, Analysis analysis, Analyzer analyzer, ProgressListener progress) {
         this.in = in;
         this.analysis = analysis;
+        this.analyzer = analyzer;
         this.progress = progress;
+        this.retain = analysis != null;
+        this.decoder = analysis != null && analysis.isParallel();
+        this.stepIndex = retain ? new StepIndex() : null;
 
         system = in.getArchitecture().isSystemLevel();
         stackedTraps = in.getArchitecture().isStackedTraps();
@@ -59,6 +80,23 @@ public class TraceParser {
         threadsHigh = new HashMap<>();
     }
 
+    private void analyze(Event event, Node node, CpuState state) {
+        if (stepIndex != null && event instanceof StepEvent) {
+            stepIndex.add(((StepEvent) event).getStep(), node);
+        }
+        if (analysis != null) {
+            analysis.process(event, node, state);
+        } else {
+            analyzer.process(event, node, state);
+        }
+    }
+
+    private void analyzeBlock(StepEvent ret, BlockNode block) {
+        if (analysis != null) {
+            analysis.processBlock(ret, block);
+        }
+    }
+
     private Event readEvent() throws IOException {
         try {
             return in.read();
@@ -78,11 +116,22 @@ public class TraceParser {
             this.tid = tid;
         }
 
+        private void add(Node node) {
+            if (retain) {
+                parent.add(node);
+            } else {
+                node.setParent(parent);
+            }
+        }
+
         private void ret() {
             parent.trim();
-            if (parent.getNodes().isEmpty()) {
+            if (retain && parent.getNodes().isEmpty()) {
                 parent.add(new IncompleteTraceStep(tid));
             }
+            if (retain) {
+                parent.buildIndex();
+            }
             if (parent.parent != null) {
                 parent = parent.parent;
             }
@@ -91,9 +140,12 @@ public class TraceParser {
         private void ret(BlockNode root) {
             while (parent != root) {
                 parent.trim();
-                if (parent.getNodes().isEmpty()) {
+                if (retain && parent.getNodes().isEmpty()) {
                     parent.add(new IncompleteTraceStep(tid));
                 }
+                if (retain) {
+                    parent.buildIndex();
+                }
                 if (parent.parent != null) {
                     parent = parent.parent;
                 }
@@ -115,7 +167,7 @@ public class TraceParser {
 
         private void process(Event evt) {
             cnt++;
-            if (cnt >= THRESHOLD && progress != null) {
+            if (cnt >= THRESHOLD && progress != null && !decoder) {
                 cnt = 0;
                 progress.progressUpdate(in.tell());
             }
@@ -127,25 +179,25 @@ public class TraceParser {
                     // call or syscall
                     BlockNode block = new BlockNode(step);
                     block.setHeadState(state);
-                    parent.add(block);
+                    add(block);
                     parent = block;
-                    analysis.process(step, block, state);
+                    analyze(step, block, state);
                 } else if (step.isReturn()) {
                     // return
-                    parent.add(step);
-                    analysis.process(step, step, state);
+                    add(step);
+                    analyze(step, step, state);
 
                     if (!system || stackedTraps || !parent.isInterrupt()) {
                         // RET can only return from traps if stacked traps are enabled
-                        analysis.processBlock(step, parent);
+                        analyzeBlock(step, parent);
                         ret();
                     }
                 } else if (system && step.isReturnFromSyscall()) {
-                    parent.add(step);
-                    analysis.process(step, step, state);
+                    add(step);
+                    analyze(step, step, state);
 
                     if (stackedTraps) {
-                        analysis.processBlock(step, parent);
+                        analyzeBlock(step, parent);
                         ret();
                     } else {
                         BlockNode irq = parent;
@@ -154,18 +206,18 @@ public class TraceParser {
                         }
                         if (irq == null) {
                             // act as if it was a ret
-                            analysis.processBlock(step, parent);
+                            analyzeBlock(step, parent);
                             ret();
                         } else {
                             // return to trap
-                            analysis.processBlock(step, irq);
+                            analyzeBlock(step, irq);
                             ret(irq);
                         }
                     }
                 } else {
                     // normal step event
-                    parent.add(step);
-                    analysis.process(step, step, state);
+                    add(step);
+                    analyze(step, step, state);
                 }
                 lastStep = step;
             } else if (evt instanceof InterruptEvent) {
@@ -173,34 +225,133 @@ public class TraceParser {
                 if (lastStep != null && lastStep.getType() != InstructionType.SYSCALL) {
                     BlockNode block = new BlockNode(trap);
                     block.setHeadState(lastState);
-                    parent.add(block);
+                    add(block);
                     parent = block;
-                    analysis.process(trap, block, lastState);
+                    analyze(trap, block, lastState);
                 } else if (lastStep != null) {
                     // like a call, handled by last StepEvent
                 }
             } else if (evt instanceof DeviceDefinitionEvent) {
-                analysis.process(evt, evt, lastState);
+                analyze(evt, evt, lastState);
             } else { // memory events, device register events, ...
-                analysis.process(evt, evt, lastState);
+                analyze(evt, evt, lastState);
             }
         }
 
         private BlockNode get() {
             while (parent.parent != null) {
+                if (retain) {
+                    parent.buildIndex();
+                }
                 parent = parent.parent;
             }
+            if (retain) {
+                parent.buildIndex();
+            }
             return parent;
         }
     }
 
     private void read() throws IOException {
+        if (decoder) {
+            readParallel();
+            return;
+        }
         Event evt;
         while ((evt = readEvent()) != null) {
             process(evt);
         }
     }
 
+    private void decode(BlockingQueue<Event[]> queue) {
+        try {
+            long count = 0;
+            long start = System.currentTimeMillis();
+            long lastTime = start;
+            long lastCount = 0;
+            Event[] batch = new Event[BATCH_SIZE];
+            int size = 0;
+            Event evt;
+            while ((evt = readEvent()) != null) {
+                batch[size++] = evt;
+                count++;
+                if (size == BATCH_SIZE) {
+                    queue.put(batch);
+                    batch = new Event[BATCH_SIZE];
+                    size = 0;
+                    long now = System.currentTimeMillis();
+                    if (progress != null && now - lastTime >= 1000) {
+                        progress.progressUpdate(in.tell());
+                        progress.stageUpdate("decode", count, (count - lastCount) * 1000 / (now - lastTime));
+                        lastTime = now;
+                        lastCount = count;
+                    }
+                }
+            }
+            if (size > 0) {
+                Event[] last = new Event[size];
+                System.arraycopy(batch, 0, last, 0, size);
+                queue.put(last);
+            }
+            long time = System.currentTimeMillis() - start;
+            log.log(Levels.INFO, "Stage decode: " + count + " events in " + time + " ms");
+            if (progress != null) {
+                progress.progressUpdate(in.tell());
+                progress.stageUpdate("decode", count, time > 0 ? count * 1000 / time : count);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable t) {
+            decoderError = t;
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // parser was aborted
+        }
+    }
+
+    private void readParallel() throws IOException {
+        BlockingQueue<Event[]> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        Thread thread = new Thread(() -> decode(queue), "trace-decode");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            long count = 0;
+            long start = System.currentTimeMillis();
+            while (true) {
+                Event[] batch = queue.take();
+                if (batch == END) {
+                    break;
+                }
+                for (Event evt : batch) {
+                    process(evt);
+                }
+                count += batch.length;
+            }
+            long time = System.currentTimeMillis() - start;
+            log.log(Levels.INFO, "Stage tree: " + count + " events in " + time + " ms");
+            if (progress != null) {
+                progress.stageUpdate("tree", count, time > 0 ? count * 1000 / time : count);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading trace", e);
+        } finally {
+            thread.interrupt();
+        }
+        Throwable t = decoderError;
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IOException(t);
+        }
+    }
+
     private void process(Event evt) {
         int tid = evt.getTid();
         if (tid >= 0 && tid < 64) {
@@ -240,8 +391,22 @@ public class TraceParser {
     }
 
     public static Map<Integer, BlockNode> parse(TraceReader in, Analysis analysis, ProgressListener progress) throws IOException {
-        TraceParser parser = new TraceParser(in, analysis, progress);
+        TraceParser parser = new TraceParser(in, analysis, null, progress);
+        parser.read();
+        Map<Integer, BlockNode> threads = parser.getThreads();
+        parser.stepIndex.trim();
+        analysis.setStepIndex(parser.stepIndex);
+        return threads;
+    }
+
+    /**
+     * Parses a trace without building the node tree. The analyzer sees the same events and nodes as
+     * during a regular parse, but the children of a block are not retained.
+     */
+    public static void index(TraceReader in, Analyzer analyzer, ProgressListener progress) throws IOException {
+        TraceParser parser = new TraceParser(in, null, analyzer, progress);
+        analyzer.start(null, in.getArchitecture());
         parser.read();
-        return parser.getThreads();
+        analyzer.finish();
     }
 }
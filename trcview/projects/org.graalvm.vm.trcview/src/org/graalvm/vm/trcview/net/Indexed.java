@@ -0,0 +1,800 @@
+package org.graalvm.vm.trcview.net;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.posix.elf.DefaultSymbolResolver;
+import org.graalvm.vm.posix.elf.Symbol;
+import org.graalvm.vm.posix.elf.SymbolResolver;
+import org.graalvm.vm.trcview.analysis.AugmentingSymbolResolver;
+import org.graalvm.vm.trcview.analysis.ComputedSymbol;
+import org.graalvm.vm.trcview.analysis.MappedFiles;
+import org.graalvm.vm.trcview.analysis.SymbolRenameListener;
+import org.graalvm.vm.trcview.analysis.SymbolTable;
+import org.graalvm.vm.trcview.analysis.device.Device;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.MemoryRead;
+import org.graalvm.vm.trcview.analysis.memory.MemorySegment;
+import org.graalvm.vm.trcview.analysis.memory.MemoryUpdate;
+import org.graalvm.vm.trcview.analysis.memory.Protection;
+import org.graalvm.vm.trcview.analysis.type.DefaultTypes;
+import org.graalvm.vm.trcview.analysis.type.Prototype;
+import org.graalvm.vm.trcview.analysis.type.UserTypeDatabase;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.IoEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.data.DynamicTypePropagation;
+import org.graalvm.vm.trcview.data.TypedMemory;
+import org.graalvm.vm.trcview.decode.ABI;
+import org.graalvm.vm.trcview.disasm.DisassemblyCache;
+import org.graalvm.vm.trcview.expression.EvaluationException;
+import org.graalvm.vm.trcview.info.Comments;
+import org.graalvm.vm.trcview.info.Expressions;
+import org.graalvm.vm.trcview.info.FormattedExpression;
+import org.graalvm.vm.trcview.info.Highlighter;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.storage.TraceIndex;
+import org.graalvm.vm.trcview.ui.event.ChangeListener;
+import org.graalvm.vm.util.BitTest;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * {@link TraceAnalyzer} which answers all queries from a {@link TraceIndex} instead of the parsed
+ * node tree. Nodes are materialized on demand and kept in a small LRU cache, so the heap usage does
+ * not depend on the size of the trace.
+ */
+public class Indexed implements TraceAnalyzer {
+    private static final Logger log = Trace.create(TraceAnalyzer.class);
+
+    static final long BLOCK_ID = 1L << 62;
+
+    private static final int CACHE_SIZE = 65536;
+
+    private final TraceIndex index;
+    private final Map<Long, Node> cache;
+
+    private Architecture arch;
+    private SymbolResolver resolver;
+    private SymbolTable symbols;
+    private MappedFiles files;
+    private Map<Integer, BlockNode> threads;
+    private BlockNode root;
+    private List<ChangeListener> symbolChangeListeners;
+    private List<ChangeListener> commentChangeListeners;
+    private Comments comments;
+    private Expressions expressions;
+    private Highlighter highlighter;
+    private ABI abi;
+    private UserTypeDatabase types;
+    private TypedMemory typedMemory;
+    private DisassemblyCache disassemblyCache;
+    private boolean symbolize;
+
+    public Indexed(TraceIndex index) {
+        this.index = index;
+        this.arch = index.getArchitecture();
+        cache = new LinkedHashMap<Long, Node>(1024, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<Long, Node> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+        types = new UserTypeDatabase(arch.getTypeInfo());
+        // populate default types
+        DefaultTypes.populate(types, arch.getTypeInfo());
+        arch.addStandardTypes(types);
+
+        abi = arch.createABI(types);
+        symbols = new SymbolTable(arch.getFormat(), index.getTraceSymbols());
+        for (ComputedSymbol sym : index.getComputedSymbols()) {
+            if (sym.type == ComputedSymbol.Type.SUBROUTINE) {
+                symbols.addSubroutine(sym.address, sym.name);
+            } else {
+                symbols.addLocation(sym.address);
+            }
+        }
+        resolver = new AugmentingSymbolResolver(new DefaultSymbolResolver(index.getTraceSymbols()), symbols);
+        files = new MappedFiles(index.getMappedFiles());
+        symbolChangeListeners = new ArrayList<>();
+        commentChangeListeners = new ArrayList<>();
+        comments = new Comments();
+        expressions = new Expressions();
+        highlighter = new Highlighter();
+        typedMemory = new TypedMemory();
+
+        threads = new HashMap<>();
+        for (Entry<Integer, Integer> entry : index.getThreads().entrySet()) {
+            BlockNode block = getBlock(entry.getValue());
+            threads.put(entry.getKey(), block);
+            if (root == null || block.getStep() < root.getStep()) {
+                root = block;
+            }
+        }
+
+        disassemblyCache = new DisassemblyCache(this);
+        symbolize = false;
+    }
+
+    TraceIndex getIndex() {
+        return index;
+    }
+
+    public void close() throws IOException {
+        index.close();
+    }
+
+    BlockNode getBlock(int idx) {
+        long id = BLOCK_ID | idx;
+        BlockNode block = (BlockNode) cache.get(id);
+        if (block == null) {
+            int head = index.getBlockHead(idx);
+            StepEvent headStep = head >= 0 ? new IndexedStepEvent(this, head) : null;
+            block = new IndexedBlockNode(this, idx, headStep);
+            cache.put(id, block);
+        }
+        return block;
+    }
+
+    private StepEvent getStep(int idx) {
+        long id = idx;
+        Node step = cache.get(id);
+        if (step == null) {
+            step = new IndexedStepEvent(this, idx);
+            cache.put(id, step);
+        }
+        return (StepEvent) step;
+    }
+
+    Node getNode(int ref) {
+        if (ref >= 0) {
+            return getStep(ref);
+        } else {
+            return getBlock(-(ref + 1));
+        }
+    }
+
+    private Node getStepNode(int idx) {
+        // the head of a block is represented by the block itself
+        if (index.getStepPosition(idx) == -1) {
+            int parent = index.getStepParent(idx);
+            if (index.getBlockHead(parent) == idx) {
+                return getBlock(parent);
+            }
+        }
+        return getStep(idx);
+    }
+
+    private MemoryUpdate update(int rec) {
+        int step = index.getMemoryStep(rec);
+        StepEvent evt = step >= 0 ? getStep(step) : null;
+        return new MemoryUpdate(index.isMemoryBigEndian(rec), index.getMemoryAddress(rec), index.getMemorySize(rec), index.getMemoryValue(rec), index.getMemoryInsn(rec), evt, evt);
+    }
+
+    private MemoryRead read(int rec) {
+        int step = index.getMemoryStep(rec);
+        StepEvent evt = step >= 0 ? getStep(step) : null;
+        return new MemoryRead(index.getMemoryAddress(rec), index.getMemorySize(rec), index.getMemoryInsn(rec), evt, evt);
+    }
+
+    @Override
+    public Symbol getSymbol(long pc) {
+        return resolver.getSymbol(pc);
+    }
+
+    @Override
+    public NavigableMap<Long, Symbol> getTraceSymbols() {
+        return symbols.getTraceSymbols();
+    }
+
+    @Override
+    public ComputedSymbol getComputedSymbol(long pc) {
+        return symbols.get(pc);
+    }
+
+    @Override
+    public void renameSymbol(ComputedSymbol sym, String name) {
+        symbols.renameSubroutine(sym, name);
+    }
+
+    @Override
+    public void setPrototype(ComputedSymbol sym, Prototype prototype) {
+        symbols.setPrototype(sym, prototype);
+    }
+
+    @Override
+    public Set<ComputedSymbol> getSubroutines() {
+        return symbols.getSubroutines();
+    }
+
+    @Override
+    public Set<ComputedSymbol> getLocations() {
+        return symbols.getLocations();
+    }
+
+    @Override
+    public Collection<ComputedSymbol> getSymbols() {
+        return symbols.getSymbols();
+    }
+
+    @Override
+    public Map<String, List<ComputedSymbol>> getNamedSymbols() {
+        return symbols.getNamedSymbols();
+    }
+
+    @Override
+    public void addSymbolRenameListener(SymbolRenameListener listener) {
+        symbols.addSymbolRenameListener(listener);
+    }
+
+    @Override
+    public void removeSymbolRenameListener(SymbolRenameListener listener) {
+        symbols.removeSymbolRenameListener(listener);
+    }
+
+    @Override
+    public void addSymbolChangeListener(ChangeListener listener) {
+        symbolChangeListeners.add(listener);
+    }
+
+    @Override
+    public void removeSymbolChangeListener(ChangeListener listener) {
+        symbolChangeListeners.remove(listener);
+    }
+
+    @Override
+    public void addSubroutine(long pc, String name, Prototype prototype) {
+        symbols.addSubroutine(pc, name);
+        ComputedSymbol sym = symbols.get(pc);
+        sym.prototype = prototype;
+    }
+
+    @Override
+    public void addSubroutine(long pc) {
+        symbols.addSubroutine(pc);
+    }
+
+    @Override
+    public void addLocation(long pc) {
+        symbols.addLocation(pc);
+    }
+
+    @Override
+    public void reanalyze() {
+        // the index does not keep the visits of a symbol, there is nothing to recompute
+        symbols.cleanup();
+        for (ChangeListener l : symbolChangeListeners) {
+            try {
+                l.valueChanged();
+            } catch (Throwable t) {
+                log.warning("Error while executing listener: " + l);
+            }
+        }
+    }
+
+    @Override
+    public void refresh() {
+        // nothing
+    }
+
+    @Override
+    public long getInstructionCount() {
+        return index.getLastStep();
+    }
+
+    @Override
+    public Set<Integer> getThreadIds() {
+        return threads.keySet();
+    }
+
+    @Override
+    public Map<Integer, Long> getThreadStarts() {
+        Map<Integer, Long> result = new HashMap<>();
+        for (Entry<Integer, BlockNode> entry : threads.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getStep());
+        }
+        return result;
+    }
+
+    @Override
+    public BlockNode getRoot() {
+        return root;
+    }
+
+    @Override
+    public BlockNode getParent(Node node) {
+        return node.getParent();
+    }
+
+    @Override
+    public BlockNode getChildren(BlockNode node) {
+        return node;
+    }
+
+    @Override
+    public Node getNode(Node node) {
+        return node;
+    }
+
+    @Override
+    public List<Node> getSyscalls() {
+        int[] syscalls = index.getSyscalls();
+        return new AbstractList<Node>() {
+            @Override
+            public Node get(int i) {
+                return getNode(syscalls[i]);
+            }
+
+            @Override
+            public int size() {
+                return syscalls.length;
+            }
+        };
+    }
+
+    @Override
+    public Map<Integer, List<IoEvent>> getIo() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<Integer, Device> getDevices() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Node getInstruction(long insn) {
+        if (index.getStepCount() == 0) {
+            return null;
+        }
+        int idx = index.findStep(insn);
+        if (index.getStep(idx) != insn) {
+            return null;
+        }
+        return getStepNode(idx);
+    }
+
+    private Node getSibling(int parent, int pos) {
+        if (pos < 0 || pos >= index.getChildCount(parent)) {
+            return null;
+        }
+        return getNode(index.getChild(parent, pos));
+    }
+
+    @Override
+    public Node getNextStep(Node node) {
+        if (node instanceof IndexedBlockNode) {
+            return ((BlockNode) node).getFirstNode();
+        } else if (node instanceof IndexedStepEvent) {
+            int idx = ((IndexedStepEvent) node).getIndex();
+            int pos = index.getStepPosition(idx);
+            if (pos == -1) {
+                return null;
+            }
+            return getSibling(index.getStepParent(idx), pos + 1);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public Node getPreviousStep(Node node) {
+        int parent;
+        int pos;
+        if (node instanceof IndexedBlockNode) {
+            int idx = ((IndexedBlockNode) node).getIndex();
+            parent = index.getBlockParent(idx);
+            pos = index.getBlockPosition(idx);
+        } else if (node instanceof IndexedStepEvent) {
+            int idx = ((IndexedStepEvent) node).getIndex();
+            parent = index.getStepParent(idx);
+            pos = index.getStepPosition(idx);
+        } else {
+            return null;
+        }
+        if (parent == -1 || pos == -1) {
+            return null;
+        } else if (pos == 0) {
+            return getBlock(parent);
+        } else {
+            return getSibling(parent, pos - 1);
+        }
+    }
+
+    private static int getStepIndex(Node node) {
+        if (node instanceof IndexedStepEvent) {
+            return ((IndexedStepEvent) node).getIndex();
+        } else if (node instanceof IndexedBlockNode) {
+            BlockNode block = (BlockNode) node;
+            StepEvent step = block.getHead() != null ? block.getHead() : block.getFirstStep();
+            if (step == null) {
+                return -1;
+            }
+            return ((IndexedStepEvent) step).getIndex();
+        } else {
+            return -1;
+        }
+    }
+
+    // the index has no per-PC posting lists, these searches scan the step table
+    @Override
+    public Node getNextPC(Node node, long pc) {
+        int start = getStepIndex(node);
+        if (start < 0) {
+            return null;
+        }
+        int idx = index.findNextPC(start, pc, index.getTid(start));
+        if (idx < 0) {
+            return null;
+        }
+        return getStep(idx);
+    }
+
+    @Override
+    public Node getPreviousPC(Node node, long pc) {
+        int start = getStepIndex(node);
+        if (start < 0) {
+            return null;
+        }
+        int idx = index.findPreviousPC(start, pc, index.getTid(start));
+        if (idx < 0) {
+            return null;
+        }
+        return getStep(idx);
+    }
+
+    @Override
+    public long getPCCount(long pc) {
+        return index.getPCCount(pc);
+    }
+
+    @Override
+    public byte getI8(long address, long insn) throws MemoryNotMappedException {
+        return index.getByte(address, insn);
+    }
+
+    @Override
+    public short getI16(long address, long insn) throws MemoryNotMappedException {
+        boolean be = arch.getFormat().be;
+        short word = (short) index.getValue(address, 2, insn);
+        if (be) {
+            return Short.reverseBytes(word);
+        } else {
+            return word;
+        }
+    }
+
+    @Override
+    public int getI32(long address, long insn) throws MemoryNotMappedException {
+        boolean be = arch.getFormat().be;
+        int word = (int) index.getValue(address, 4, insn);
+        if (be) {
+            return Integer.reverseBytes(word);
+        } else {
+            return word;
+        }
+    }
+
+    @Override
+    public long getI64(long address, long insn) throws MemoryNotMappedException {
+        boolean be = arch.getFormat().be;
+        long word = index.getWord(address, insn);
+        if (be) {
+            return Long.reverseBytes(word);
+        } else {
+            return word;
+        }
+    }
+
+    @Override
+    public void read(long address, byte[] dst, long insn) throws MemoryNotMappedException {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = index.getByte(address + i, insn);
+        }
+    }
+
+    @Override
+    public BitSet changedBytes(long address, int length, long from, long to) {
+        BitSet result = new BitSet(length);
+        if (from == to) {
+            return result;
+        }
+        for (int i = 0; i < length; i++) {
+            try {
+                if (index.getByte(address + i, from) != index.getByte(address + i, to)) {
+                    result.set(i);
+                }
+            } catch (MemoryNotMappedException e) {
+                // not mapped at one of the two points in time
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public MemoryUpdate[] lastWriters(long address, int length, long insn) throws MemoryNotMappedException {
+        MemoryUpdate[] result = new MemoryUpdate[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getLastWrite(address + i, insn);
+        }
+        return result;
+    }
+
+    @Override
+    public MemoryRead getLastRead(long address, long insn) throws MemoryNotMappedException {
+        int rec = index.findLast(address, insn, false);
+        return rec == -1 ? null : read(rec);
+    }
+
+    @Override
+    public MemoryRead getNextRead(long address, long insn) throws MemoryNotMappedException {
+        int rec = index.findNext(address, insn, false);
+        return rec == -1 ? null : read(rec);
+    }
+
+    @Override
+    public MemoryUpdate getLastWrite(long address, long insn) throws MemoryNotMappedException {
+        int rec = index.findLast(address, insn, true);
+        return rec == -1 ? null : update(rec);
+    }
+
+    @Override
+    public MemoryUpdate getNextWrite(long address, long insn) throws MemoryNotMappedException {
+        int rec = index.findNext(address, insn, true);
+        return rec == -1 ? null : update(rec);
+    }
+
+    @Override
+    public List<MemoryUpdate> getPreviousWrites(long address, long insn, long count) throws MemoryNotMappedException {
+        List<Integer> writes = index.findAll(address, true);
+        List<MemoryUpdate> result = new ArrayList<>();
+        for (int i = writes.size() - 1; i >= 0 && result.size() < count; i--) {
+            int rec = writes.get(i);
+            if (index.getMemoryInsn(rec) <= insn) {
+                result.add(update(rec));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Node getMapNode(long address, long insn) throws MemoryNotMappedException {
+        TraceIndex.Mmap mmap = index.getMmap(address, insn);
+        if (mmap == null) {
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", address));
+        }
+        return mmap.step >= 0 ? getStep(mmap.step) : null;
+    }
+
+    @Override
+    public List<MemorySegment> getMemorySegments(long insn) {
+        List<MemorySegment> result = new ArrayList<>();
+        for (TraceIndex.Mmap mmap : index.getMmaps()) {
+            if (mmap.insn > insn) {
+                break;
+            }
+            int rawprot = mmap.protection;
+            Protection prot = new Protection(BitTest.test(rawprot, Mman.PROT_READ), BitTest.test(rawprot, Mman.PROT_WRITE), BitTest.test(rawprot, Mman.PROT_EXEC));
+            result.add(new MemorySegment(mmap.address, mmap.address + mmap.length - 1, prot, mmap.name));
+        }
+        List<TraceIndex.Brk> brks = index.getBrks();
+        if (!brks.isEmpty()) {
+            long start = brks.get(0).brk;
+            long end = start;
+            for (TraceIndex.Brk brk : brks) {
+                if (brk.insn > insn) {
+                    break;
+                }
+                end = brk.brk;
+            }
+            if (end != start) {
+                result.add(new MemorySegment(start, end - 1, new Protection(true, true, false), "[heap]"));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getBase(long pc) {
+        return files.getBase(pc);
+    }
+
+    @Override
+    public long getLoadBias(long pc) {
+        return files.getLoadBias(pc);
+    }
+
+    @Override
+    public long getOffset(long pc) {
+        return files.getOffset(pc);
+    }
+
+    @Override
+    public long getFileOffset(long pc) {
+        return files.getFileOffset(pc);
+    }
+
+    @Override
+    public String getFilename(long pc) {
+        return files.getFilename(pc);
+    }
+
+    @Override
+    public Architecture getArchitecture() {
+        return arch;
+    }
+
+    @Override
+    public void addCommentChangeListener(ChangeListener l) {
+        commentChangeListeners.add(l);
+    }
+
+    @Override
+    public void removeCommentChangeListener(ChangeListener l) {
+        commentChangeListeners.remove(l);
+    }
+
+    protected void fireCommentChanged() {
+        for (ChangeListener l : commentChangeListeners) {
+            try {
+                l.valueChanged();
+            } catch (Throwable t) {
+                log.warning("Error while executing listener: " + l);
+            }
+        }
+    }
+
+    @Override
+    public void setCommentForPC(long pc, String comment) {
+        comments.setCommentForPC(pc, comment);
+        fireCommentChanged();
+    }
+
+    @Override
+    public String getCommentForPC(long pc) {
+        return comments.getCommentForPC(pc);
+    }
+
+    @Override
+    public void setCommentForInsn(long insn, String comment) {
+        comments.setCommentForInsn(insn, comment);
+        fireCommentChanged();
+    }
+
+    @Override
+    public String getCommentForInsn(long insn) {
+        return comments.getCommentForInsn(insn);
+    }
+
+    @Override
+    public Map<Long, String> getCommentsForInsns() {
+        return comments.getCommentsForInsns();
+    }
+
+    @Override
+    public Map<Long, String> getCommentsForPCs() {
+        return comments.getCommentsForPCs();
+    }
+
+    @Override
+    public void setExpression(long pc, String expression) throws ParseException {
+        expressions.setExpression(pc, arch.getFormat(), expression);
+        fireCommentChanged();
+    }
+
+    @Override
+    public String getExpression(long pc) {
+        FormattedExpression expr = expressions.getExpression(pc);
+        if (expr == null) {
+            return null;
+        } else {
+            return expr.getExpression();
+        }
+    }
+
+    @Override
+    public String evaluateExpression(CpuState state) throws EvaluationException {
+        return expressions.evaluate(state, this);
+    }
+
+    @Override
+    public Map<Long, String> getExpressions() {
+        return expressions.getExpressions();
+    }
+
+    @Override
+    public void setColor(long pc, Color color) {
+        highlighter.setColor(pc, color);
+        fireCommentChanged();
+    }
+
+    @Override
+    public Color getColor(CpuState state) {
+        return highlighter.getColor(state, this);
+    }
+
+    @Override
+    public Map<Long, Color> getColors() {
+        return highlighter.getColors();
+    }
+
+    @Override
+    public ABI getABI() {
+        return abi;
+    }
+
+    @Override
+    public void addABIChangeListener(ChangeListener l) {
+        if (abi != null) {
+            abi.addChangeListener(l);
+        }
+    }
+
+    @Override
+    public UserTypeDatabase getTypeDatabase() {
+        return types;
+    }
+
+    @Override
+    public TypedMemory getTypedMemory() {
+        return typedMemory;
+    }
+
+    @Override
+    public DynamicTypePropagation getTypeRecovery() {
+        return null;
+    }
+
+    @Override
+    public List<MemoryRead> getReadXrefs(long addr) throws MemoryNotMappedException {
+        List<MemoryRead> result = new ArrayList<>();
+        for (int rec : index.findAll(addr, false)) {
+            result.add(read(rec));
+        }
+        return result;
+    }
+
+    @Override
+    public List<MemoryUpdate> getWriteXrefs(long addr) throws MemoryNotMappedException {
+        List<MemoryUpdate> result = new ArrayList<>();
+        for (int rec : index.findAll(addr, true)) {
+            result.add(update(rec));
+        }
+        return result;
+    }
+
+    @Override
+    public void setSymbolize(boolean symbolize) {
+        this.symbolize = symbolize;
+        disassemblyCache.invalidate();
+    }
+
+    @Override
+    public boolean isSymbolize() {
+        return symbolize;
+    }
+
+    @Override
+    public DisassemblyCache getDisassemblyCache() {
+        return disassemblyCache;
+    }
+}
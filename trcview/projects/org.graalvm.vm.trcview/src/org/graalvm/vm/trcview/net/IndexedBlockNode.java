@@ -0,0 +1,100 @@
+package org.graalvm.vm.trcview.net;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.graalvm.vm.trcview.arch.io.IncompleteTraceStep;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.storage.TraceIndex;
+
+/**
+ * Block whose children are materialized on demand from the trace index.
+ */
+class IndexedBlockNode extends BlockNode {
+    private final Indexed trc;
+    private final int idx;
+    private final int tid;
+    private final int count;
+
+    IndexedBlockNode(Indexed trc, int idx, StepEvent head) {
+        super(head);
+        this.trc = trc;
+        this.idx = idx;
+        TraceIndex index = trc.getIndex();
+        tid = index.getBlockTid(idx);
+        count = index.getChildCount(idx);
+        setId(Indexed.BLOCK_ID | idx);
+    }
+
+    int getIndex() {
+        return idx;
+    }
+
+    @Override
+    public BlockNode getParent() {
+        int parent = trc.getIndex().getBlockParent(idx);
+        if (parent == -1) {
+            return null;
+        } else {
+            return trc.getBlock(parent);
+        }
+    }
+
+    @Override
+    public List<Node> getNodes() {
+        return new AbstractList<Node>() {
+            @Override
+            public Node get(int i) {
+                return IndexedBlockNode.this.get(i);
+            }
+
+            @Override
+            public int size() {
+                return IndexedBlockNode.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Node get(int i) {
+        if (count == 0) {
+            if (i != 0) {
+                throw new IndexOutOfBoundsException(Integer.toString(i));
+            }
+            IncompleteTraceStep step = new IncompleteTraceStep(tid);
+            step.setParent(this);
+            return step;
+        }
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException(Integer.toString(i));
+        }
+        return trc.getNode(trc.getIndex().getChild(idx, i));
+    }
+
+    @Override
+    public int size() {
+        // empty blocks contain an IncompleteTraceStep, just like in the parsed tree
+        return count == 0 ? 1 : count;
+    }
+
+    @Override
+    public Node getFirstNode() {
+        return get(0);
+    }
+
+    @Override
+    public StepEvent getFirstStep() {
+        int step = trc.getIndex().getFirstStep(idx);
+        if (step == -1) {
+            return null;
+        }
+        return (StepEvent) trc.getNode(step);
+    }
+
+    @Override
+    public int getTid() {
+        return tid;
+    }
+}
@@ -0,0 +1,80 @@
+package org.graalvm.vm.trcview.net;
+
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+
+class IndexedCpuState implements CpuState {
+    private final Architecture arch;
+    private final long step;
+    private final long pc;
+    private final int tid;
+    private final String[] names;
+    private final long[] registers;
+
+    IndexedCpuState(Architecture arch, String[] names, long step, long pc, int tid, long[] registers) {
+        this.arch = arch;
+        this.names = names;
+        this.step = step;
+        this.pc = pc;
+        this.tid = tid;
+        this.registers = registers;
+    }
+
+    @Override
+    public long getStep() {
+        return step;
+    }
+
+    @Override
+    public long getPC() {
+        return pc;
+    }
+
+    @Override
+    public long get(String name) {
+        if (registers != null) {
+            for (int i = 0; i < registers.length; i++) {
+                if (names[i].equals(name)) {
+                    return registers[i];
+                }
+            }
+            int id = arch.getRegisterId(name);
+            if (id >= 0 && id < registers.length) {
+                return registers[id];
+            }
+        }
+        switch (name) {
+            case "pc":
+            case "PC":
+                return pc;
+            default:
+                throw new IllegalArgumentException("unknown field " + name);
+        }
+    }
+
+    @Override
+    public int getTid() {
+        return tid;
+    }
+
+    @Override
+    public long getRegisterById(int id) {
+        if (registers == null || id < 0 || id >= registers.length) {
+            throw new IllegalArgumentException("unknown register " + id);
+        }
+        return registers[id];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        buf.append(String.format("PC=%016x", pc));
+        if (registers != null) {
+            for (int i = 0; i < registers.length; i++) {
+                buf.append((i % 4) == 0 ? '\n' : ' ');
+                buf.append(String.format("%s=%016x", names[i].toUpperCase(), registers[i]));
+            }
+        }
+        return buf.append('\n').toString();
+    }
+}
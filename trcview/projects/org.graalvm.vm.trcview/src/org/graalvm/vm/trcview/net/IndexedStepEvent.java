@@ -0,0 +1,81 @@
+package org.graalvm.vm.trcview.net;
+
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.arch.io.StepFormat;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.storage.TraceIndex;
+
+class IndexedStepEvent extends StepEvent {
+    private final Indexed trc;
+    private final int idx;
+    private final long step;
+    private final long pc;
+    private final TraceIndex.Code code;
+    private CpuState state;
+
+    IndexedStepEvent(Indexed trc, int idx) {
+        super(trc.getIndex().getTid(idx));
+        this.trc = trc;
+        this.idx = idx;
+        TraceIndex index = trc.getIndex();
+        step = index.getStep(idx);
+        pc = index.getPC(idx);
+        code = index.getCode(idx);
+        setId(idx);
+    }
+
+    int getIndex() {
+        return idx;
+    }
+
+    @Override
+    public BlockNode getParent() {
+        return trc.getBlock(trc.getIndex().getStepParent(idx));
+    }
+
+    @Override
+    public byte[] getMachinecode() {
+        return code.machinecode;
+    }
+
+    @Override
+    public String[] getDisassemblyComponents() {
+        return code.disassembly;
+    }
+
+    @Override
+    public String getMnemonic() {
+        return code.mnemonic;
+    }
+
+    @Override
+    public long getPC() {
+        return pc;
+    }
+
+    @Override
+    public InstructionType getType() {
+        return code.type;
+    }
+
+    @Override
+    public long getStep() {
+        return step;
+    }
+
+    @Override
+    public CpuState getState() {
+        if (state == null) {
+            TraceIndex index = trc.getIndex();
+            state = new IndexedCpuState(trc.getArchitecture(), index.getRegisterNames(), step, pc, getTid(), index.getRegisters(idx));
+        }
+        return state;
+    }
+
+    @Override
+    public StepFormat getFormat() {
+        return trc.getArchitecture().getFormat();
+    }
+}
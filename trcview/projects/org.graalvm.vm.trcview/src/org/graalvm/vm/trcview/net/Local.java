@@ -3,6 +3,7 @@ package org.graalvm.vm.trcview.net;
 import java.awt.Color;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -17,6 +18,7 @@ import org.graalvm.vm.posix.elf.SymbolResolver;
 import org.graalvm.vm.trcview.analysis.Analysis;
 import org.graalvm.vm.trcview.analysis.ComputedSymbol;
 import org.graalvm.vm.trcview.analysis.MappedFiles;
+import org.graalvm.vm.trcview.analysis.PCIndex;
 import org.graalvm.vm.trcview.analysis.Search;
 import org.graalvm.vm.trcview.analysis.SymbolRenameListener;
 import org.graalvm.vm.trcview.analysis.SymbolTable;
@@ -32,10 +34,12 @@ import org.graalvm.vm.trcview.analysis.type.UserTypeDatabase;
 import org.graalvm.vm.trcview.arch.Architecture;
 import org.graalvm.vm.trcview.arch.io.CpuState;
 import org.graalvm.vm.trcview.arch.io.IoEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
 import org.graalvm.vm.trcview.data.CodeAnalyzer;
 import org.graalvm.vm.trcview.data.DynamicTypePropagation;
 import org.graalvm.vm.trcview.data.TypedMemory;
 import org.graalvm.vm.trcview.decode.ABI;
+import org.graalvm.vm.trcview.disasm.DisassemblyCache;
 import org.graalvm.vm.trcview.expression.EvaluationException;
 import org.graalvm.vm.trcview.info.Comments;
 import org.graalvm.vm.trcview.info.Expressions;
@@ -43,6 +47,7 @@ import org.graalvm.vm.trcview.info.FormattedExpression;
 import org.graalvm.vm.trcview.info.Highlighter;
 import org.graalvm.vm.trcview.io.BlockNode;
 import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.StepIndex;
 import org.graalvm.vm.trcview.ui.event.ChangeListener;
 import org.graalvm.vm.util.log.Trace;
 
@@ -60,6 +65,8 @@ public class Local implements TraceAnalyzer {
     private Map<Integer, List<IoEvent>> io;
     private Map<Integer, Device> devices;
     private long steps;
+    private StepIndex stepIndex;
+    private PCIndex pcIndex;
     private List<ChangeListener> symbolChangeListeners;
     private List<ChangeListener> commentChangeListeners;
     private Comments comments;
@@ -68,6 +75,7 @@ public class Local implements TraceAnalyzer {
     private ABI abi;
     private UserTypeDatabase types;
     private TypedMemory typedMemory;
+    private DisassemblyCache disassemblyCache;
     private DynamicTypePropagation typeRecovery;
     private boolean symbolize;
 
@@ -90,6 +98,8 @@ public class Local implements TraceAnalyzer {
         io = analysis.getIo();
         devices = analysis.getDevices();
         steps = analysis.getStepCount();
+        stepIndex = analysis.getStepIndex();
+        pcIndex = analysis.getPCIndex();
         symbolChangeListeners = new ArrayList<>();
         commentChangeListeners = new ArrayList<>();
         comments = new Comments();
@@ -107,6 +117,7 @@ public class Local implements TraceAnalyzer {
             typeRecovery.transfer(this);
         }
 
+        disassemblyCache = new DisassemblyCache(this);
         symbolize = false;
     }
 
@@ -275,6 +286,19 @@ public class Local implements TraceAnalyzer {
 
     @Override
     public Node getInstruction(long insn) {
+        if (stepIndex != null) {
+            Node start = stepIndex.getNearest(insn);
+            if (start != null) {
+                // the instruction is close to the indexed node, search its enclosing blocks first
+                BlockNode block = start instanceof BlockNode ? (BlockNode) start : start.getParent();
+                for (; block != null; block = block.getParent()) {
+                    Node result = Search.instruction(block, insn);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+        }
         for (BlockNode node : threads.values()) {
             Node result = Search.instruction(node, insn);
             if (result != null) {
@@ -294,9 +318,70 @@ public class Local implements TraceAnalyzer {
         return Search.previousStep(node);
     }
 
+    private static long getStepNumber(Node node) {
+        if (node instanceof BlockNode) {
+            BlockNode block = (BlockNode) node;
+            if (block.getHead() != null) {
+                return block.getHead().getStep();
+            }
+            StepEvent first = block.getFirstStep();
+            return first != null ? first.getStep() : -1;
+        } else if (node instanceof StepEvent) {
+            return ((StepEvent) node).getStep();
+        } else {
+            return -1;
+        }
+    }
+
+    private Node getPCNode(long step, int tid) {
+        Node node = getInstruction(step);
+        if (node == null || node.getTid() != tid) {
+            return null;
+        } else if (node instanceof BlockNode) {
+            return ((BlockNode) node).getHead();
+        } else {
+            return node;
+        }
+    }
+
     @Override
     public Node getNextPC(Node node, long pc) {
-        return Search.nextPC(node, pc);
+        long step = getStepNumber(node);
+        if (pcIndex == null || step == -1) {
+            return Search.nextPC(node, pc);
+        }
+        int tid = node.getTid();
+        for (step = pcIndex.getNext(pc, step); step != -1; step = pcIndex.getNext(pc, step)) {
+            Node result = getPCNode(step, tid);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Node getPreviousPC(Node node, long pc) {
+        long step = getStepNumber(node);
+        if (pcIndex == null || step == -1) {
+            return null;
+        }
+        int tid = node.getTid();
+        for (step = pcIndex.getPrevious(pc, step); step != -1; step = pcIndex.getPrevious(pc, step)) {
+            Node result = getPCNode(step, tid);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long getPCCount(long pc) {
+        if (pcIndex == null) {
+            return 0;
+        }
+        return pcIndex.getCount(pc);
     }
 
     @Override
@@ -337,6 +422,21 @@ public class Local implements TraceAnalyzer {
         }
     }
 
+    @Override
+    public void read(long address, byte[] dst, long insn) throws MemoryNotMappedException {
+        memory.read(address, dst, insn);
+    }
+
+    @Override
+    public BitSet changedBytes(long address, int length, long from, long to) {
+        return memory.changedBytes(address, length, from, to);
+    }
+
+    @Override
+    public MemoryUpdate[] lastWriters(long address, int length, long insn) throws MemoryNotMappedException {
+        return memory.lastWriters(address, length, insn);
+    }
+
     @Override
     public MemoryRead getLastRead(long address, long insn) throws MemoryNotMappedException {
         return memory.getLastRead(address, insn);
@@ -536,10 +636,16 @@ public class Local implements TraceAnalyzer {
     @Override
     public void setSymbolize(boolean symbolize) {
         this.symbolize = symbolize;
+        disassemblyCache.invalidate();
     }
 
     @Override
     public boolean isSymbolize() {
         return symbolize;
     }
+
+    @Override
+    public DisassemblyCache getDisassemblyCache() {
+        return disassemblyCache;
+    }
 }
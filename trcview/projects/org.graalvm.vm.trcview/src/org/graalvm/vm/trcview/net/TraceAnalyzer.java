@@ -2,6 +2,7 @@ package org.graalvm.vm.trcview.net;
 
 import java.awt.Color;
 import java.text.ParseException;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,7 @@ import org.graalvm.vm.trcview.arch.io.IoEvent;
 import org.graalvm.vm.trcview.data.DynamicTypePropagation;
 import org.graalvm.vm.trcview.data.TypedMemory;
 import org.graalvm.vm.trcview.decode.ABI;
+import org.graalvm.vm.trcview.disasm.DisassemblyCache;
 import org.graalvm.vm.trcview.expression.EvaluationException;
 import org.graalvm.vm.trcview.io.BlockNode;
 import org.graalvm.vm.trcview.io.Node;
@@ -99,6 +101,10 @@ public interface TraceAnalyzer {
 
     Node getNextPC(Node node, long pc);
 
+    Node getPreviousPC(Node node, long pc);
+
+    long getPCCount(long pc);
+
     // memory
     byte getI8(long address, long insn) throws MemoryNotMappedException;
 
@@ -108,6 +114,12 @@ public interface TraceAnalyzer {
 
     long getI64(long address, long insn) throws MemoryNotMappedException;
 
+    void read(long address, byte[] dst, long insn) throws MemoryNotMappedException;
+
+    BitSet changedBytes(long address, int length, long from, long to);
+
+    MemoryUpdate[] lastWriters(long address, int length, long insn) throws MemoryNotMappedException;
+
     MemoryRead getLastRead(long address, long insn) throws MemoryNotMappedException;
 
     MemoryRead getNextRead(long address, long insn) throws MemoryNotMappedException;
@@ -183,4 +195,6 @@ public interface TraceAnalyzer {
     void setSymbolize(boolean symbolize);
 
     boolean isSymbolize();
+
+    DisassemblyCache getDisassemblyCache();
 }
@@ -0,0 +1,90 @@
+package org.graalvm.vm.trcview.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Memory mapped view of a file which can be larger than 2GB. The file is mapped in chunks of
+ * {@link #CHUNK_SIZE} bytes; every chunk overlaps the next one by {@link #OVERLAP} bytes, so a
+ * value or record of at most {@link #OVERLAP} bytes never straddles two mappings.
+ */
+public class MappedRegion implements Closeable {
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+    public static final int OVERLAP = 64;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    public MappedRegion(File path, boolean writable) throws IOException {
+        this(path, writable, -1);
+    }
+
+    public MappedRegion(File path, boolean writable, long length) throws IOException {
+        file = new RandomAccessFile(path, writable ? "rw" : "r");
+        if (length >= 0) {
+            file.setLength(length);
+        }
+        channel = file.getChannel();
+        size = channel.size();
+        int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        chunks = new MappedByteBuffer[count];
+        MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << CHUNK_BITS;
+            long len = Math.min(CHUNK_SIZE + OVERLAP, size - start);
+            chunks[i] = channel.map(mode, start, len);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long getLong(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    public int getInt(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)].getInt((int) (offset & CHUNK_MASK));
+    }
+
+    public short getShort(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)].getShort((int) (offset & CHUNK_MASK));
+    }
+
+    public byte getByte(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)].get((int) (offset & CHUNK_MASK));
+    }
+
+    public void get(long offset, byte[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = getByte(offset + i);
+        }
+    }
+
+    public void putInt(long offset, int value) {
+        // writable mappings are shared, the overlapping parts of two chunks alias the same pages
+        chunks[(int) (offset >>> CHUNK_BITS)].putInt((int) (offset & CHUNK_MASK), value);
+    }
+
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        file.close();
+    }
+}
@@ -0,0 +1,861 @@
+package org.graalvm.vm.trcview.storage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.posix.elf.Symbol;
+import org.graalvm.vm.trcview.analysis.ComputedSymbol;
+import org.graalvm.vm.trcview.analysis.MappedFile;
+import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.InstructionType;
+import org.graalvm.vm.trcview.arch.io.TraceSymbol;
+import org.graalvm.vm.util.log.Levels;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * Disk-backed index of a trace file, written by {@link TraceIndexWriter} during the first parse.
+ * All per-step, per-block and per-memory-access data stays in memory mapped files, only the code
+ * table, symbols and memory maps are loaded into the heap.
+ *
+ * Nodes are referenced by an int: values {@code >= 0} are step indices, negative values
+ * {@code -(block + 1)} are block indices.
+ */
+public class TraceIndex implements Closeable {
+    private static final Logger log = Trace.create(TraceIndex.class);
+
+    public static final int MAGIC = 0x54494458; // TIDX
+    public static final int VERSION = 2;
+
+    public static final String HEADER = "header.bin";
+    public static final String STEPS = "steps.bin";
+    public static final String BLOCKS = "blocks.bin";
+    public static final String CHILDIDX = "childidx.bin";
+    public static final String CHILDREN = "children.bin";
+    public static final String STATES = "states.bin";
+    public static final String MEMORY = "memory.bin";
+    public static final String LINETAB = "linetab.bin";
+    public static final String LINES = "lines.bin";
+    public static final String PCTAB = "pctab.bin";
+    public static final String PCS = "pcs.bin";
+    public static final String CODE = "code.bin";
+    public static final String META = "meta.bin";
+    public static final String DATA = "data.bin";
+
+    // step record: long step, long pc, long state, int tid, int parent, int code, int pos
+    public static final int STEP_SIZE = 40;
+    // block record: int parent, int tid, int head, int pos, int flags
+    public static final int BLOCK_SIZE = 20;
+    // memory record: long insn, long address, long value, int step, int info
+    public static final int MEMORY_SIZE = 32;
+    // line record: long line, long start, int count
+    public static final int LINE_SIZE = 20;
+    // pc record: long pc, long start, int count
+    public static final int PC_SIZE = 20;
+
+    public static final int BLOCK_INTERRUPT = 1;
+
+    public static final int MEM_SIZE_MASK = 0xFF;
+    public static final int MEM_WRITE = 1 << 8;
+    public static final int MEM_BE = 1 << 9;
+
+    public static final int LINE_SHIFT = 6;
+
+    private final Architecture arch;
+    private final String[] registers;
+    private final int regcnt;
+    private final int stepCount;
+    private final int blockCount;
+    private final int memoryCount;
+    private final int lineCount;
+    private final int pcCount;
+    private final long lastStep;
+
+    private final MappedRegion steps;
+    private final MappedRegion blocks;
+    private final MappedRegion childidx;
+    private final MappedRegion children;
+    private final MappedRegion states;
+    private final MappedRegion memory;
+    private final MappedRegion linetab;
+    private final MappedRegion lines;
+    private final MappedRegion pctab;
+    private final MappedRegion pcs;
+    private final MappedRegion data;
+
+    private final Code[] code;
+
+    private final NavigableMap<Long, Symbol> traceSymbols = new TreeMap<>();
+    private final NavigableMap<Long, MappedFile> mappedFiles = new TreeMap<>();
+    private final List<ComputedSymbol> computedSymbols = new ArrayList<>();
+    private final List<Mmap> mmaps = new ArrayList<>();
+    private final List<Brk> brks = new ArrayList<>();
+    private final int[] syscalls;
+    private final Map<Integer, Integer> threads = new HashMap<>();
+
+    public static class Code {
+        public final long pc;
+        public final InstructionType type;
+        public final byte[] machinecode;
+        public final String mnemonic;
+        public final String[] disassembly;
+
+        public Code(long pc, InstructionType type, byte[] machinecode, String mnemonic, String[] disassembly) {
+            this.pc = pc;
+            this.type = type;
+            this.machinecode = machinecode;
+            this.mnemonic = mnemonic;
+            this.disassembly = disassembly;
+        }
+    }
+
+    public static class Mmap {
+        public final long insn;
+        public final int step;
+        public final int seq;
+        public final long address;
+        public final long length;
+        public final int protection;
+        public final String name;
+        public final long dataOffset;
+        public final int dataLength;
+
+        public Mmap(long insn, int step, int seq, long address, long length, int protection, String name, long dataOffset, int dataLength) {
+            this.insn = insn;
+            this.step = step;
+            this.seq = seq;
+            this.address = address;
+            this.length = length;
+            this.protection = protection;
+            this.name = name;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        public boolean contains(long addr) {
+            return Long.compareUnsigned(addr - address, length) < 0;
+        }
+    }
+
+    public static class Brk {
+        public final long insn;
+        public final int step;
+        public final long brk;
+
+        public Brk(long insn, int step, long brk) {
+            this.insn = insn;
+            this.step = step;
+            this.brk = brk;
+        }
+    }
+
+    private TraceIndex(File dir, DataInputStream header) throws IOException {
+        short archid = header.readShort();
+        arch = Architecture.getArchitecture(archid);
+        if (arch == null) {
+            throw new IOException("unknown architecture " + archid);
+        }
+        regcnt = header.readInt();
+        registers = new String[regcnt];
+        for (int i = 0; i < regcnt; i++) {
+            registers[i] = header.readUTF();
+        }
+        stepCount = header.readInt();
+        blockCount = header.readInt();
+        memoryCount = header.readInt();
+        lineCount = header.readInt();
+        pcCount = header.readInt();
+        lastStep = header.readLong();
+
+        steps = new MappedRegion(new File(dir, STEPS), false);
+        blocks = new MappedRegion(new File(dir, BLOCKS), false);
+        childidx = new MappedRegion(new File(dir, CHILDIDX), false);
+        children = new MappedRegion(new File(dir, CHILDREN), false);
+        states = new MappedRegion(new File(dir, STATES), false);
+        memory = new MappedRegion(new File(dir, MEMORY), false);
+        linetab = new MappedRegion(new File(dir, LINETAB), false);
+        lines = new MappedRegion(new File(dir, LINES), false);
+        pctab = new MappedRegion(new File(dir, PCTAB), false);
+        pcs = new MappedRegion(new File(dir, PCS), false);
+        data = new MappedRegion(new File(dir, DATA), false);
+
+        try (DataInputStream in = openStream(new File(dir, CODE))) {
+            int count = in.readInt();
+            code = new Code[count];
+            for (int i = 0; i < count; i++) {
+                long pc = in.readLong();
+                InstructionType type = InstructionType.values()[in.readByte()];
+                int len = in.readInt();
+                byte[] machinecode = null;
+                if (len >= 0) {
+                    machinecode = new byte[len];
+                    in.readFully(machinecode);
+                }
+                String mnemonic = readString(in);
+                int ncomponents = in.readInt();
+                String[] disassembly = null;
+                if (ncomponents >= 0) {
+                    disassembly = new String[ncomponents];
+                    for (int j = 0; j < ncomponents; j++) {
+                        disassembly[j] = readString(in);
+                    }
+                }
+                code[i] = new Code(pc, type, machinecode, mnemonic, disassembly);
+            }
+        }
+
+        try (DataInputStream in = openStream(new File(dir, META))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                long value = in.readLong();
+                long size = in.readLong();
+                int bind = in.readInt();
+                int type = in.readInt();
+                int visibility = in.readInt();
+                short shndx = in.readShort();
+                traceSymbols.put(value, new TraceSymbol(name, value, size, bind, type, visibility, shndx));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int fd = in.readInt();
+                long address = in.readLong();
+                long size = in.readLong();
+                long offset = in.readLong();
+                String filename = readString(in);
+                long loadBias = in.readLong();
+                mappedFiles.put(address, new MappedFile(fd, address, size, offset, filename, loadBias));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                long address = in.readLong();
+                ComputedSymbol.Type type = ComputedSymbol.Type.values()[in.readByte()];
+                computedSymbols.add(new ComputedSymbol(name, address, type));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long insn = in.readLong();
+                int step = in.readInt();
+                int seq = in.readInt();
+                long address = in.readLong();
+                long length = in.readLong();
+                int prot = in.readInt();
+                String name = readString(in);
+                long dataOffset = in.readLong();
+                int dataLength = in.readInt();
+                mmaps.add(new Mmap(insn, step, seq, address, length, prot, name, dataOffset, dataLength));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long insn = in.readLong();
+                int step = in.readInt();
+                long brk = in.readLong();
+                brks.add(new Brk(insn, step, brk));
+            }
+
+            count = in.readInt();
+            syscalls = new int[count];
+            for (int i = 0; i < count; i++) {
+                syscalls[i] = in.readInt();
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int tid = in.readInt();
+                int block = in.readInt();
+                threads.put(tid, block);
+            }
+        }
+    }
+
+    private static DataInputStream openStream(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        } else {
+            return null;
+        }
+    }
+
+    public static File getIndexDirectory(File trace) {
+        return new File(trace.getPath() + ".idx");
+    }
+
+    private static DataInputStream openHeader(File trace) throws IOException {
+        File header = new File(getIndexDirectory(trace), HEADER);
+        if (!header.exists()) {
+            return null;
+        }
+        DataInputStream in = openStream(header);
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                in.close();
+                return null;
+            }
+            long length = in.readLong();
+            long modified = in.readLong();
+            if (length != trace.length() || modified != trace.lastModified()) {
+                in.close();
+                return null;
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public static boolean isValid(File trace) {
+        try (DataInputStream in = openHeader(trace)) {
+            return in != null;
+        } catch (IOException e) {
+            log.log(Levels.WARNING, "Cannot read trace index: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    public static TraceIndex open(File trace) throws IOException {
+        try (DataInputStream in = openHeader(trace)) {
+            if (in == null) {
+                throw new IOException("no valid index for " + trace);
+            }
+            return new TraceIndex(getIndexDirectory(trace), in);
+        }
+    }
+
+    public Architecture getArchitecture() {
+        return arch;
+    }
+
+    public int getRegisterCount() {
+        return regcnt;
+    }
+
+    /**
+     * Names of the registers returned by {@link #getRegisters(int)}, see
+     * {@link Architecture#getRegisterNames()}. The array must not be modified.
+     */
+    public String[] getRegisterNames() {
+        return registers;
+    }
+
+    public long getLastStep() {
+        return lastStep;
+    }
+
+    public NavigableMap<Long, Symbol> getTraceSymbols() {
+        return traceSymbols;
+    }
+
+    public NavigableMap<Long, MappedFile> getMappedFiles() {
+        return mappedFiles;
+    }
+
+    public List<ComputedSymbol> getComputedSymbols() {
+        return computedSymbols;
+    }
+
+    public List<Mmap> getMmaps() {
+        return Collections.unmodifiableList(mmaps);
+    }
+
+    public List<Brk> getBrks() {
+        return Collections.unmodifiableList(brks);
+    }
+
+    public int[] getSyscalls() {
+        return syscalls;
+    }
+
+    public Map<Integer, Integer> getThreads() {
+        return Collections.unmodifiableMap(threads);
+    }
+
+    // steps
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    public long getStep(int idx) {
+        return steps.getLong((long) idx * STEP_SIZE);
+    }
+
+    public long getPC(int idx) {
+        return steps.getLong((long) idx * STEP_SIZE + 8);
+    }
+
+    public int getTid(int idx) {
+        return steps.getInt((long) idx * STEP_SIZE + 24);
+    }
+
+    public int getStepParent(int idx) {
+        return steps.getInt((long) idx * STEP_SIZE + 28);
+    }
+
+    public Code getCode(int idx) {
+        return code[steps.getInt((long) idx * STEP_SIZE + 32)];
+    }
+
+    public int getStepPosition(int idx) {
+        return steps.getInt((long) idx * STEP_SIZE + 36);
+    }
+
+    /**
+     * Returns the index of the last step with a step number {@code <= insn}, or the first step if
+     * there is none.
+     */
+    public int findStep(long insn) {
+        int lo = 0;
+        int hi = stepCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getStep(mid) <= insn) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? 0 : lo - 1;
+    }
+
+    /**
+     * Resolves the register values of a step. The state of every step only contains the registers
+     * which changed since the previous step of the same thread, every few steps a full keyframe is
+     * stored which bounds the backwards walk.
+     */
+    public long[] getRegisters(int idx) {
+        long offset = steps.getLong((long) idx * STEP_SIZE + 16);
+        if (offset < 0) {
+            return null;
+        }
+        long[] result = new long[regcnt];
+        long full = regcnt == 64 ? -1 : (1L << regcnt) - 1;
+        long have = 0;
+        while (offset >= 0 && have != full) {
+            long prev = states.getLong(offset);
+            long mask = states.getLong(offset + 8);
+            long ptr = offset + 16;
+            for (int i = 0; i < regcnt; i++) {
+                long bit = 1L << i;
+                if ((mask & bit) != 0) {
+                    if ((have & bit) == 0) {
+                        result[i] = states.getLong(ptr);
+                        have |= bit;
+                    }
+                    ptr += 8;
+                }
+            }
+            offset = prev;
+        }
+        return result;
+    }
+
+    // steps per pc
+    private int findPC(long pc) {
+        int lo = 0;
+        int hi = pcCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long p = pctab.getLong((long) mid * PC_SIZE);
+            if (p < pc) {
+                lo = mid + 1;
+            } else if (p > pc) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getPCEntry(long start, int i) {
+        return pcs.getInt((start + i) * 4);
+    }
+
+    /**
+     * Returns the number of steps which executed the instruction at {@code pc}.
+     */
+    public int getPCCount(long pc) {
+        int entry = findPC(pc);
+        if (entry == -1) {
+            return 0;
+        }
+        return pctab.getInt((long) entry * PC_SIZE + 16);
+    }
+
+    /**
+     * Returns the index of the first step after step index {@code idx} of thread {@code tid} which
+     * executed the instruction at {@code pc}, or -1 if there is none.
+     */
+    public int findNextPC(int idx, long pc, int tid) {
+        int entry = findPC(pc);
+        if (entry == -1) {
+            return -1;
+        }
+        long start = pctab.getLong((long) entry * PC_SIZE + 8);
+        int count = pctab.getInt((long) entry * PC_SIZE + 16);
+
+        // first entry > idx
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getPCEntry(start, mid) <= idx) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        for (int i = lo; i < count; i++) {
+            int step = getPCEntry(start, i);
+            if (getTid(step) == tid) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last step before step index {@code idx} of thread {@code tid} which
+     * executed the instruction at {@code pc}, or -1 if there is none.
+     */
+    public int findPreviousPC(int idx, long pc, int tid) {
+        int entry = findPC(pc);
+        if (entry == -1) {
+            return -1;
+        }
+        long start = pctab.getLong((long) entry * PC_SIZE + 8);
+        int count = pctab.getInt((long) entry * PC_SIZE + 16);
+
+        // first entry >= idx
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getPCEntry(start, mid) < idx) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        for (int i = lo - 1; i >= 0; i--) {
+            int step = getPCEntry(start, i);
+            if (getTid(step) == tid) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    // blocks
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public int getBlockParent(int block) {
+        return blocks.getInt((long) block * BLOCK_SIZE);
+    }
+
+    public int getBlockTid(int block) {
+        return blocks.getInt((long) block * BLOCK_SIZE + 4);
+    }
+
+    public int getBlockHead(int block) {
+        return blocks.getInt((long) block * BLOCK_SIZE + 8);
+    }
+
+    public int getBlockPosition(int block) {
+        return blocks.getInt((long) block * BLOCK_SIZE + 12);
+    }
+
+    public boolean isInterrupt(int block) {
+        return (blocks.getInt((long) block * BLOCK_SIZE + 16) & BLOCK_INTERRUPT) != 0;
+    }
+
+    public int getChildCount(int block) {
+        long start = childidx.getLong((long) block * 8);
+        long end = childidx.getLong((long) (block + 1) * 8);
+        return (int) (end - start);
+    }
+
+    public int getChild(int block, int i) {
+        long start = childidx.getLong((long) block * 8);
+        return children.getInt((start + i) * 4);
+    }
+
+    /**
+     * Returns the index of the first step in a block, not counting its head, or -1 if the block
+     * does not contain any step.
+     */
+    public int getFirstStep(int block) {
+        int b = block;
+        while (getChildCount(b) > 0) {
+            int child = getChild(b, 0);
+            if (child >= 0) {
+                return child;
+            }
+            b = -(child + 1);
+            int head = getBlockHead(b);
+            if (head >= 0) {
+                return head;
+            }
+        }
+        return -1;
+    }
+
+    // memory
+    public int getMemoryCount() {
+        return memoryCount;
+    }
+
+    public long getMemoryInsn(int rec) {
+        return memory.getLong((long) rec * MEMORY_SIZE);
+    }
+
+    public long getMemoryAddress(int rec) {
+        return memory.getLong((long) rec * MEMORY_SIZE + 8);
+    }
+
+    public long getMemoryValue(int rec) {
+        return memory.getLong((long) rec * MEMORY_SIZE + 16);
+    }
+
+    public int getMemoryStep(int rec) {
+        return memory.getInt((long) rec * MEMORY_SIZE + 24);
+    }
+
+    private int getMemoryInfo(int rec) {
+        return memory.getInt((long) rec * MEMORY_SIZE + 28);
+    }
+
+    public byte getMemorySize(int rec) {
+        return (byte) (getMemoryInfo(rec) & MEM_SIZE_MASK);
+    }
+
+    public boolean isMemoryWrite(int rec) {
+        return (getMemoryInfo(rec) & MEM_WRITE) != 0;
+    }
+
+    public boolean isMemoryBigEndian(int rec) {
+        return (getMemoryInfo(rec) & MEM_BE) != 0;
+    }
+
+    private boolean covers(int rec, long addr) {
+        return Long.compareUnsigned(addr - getMemoryAddress(rec), getMemorySize(rec)) < 0;
+    }
+
+    private int findLine(long line) {
+        int lo = 0;
+        int hi = lineCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long l = linetab.getLong((long) mid * LINE_SIZE);
+            int cmp = Long.compareUnsigned(l, line);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getLineEntry(long start, int i) {
+        return lines.getInt((start + i) * 4);
+    }
+
+    /**
+     * Returns the last memory record which accessed the given byte at or before step {@code insn},
+     * or -1 if there is none.
+     */
+    public int findLast(long addr, long insn, boolean write) {
+        int line = findLine(addr >>> LINE_SHIFT);
+        if (line == -1) {
+            return -1;
+        }
+        long start = linetab.getLong((long) line * LINE_SIZE + 8);
+        int count = linetab.getInt((long) line * LINE_SIZE + 16);
+
+        // first entry with insn > limit
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getMemoryInsn(getLineEntry(start, mid)) <= insn) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        for (int i = lo - 1; i >= 0; i--) {
+            int rec = getLineEntry(start, i);
+            if (isMemoryWrite(rec) == write && covers(rec, addr)) {
+                return rec;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first memory record which accessed the given byte at or after step {@code insn},
+     * or -1 if there is none.
+     */
+    public int findNext(long addr, long insn, boolean write) {
+        int line = findLine(addr >>> LINE_SHIFT);
+        if (line == -1) {
+            return -1;
+        }
+        long start = linetab.getLong((long) line * LINE_SIZE + 8);
+        int count = linetab.getInt((long) line * LINE_SIZE + 16);
+
+        // first entry with insn >= limit
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getMemoryInsn(getLineEntry(start, mid)) < insn) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        for (int i = lo; i < count; i++) {
+            int rec = getLineEntry(start, i);
+            if (isMemoryWrite(rec) == write && covers(rec, addr)) {
+                return rec;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns all memory records which accessed the given byte, in trace order.
+     */
+    public List<Integer> findAll(long addr, boolean write) {
+        int line = findLine(addr >>> LINE_SHIFT);
+        if (line == -1) {
+            return Collections.emptyList();
+        }
+        long start = linetab.getLong((long) line * LINE_SIZE + 8);
+        int count = linetab.getInt((long) line * LINE_SIZE + 16);
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int rec = getLineEntry(start, i);
+            if (isMemoryWrite(rec) == write && covers(rec, addr)) {
+                result.add(rec);
+            }
+        }
+        return result;
+    }
+
+    public Mmap getMmap(long addr, long insn) {
+        for (int i = mmaps.size() - 1; i >= 0; i--) {
+            Mmap mmap = mmaps.get(i);
+            if (mmap.insn <= insn && mmap.contains(addr)) {
+                return mmap;
+            }
+        }
+        return null;
+    }
+
+    private boolean isHeap(long addr, long insn) {
+        if (brks.isEmpty()) {
+            return false;
+        }
+        long start = brks.get(0).brk;
+        long end = start;
+        for (Brk brk : brks) {
+            if (brk.insn > insn) {
+                break;
+            }
+            end = brk.brk;
+        }
+        return Long.compareUnsigned(addr, start) >= 0 && Long.compareUnsigned(addr, end) < 0;
+    }
+
+    public byte getByte(long addr, long insn) throws MemoryNotMappedException {
+        int rec = findLast(addr, insn, true);
+        Mmap mmap = getMmap(addr, insn);
+        if (mmap != null && (rec == -1 || rec < mmap.seq)) {
+            // the mapping replaced all earlier contents
+            long off = addr - mmap.address;
+            if (off < mmap.dataLength) {
+                return data.getByte(mmap.dataOffset + off);
+            } else {
+                return 0;
+            }
+        }
+        if (rec == -1) {
+            if (isHeap(addr, insn)) {
+                return 0;
+            }
+            throw new MemoryNotMappedException(String.format("no memory mapped to 0x%x", addr));
+        }
+        int off = (int) (addr - getMemoryAddress(rec));
+        int size = getMemorySize(rec);
+        long value = getMemoryValue(rec);
+        if (size == 1) {
+            return (byte) value;
+        } else if (isMemoryBigEndian(rec)) {
+            return (byte) (value >> ((size - 1 - off) * 8));
+        } else {
+            return (byte) (value >> (off * 8));
+        }
+    }
+
+    /**
+     * Reads {@code size} bytes (at most 8) as a little endian value.
+     */
+    public long getValue(long addr, int size, long insn) throws MemoryNotMappedException {
+        long value = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            value = (value << 8) | Byte.toUnsignedLong(getByte(addr + i, insn));
+        }
+        return value;
+    }
+
+    public long getWord(long addr, long insn) throws MemoryNotMappedException {
+        return getValue(addr, 8, insn);
+    }
+
+    @Override
+    public void close() throws IOException {
+        steps.close();
+        blocks.close();
+        childidx.close();
+        children.close();
+        states.close();
+        memory.close();
+        linetab.close();
+        lines.close();
+        pctab.close();
+        pcs.close();
+        data.close();
+    }
+}
@@ -0,0 +1,721 @@
+package org.graalvm.vm.trcview.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.posix.elf.DefaultSymbolResolver;
+import org.graalvm.vm.posix.elf.Symbol;
+import org.graalvm.vm.posix.elf.SymbolResolver;
+import org.graalvm.vm.trcview.analysis.Analyzer;
+import org.graalvm.vm.trcview.analysis.ComputedSymbol;
+import org.graalvm.vm.trcview.analysis.MappedFile;
+import org.graalvm.vm.trcview.analysis.SymbolTable;
+import org.graalvm.vm.trcview.analysis.memory.MemoryTrace;
+import org.graalvm.vm.trcview.arch.Architecture;
+import org.graalvm.vm.trcview.arch.io.BrkEvent;
+import org.graalvm.vm.trcview.arch.io.CpuState;
+import org.graalvm.vm.trcview.arch.io.Event;
+import org.graalvm.vm.trcview.arch.io.InterruptEvent;
+import org.graalvm.vm.trcview.arch.io.MemoryDumpEvent;
+import org.graalvm.vm.trcview.arch.io.MemoryEvent;
+import org.graalvm.vm.trcview.arch.io.MmapEvent;
+import org.graalvm.vm.trcview.arch.io.StepEvent;
+import org.graalvm.vm.trcview.arch.io.SymbolTableEvent;
+import org.graalvm.vm.trcview.io.BlockNode;
+import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.util.Vector128;
+import org.graalvm.vm.util.io.Endianess;
+import org.graalvm.vm.util.log.Levels;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * Writes a {@link TraceIndex} while a trace is parsed. The per-step, per-block and per-memory
+ * access records are streamed to disk, the secondary indices (children of a block, accesses per
+ * cache line) are built in {@link #finish()}.
+ */
+public class TraceIndexWriter implements Analyzer {
+    private static final Logger log = Trace.create(TraceIndexWriter.class);
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int KEYFRAME_INTERVAL = 1024;
+
+    private final File trace;
+    private final File dir;
+
+    private Architecture arch;
+    private String[] registers;
+
+    private DataOutputStream steps;
+    private DataOutputStream blocks;
+    private DataOutputStream childrenTmp;
+    private DataOutputStream states;
+    private DataOutputStream memory;
+    private DataOutputStream code;
+    private DataOutputStream data;
+
+    private int stepCount;
+    private int blockCount;
+    private int memoryCount;
+    private long stateOffset;
+    private long dataOffset;
+    private int[] childCount = new int[1024];
+
+    private final Map<CodeKey, Integer> codeIds = new HashMap<>();
+    private final Map<Integer, ThreadState> threadStates = new HashMap<>();
+    private final Map<Integer, Integer> threads = new HashMap<>();
+
+    private final Map<Long, Integer> lineIds = new HashMap<>();
+    private int[] lineCount = new int[1024];
+
+    private final Map<Long, Integer> pcIds = new HashMap<>();
+    private int[] pcCount = new int[1024];
+
+    private final NavigableMap<Long, Symbol> symbolTable = new TreeMap<>();
+    private final NavigableMap<Long, MappedFile> mappedFiles = new TreeMap<>();
+    private final SymbolResolver resolver = new DefaultSymbolResolver(symbolTable);
+    private SymbolTable symbols;
+    private DataOutputStream mmaps;
+    private int mmapCount;
+    private DataOutputStream brks;
+    private int brkCount;
+    private DataOutputStream syscalls;
+    private int syscallCount;
+
+    private StepEvent lastStep;
+    private int lastStepIdx;
+    private boolean failed;
+
+    private static class CodeKey {
+        private final long pc;
+        private final byte[] machinecode;
+
+        CodeKey(long pc, byte[] machinecode) {
+            this.pc = pc;
+            this.machinecode = machinecode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CodeKey)) {
+                return false;
+            }
+            CodeKey k = (CodeKey) o;
+            return k.pc == pc && Arrays.equals(k.machinecode, machinecode);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (pc ^ (pc >>> 32)) * 31 + Arrays.hashCode(machinecode);
+        }
+    }
+
+    private static class ThreadState {
+        long[] registers;
+        long last = -1;
+        int steps;
+    }
+
+    public TraceIndexWriter(File trace) {
+        this.trace = trace;
+        this.dir = TraceIndex.getIndexDirectory(trace);
+    }
+
+    private DataOutputStream create(String name) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, name)), BUFFER_SIZE));
+    }
+
+    private DataOutputStream createTemp(String name) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    private void fail(IOException e) {
+        log.log(Levels.WARNING, "Cannot write trace index: " + e.getMessage(), e);
+        failed = true;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public void start(MemoryTrace mem, Architecture architecture) {
+        this.arch = architecture;
+        // the delta mask has one bit per register
+        String[] names = arch.getRegisterNames();
+        registers = names.length > 64 ? Arrays.copyOf(names, 64) : names;
+        symbols = new SymbolTable(arch.getFormat(), symbolTable);
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("cannot create directory " + dir);
+            }
+            // an old header must not survive a partially written index
+            new File(dir, TraceIndex.HEADER).delete();
+            steps = create(TraceIndex.STEPS);
+            blocks = create(TraceIndex.BLOCKS);
+            childrenTmp = createTemp("children.tmp");
+            states = create(TraceIndex.STATES);
+            memory = create(TraceIndex.MEMORY);
+            code = createTemp("code.tmp");
+            data = create(TraceIndex.DATA);
+            mmaps = createTemp("mmap.tmp");
+            brks = createTemp("brk.tmp");
+            syscalls = createTemp("syscall.tmp");
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeUTF(s);
+        }
+    }
+
+    private int addChild(int parent, int ref) throws IOException {
+        if (parent >= childCount.length) {
+            childCount = Arrays.copyOf(childCount, Math.max(childCount.length * 2, parent + 1));
+        }
+        childrenTmp.writeInt(parent);
+        childrenTmp.writeInt(ref);
+        return childCount[parent]++;
+    }
+
+    private int getBlock(BlockNode block, int tid, int head, int flags) throws IOException {
+        long id = block.getId();
+        if (id != 0) {
+            return (int) (id - 1);
+        }
+        int parent = -1;
+        if (block.getParent() != null) {
+            parent = getBlock(block.getParent(), tid, -1, 0);
+        }
+        int idx = blockCount++;
+        block.setId(idx + 1);
+        int pos = -1;
+        if (parent != -1) {
+            pos = addChild(parent, -(idx + 1));
+        } else {
+            threads.putIfAbsent(tid, idx);
+        }
+        blocks.writeInt(parent);
+        blocks.writeInt(tid);
+        blocks.writeInt(head);
+        blocks.writeInt(pos);
+        blocks.writeInt(flags);
+        return idx;
+    }
+
+    private int getCode(StepEvent step) throws IOException {
+        CodeKey key = new CodeKey(step.getPC(), step.getMachinecode());
+        Integer id = codeIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        int idx = codeIds.size();
+        codeIds.put(key, idx);
+        code.writeLong(step.getPC());
+        code.writeByte(step.getType().ordinal());
+        byte[] machinecode = step.getMachinecode();
+        if (machinecode == null) {
+            code.writeInt(-1);
+        } else {
+            code.writeInt(machinecode.length);
+            code.write(machinecode);
+        }
+        writeString(code, step.getMnemonic());
+        String[] disassembly = step.getDisassemblyComponents();
+        if (disassembly == null) {
+            code.writeInt(-1);
+        } else {
+            code.writeInt(disassembly.length);
+            for (String s : disassembly) {
+                writeString(code, s);
+            }
+        }
+        return idx;
+    }
+
+    private long writeState(int tid, CpuState state) throws IOException {
+        if (registers.length == 0 || state == null) {
+            return -1;
+        }
+        ThreadState thread = threadStates.get(tid);
+        if (thread == null) {
+            thread = new ThreadState();
+            threadStates.put(tid, thread);
+        }
+        long mask = 0;
+        long[] values = new long[registers.length];
+        boolean keyframe = thread.registers == null || thread.steps++ % KEYFRAME_INTERVAL == 0;
+        for (int i = 0; i < registers.length; i++) {
+            values[i] = state.get(registers[i]);
+            if (keyframe || values[i] != thread.registers[i]) {
+                mask |= 1L << i;
+            }
+        }
+        long offset = stateOffset;
+        states.writeLong(keyframe ? -1 : thread.last);
+        states.writeLong(mask);
+        stateOffset += 16;
+        for (int i = 0; i < registers.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                states.writeLong(values[i]);
+                stateOffset += 8;
+            }
+        }
+        thread.registers = values;
+        thread.last = offset;
+        return offset;
+    }
+
+    private void writeStep(StepEvent step, CpuState state, int parent, int pos) throws IOException {
+        steps.writeLong(step.getStep());
+        steps.writeLong(step.getPC());
+        steps.writeLong(writeState(step.getTid(), state));
+        steps.writeInt(step.getTid());
+        steps.writeInt(parent);
+        steps.writeInt(getCode(step));
+        steps.writeInt(pos);
+        countPC(step.getPC());
+    }
+
+    private void countPC(long pc) {
+        Integer id = pcIds.get(pc);
+        if (id == null) {
+            id = pcIds.size();
+            pcIds.put(pc, id);
+            if (id >= pcCount.length) {
+                pcCount = Arrays.copyOf(pcCount, pcCount.length * 2);
+            }
+        }
+        pcCount[id]++;
+    }
+
+    private void countLine(long line) {
+        Integer id = lineIds.get(line);
+        if (id == null) {
+            id = lineIds.size();
+            lineIds.put(line, id);
+            if (id >= lineCount.length) {
+                lineCount = Arrays.copyOf(lineCount, lineCount.length * 2);
+            }
+        }
+        lineCount[id]++;
+    }
+
+    private void writeMemory(long addr, int size, long value, boolean write, boolean be) throws IOException {
+        long insn = lastStep == null ? 0 : lastStep.getStep();
+        int info = size & TraceIndex.MEM_SIZE_MASK;
+        if (write) {
+            info |= TraceIndex.MEM_WRITE;
+        }
+        if (be) {
+            info |= TraceIndex.MEM_BE;
+        }
+        memory.writeLong(insn);
+        memory.writeLong(addr);
+        memory.writeLong(value);
+        memory.writeInt(lastStep == null ? -1 : lastStepIdx);
+        memory.writeInt(info);
+        memoryCount++;
+
+        long first = addr >>> TraceIndex.LINE_SHIFT;
+        long last = (addr + size - 1) >>> TraceIndex.LINE_SHIFT;
+        countLine(first);
+        if (last != first) {
+            countLine(last);
+        }
+    }
+
+    private void processSymbols(long pc) {
+        if (lastStep == null) {
+            return;
+        }
+        Symbol sym;
+        switch (lastStep.getType()) {
+            case JMP:
+            case JCC:
+                sym = resolver.getSymbol(pc);
+                if (sym != null && sym.getType() == Symbol.FUNC && sym.getValue() == pc) {
+                    symbols.addSubroutine(pc, sym.getName());
+                } else {
+                    symbols.addLocation(pc);
+                }
+                break;
+            case CALL:
+                sym = resolver.getSymbol(pc);
+                if (sym != null && sym.getName() != null && sym.getValue() == pc) {
+                    symbols.addSubroutine(pc, sym.getName());
+                } else {
+                    symbols.addSubroutine(pc);
+                }
+                break;
+            case SYSCALL:
+                if (arch.isSystemLevel()) {
+                    sym = resolver.getSymbol(pc);
+                    if (sym != null && sym.getName() != null) {
+                        symbols.addSyscall(pc, sym.getName());
+                    } else {
+                        symbols.addSyscall(pc);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void process(Event event, Node node, CpuState state) {
+        if (failed) {
+            return;
+        }
+        try {
+            if (event instanceof StepEvent) {
+                StepEvent step = (StepEvent) event;
+                int ref;
+                if (node instanceof BlockNode) {
+                    // call or syscall: the step is the head of a new block
+                    int idx = stepCount;
+                    int block = getBlock((BlockNode) node, step.getTid(), idx, 0);
+                    writeStep(step, state, block, -1);
+                    ref = -(block + 1);
+                } else {
+                    int parent = getBlock(node.getParent(), step.getTid(), -1, 0);
+                    int pos = addChild(parent, stepCount);
+                    writeStep(step, state, parent, pos);
+                    ref = stepCount;
+                }
+                lastStepIdx = stepCount++;
+                if (step.isSyscall()) {
+                    syscalls.writeInt(ref);
+                    syscallCount++;
+                }
+                processSymbols(state != null ? state.getPC() : step.getPC());
+                lastStep = step;
+            } else if (event instanceof InterruptEvent) {
+                getBlock((BlockNode) node, event.getTid(), -1, TraceIndex.BLOCK_INTERRUPT);
+            } else if (event instanceof SymbolTableEvent) {
+                SymbolTableEvent symtab = (SymbolTableEvent) event;
+                symbolTable.putAll(symtab.getSymbols());
+                long addr = symtab.getLoadBias();
+                long end = addr + symtab.getSize();
+                while (addr < end) {
+                    Entry<Long, MappedFile> file = mappedFiles.ceilingEntry(addr);
+                    if (file != null && file.getValue().getFilename() != null && file.getValue().getFilename().equals(symtab.getFilename())) {
+                        file.getValue().setLoadBias(symtab.getLoadBias());
+                        addr = file.getKey() + 1;
+                    } else {
+                        break;
+                    }
+                }
+            } else if (event instanceof MmapEvent) {
+                MmapEvent mmap = (MmapEvent) event;
+                if (mmap.getResult() >= 0) {
+                    mappedFiles.put(mmap.getResult(), new MappedFile(mmap.getFileDescriptor(), mmap.getResult(), mmap.getLength(), mmap.getOffset(), mmap.getFilename(), -1));
+                    mmaps.writeLong(lastStep == null ? 0 : lastStep.getStep());
+                    mmaps.writeInt(lastStep == null ? -1 : lastStepIdx);
+                    mmaps.writeInt(memoryCount);
+                    mmaps.writeLong(mmap.getResult());
+                    mmaps.writeLong(mmap.getLength());
+                    mmaps.writeInt(mmap.getProtection());
+                    writeString(mmaps, mmap.getFilename());
+                    byte[] content = mmap.getData();
+                    if (content != null) {
+                        mmaps.writeLong(dataOffset);
+                        mmaps.writeInt(content.length);
+                        data.write(content);
+                        dataOffset += content.length;
+                    } else {
+                        mmaps.writeLong(-1);
+                        mmaps.writeInt(0);
+                    }
+                    mmapCount++;
+                }
+            } else if (event instanceof MemoryEvent) {
+                MemoryEvent memevent = (MemoryEvent) event;
+                long addr = memevent.getAddress();
+                boolean be = memevent.isBigEndian();
+                if (memevent.isWrite() && !memevent.hasData()) {
+                    return;
+                }
+                if (memevent.getSize() <= 8) {
+                    long value = memevent.isWrite() ? memevent.getValue() : 0;
+                    writeMemory(addr, memevent.getSize(), value, memevent.isWrite(), be);
+                } else if (memevent.getSize() == 16) {
+                    if (memevent.isWrite()) {
+                        Vector128 value = memevent.getVector();
+                        writeMemory(addr, 8, be ? value.getI64(0) : value.getI64(1), true, be);
+                        writeMemory(addr + 8, 8, be ? value.getI64(1) : value.getI64(0), true, be);
+                    } else {
+                        writeMemory(addr, 8, 0, false, be);
+                        writeMemory(addr + 8, 8, 0, false, be);
+                    }
+                } else {
+                    throw new AssertionError("unknown size: " + memevent.getSize());
+                }
+            } else if (event instanceof MemoryDumpEvent) {
+                MemoryDumpEvent dump = (MemoryDumpEvent) event;
+                long addr = dump.getAddress();
+                byte[] content = dump.getData();
+                int i;
+                for (i = 0; i < content.length - 7; i += 8) {
+                    writeMemory(addr + i, 8, Endianess.get64bitLE(content, i), true, false);
+                }
+                for (; i < content.length; i++) {
+                    writeMemory(addr + i, 1, content[i], true, false);
+                }
+            } else if (event instanceof BrkEvent) {
+                BrkEvent brk = (BrkEvent) event;
+                brks.writeLong(lastStep == null ? 0 : lastStep.getStep());
+                brks.writeInt(lastStep == null ? -1 : lastStepIdx);
+                brks.writeLong(brk.getResult());
+                brkCount++;
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private static void copy(File file, DataOutputStream out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        }
+        file.delete();
+    }
+
+    private void writeChildren() throws IOException {
+        childCount = Arrays.copyOf(childCount, Math.max(childCount.length, blockCount));
+        long[] start = new long[blockCount + 1];
+        for (int i = 0; i < blockCount; i++) {
+            start[i + 1] = start[i] + childCount[i];
+        }
+        try (DataOutputStream out = create(TraceIndex.CHILDIDX)) {
+            for (long s : start) {
+                out.writeLong(s);
+            }
+        }
+
+        // scatter the (parent, child) pairs into one contiguous list per block
+        File tmp = new File(dir, "children.tmp");
+        int[] fill = new int[blockCount];
+        try (MappedRegion out = new MappedRegion(new File(dir, TraceIndex.CHILDREN), true, start[blockCount] * 4);
+                        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tmp), BUFFER_SIZE))) {
+            for (long i = 0; i < start[blockCount]; i++) {
+                int parent = in.readInt();
+                int ref = in.readInt();
+                out.putInt((start[parent] + fill[parent]++) * 4, ref);
+            }
+            out.force();
+        }
+        tmp.delete();
+    }
+
+    private void writeLines() throws IOException {
+        int count = lineIds.size();
+        long[] keys = new long[count];
+        for (Entry<Long, Integer> entry : lineIds.entrySet()) {
+            keys[entry.getValue()] = entry.getKey();
+        }
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+
+        long[] start = new long[count];
+        long total = 0;
+        try (DataOutputStream out = create(TraceIndex.LINETAB)) {
+            for (long line : sorted) {
+                int id = lineIds.get(line);
+                start[id] = total;
+                out.writeLong(line);
+                out.writeLong(total);
+                out.writeInt(lineCount[id]);
+                total += lineCount[id];
+            }
+        }
+
+        // scatter the record indices into one list per line, in trace order
+        int[] fill = new int[count];
+        try (MappedRegion out = new MappedRegion(new File(dir, TraceIndex.LINES), true, total * 4);
+                        MappedRegion in = new MappedRegion(new File(dir, TraceIndex.MEMORY), false)) {
+            for (int rec = 0; rec < memoryCount; rec++) {
+                long addr = in.getLong((long) rec * TraceIndex.MEMORY_SIZE + 8);
+                int size = in.getInt((long) rec * TraceIndex.MEMORY_SIZE + 28) & TraceIndex.MEM_SIZE_MASK;
+                long first = addr >>> TraceIndex.LINE_SHIFT;
+                long last = (addr + size - 1) >>> TraceIndex.LINE_SHIFT;
+                int id = lineIds.get(first);
+                out.putInt((start[id] + fill[id]++) * 4, rec);
+                if (last != first) {
+                    id = lineIds.get(last);
+                    out.putInt((start[id] + fill[id]++) * 4, rec);
+                }
+            }
+            out.force();
+        }
+    }
+
+    private void writePCs() throws IOException {
+        int count = pcIds.size();
+        long[] sorted = new long[count];
+        for (Entry<Long, Integer> entry : pcIds.entrySet()) {
+            sorted[entry.getValue()] = entry.getKey();
+        }
+        Arrays.sort(sorted);
+
+        long[] start = new long[count];
+        long total = 0;
+        try (DataOutputStream out = create(TraceIndex.PCTAB)) {
+            for (long pc : sorted) {
+                int id = pcIds.get(pc);
+                start[id] = total;
+                out.writeLong(pc);
+                out.writeLong(total);
+                out.writeInt(pcCount[id]);
+                total += pcCount[id];
+            }
+        }
+
+        // scatter the step indices into one list per pc, in trace order
+        int[] fill = new int[count];
+        try (MappedRegion out = new MappedRegion(new File(dir, TraceIndex.PCS), true, total * 4);
+                        MappedRegion in = new MappedRegion(new File(dir, TraceIndex.STEPS), false)) {
+            for (int idx = 0; idx < stepCount; idx++) {
+                long pc = in.getLong((long) idx * TraceIndex.STEP_SIZE + 8);
+                int id = pcIds.get(pc);
+                out.putInt((start[id] + fill[id]++) * 4, idx);
+            }
+            out.force();
+        }
+    }
+
+    private void writeMeta() throws IOException {
+        try (DataOutputStream out = create(TraceIndex.CODE)) {
+            out.writeInt(codeIds.size());
+            copy(new File(dir, "code.tmp"), out);
+        }
+
+        try (DataOutputStream out = create(TraceIndex.META)) {
+            out.writeInt(symbolTable.size());
+            for (Symbol sym : symbolTable.values()) {
+                writeString(out, sym.getName());
+                out.writeLong(sym.getValue());
+                out.writeLong(sym.getSize());
+                out.writeInt(sym.getBind());
+                out.writeInt(sym.getType());
+                out.writeInt(sym.getVisibility());
+                out.writeShort(sym.getSectionIndex());
+            }
+
+            out.writeInt(mappedFiles.size());
+            for (MappedFile file : mappedFiles.values()) {
+                out.writeInt(file.getFileDescriptor());
+                out.writeLong(file.getAddress());
+                out.writeLong(file.getSize());
+                out.writeLong(file.getOffset());
+                writeString(out, file.getFilename());
+                out.writeLong(file.getLoadBias());
+            }
+
+            out.writeInt(symbols.getSymbols().size());
+            for (ComputedSymbol sym : symbols.getSymbols()) {
+                writeString(out, sym.name);
+                out.writeLong(sym.address);
+                out.writeByte(sym.type.ordinal());
+            }
+
+            out.writeInt(mmapCount);
+            copy(new File(dir, "mmap.tmp"), out);
+            out.writeInt(brkCount);
+            copy(new File(dir, "brk.tmp"), out);
+            out.writeInt(syscallCount);
+            copy(new File(dir, "syscall.tmp"), out);
+
+            out.writeInt(threads.size());
+            for (Entry<Integer, Integer> entry : threads.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        try (DataOutputStream out = create(TraceIndex.HEADER)) {
+            out.writeInt(TraceIndex.MAGIC);
+            out.writeInt(TraceIndex.VERSION);
+            out.writeLong(trace.length());
+            out.writeLong(trace.lastModified());
+            out.writeShort(arch.getId());
+            out.writeInt(registers.length);
+            for (String name : registers) {
+                out.writeUTF(name);
+            }
+            out.writeInt(stepCount);
+            out.writeInt(blockCount);
+            out.writeInt(memoryCount);
+            out.writeInt(lineIds.size());
+            out.writeInt(pcIds.size());
+            out.writeLong(lastStep == null ? 0 : lastStep.getStep());
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (failed) {
+            return;
+        }
+        try {
+            steps.close();
+            blocks.close();
+            childrenTmp.close();
+            states.close();
+            memory.close();
+            code.close();
+            data.close();
+            mmaps.close();
+            brks.close();
+            syscalls.close();
+
+            if (stepCount > 0) {
+                // like Analysis.finish: the first step always starts a subroutine
+                try (MappedRegion in = new MappedRegion(new File(dir, TraceIndex.STEPS), false)) {
+                    long pc = in.getLong(8);
+                    if (symbols.get(pc) == null) {
+                        symbols.addSubroutine(pc, "_start");
+                    }
+                }
+            }
+
+            writeChildren();
+            writeLines();
+            writePCs();
+            writeMeta();
+
+            // the header is written last, it marks the index as complete
+            writeHeader();
+            log.log(Levels.INFO, "Trace index written: " + stepCount + " steps, " + blockCount + " blocks, " + memoryCount + " memory accesses");
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+}
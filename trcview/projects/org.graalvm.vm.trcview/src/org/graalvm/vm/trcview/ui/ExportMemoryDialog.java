@@ -13,6 +13,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import javax.swing.BoxLayout;
@@ -29,6 +30,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.Page;
 import org.graalvm.vm.trcview.analysis.memory.VirtualMemorySnapshot;
 import org.graalvm.vm.util.HexFormatter;
 import org.graalvm.vm.util.log.Levels;
@@ -260,14 +262,23 @@ public class ExportMemoryDialog extends JDialog {
             tail = "...";
         }
 
-        for (int i = 0; i < cnt; i++) {
+        byte[] data = new byte[Page.SIZE];
+        for (int i = 0; i < cnt;) {
+            long ptr = addr + i;
+            int len = (int) Math.min(cnt - i, Page.SIZE - (ptr & (Page.SIZE - 1)));
+            byte[] chunk = len == data.length ? data : new byte[len];
             try {
-                byte b = memory.getI8(addr + i);
-                buf.append(HexFormatter.tohex(Byte.toUnsignedInt(b), 2));
-                buf.append(' ');
+                memory.read(ptr, chunk);
+                for (int j = 0; j < len; j++) {
+                    buf.append(HexFormatter.tohex(Byte.toUnsignedInt(chunk[j]), 2));
+                    buf.append(' ');
+                }
             } catch (MemoryNotMappedException e) {
-                buf.append("-- ");
+                for (int j = 0; j < len; j++) {
+                    buf.append("-- ");
+                }
             }
+            i += len;
         }
 
         return buf.append(tail).toString().trim();
@@ -286,18 +297,22 @@ public class ExportMemoryDialog extends JDialog {
         boolean ignore = ignoreUnmapped.isSelected();
         log.info(String.format("Dumping memory from 0x%x to 0x%x to file %s", start, end, filename));
         try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
-            for (long ptr = start; ptr < end; ptr++) {
-                byte b = 0;
+            byte[] data = new byte[Page.SIZE];
+            for (long ptr = start; ptr < end;) {
+                int len = (int) Math.min(end - ptr, Page.SIZE - (ptr & (Page.SIZE - 1)));
+                byte[] chunk = len == data.length ? data : new byte[len];
                 try {
-                    b = memory.getI8(ptr);
+                    memory.read(ptr, chunk);
                 } catch (MemoryNotMappedException e) {
                     if (!ignore) {
                         log.warning("Memory dump failed due to unmapped memory: " + e.getMessage());
                         JOptionPane.showMessageDialog(this, e.getMessage(), "Memory not mapped", JOptionPane.ERROR_MESSAGE);
                         return;
                     }
+                    Arrays.fill(chunk, (byte) 0);
                 }
-                out.write(b);
+                out.write(chunk);
+                ptr += len;
             }
         }
         log.info("Memory dump complete");
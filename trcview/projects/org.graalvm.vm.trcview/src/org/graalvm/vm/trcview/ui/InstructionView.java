@@ -49,7 +49,10 @@ import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -107,6 +110,8 @@ public class InstructionView extends JPanel {
 
     public static final int COMMENT_COLUMN = 48;
 
+    private static final int LINE_CACHE_SIZE = 4096;
+
     private boolean reduceIntensity = true;
 
     private int tabSize = 16;
@@ -125,11 +130,34 @@ public class InstructionView extends JPanel {
 
     private boolean useAutocomment = false;
 
+    private final Map<Long, CachedLine> lines;
+    private boolean cacheable;
+    private long lineHits;
+    private long lineMisses;
+
+    private static class CachedLine {
+        final String text;
+        final int width;
+
+        CachedLine(String text, int width) {
+            this.text = text;
+            this.width = width;
+        }
+    }
+
     public InstructionView(Consumer<String> status, Consumer<Long> position) {
         super(new BorderLayout());
         this.status = status;
         changeListeners = new ArrayList<>();
         callListeners = new ArrayList<>();
+        lines = new LinkedHashMap<Long, CachedLine>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<Long, CachedLine> eldest) {
+                return size() > LINE_CACHE_SIZE;
+            }
+        };
 
         instructions = new Block() {
             @Override
@@ -215,13 +243,30 @@ public class InstructionView extends JPanel {
 
     public void setAutocomment(boolean autocomment) {
         useAutocomment = autocomment;
-        insns.repaint();
+        invalidate();
     }
 
     public void update() {
+        invalidate();
+    }
+
+    /**
+     * Drops all rendered lines and repaints the view. This has to be called whenever something
+     * changes which is part of the line text, like symbols, comments or expressions.
+     */
+    public void invalidate() {
+        lines.clear();
         insns.repaint();
     }
 
+    public long getLineCacheHits() {
+        return lineHits;
+    }
+
+    public long getLineCacheMisses() {
+        return lineMisses;
+    }
+
     private static void getName(StringBuilder buf, Location loc, StepFormat fmt) {
         Symbol sym = loc.getSymbol();
         if (sym != null) {
@@ -236,6 +281,11 @@ public class InstructionView extends JPanel {
     public void setTraceAnalyzer(TraceAnalyzer trc) {
         this.trc = trc;
         tabSize = trc.getArchitecture().getTabSize();
+        lines.clear();
+        trc.addSymbolRenameListener(sym -> invalidate());
+        trc.addSymbolChangeListener(this::invalidate);
+        trc.addCommentChangeListener(this::invalidate);
+        trc.addABIChangeListener(this::invalidate);
     }
 
     public void addChangeListener(ChangeListener listener) {
@@ -347,6 +397,8 @@ public class InstructionView extends JPanel {
             expr = trc.evaluateExpression(step.getState());
         } catch (EvaluationException e) {
             status.accept(e.getMessage());
+            // keep reporting the error
+            cacheable = false;
         }
         String comment1 = trc.getCommentForPC(step.getPC());
         String comment2 = trc.getCommentForInsn(step.getStep());
@@ -502,15 +554,19 @@ public class InstructionView extends JPanel {
         }
     }
 
-    private void updatePrototype(String text) {
+    private void updatePrototype(CachedLine line) {
         if (maxwidth < 1) {
             return;
         }
 
-        String plain = stripHTML(text);
-        if (plain.length() > maxwidth) {
-            maxwidth = plain.length();
-            insns.setPrototypeCellValue(text);
+        int width = line.width;
+        if (width == 0) {
+            // line was rendered while the prototype was not used
+            width = stripHTML(line.text).length();
+        }
+        if (width > maxwidth) {
+            maxwidth = width;
+            insns.setPrototypeCellValue(line.text);
         }
     }
 
@@ -583,6 +639,23 @@ public class InstructionView extends JPanel {
         @Override
         public String getElementAt(int i) {
             Node n = instructions.get(i);
+            CachedLine line = lines.get(n.getId());
+            if (line != null) {
+                lineHits++;
+            } else {
+                lineMisses++;
+                cacheable = true;
+                String text = render(i, n);
+                line = new CachedLine(text, maxwidth < 1 ? 0 : stripHTML(text).length());
+                if (cacheable) {
+                    lines.put(n.getId(), line);
+                }
+            }
+            updatePrototype(line);
+            return line.text;
+        }
+
+        private String render(int i, Node n) {
             if (n instanceof Event) {
                 StepEvent step = (StepEvent) n;
                 if (i + 1 < instructions.size()) {
@@ -593,13 +666,9 @@ public class InstructionView extends JPanel {
                     } else {
                         next = (StepEvent) nn;
                     }
-                    String result = format(step, next, true);
-                    updatePrototype(result);
-                    return result;
+                    return format(step, next, true);
                 } else {
-                    String result = format(step, null, true);
-                    updatePrototype(result);
-                    return result;
+                    return format(step, null, true);
                 }
             } else if (n instanceof BlockNode) {
                 StepEvent step = ((BlockNode) n).getHead();
@@ -710,9 +779,7 @@ public class InstructionView extends JPanel {
                         buf.append("</span></pre></body></html>");
                     }
                 }
-                String result = buf.toString();
-                updatePrototype(result);
-                return result;
+                return buf.toString();
             } else {
                 throw new IllegalStateException("invalid node type: " + n.getClass().getSimpleName());
             }
@@ -47,15 +47,12 @@ import java.awt.FileDialog;
 import java.awt.Font;
 import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -65,6 +62,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -120,10 +118,14 @@ import org.graalvm.vm.trcview.expression.ast.Expression;
 import org.graalvm.vm.trcview.io.ABISerializer;
 import org.graalvm.vm.trcview.io.BlockNode;
 import org.graalvm.vm.trcview.io.Node;
+import org.graalvm.vm.trcview.io.ProgressListener;
 import org.graalvm.vm.trcview.io.TextSerializer;
 import org.graalvm.vm.trcview.io.TraceParser;
+import org.graalvm.vm.trcview.net.Indexed;
 import org.graalvm.vm.trcview.net.Local;
 import org.graalvm.vm.trcview.net.TraceAnalyzer;
+import org.graalvm.vm.trcview.storage.TraceIndex;
+import org.graalvm.vm.trcview.storage.TraceIndexWriter;
 import org.graalvm.vm.trcview.ui.TraceView.ThreadID;
 import org.graalvm.vm.trcview.ui.Watches.Watch;
 import org.graalvm.vm.trcview.ui.call.ABIEditor;
@@ -178,9 +180,11 @@ public class MainWindow extends JFrame implements TraceListenable {
     private JMenuItem gotoPC;
     private JMenuItem gotoInsn;
     private JMenuItem gotoNext;
+    private JMenuItem gotoPrevious;
     private JMenuItem exportMemory;
     private JCheckBoxMenuItem typeRecovery;
     private JCheckBoxMenuItem codeAnalysis;
+    private JCheckBoxMenuItem useIndex;
     private JCheckBoxMenuItem useSymbols;
     private JCheckBoxMenuItem autoComment;
     private JMenu subviewMenu;
@@ -761,6 +765,24 @@ public class MainWindow extends JFrame implements TraceListenable {
         });
         gotoNext.setEnabled(false);
         viewMenu.add(gotoNext);
+        gotoPrevious = new JMenuItem("Goto previous");
+        gotoPrevious.setMnemonic('v');
+        gotoPrevious.setAccelerator(KeyStroke.getKeyStroke('C'));
+        gotoPrevious.addActionListener(e -> {
+            StepEvent step = view.getSelectedInstruction();
+            if (step != null) {
+                long pc = step.getPC();
+                Node n = trc.getPreviousPC(view.getSelectedNode(), pc);
+                if (n != null) {
+                    log.info("Jumping to previous occurence of PC=0x" + HexFormatter.tohex(pc));
+                    view.jump(n);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Error: cannot find a previous instruction at 0x" + HexFormatter.tohex(pc), "Goto previous", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        gotoPrevious.setEnabled(false);
+        viewMenu.add(gotoPrevious);
         menu.add(viewMenu);
 
         JMenu toolsMenu = new JMenu("Tools");
@@ -776,6 +798,11 @@ public class MainWindow extends JFrame implements TraceListenable {
         codeAnalysis.setSelected(true);
         toolsMenu.add(codeAnalysis);
 
+        useIndex = new JCheckBoxMenuItem("Use trace index");
+        useIndex.setMnemonic('i');
+        useIndex.setSelected(false);
+        toolsMenu.add(useIndex);
+
         useSymbols = new JCheckBoxMenuItem("Use symbols/labels");
         useSymbols.setMnemonic('s');
         useSymbols.setSelected(false);
@@ -910,9 +937,13 @@ public class MainWindow extends JFrame implements TraceListenable {
         log.info("Loading file " + file + "...");
         open.setEnabled(false);
         long start = System.currentTimeMillis();
-        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+        try (TraceFileReader reader = new TraceFileReader(file)) {
             long size = file.length();
-            load(new TraceFileReader(in), size, file.toString());
+            if (useIndex.isSelected()) {
+                loadIndexed(file, reader, size);
+            } else {
+                load(reader, size, file.toString());
+            }
         } catch (Throwable t) {
             log.log(Level.INFO, "Loading failed: " + t, t);
             setStatus("Loading failed: " + t);
@@ -948,6 +979,7 @@ public class MainWindow extends JFrame implements TraceListenable {
         gotoPC.setEnabled(true);
         gotoInsn.setEnabled(true);
         gotoNext.setEnabled(true);
+        gotoPrevious.setEnabled(true);
         exportMemory.setEnabled(true);
         subviewMenu.setEnabled(true);
         pluginLoader.traceLoaded(trc);
@@ -955,6 +987,71 @@ public class MainWindow extends JFrame implements TraceListenable {
         setTraceAnalyzer(trc);
     }
 
+    private void loadIndexed(File file, TraceReader reader, long size) throws IOException {
+        String text = "Indexing " + file;
+        setStatus(text);
+        setPosition(-1);
+        if (TraceIndex.isValid(file)) {
+            log.info("Using existing trace index for " + file);
+        } else {
+            TraceIndexWriter writer = new TraceIndexWriter(file);
+            TraceParser.index(reader, writer, pos -> setStatus(text + " (" + (pos * 100L / size) + "%)"));
+            if (writer.isFailed()) {
+                setStatus("Indexing failed");
+                return;
+            }
+        }
+
+        TraceIndex index = TraceIndex.open(file);
+        if (index.getStepCount() == 0) {
+            index.close();
+            setStatus("Loading failed");
+            return;
+        }
+
+        setStatus("Trace loaded");
+        setTitle(file + " - " + WINDOW_TITLE);
+
+        EventQueue.invokeLater(() -> {
+            TraceAnalyzer t = new Indexed(index);
+            reader.finish(t);
+            setTrace(t);
+        });
+    }
+
+    private class LoadProgress implements ProgressListener {
+        private final String text;
+        private final long size;
+        private final Map<String, String> stages = new LinkedHashMap<>();
+        private long pos = 0;
+
+        LoadProgress(String text, long size) {
+            this.text = text;
+            this.size = size;
+        }
+
+        private void update() {
+            StringBuilder buf = new StringBuilder(text);
+            buf.append(" (").append(pos * 100L / size).append("%)");
+            for (Entry<String, String> stage : stages.entrySet()) {
+                buf.append(", ").append(stage.getKey()).append(": ").append(stage.getValue());
+            }
+            setStatus(buf.toString());
+        }
+
+        @Override
+        public synchronized void progressUpdate(long value) {
+            pos = value;
+            update();
+        }
+
+        @Override
+        public synchronized void stageUpdate(String stage, long events, long rate) {
+            stages.put(stage, events + " events, " + rate + "/s");
+            update();
+        }
+    }
+
     public void load(TraceReader reader, long size, String file) throws IOException {
         log.info("Loading file " + file + "...");
         open.setEnabled(false);
@@ -979,8 +1076,10 @@ public class MainWindow extends JFrame implements TraceListenable {
                 }
             }
             Analysis analysis = new Analysis(reader.getArchitecture(), analyzers, typeRecovery.isSelected(), codeAnalysis.isSelected());
+            LoadProgress progress = new LoadProgress(text, size);
+            analysis.setParallel(Runtime.getRuntime().availableProcessors() > 1, progress);
             analysis.start();
-            Map<Integer, BlockNode> threads = TraceParser.parse(reader, analysis, pos -> setStatus(text + " (" + (pos * 100L / size) + "%)"));
+            Map<Integer, BlockNode> threads = TraceParser.parse(reader, analysis, progress);
             BlockNode root = null;
             for (BlockNode block : threads.values()) {
                 if (root == null) {
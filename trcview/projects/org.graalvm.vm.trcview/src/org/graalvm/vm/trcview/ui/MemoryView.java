@@ -9,6 +9,8 @@ import java.awt.GridLayout;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.function.Consumer;
 
 import javax.swing.JButton;
@@ -21,6 +23,7 @@ import javax.swing.UIManager;
 import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
 import org.graalvm.vm.trcview.analysis.memory.MemoryRead;
 import org.graalvm.vm.trcview.analysis.memory.MemoryUpdate;
+import org.graalvm.vm.trcview.analysis.memory.Page;
 import org.graalvm.vm.trcview.arch.io.StepEvent;
 import org.graalvm.vm.trcview.arch.io.StepFormat;
 import org.graalvm.vm.trcview.expression.EvaluationException;
@@ -193,28 +196,10 @@ public class MemoryView extends JPanel {
         return value >= 0x20 && value <= 0x7e; // ascii
     }
 
-    private byte getI8(long addr) throws MemoryNotMappedException {
-        return trc.getI8(addr, insn);
-    }
-
     private boolean isHighlight(long ptr) {
         return Long.compareUnsigned(ptr, highlightStart) >= 0 && Long.compareUnsigned(ptr, highlightEnd) <= 0;
     }
 
-    private boolean isChanged(long addr) {
-        try {
-            long prev = insn - 1;
-            if (insn == 0) {
-                prev = 0;
-            }
-            byte val1 = trc.getI8(addr, prev);
-            byte val2 = trc.getI8(addr, insn);
-            return val1 != val2;
-        } catch (MemoryNotMappedException e) {
-            return false;
-        }
-    }
-
     private long eval() {
         if (expr == null) {
             return 0;
@@ -242,6 +227,29 @@ public class MemoryView extends JPanel {
         byte[] line = new byte[LINESZ];
         boolean[] linevalid = new boolean[LINESZ];
         boolean[] linechange = new boolean[LINESZ];
+
+        // fetch the whole range page by page, unmapped pages are shown as "--"
+        byte[] data = new byte[size];
+        boolean[] valid = new boolean[size];
+        for (int i = 0; i < size;) {
+            long addr = ptr + i;
+            int len = (int) Math.min(size - i, Page.SIZE - (addr & (Page.SIZE - 1)));
+            byte[] chunk = new byte[len];
+            try {
+                trc.read(addr, chunk, insn);
+                System.arraycopy(chunk, 0, data, i, len);
+                Arrays.fill(valid, i, i + len, true);
+            } catch (MemoryNotMappedException e) {
+                // not mapped
+            }
+            i += len;
+        }
+        long prev = insn - 1;
+        if (insn == 0) {
+            prev = 0;
+        }
+        BitSet changed = trc.changedBytes(ptr, size, prev, insn);
+
         for (int i = 0; i < size; i++) {
             byte u8;
             nl = true;
@@ -252,7 +260,7 @@ public class MemoryView extends JPanel {
             if (isHighlight(ptr)) {
                 buf.append("<span class=\"highlight\">");
             }
-            boolean change = isChanged(ptr);
+            boolean change = changed.get(i);
             if (change) {
                 if (ptr == address) {
                     buf.append("<span class=\"changeaddr\">");
@@ -262,13 +270,13 @@ public class MemoryView extends JPanel {
             } else if (ptr == address) {
                 buf.append("<span class=\"address\">");
             }
-            try {
-                u8 = getI8(ptr);
+            if (valid[i]) {
+                u8 = data[i];
                 line[i % LINESZ] = u8;
                 linevalid[i % LINESZ] = true;
                 linechange[i % LINESZ] = change;
                 buf.append(HexFormatter.tohex(Byte.toUnsignedInt(u8), 2));
-            } catch (MemoryNotMappedException e) {
+            } else {
                 linevalid[i % LINESZ] = false;
                 buf.append("--");
             }
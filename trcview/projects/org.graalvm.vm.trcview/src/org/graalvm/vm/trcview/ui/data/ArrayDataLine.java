@@ -11,6 +11,7 @@ import org.graalvm.vm.trcview.decode.DecoderUtils;
 import org.graalvm.vm.trcview.net.TraceAnalyzer;
 import org.graalvm.vm.trcview.ui.data.editor.DefaultElement;
 import org.graalvm.vm.trcview.ui.data.editor.Element;
+import org.graalvm.vm.util.io.Endianess;
 
 public class ArrayDataLine extends DataLine {
     public static final int MAX_LENGTH = 16;
@@ -81,72 +82,62 @@ public class ArrayDataLine extends DataLine {
 
     @Override
     protected void addData(List<Element> result) {
+        int size = (int) type.getElementSize();
+        long ptr = addr + offset + start * type.getElementSize();
+        switch (size) {
+            case 1:
+                result.add(new DefaultElement("DCB", Element.TYPE_KEYWORD));
+                break;
+            case 2:
+                result.add(new DefaultElement("DCW", Element.TYPE_KEYWORD));
+                break;
+            case 4:
+                result.add(new DefaultElement("DCD", Element.TYPE_KEYWORD));
+                break;
+            case 8:
+                result.add(new DefaultElement("DCQ", Element.TYPE_KEYWORD));
+                break;
+            default:
+                result.add(new DefaultElement("DC?", Element.TYPE_KEYWORD));
+                result.add(new DefaultElement("    ??? ", Element.TYPE_PLAIN));
+                result.add(new DefaultElement("; unknown size " + size, Element.TYPE_COMMENT));
+                return;
+        }
+        result.add(new DefaultElement("    ", Element.TYPE_PLAIN));
+
+        // fetch all elements of the line at once
+        byte[] data = new byte[(int) (length * size)];
         try {
-            int size = (int) type.getElementSize();
-            long ptr = addr + offset + start * type.getElementSize();
-            boolean comma = false;
-            switch (size) {
-                case 1:
-                    result.add(new DefaultElement("DCB", Element.TYPE_KEYWORD));
-                    result.add(new DefaultElement("    ", Element.TYPE_PLAIN));
-                    for (long i = 0; i < length; i++) {
-                        long p = ptr + i * type.getElementSize();
-                        byte val = trc.getI8(ptr + i * type.getElementSize(), step);
-                        if (comma) {
-                            result.add(new DefaultElement(", ", Element.TYPE_PLAIN));
-                        }
-                        result.add(encode(val, p));
-                        comma = true;
-                    }
-                    break;
-                case 2:
-                    result.add(new DefaultElement("DCW", Element.TYPE_KEYWORD));
-                    result.add(new DefaultElement("    ", Element.TYPE_PLAIN));
-                    for (long i = 0; i < length; i++) {
-                        long p = ptr + i * type.getElementSize();
-                        short val = trc.getI16(p, step);
-                        if (comma) {
-                            result.add(new DefaultElement(", ", Element.TYPE_PLAIN));
-                        }
-                        result.add(encode(val, p));
-                        comma = true;
-                    }
-                    break;
-                case 4:
-                    result.add(new DefaultElement("DCD", Element.TYPE_KEYWORD));
-                    result.add(new DefaultElement("    ", Element.TYPE_PLAIN));
-                    for (long i = 0; i < length; i++) {
-                        long p = ptr + i * type.getElementSize();
-                        int val = trc.getI32(ptr + i * type.getElementSize(), step);
-                        if (comma) {
-                            result.add(new DefaultElement(", ", Element.TYPE_PLAIN));
-                        }
-                        result.add(encode(val, p));
-                        comma = true;
-                    }
-                    break;
-                case 8:
-                    result.add(new DefaultElement("DCQ", Element.TYPE_KEYWORD));
-                    result.add(new DefaultElement("    ", Element.TYPE_PLAIN));
-                    for (long i = 0; i < length; i++) {
-                        long p = ptr + i * type.getElementSize();
-                        long val = trc.getI64(ptr + i * type.getElementSize(), step);
-                        if (comma) {
-                            result.add(new DefaultElement(", ", Element.TYPE_PLAIN));
-                        }
-                        result.add(encode(val, p));
-                        comma = true;
-                    }
-                    break;
-                default:
-                    result.add(new DefaultElement("DC?", Element.TYPE_KEYWORD));
-                    result.add(new DefaultElement("    ??? ", Element.TYPE_PLAIN));
-                    result.add(new DefaultElement("; unknown size " + size, Element.TYPE_COMMENT));
-                    break;
-            }
+            trc.read(ptr, data, step);
         } catch (MemoryNotMappedException e) {
             result.add(new DefaultElement("??? ", Element.TYPE_PLAIN));
             result.add(new DefaultElement("; memory not mapped", Element.TYPE_COMMENT));
+            return;
+        }
+
+        boolean be = trc.getArchitecture().getFormat().be;
+        for (int i = 0; i < length; i++) {
+            long p = ptr + i * size;
+            long val = getElement(data, i * size, size, be);
+            if (i > 0) {
+                result.add(new DefaultElement(", ", Element.TYPE_PLAIN));
+            }
+            result.add(encode(val, p));
+        }
+    }
+
+    private static long getElement(byte[] data, int off, int size, boolean be) {
+        switch (size) {
+            case 1:
+                return data[off];
+            case 2:
+                return be ? Endianess.get16bitBE(data, off) : Endianess.get16bitLE(data, off);
+            case 4:
+                return be ? Endianess.get32bitBE(data, off) : Endianess.get32bitLE(data, off);
+            case 8:
+                return be ? Endianess.get64bitBE(data, off) : Endianess.get64bitLE(data, off);
+            default:
+                throw new IllegalArgumentException("unknown size " + size);
         }
     }
 }
@@ -1,8 +1,8 @@
 package org.graalvm.vm.trcview.ui.data;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import org.graalvm.vm.trcview.analysis.type.DataType;
 import org.graalvm.vm.trcview.analysis.type.Representation;
@@ -56,7 +56,7 @@ public class CodeDataLine extends DataLine {
             DynamicTypePropagation typeRecovery = trc.getTypeRecovery();
             StepEvent event = null;
             if (typeRecovery != null) {
-                Set<StepEvent> steps = typeRecovery.getSemantics().getSteps(addr + offset);
+                Collection<StepEvent> steps = typeRecovery.getSemantics().getSteps(addr + offset);
                 Iterator<StepEvent> i = steps.iterator();
                 if (i.hasNext()) {
                     event = i.next();
@@ -68,7 +68,7 @@ public class CodeDataLine extends DataLine {
             }
 
             if (event != null) {
-                disasm = event.disassemble(trc);
+                disasm = trc.getDisassemblyCache().disassemble(event);
             } else {
                 disasm = null;
             }
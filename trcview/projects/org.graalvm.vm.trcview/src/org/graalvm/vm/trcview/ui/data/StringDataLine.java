@@ -3,6 +3,7 @@ package org.graalvm.vm.trcview.ui.data;
 import java.util.List;
 
 import org.graalvm.vm.trcview.analysis.memory.MemoryNotMappedException;
+import org.graalvm.vm.trcview.analysis.memory.Page;
 import org.graalvm.vm.trcview.analysis.type.Type;
 import org.graalvm.vm.trcview.decode.DecoderUtils;
 import org.graalvm.vm.trcview.net.TraceAnalyzer;
@@ -45,15 +46,23 @@ public class StringDataLine extends DataLine {
         try {
             long ptr = addr + offset + start * sz;
             buf.append('"');
-            for (long i = 0; i < length; i++) {
-                int b;
-                if (sz == 2) {
-                    b = Short.toUnsignedInt(trc.getI16(ptr, step));
-                } else {
-                    b = Byte.toUnsignedInt(trc.getI8(ptr, step));
+            if (sz == 2) {
+                for (long i = 0; i < length; i++) {
+                    int b = Short.toUnsignedInt(trc.getI16(ptr, step));
+                    ptr += sz;
+                    buf.append(DecoderUtils.encode(b));
+                }
+            } else {
+                for (long i = 0; i < length;) {
+                    int len = (int) Math.min(length - i, Page.SIZE - (ptr & (Page.SIZE - 1)));
+                    byte[] data = new byte[len];
+                    trc.read(ptr, data, step);
+                    for (byte b : data) {
+                        buf.append(DecoderUtils.encode(Byte.toUnsignedInt(b)));
+                    }
+                    ptr += len;
+                    i += len;
                 }
-                ptr += sz;
-                buf.append(DecoderUtils.encode(b));
             }
             buf.append('"');
             val = buf.toString();
@@ -6,7 +6,6 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -308,8 +307,8 @@ public class TypeRecoveryDialog extends JDialog implements StepListener {
             CodeSemantics cs = (CodeSemantics) semantics;
             for (int i = 0; i < regcount; i++) {
                 RegisterTypeMap map = cs.get(pc);
-                Set<ChainTarget> forward = map.getForwardChain(i);
-                Set<ChainTarget> reverse = map.getReverseChain(i);
+                List<ChainTarget> forward = map.getForwardChain(i);
+                List<ChainTarget> reverse = map.getReverseChain(i);
 
                 buf.append("register ");
                 buf.append(String.format("%02d", i));
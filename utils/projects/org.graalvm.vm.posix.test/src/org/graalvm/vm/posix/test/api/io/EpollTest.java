@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.test.api.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.graalvm.vm.posix.api.BytePosixPointer;
+import org.graalvm.vm.posix.api.Errno;
+import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.io.Epoll;
+import org.graalvm.vm.posix.api.io.EpollEvent;
+import org.graalvm.vm.posix.api.io.EpollStream;
+import org.graalvm.vm.posix.api.io.EventFdStream;
+import org.graalvm.vm.posix.api.io.EventPoll;
+import org.graalvm.vm.posix.api.io.Fcntl;
+import org.graalvm.vm.posix.api.io.Fifo;
+import org.graalvm.vm.posix.api.io.FifoStream;
+import org.graalvm.vm.posix.api.io.Poll;
+import org.graalvm.vm.posix.api.net.Socket;
+import org.graalvm.vm.posix.api.net.SockaddrIn;
+import org.graalvm.vm.posix.api.net.StreamSocketStream;
+import org.graalvm.vm.util.io.Endianess;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EpollTest {
+    private EventPoll poll;
+
+    @Before
+    public void setup() throws PosixException {
+        poll = new EventPoll();
+    }
+
+    @After
+    public void teardown() {
+        poll.close();
+    }
+
+    private static void signal(EventFdStream efd, long value) throws PosixException {
+        byte[] buf = new byte[8];
+        Endianess.set64bitLE(buf, value);
+        assertEquals(8, efd.write(buf, 0, 8));
+    }
+
+    private static long consume(EventFdStream efd) throws PosixException {
+        byte[] buf = new byte[8];
+        assertEquals(8, efd.read(buf, 0, 8));
+        return Endianess.get64bitLE(buf);
+    }
+
+    // sin_port is signed, so the server needs a port below 32768
+    private static int bind(ServerSocketChannel server) throws IOException {
+        for (int port = 20000;; port++) {
+            try {
+                server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                return port;
+            } catch (IOException e) {
+                if (port == 20100) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void connect(StreamSocketStream socket, int port) throws PosixException {
+        SockaddrIn addr = new SockaddrIn();
+        addr.sa_family = (short) Socket.AF_INET;
+        addr.sin_port = (short) port;
+        addr.sin_addr = 0x7F000001;
+        BytePosixPointer ptr = new BytePosixPointer(new byte[16]);
+        addr.write(ptr);
+        assertEquals(0, socket.connect(ptr, 16));
+    }
+
+    @Test(timeout = 5000)
+    public void testTimeout() throws PosixException {
+        EventFdStream efd = new EventFdStream(0, 0);
+        poll.add(0, efd, Poll.POLLIN, 42);
+        EpollEvent[] events = new EpollEvent[4];
+        long start = System.currentTimeMillis();
+        assertEquals(0, poll.wait(events, 50));
+        assertTrue(System.currentTimeMillis() - start >= 40);
+        assertEquals(0, poll.wait(events, 0));
+    }
+
+    @Test(timeout = 5000)
+    public void testLevelTriggered() throws PosixException {
+        EventFdStream efd = new EventFdStream(0, 0);
+        poll.add(0, efd, Poll.POLLIN, 42);
+        EpollEvent[] events = new EpollEvent[4];
+        signal(efd, 3);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, poll.wait(events, 0));
+            assertEquals(42, events[0].data);
+            assertEquals(Poll.POLLIN, events[0].events);
+        }
+        assertEquals(3, consume(efd));
+        assertEquals(0, poll.wait(events, 0));
+    }
+
+    @Test(timeout = 5000)
+    public void testEdgeTriggered() throws PosixException {
+        EventFdStream efd = new EventFdStream(0, 0);
+        poll.add(0, efd, Poll.POLLIN | Epoll.EPOLLET, 7);
+        EpollEvent[] events = new EpollEvent[4];
+        signal(efd, 1);
+        assertEquals(1, poll.wait(events, 0));
+        assertEquals(7, events[0].data);
+        // still readable, but no new edge
+        assertEquals(0, poll.wait(events, 0));
+        signal(efd, 1);
+        assertEquals(1, poll.wait(events, 0));
+        assertEquals(2, consume(efd));
+    }
+
+    @Test(timeout = 5000)
+    public void testSocketEdgeTriggered() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            StreamSocketStream socket = new StreamSocketStream();
+            connect(socket, bind(server));
+            try (SocketChannel peer = server.accept()) {
+                socket.setFlags(Fcntl.O_RDWR | Fcntl.O_NONBLOCK);
+                poll.add(0, socket, Poll.POLLOUT | Epoll.EPOLLET, 3);
+                EpollEvent[] events = new EpollEvent[4];
+                assertEquals(1, poll.wait(events, 0));
+                assertEquals(3, events[0].data);
+                // still writable, but no new edge
+                assertEquals(0, poll.wait(events, 0));
+                assertEquals(0, poll.wait(events, 20));
+                // writing re-arms the notification
+                assertEquals(1, socket.write(new byte[1], 0, 1));
+                assertEquals(1, poll.wait(events, 1000));
+                assertEquals(0, poll.wait(events, 0));
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBlockingSocket() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            StreamSocketStream socket = new StreamSocketStream();
+            connect(socket, bind(server));
+            try (SocketChannel peer = server.accept()) {
+                poll.add(0, socket, Poll.POLLIN, 5);
+                EpollEvent[] events = new EpollEvent[4];
+                // no data: a read would block, so the socket is not ready
+                long start = System.currentTimeMillis();
+                assertEquals(0, poll.wait(events, 50));
+                assertTrue(System.currentTimeMillis() - start >= 40);
+                assertEquals(0, poll.wait(events, 0));
+                // the blocking mode is restored after the wait
+                assertTrue(socket.getChannel().isBlocking());
+                assertFalse(socket.getChannel().isRegistered());
+
+                peer.write(ByteBuffer.wrap(new byte[]{42}));
+                assertEquals(1, poll.wait(events, 1000));
+                assertEquals(5, events[0].data);
+                assertEquals(Poll.POLLIN, events[0].events);
+                assertTrue(socket.getChannel().isBlocking());
+                byte[] buf = new byte[1];
+                assertEquals(1, socket.read(buf, 0, 1));
+                assertEquals(42, buf[0]);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBlockingSocketConcurrentRead() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            StreamSocketStream socket = new StreamSocketStream();
+            connect(socket, bind(server));
+            try (SocketChannel peer = server.accept()) {
+                poll.add(0, socket, Poll.POLLIN, 5);
+                byte[] buf = new byte[1];
+                int[] result = new int[1];
+                Thread t = new Thread(() -> {
+                    try {
+                        result[0] = socket.read(buf, 0, 1);
+                    } catch (PosixException e) {
+                        result[0] = -e.getErrno();
+                    }
+                });
+                t.start();
+                // the reader blocks in blocking mode, polling must not disturb it
+                EpollEvent[] events = new EpollEvent[4];
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(0, poll.wait(events, 20));
+                }
+                peer.write(ByteBuffer.wrap(new byte[]{42}));
+                t.join();
+                assertEquals(1, result[0]);
+                assertEquals(42, buf[0]);
+                assertTrue(socket.getChannel().isBlocking());
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testOneShot() throws PosixException {
+        EventFdStream efd = new EventFdStream(1, 0);
+        poll.add(0, efd, Poll.POLLIN | Epoll.EPOLLONESHOT, 7);
+        EpollEvent[] events = new EpollEvent[4];
+        assertEquals(1, poll.wait(events, 0));
+        assertEquals(0, poll.wait(events, 0));
+        poll.modify(0, Poll.POLLIN | Epoll.EPOLLONESHOT, 8);
+        assertEquals(1, poll.wait(events, 0));
+        assertEquals(8, events[0].data);
+    }
+
+    @Test
+    public void testDuplicateAndMissing() throws PosixException {
+        EventFdStream efd = new EventFdStream(0, 0);
+        poll.add(0, efd, Poll.POLLIN, 0);
+        try {
+            poll.add(0, efd, Poll.POLLIN, 0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EEXIST, e.getErrno());
+        }
+        poll.remove(0);
+        try {
+            poll.remove(0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.ENOENT, e.getErrno());
+        }
+        assertEquals(0, poll.size());
+    }
+
+    @Test
+    public void testMaxEvents() throws PosixException {
+        EpollStream epoll = new EpollStream();
+        try {
+            for (int maxevents : new int[]{0, -1, Epoll.EP_MAX_EVENTS + 1}) {
+                try {
+                    epoll.wait(maxevents, 0);
+                    fail();
+                } catch (PosixException e) {
+                    assertEquals(Errno.EINVAL, e.getErrno());
+                }
+            }
+            EventFdStream efd1 = new EventFdStream(1, 0);
+            EventFdStream efd2 = new EventFdStream(1, 0);
+            epoll.ctl(Epoll.EPOLL_CTL_ADD, 3, efd1, new EpollEvent(Poll.POLLIN, 3));
+            epoll.ctl(Epoll.EPOLL_CTL_ADD, 4, efd2, new EpollEvent(Poll.POLLIN, 4));
+            // the result is bounded by the interest set, not by maxevents
+            EpollEvent[] events = epoll.wait(Epoll.EP_MAX_EVENTS, 0);
+            assertEquals(2, events.length);
+            assertEquals(3, events[0].data);
+            assertEquals(4, events[1].data);
+            events = epoll.wait(1, 0);
+            assertEquals(1, events.length);
+        } finally {
+            epoll.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testWakeup() throws Exception {
+        EventFdStream efd = new EventFdStream(0, 0);
+        poll.add(0, efd, Poll.POLLIN, 1);
+        Thread t = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                signal(efd, 1);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        t.start();
+        EpollEvent[] events = new EpollEvent[4];
+        assertEquals(1, poll.wait(events, -1));
+        assertEquals(1, events[0].data);
+        t.join();
+    }
+
+    @Test
+    public void testEventFdSemaphore() throws PosixException {
+        EventFdStream efd = new EventFdStream(2, EventFdStream.EFD_SEMAPHORE | EventFdStream.EFD_NONBLOCK);
+        assertEquals(1, consume(efd));
+        assertEquals(1, consume(efd));
+        try {
+            consume(efd);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EAGAIN, e.getErrno());
+        }
+    }
+
+    @Test
+    public void testEventFdInvalid() throws PosixException {
+        EventFdStream efd = new EventFdStream(0, 0);
+        try {
+            efd.read(new byte[4], 0, 4);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EINVAL, e.getErrno());
+        }
+        try {
+            signal(efd, -1);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EINVAL, e.getErrno());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testPipe() throws PosixException {
+        Fifo fifo = new Fifo();
+        FifoStream r = fifo.getReader();
+        FifoStream w = fifo.getWriter();
+        poll.add(0, r, Poll.POLLIN, 0);
+        poll.add(1, w, Poll.POLLOUT, 1);
+        EpollEvent[] events = new EpollEvent[4];
+        assertEquals(1, poll.wait(events, 0));
+        assertEquals(1, events[0].data);
+
+        byte[] data = {1, 2, 3};
+        assertEquals(3, w.write(data, 0, 3));
+        assertEquals(2, poll.wait(events, 0));
+
+        byte[] buf = new byte[8];
+        assertEquals(3, r.read(buf, 0, 8));
+        assertEquals(3, buf[2]);
+
+        // writer closed: EOF and POLLHUP on the read end
+        poll.remove(1);
+        w.close();
+        assertEquals(1, poll.wait(events, 0));
+        assertTrue((events[0].events & Poll.POLLHUP) != 0);
+        assertEquals(0, r.read(buf, 0, 8));
+    }
+
+    @Test
+    public void testPipeBrokenAndNonBlocking() throws PosixException {
+        Fifo fifo = new Fifo();
+        FifoStream r = fifo.getReader();
+        FifoStream w = fifo.getWriter();
+        r.setFlags(Fcntl.O_RDONLY | Fcntl.O_NONBLOCK);
+        try {
+            r.read(new byte[1], 0, 1);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EAGAIN, e.getErrno());
+        }
+        r.close();
+        try {
+            w.write(new byte[1], 0, 1);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EPIPE, e.getErrno());
+        }
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.test.api.linux;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.graalvm.vm.posix.api.Errno;
+import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.PosixPointer;
+import org.graalvm.vm.posix.api.linux.Futex;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FutexTest {
+    private Futex futex;
+    private int[] memory;
+
+    private class Pointer implements PosixPointer {
+        private final long address;
+
+        Pointer(long address) {
+            this.address = address;
+        }
+
+        @Override
+        public PosixPointer add(long off) {
+            return new Pointer(address + off);
+        }
+
+        @Override
+        public byte getI8() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public short getI16() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public int getI32() {
+            synchronized (memory) {
+                return memory[(int) address / 4];
+            }
+        }
+
+        @Override
+        public long getI64() {
+            return getI32() & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void setI8(byte val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI16(short val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI32(int val) {
+            synchronized (memory) {
+                memory[(int) address / 4] = val;
+            }
+        }
+
+        @Override
+        public void setI64(long val) {
+            setI32((int) val);
+        }
+
+        @Override
+        public long getAddress() {
+            return address;
+        }
+    }
+
+    // timespec stored as two 64bit words in a separate array
+    private static class TimespecPointer implements PosixPointer {
+        private final long[] words;
+        private final int index;
+
+        TimespecPointer(long sec, long nsec) {
+            this(new long[]{sec, nsec}, 0);
+        }
+
+        private TimespecPointer(long[] words, int index) {
+            this.words = words;
+            this.index = index;
+        }
+
+        @Override
+        public PosixPointer add(long off) {
+            return new TimespecPointer(words, index + (int) off / 8);
+        }
+
+        @Override
+        public byte getI8() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public short getI16() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public int getI32() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public long getI64() {
+            return words[index];
+        }
+
+        @Override
+        public void setI8(byte val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI16(short val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI32(int val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI64(long val) {
+            words[index] = val;
+        }
+    }
+
+    // count arguments which are passed in the timeout parameter
+    private static class Count implements PosixPointer {
+        private final int value;
+
+        Count(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public PosixPointer add(long off) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public byte getI8() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public short getI16() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public int getI32() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public long getI64() {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI8(byte val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI16(short val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI32(int val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public void setI64(long val) {
+            throw new AssertionError("not implemented");
+        }
+
+        @Override
+        public long getAddress() {
+            return value;
+        }
+    }
+
+    @Before
+    public void setup() {
+        futex = new Futex();
+        memory = new int[16];
+    }
+
+    private PosixPointer ptr(int index) {
+        return new Pointer(index * 4);
+    }
+
+    private List<Thread> startWaiters(int n, int index, int bitset, AtomicInteger done) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(n);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(() -> {
+                started.countDown();
+                try {
+                    futex.futex(ptr(index), Futex.FUTEX_WAIT_BITSET_PRIVATE, 0, null, null, bitset);
+                    done.incrementAndGet();
+                } catch (PosixException e) {
+                    done.addAndGet(1000);
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+        started.await();
+        return threads;
+    }
+
+    // waits until n threads are queued in the futex
+    private void awaitWaiters(int n) throws InterruptedException {
+        while (futex.getStatistics().stream().mapToLong(x -> x.waits).sum() < n) {
+            Thread.sleep(1);
+        }
+    }
+
+    private int wake(int index, int count, int bitset) throws PosixException {
+        return futex.futex(ptr(index), Futex.FUTEX_WAKE_BITSET_PRIVATE, count, null, null, bitset);
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread t : threads) {
+            t.join(10000);
+            assertFalse(t.isAlive());
+        }
+    }
+
+    @Test
+    public void testWaitValueMismatch() throws PosixException {
+        memory[0] = 1;
+        try {
+            futex.futex(ptr(0), Futex.FUTEX_WAIT_PRIVATE, 0, null, null, 0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EAGAIN, e.getErrno());
+        }
+    }
+
+    @Test
+    public void testWakeWithoutWaiters() throws PosixException {
+        assertEquals(0, futex.futex(ptr(0), Futex.FUTEX_WAKE_PRIVATE, 1, null, null, 0));
+    }
+
+    @Test(timeout = 10000)
+    public void testRelativeTimeout() {
+        long start = System.nanoTime();
+        try {
+            futex.futex(ptr(0), Futex.FUTEX_WAIT_PRIVATE, 0, new TimespecPointer(0, 50_000_000), null, 0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.ETIMEDOUT, e.getErrno());
+        }
+        assertTrue(System.nanoTime() - start >= 50_000_000);
+    }
+
+    @Test(timeout = 10000)
+    public void testAbsoluteTimeout() {
+        long deadline = System.nanoTime() + 50_000_000;
+        try {
+            futex.futex(ptr(0), Futex.FUTEX_WAIT_BITSET_PRIVATE, 0, new TimespecPointer(deadline / 1_000_000_000L, deadline % 1_000_000_000L), null, Futex.FUTEX_BITSET_MATCH_ANY);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.ETIMEDOUT, e.getErrno());
+        }
+        assertTrue(System.nanoTime() >= deadline);
+    }
+
+    @Test
+    public void testInvalidTimeout() {
+        try {
+            futex.futex(ptr(0), Futex.FUTEX_WAIT_PRIVATE, 0, new TimespecPointer(0, 1_000_000_000L), null, 0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EINVAL, e.getErrno());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testExactWakeCount() throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = startWaiters(3, 0, Futex.FUTEX_BITSET_MATCH_ANY, done);
+        awaitWaiters(3);
+        assertEquals(2, wake(0, 2, Futex.FUTEX_BITSET_MATCH_ANY));
+        while (done.get() < 2) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        assertEquals(2, done.get());
+        assertEquals(1, wake(0, 1, Futex.FUTEX_BITSET_MATCH_ANY));
+        join(threads);
+        assertEquals(3, done.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testBitset() throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = startWaiters(1, 0, 0x2, done);
+        awaitWaiters(1);
+        assertEquals(0, wake(0, 1, 0x1));
+        assertEquals(0, done.get());
+        assertEquals(1, wake(0, 1, 0x2));
+        join(threads);
+        assertEquals(1, done.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCmpRequeue() throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = startWaiters(4, 0, Futex.FUTEX_BITSET_MATCH_ANY, done);
+        awaitWaiters(4);
+        // wake one thread, move the others to the second futex
+        assertEquals(4, futex.futex(ptr(0), Futex.FUTEX_CMP_REQUEUE_PRIVATE, 1, new Count(Integer.MAX_VALUE), ptr(1), 0));
+        Thread.sleep(20);
+        assertEquals(1, done.get());
+
+        // the requeued threads wait on the second futex now
+        assertEquals(0, futex.futex(ptr(0), Futex.FUTEX_WAKE_PRIVATE, Integer.MAX_VALUE, null, null, 0));
+        assertEquals(3, futex.futex(ptr(1), Futex.FUTEX_WAKE_PRIVATE, Integer.MAX_VALUE, null, null, 0));
+        join(threads);
+        assertEquals(4, done.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testRequeueSameAddress() throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = startWaiters(4, 0, Futex.FUTEX_BITSET_MATCH_ANY, done);
+        awaitWaiters(4);
+        // every waiter is requeued exactly once, even though it stays on the same futex
+        assertEquals(4, futex.futex(ptr(0), Futex.FUTEX_REQUEUE_PRIVATE, 0, new Count(10), ptr(0), 0));
+        assertEquals(4, futex.futex(ptr(0), Futex.FUTEX_CMP_REQUEUE_PRIVATE, 1, new Count(Integer.MAX_VALUE), ptr(0), 0));
+        assertEquals(3, futex.futex(ptr(0), Futex.FUTEX_WAKE_PRIVATE, Integer.MAX_VALUE, null, null, 0));
+        join(threads);
+        assertEquals(4, done.get());
+    }
+
+    @Test
+    public void testCmpRequeueValueMismatch() {
+        memory[0] = 1;
+        try {
+            futex.futex(ptr(0), Futex.FUTEX_CMP_REQUEUE_PRIVATE, 1, new Count(1), ptr(1), 0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EAGAIN, e.getErrno());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testWakeOp() throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = startWaiters(1, 1, Futex.FUTEX_BITSET_MATCH_ANY, done);
+        awaitWaiters(1);
+        int op = Futex.FUTEX_OP(Futex.FUTEX_OP_ADD, 5, Futex.FUTEX_OP_CMP_EQ, 0);
+        assertEquals(1, futex.futex(ptr(0), Futex.FUTEX_WAKE_OP_PRIVATE, 1, new Count(1), ptr(1), op));
+        assertEquals(5, memory[1]);
+        join(threads);
+
+        // comparison fails: the value is updated, but nobody is woken up
+        op = Futex.FUTEX_OP(Futex.FUTEX_OP_OR | Futex.FUTEX_OP_OPARG_SHIFT, 4, Futex.FUTEX_OP_CMP_LT, 0);
+        assertEquals(0, futex.futex(ptr(0), Futex.FUTEX_WAKE_OP_PRIVATE, 1, new Count(1), ptr(1), op));
+        assertEquals(5 | 16, memory[1]);
+    }
+
+    @Test
+    public void testStatistics() throws PosixException {
+        try {
+            futex.futex(ptr(0), Futex.FUTEX_WAIT_PRIVATE, 0, new TimespecPointer(0, 1000), null, 0);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.ETIMEDOUT, e.getErrno());
+        }
+        List<Futex.Statistics> stats = futex.getStatistics();
+        assertEquals(1, stats.size());
+        assertEquals(1, stats.get(0).waits);
+        assertEquals(1, stats.get(0).timeouts);
+    }
+}
@@ -40,14 +40,22 @@
  */
 package org.graalvm.vm.posix.test.vfs;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import org.graalvm.vm.posix.api.ByteBufferPosixPointer;
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.PosixPointer;
 import org.graalvm.vm.posix.api.io.Fcntl;
+import org.graalvm.vm.posix.api.io.Iovec;
+import org.graalvm.vm.posix.api.mem.Mman;
 import org.graalvm.vm.posix.vfs.NativeFileStream;
 import org.junit.Test;
 
@@ -68,4 +76,117 @@ public class NativeFileStreamTest {
             assertEquals(Errno.ENOENT, e.getErrno());
         }
     }
+
+    @Test
+    public void testScatterGather() throws Exception {
+        Path path = Files.createTempFile("vm", ".bin");
+        try {
+            ByteBuffer mem = ByteBuffer.allocateDirect(64);
+            for (int i = 0; i < 64; i++) {
+                mem.put(i, (byte) i);
+            }
+            ByteBufferPosixPointer ptr = new ByteBufferPosixPointer(mem, 0, 64);
+
+            NativeFileStream out = new NativeFileStream(path, Fcntl.O_WRONLY);
+            assertEquals(48, out.writev(new Iovec[]{new Iovec(ptr.add(16), 16), new Iovec(ptr, 0), new Iovec(ptr, 32)}));
+            assertEquals(16, out.pwrite(ptr.add(48), 16, 48));
+            out.close();
+
+            byte[] data = Files.readAllBytes(path);
+            assertEquals(64, data.length);
+            for (int i = 0; i < 16; i++) {
+                assertEquals((byte) (i + 16), data[i]);
+                assertEquals((byte) i, data[i + 16]);
+                assertEquals((byte) (i + 48), data[i + 48]);
+            }
+
+            for (int i = 0; i < 64; i++) {
+                mem.put(i, (byte) 0);
+            }
+            NativeFileStream in = new NativeFileStream(path, Fcntl.O_RDONLY);
+            assertEquals(64, in.readv(new Iovec[]{new Iovec(ptr.add(32), 32), new Iovec(ptr, 32)}));
+            assertEquals(0, in.read(ptr, 16));
+            assertEquals(16, in.pread(ptr.add(16), 16, 16));
+            in.close();
+            for (int i = 0; i < 16; i++) {
+                assertEquals((byte) (i + 16), mem.get(i + 32));
+                assertEquals((byte) (i + 16), mem.get(i));
+                assertEquals((byte) i, mem.get(i + 16));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testPrivateMmap() throws Exception {
+        Path path = Files.createTempFile("vm", ".bin");
+        try {
+            byte[] data = new byte[5000];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) i;
+            }
+            Files.write(path, data);
+
+            NativeFileStream stream = new NativeFileStream(path, Fcntl.O_RDONLY);
+            PosixPointer map = stream.mmap(data.length, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_PRIVATE, 0);
+            assertEquals(8192, map.size());
+            assertEquals((byte) 4999, map.add(4999).getI8());
+            assertEquals(0, map.add(5000).getI8());
+            assertEquals(0xFF000102, map.add(4095).getI32());
+
+            // the write crosses the page boundary and copies both pages
+            map.add(4094).setI32(0x11223344);
+            map.add(8191).setI8((byte) 0x55);
+            assertEquals(0x11223344, map.add(4094).getI32());
+            assertEquals((byte) 0x55, map.add(8191).getI8());
+            assertEquals((byte) 2, map.add(4098).getI8());
+            stream.close();
+
+            assertArrayEquals(data, Files.readAllBytes(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testSharedMmap() throws Exception {
+        Path path = Files.createTempFile("vm", ".bin");
+        try {
+            Files.write(path, new byte[4096]);
+
+            NativeFileStream stream = new NativeFileStream(path, Fcntl.O_RDWR);
+            PosixPointer map = stream.mmap(4096, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_SHARED, 0);
+            map.add(16).setI32(0x11223344);
+            map.msync();
+            stream.close();
+
+            byte[] data = Files.readAllBytes(path);
+            assertEquals(0x11, data[16]);
+            assertEquals(0x44, data[19]);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testSharedMmapReadOnly() throws Exception {
+        Path path = Files.createTempFile("vm", ".bin");
+        try {
+            Files.write(path, new byte[4096]);
+
+            NativeFileStream stream = new NativeFileStream(path, Fcntl.O_RDONLY);
+            try {
+                stream.mmap(4096, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_SHARED, 0);
+                fail();
+            } catch (PosixException e) {
+                assertEquals(Errno.EACCES, e.getErrno());
+            }
+            PosixPointer map = stream.mmap(4096, Mman.PROT_READ, Mman.MAP_SHARED, 0);
+            assertEquals(0, map.getI64());
+            stream.close();
+        } finally {
+            Files.delete(path);
+        }
+    }
 }
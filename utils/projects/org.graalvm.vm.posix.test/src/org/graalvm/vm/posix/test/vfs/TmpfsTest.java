@@ -43,12 +43,15 @@ package org.graalvm.vm.posix.test.vfs;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 import org.graalvm.vm.posix.api.BytePosixPointer;
+import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
 import org.graalvm.vm.posix.api.PosixPointer;
 import org.graalvm.vm.posix.api.io.Fcntl;
 import org.graalvm.vm.posix.api.io.Stream;
+import org.graalvm.vm.posix.api.mem.Mman;
 import org.graalvm.vm.posix.vfs.Tmpfs;
 import org.graalvm.vm.posix.vfs.VFS;
 import org.graalvm.vm.posix.vfs.VFSDirectory;
@@ -109,4 +112,131 @@ public class TmpfsTest {
         assertArrayEquals(data, read);
         assertEquals(data.length, stream.lseek(0, Stream.SEEK_CUR));
     }
+
+    @Test
+    public void testPwrite() throws PosixException {
+        VFSDirectory dir = vfs.get("/tmp");
+        dir.mkfile("test", 0, 0, 0644);
+
+        VFSFile file = vfs.get("/tmp/test");
+        Stream stream = file.open(Fcntl.O_RDWR);
+        byte[] data = "Hello world!".getBytes();
+        assertEquals(data.length, stream.write(new BytePosixPointer(data), data.length));
+        byte[] patch = "W".getBytes();
+        assertEquals(1, stream.pwrite(new BytePosixPointer(patch), 1, 6));
+        assertEquals(data.length, file.size());
+
+        byte[] read = new byte[data.length];
+        assertEquals(data.length, stream.pread(new BytePosixPointer(read), read.length, 0));
+        assertArrayEquals("Hello World!".getBytes(), read);
+    }
+
+    @Test
+    public void testSparse() throws PosixException {
+        VFSDirectory dir = vfs.get("/tmp");
+        dir.mkfile("test", 0, 0, 0644);
+
+        VFSFile file = vfs.get("/tmp/test");
+        Stream stream = file.open(Fcntl.O_RDWR);
+        byte[] data = {1, 2, 3, 4};
+        // the write crosses a page boundary behind a hole
+        long offset = 3 * 4096 - 2;
+        assertEquals(data.length, stream.pwrite(new BytePosixPointer(data), data.length, offset));
+        assertEquals(offset + data.length, file.size());
+
+        byte[] read = new byte[data.length + 2];
+        read[0] = -1;
+        assertEquals(read.length, stream.pread(new BytePosixPointer(read), read.length, offset - 2));
+        assertArrayEquals(new byte[]{0, 0, 1, 2, 3, 4}, read);
+
+        stream.ftruncate(offset + 1);
+        stream.ftruncate(offset + 4);
+        assertEquals(4, stream.pread(new BytePosixPointer(read), 4, offset));
+        assertArrayEquals(new byte[]{1, 0, 0, 0, 3, 4}, read);
+    }
+
+    @Test
+    public void testLargeOffset() throws PosixException {
+        VFSDirectory dir = vfs.get("/tmp");
+        dir.mkfile("test", 0, 0, 0644);
+
+        VFSFile file = vfs.get("/tmp/test");
+        Stream stream = file.open(Fcntl.O_RDWR);
+        byte[] data = {1, 2, 3, 4};
+        long offset = 1L << 43;
+
+        try {
+            stream.pwrite(new BytePosixPointer(data), data.length, offset);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EFBIG, e.getErrno());
+        }
+
+        assertEquals(offset, stream.lseek(offset, Stream.SEEK_SET));
+        try {
+            stream.write(new BytePosixPointer(data), data.length);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EFBIG, e.getErrno());
+        }
+
+        try {
+            stream.ftruncate(offset);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EINVAL, e.getErrno());
+        }
+
+        try {
+            stream.mmap(4096, Mman.PROT_READ, Mman.MAP_SHARED, offset);
+            fail();
+        } catch (PosixException e) {
+            assertEquals(Errno.EOVERFLOW, e.getErrno());
+        }
+
+        // nothing was written, reads behind the end of the file are empty
+        assertEquals(0, file.size());
+        assertEquals(0, stream.pread(new BytePosixPointer(new byte[4]), 4, offset));
+    }
+
+    @Test
+    public void testSharedMmap() throws PosixException {
+        VFSDirectory dir = vfs.get("/tmp");
+        dir.mkfile("test", 0, 0, 0644);
+
+        VFSFile file = vfs.get("/tmp/test");
+        Stream stream = file.open(Fcntl.O_RDWR);
+        stream.ftruncate(8192);
+        PosixPointer map = stream.mmap(8192, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_SHARED, 0);
+        assertEquals(8192, map.size());
+
+        map.add(4094).setI32(0x11223344);
+        byte[] read = new byte[4];
+        assertEquals(4, stream.pread(new BytePosixPointer(read), 4, 4094));
+        assertArrayEquals(new byte[]{0x11, 0x22, 0x33, 0x44}, read);
+
+        byte[] data = {0x55};
+        assertEquals(1, stream.pwrite(new BytePosixPointer(data), 1, 4096));
+        assertEquals(0x11225544, map.add(4094).getI32());
+    }
+
+    @Test
+    public void testPrivateMmap() throws PosixException {
+        VFSDirectory dir = vfs.get("/tmp");
+        dir.mkfile("test", 0, 0, 0644);
+
+        VFSFile file = vfs.get("/tmp/test");
+        Stream stream = file.open(Fcntl.O_RDWR);
+        byte[] data = "Hello world!".getBytes();
+        assertEquals(data.length, stream.write(new BytePosixPointer(data), data.length));
+        PosixPointer map = stream.mmap(data.length, Mman.PROT_READ | Mman.PROT_WRITE, Mman.MAP_PRIVATE, 0);
+
+        assertEquals('H', map.getI8());
+        map.setI8((byte) 'J');
+        assertEquals('J', map.getI8());
+
+        byte[] read = new byte[data.length];
+        assertEquals(data.length, stream.pread(new BytePosixPointer(read), read.length, 0));
+        assertArrayEquals(data, read);
+    }
 }
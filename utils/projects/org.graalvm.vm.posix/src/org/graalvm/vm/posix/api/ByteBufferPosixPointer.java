@@ -40,8 +40,10 @@
  */
 package org.graalvm.vm.posix.api;
 
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 
 public class ByteBufferPosixPointer implements PosixPointer {
     private final ByteBuffer buffer;
@@ -149,6 +151,28 @@ public class ByteBufferPosixPointer implements PosixPointer {
         return size;
     }
 
+    @Override
+    public ByteBuffer[] getBuffers(int length, boolean write) {
+        if (offset < 0 || offset + length > realSize || (write && buffer.isReadOnly())) {
+            return null;
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.limit((int) offset + length);
+        view.position((int) offset);
+        return new ByteBuffer[]{view};
+    }
+
+    @Override
+    public void msync() throws PosixException {
+        if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly()) {
+            try {
+                ((MappedByteBuffer) buffer).force();
+            } catch (UncheckedIOException e) {
+                throw new PosixException(Errno.EIO);
+            }
+        }
+    }
+
     @Override
     public String getName() {
         return name;
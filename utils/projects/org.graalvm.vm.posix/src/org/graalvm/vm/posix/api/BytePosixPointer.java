@@ -40,6 +40,8 @@
  */
 package org.graalvm.vm.posix.api;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.vm.util.io.Endianess;
 
 public class BytePosixPointer implements PosixPointer {
@@ -172,6 +174,14 @@ public class BytePosixPointer implements PosixPointer {
         return memory;
     }
 
+    @Override
+    public ByteBuffer[] getBuffers(int size, boolean write) {
+        if (offset < 0 || offset != (int) offset || !hasMemory(size)) {
+            return null;
+        }
+        return new ByteBuffer[]{ByteBuffer.wrap(memory, (int) offset, size)};
+    }
+
     @Override
     public long getOffset() {
         return offset;
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.graalvm.vm.util.io.Endianess;
+
+/**
+ * A private mapping of a file. Reads access the (mapped) file content until a page is written for
+ * the first time. At that point the page is copied and the mapping uses its own copy from then on.
+ * The part of the mapping behind the end of the file reads as zero.
+ */
+public class CopyOnWritePosixPointer implements PosixPointer {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final byte[] ZERO_PAGE = new byte[PAGE_SIZE];
+
+    private final ByteBuffer base;
+    // copied pages; written from any thread, the array publishes the page content
+    private final AtomicReferenceArray<byte[]> copies;
+    private final long offset;
+    private final long size;
+    private final String name;
+
+    public CopyOnWritePosixPointer(ByteBuffer base, long size, String name) {
+        this(base.order(ByteOrder.BIG_ENDIAN), new AtomicReferenceArray<>((int) ((size + PAGE_MASK) >>> PAGE_SHIFT)), 0, size, name);
+        assert base.position() == 0;
+    }
+
+    private CopyOnWritePosixPointer(ByteBuffer base, AtomicReferenceArray<byte[]> copies, long offset, long size, String name) {
+        this.base = base;
+        this.copies = copies;
+        this.offset = offset;
+        this.size = size;
+        this.name = name;
+    }
+
+    @Override
+    public PosixPointer add(long off) {
+        return new CopyOnWritePosixPointer(base, copies, offset + off, size, name);
+    }
+
+    @Override
+    public long size() {
+        return size - offset;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    private int check(int length) {
+        if (offset < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return (int) offset;
+    }
+
+    private static boolean inPage(int pos, int length) {
+        return (pos & PAGE_MASK) + length <= PAGE_SIZE;
+    }
+
+    private byte[] copy(int pos) {
+        return copies.get(pos >>> PAGE_SHIFT);
+    }
+
+    private byte[] writablePage(int pos) {
+        int idx = pos >>> PAGE_SHIFT;
+        byte[] copy = copies.get(idx);
+        if (copy != null) {
+            return copy;
+        }
+        synchronized (copies) {
+            copy = copies.get(idx);
+            if (copy == null) {
+                copy = new byte[PAGE_SIZE];
+                int start = pos & ~PAGE_MASK;
+                int length = Math.min(PAGE_SIZE, base.limit() - start);
+                if (length > 0) {
+                    ByteBuffer src = base.duplicate();
+                    src.position(start);
+                    src.get(copy, 0, length);
+                }
+                copies.set(idx, copy);
+            }
+            return copy;
+        }
+    }
+
+    private byte get(int pos) {
+        byte[] copy = copy(pos);
+        if (copy != null) {
+            return copy[pos & PAGE_MASK];
+        } else if (pos < base.limit()) {
+            return base.get(pos);
+        } else {
+            return 0;
+        }
+    }
+
+    private long get(int pos, int length) {
+        long val = 0;
+        for (int i = 0; i < length; i++) {
+            val = (val << 8) | (get(pos + i) & 0xFF);
+        }
+        return val;
+    }
+
+    private void set(int pos, int length, long val) {
+        for (int i = 0; i < length; i++) {
+            int p = pos + i;
+            writablePage(p)[p & PAGE_MASK] = (byte) (val >>> (8 * (length - i - 1)));
+        }
+    }
+
+    @Override
+    public byte getI8() {
+        return get(check(1));
+    }
+
+    @Override
+    public short getI16() {
+        int pos = check(2);
+        if (inPage(pos, 2)) {
+            byte[] copy = copy(pos);
+            if (copy != null) {
+                return Endianess.get16bitBE(copy, pos & PAGE_MASK);
+            } else if (pos + 2 <= base.limit()) {
+                return base.getShort(pos);
+            }
+        }
+        return (short) get(pos, 2);
+    }
+
+    @Override
+    public int getI32() {
+        int pos = check(4);
+        if (inPage(pos, 4)) {
+            byte[] copy = copy(pos);
+            if (copy != null) {
+                return Endianess.get32bitBE(copy, pos & PAGE_MASK);
+            } else if (pos + 4 <= base.limit()) {
+                return base.getInt(pos);
+            }
+        }
+        return (int) get(pos, 4);
+    }
+
+    @Override
+    public long getI64() {
+        int pos = check(8);
+        if (inPage(pos, 8)) {
+            byte[] copy = copy(pos);
+            if (copy != null) {
+                return Endianess.get64bitBE(copy, pos & PAGE_MASK);
+            } else if (pos + 8 <= base.limit()) {
+                return base.getLong(pos);
+            }
+        }
+        return get(pos, 8);
+    }
+
+    @Override
+    public void setI8(byte val) {
+        int pos = check(1);
+        writablePage(pos)[pos & PAGE_MASK] = val;
+    }
+
+    @Override
+    public void setI16(short val) {
+        int pos = check(2);
+        if (inPage(pos, 2)) {
+            Endianess.set16bitBE(writablePage(pos), pos & PAGE_MASK, val);
+        } else {
+            set(pos, 2, val);
+        }
+    }
+
+    @Override
+    public void setI32(int val) {
+        int pos = check(4);
+        if (inPage(pos, 4)) {
+            Endianess.set32bitBE(writablePage(pos), pos & PAGE_MASK, val);
+        } else {
+            set(pos, 4, val);
+        }
+    }
+
+    @Override
+    public void setI64(long val) {
+        int pos = check(8);
+        if (inPage(pos, 8)) {
+            Endianess.set64bitBE(writablePage(pos), pos & PAGE_MASK, val);
+        } else {
+            set(pos, 8, val);
+        }
+    }
+
+    @Override
+    public ByteBuffer[] getBuffers(int length, boolean write) {
+        if (offset < 0 || offset + length > size) {
+            return null;
+        }
+        int pos = (int) offset;
+        List<ByteBuffer> buffers = new ArrayList<>();
+        int done = 0;
+        while (done < length) {
+            int p = pos + done;
+            int off = p & PAGE_MASK;
+            int n = Math.min(length - done, PAGE_SIZE - off);
+            byte[] copy = write ? writablePage(p) : copy(p);
+            if (copy != null) {
+                buffers.add(ByteBuffer.wrap(copy, off, n));
+            } else {
+                // unmodified page: the part inside the file comes from the file, the rest is zero
+                int inFile = Math.max(0, Math.min(n, base.limit() - p));
+                if (inFile > 0) {
+                    ByteBuffer view = base.duplicate();
+                    view.limit(p + inFile);
+                    view.position(p);
+                    buffers.add(view);
+                }
+                if (inFile < n) {
+                    buffers.add(ByteBuffer.wrap(ZERO_PAGE, off + inFile, n - inFile).asReadOnlyBuffer());
+                }
+            }
+            done += n;
+        }
+        return buffers.toArray(new ByteBuffer[buffers.size()]);
+    }
+}
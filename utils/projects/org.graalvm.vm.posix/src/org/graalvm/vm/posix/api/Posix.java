@@ -40,14 +40,8 @@
  */
 package org.graalvm.vm.posix.api;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.channels.DatagramChannel;
-import java.nio.channels.SelectableChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +50,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.graalvm.vm.posix.api.io.DirectoryStream;
+import org.graalvm.vm.posix.api.io.Epoll;
+import org.graalvm.vm.posix.api.io.EpollEvent;
+import org.graalvm.vm.posix.api.io.EpollStream;
+import org.graalvm.vm.posix.api.io.EventFdStream;
+import org.graalvm.vm.posix.api.io.EventPoll;
+import org.graalvm.vm.posix.api.io.Fifo;
 import org.graalvm.vm.posix.api.io.Fcntl;
 import org.graalvm.vm.posix.api.io.FileDescriptor;
 import org.graalvm.vm.posix.api.io.FileDescriptorManager;
@@ -108,6 +108,8 @@ public class Posix {
 
     private static AtomicInteger tidctr = new AtomicInteger(1);
     private static final ThreadLocal<Integer> tid = ThreadLocal.withInitial(() -> allocateTid());
+    // selector of poll(), cached per thread
+    private final ThreadLocal<EventPoll> threadPoll = new ThreadLocal<>();
 
     public static final boolean WARN_ON_FILE_DELETE = System.getProperty("posix.warn.delete") != null;
 
@@ -815,7 +817,7 @@ public class Posix {
         }
         if (BitTest.test(flags, Mman.MAP_ANONYMOUS)) {
             throw new PosixException(Errno.ENOMEM);
-        } else if (BitTest.test(flags, Mman.MAP_PRIVATE)) {
+        } else if (BitTest.test(flags, Mman.MAP_PRIVATE) || BitTest.test(flags, Mman.MAP_SHARED)) {
             Stream stream = fds.getStream(fildes);
             return stream.mmap(length, prot, flags, offset);
         }
@@ -1154,6 +1156,15 @@ public class Posix {
     // return -1;
     // }
 
+    private EventPoll getThreadPoll() throws PosixException {
+        EventPoll poll = threadPoll.get();
+        if (poll == null) {
+            poll = new EventPoll();
+            threadPoll.set(poll);
+        }
+        return poll;
+    }
+
     public int poll(Pollfd[] pfds, int nfds, int timeout) throws PosixException {
         if (strace) {
             log.log(Levels.INFO, () -> String.format("poll(..., %s, %s)", nfds, timeout));
@@ -1161,141 +1172,108 @@ public class Posix {
         if (pfds.length < nfds) {
             throw new PosixException(Errno.EFAULT);
         }
-        Stream[] streams = new Stream[nfds];
-        boolean sockets = false;
-        boolean other = false;
-        for (int i = 0; i < nfds; i++) {
-            streams[i] = fds.getStream(pfds[i].fd);
-            if (streams[i] instanceof NetworkStream) {
-                sockets = true;
-            } else {
-                other = true;
-            }
-        }
-        if (sockets && !other) {
-            Selector selector;
-            try {
-                selector = Selector.open();
-            } catch (IOException e) {
-                log.log(Level.WARNING, "Failed to create selector: " + e.getMessage(), e);
-                throw new PosixException(Errno.EIO);
-            }
-
-            boolean[] wasBlocking = new boolean[nfds];
-            // register channels
+        EventPoll poll = getThreadPoll();
+        try {
+            int invalid = 0;
             for (int i = 0; i < nfds; i++) {
-                NetworkStream s = (NetworkStream) streams[i];
                 Pollfd fd = pfds[i];
-                SelectableChannel ch = s.getChannel();
-                wasBlocking[i] = ch.isBlocking();
-                int ops = 0;
-                if (BitTest.test(fd.events, Poll.POLLIN)) {
-                    ops |= SelectionKey.OP_READ;
-                }
-                if (BitTest.test(fd.events, Poll.POLLOUT)) {
-                    ops |= SelectionKey.OP_WRITE;
+                fd.revents = 0;
+                if (fd.fd < 0) {
+                    continue;
                 }
-                try {
-                    ch.configureBlocking(false);
-                    ch.register(selector, ops, i);
-                } catch (IOException e) {
-                    log.log(Level.WARNING, "Failed to register channel: " + e.getMessage(), e);
-                    for (SelectionKey key : selector.keys()) {
-                        key.cancel();
-                    }
-                    for (int j = 0; j <= i; j++) {
-                        NetworkStream stream = (NetworkStream) streams[j];
-                        try {
-                            stream.getChannel().configureBlocking(wasBlocking[j]);
-                        } catch (IOException ex) {
-                            log.log(Level.WARNING, "Cannot reset blocking configuration of channel: " + ex.getMessage(), ex);
-                        }
-                    }
-                    try {
-                        selector.close();
-                    } catch (IOException ex) {
-                        log.log(Level.WARNING, "Failed to close selector: " + ex.getMessage(), ex);
-                    }
-                    throw new PosixException(Errno.EINVAL);
+                FileDescriptor desc = fds.getFileDescriptorOrNull(fd.fd);
+                if (desc == null) {
+                    fd.revents = Poll.POLLNVAL;
+                    invalid++;
+                } else {
+                    poll.add(i, desc.stream, Short.toUnsignedInt(fd.events), i);
                 }
             }
 
-            // select
-            int result;
-            try {
-                if (timeout < 0) {
-                    result = selector.select(0);
-                } else if (timeout > 0) {
-                    result = selector.select(timeout);
-                } else {
-                    result = selector.selectNow();
-                }
+            EpollEvent[] events = new EpollEvent[nfds];
+            int n = poll.wait(events, invalid > 0 ? 0 : timeout);
+            for (int i = 0; i < n; i++) {
+                pfds[(int) events[i].data].revents = (short) events[i].events;
+            }
+            return invalid + n;
+        } finally {
+            poll.clear();
+        }
+    }
 
-                for (SelectionKey key : selector.selectedKeys()) {
-                    int i = (int) key.attachment();
-                    Pollfd fd = pfds[i];
-                    fd.revents = 0;
-                    if (BitTest.test(fd.events, Poll.POLLIN)) {
-                        if (key.isReadable()) {
-                            fd.revents |= Poll.POLLIN;
-                        }
+    private int allocateFd(Stream stream, boolean cloexec) throws PosixException {
+        if (fds.count() >= processInfo.rlimit_nofile) {
+            throw new PosixException(Errno.EMFILE);
+        }
+        int fd = fds.allocate(stream);
+        if (cloexec) {
+            fds.getFileDescriptor(fd).setFlags(Fcntl.FD_CLOEXEC);
+        }
+        return fd;
+    }
 
-                        // if the stream can "accept", also check isAcceptable
-                        NetworkStream stream = (NetworkStream) streams[i];
-                        SelectableChannel ch = stream.getChannel();
-                        if ((ch instanceof DatagramChannel || ch instanceof ServerSocketChannel) && key.isAcceptable()) {
-                            fd.revents |= Poll.POLLIN;
-                        }
-                    }
-                    if (BitTest.test(fd.events, Poll.POLLOUT) && key.isWritable()) {
-                        fd.revents |= Poll.POLLOUT;
-                    }
-                }
-            } catch (IOException e) {
-                log.log(Level.INFO, "Error in poll: " + e.getMessage());
-                throw new PosixException(Errno.EIO);
-            } finally {
-                // unregister all channels again
-                for (SelectionKey key : selector.keys()) {
-                    key.cancel();
-                }
-                for (int i = 0; i < nfds; i++) {
-                    NetworkStream stream = (NetworkStream) streams[i];
-                    try {
-                        stream.getChannel().configureBlocking(wasBlocking[i]);
-                    } catch (IOException ex) {
-                        log.log(Level.WARNING, "Cannot reset blocking configuration of channel: " + ex.getMessage(), ex);
-                    }
-                }
+    public int epoll_create1(int flags) throws PosixException {
+        if (strace) {
+            log.log(Levels.INFO, () -> String.format("epoll_create1(%s)", flags));
+        }
+        if ((flags & ~Epoll.EPOLL_CLOEXEC) != 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        return allocateFd(new EpollStream(), BitTest.test(flags, Epoll.EPOLL_CLOEXEC));
+    }
 
-                // close selector
-                try {
-                    selector.close();
-                } catch (IOException ex) {
-                    log.log(Level.WARNING, "Failed to close selector: " + ex.getMessage(), ex);
-                }
-            }
-            return result;
-        } else {
-            // handle poll with empty events field and timeout=0 (like e.g. in rust startup)
-            boolean fail = false;
-            if (timeout != 0) {
-                fail = true;
-            }
-            for (int i = 0; i < nfds; i++) {
-                if (pfds[i].events != 0) {
-                    fail = true;
-                    break;
-                }
-            }
+    public int epoll_ctl(int epfd, int op, int fd, EpollEvent event) throws PosixException {
+        if (strace) {
+            log.log(Levels.INFO, () -> String.format("epoll_ctl(%s, %s, %s, %s)", epfd, Epoll.ctl(op), fd, event));
+        }
+        Stream stream = fds.getStream(epfd);
+        if (!(stream instanceof EpollStream)) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        ((EpollStream) stream).ctl(op, fd, fds.getStream(fd), event);
+        return 0;
+    }
 
-            if (fail) {
-                log.log(Level.WARNING, "Cannot poll on non-socket streams");
-                throw new PosixException(Errno.EINVAL);
-            } else {
-                return 0;
-            }
+    public EpollEvent[] epoll_wait(int epfd, int maxevents, int timeout) throws PosixException {
+        if (strace) {
+            log.log(Levels.INFO, () -> String.format("epoll_wait(%s, ..., %s, %s)", epfd, maxevents, timeout));
+        }
+        Stream stream = fds.getStream(epfd);
+        if (!(stream instanceof EpollStream)) {
+            throw new PosixException(Errno.EINVAL);
         }
+        return ((EpollStream) stream).wait(maxevents, timeout);
+    }
+
+    public int eventfd2(int initval, int flags) throws PosixException {
+        if (strace) {
+            log.log(Levels.INFO, () -> String.format("eventfd2(%s, %s)", Integer.toUnsignedLong(initval), flags));
+        }
+        if ((flags & ~(EventFdStream.EFD_SEMAPHORE | EventFdStream.EFD_CLOEXEC | EventFdStream.EFD_NONBLOCK)) != 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        return allocateFd(new EventFdStream(Integer.toUnsignedLong(initval), flags), BitTest.test(flags, EventFdStream.EFD_CLOEXEC));
+    }
+
+    public int pipe2(int[] fildes, int flags) throws PosixException {
+        if (strace) {
+            log.log(Levels.INFO, () -> String.format("pipe2(..., %s)", Fcntl.flags(flags)));
+        }
+        if ((flags & ~(Fcntl.O_CLOEXEC | Fcntl.O_NONBLOCK)) != 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        if (fds.count() + 1 >= processInfo.rlimit_nofile) {
+            throw new PosixException(Errno.EMFILE);
+        }
+        Fifo fifo = new Fifo();
+        boolean cloexec = BitTest.test(flags, Fcntl.O_CLOEXEC);
+        if (BitTest.test(flags, Fcntl.O_NONBLOCK)) {
+            fifo.getReader().setFlags(Fcntl.O_RDONLY | Fcntl.O_NONBLOCK);
+            fifo.getWriter().setFlags(Fcntl.O_WRONLY | Fcntl.O_NONBLOCK);
+        }
+        fildes[0] = allocateFd(fifo.getReader(), cloexec);
+        fildes[1] = allocateFd(fifo.getWriter(), cloexec);
+        return 0;
     }
 
     public int setsockopt(int sock, int level, int option_name, int option_value) throws PosixException {
@@ -1566,6 +1544,11 @@ public class Posix {
                 }
             }
         }
+        EventPoll poll = threadPoll.get();
+        if (poll != null) {
+            poll.close();
+            threadPoll.remove();
+        }
         threadKilled(getTid(), Thread.currentThread());
     }
 
@@ -1583,6 +1566,11 @@ public class Posix {
         }
         exitCode = code;
         exitGroup = true;
+        if (strace) {
+            for (Futex.Statistics stats : linux.getFutexStatistics()) {
+                log.log(Levels.INFO, "futex " + stats);
+            }
+        }
         Thread currentThread = Thread.currentThread();
         synchronized (threads) {
             threads.forEach((threadId, t) -> {
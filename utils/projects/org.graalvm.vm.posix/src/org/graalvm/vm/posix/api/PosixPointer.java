@@ -40,6 +40,8 @@
  */
 package org.graalvm.vm.posix.api;
 
+import java.nio.ByteBuffer;
+
 public interface PosixPointer {
     PosixPointer add(long off);
 
@@ -79,6 +81,27 @@ public interface PosixPointer {
         throw new AssertionError("not implemented");
     }
 
+    /**
+     * Returns buffers which cover the {@code size} bytes at this pointer in order, so that I/O can
+     * transfer them in bulk, or null if this memory cannot be accessed directly. The position of each
+     * buffer is the start of its range and the limit is the end. The buffers must only be used for
+     * the current operation: they are not valid anymore once the memory is unmapped or its
+     * protection changes.
+     *
+     * @param write true if the buffers are going to be written to
+     */
+    default ByteBuffer[] getBuffers(@SuppressWarnings("unused") int size, @SuppressWarnings("unused") boolean write) {
+        return null;
+    }
+
+    /**
+     * Writes the modified content of a shared file mapping back to the file. Other kinds of memory
+     * have nothing to write back.
+     */
+    default void msync() throws PosixException {
+        // nothing to do
+    }
+
     default String getName() {
         return "[posix-pointer]";
     }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.api.io;
+
+public class Epoll {
+    // @formatter:off
+    public static final int EPOLL_CLOEXEC  = Fcntl.O_CLOEXEC;
+
+    public static final int EPOLL_CTL_ADD  = 1;
+    public static final int EPOLL_CTL_DEL  = 2;
+    public static final int EPOLL_CTL_MOD  = 3;
+
+    public static final int EPOLLIN        = 0x00000001;
+    public static final int EPOLLPRI       = 0x00000002;
+    public static final int EPOLLOUT       = 0x00000004;
+    public static final int EPOLLERR       = 0x00000008;
+    public static final int EPOLLHUP       = 0x00000010;
+    public static final int EPOLLNVAL      = 0x00000020;
+    public static final int EPOLLRDNORM    = 0x00000040;
+    public static final int EPOLLRDBAND    = 0x00000080;
+    public static final int EPOLLWRNORM    = 0x00000100;
+    public static final int EPOLLWRBAND    = 0x00000200;
+    public static final int EPOLLMSG       = 0x00000400;
+    public static final int EPOLLRDHUP     = 0x00002000;
+
+    public static final int EPOLLEXCLUSIVE = 1 << 28;
+    public static final int EPOLLWAKEUP    = 1 << 29;
+    public static final int EPOLLONESHOT   = 1 << 30;
+    public static final int EPOLLET        = 1 << 31;
+    // @formatter:on
+
+    // sizeof(struct epoll_event), which is packed on x86_64
+    public static final int EPOLL_EVENT_SIZE = 12;
+    // largest maxevents accepted by epoll_wait
+    public static final int EP_MAX_EVENTS = Integer.MAX_VALUE / EPOLL_EVENT_SIZE;
+
+    public static String ctl(int op) {
+        switch (op) {
+            case EPOLL_CTL_ADD:
+                return "EPOLL_CTL_ADD";
+            case EPOLL_CTL_DEL:
+                return "EPOLL_CTL_DEL";
+            case EPOLL_CTL_MOD:
+                return "EPOLL_CTL_MOD";
+            default:
+                return Integer.toString(op);
+        }
+    }
+}
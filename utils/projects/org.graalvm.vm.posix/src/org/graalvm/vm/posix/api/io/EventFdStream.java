@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.api.io;
+
+import static org.graalvm.vm.posix.api.io.Stat.S_IRUSR;
+import static org.graalvm.vm.posix.api.io.Stat.S_IWUSR;
+
+import org.graalvm.vm.posix.api.Errno;
+import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.Timespec;
+import org.graalvm.vm.util.io.Endianess;
+
+/**
+ * Counter object created by eventfd. Reads and writes transfer the 64bit counter value in guest
+ * (little endian) byte order.
+ */
+public class EventFdStream extends PollableStream {
+    // @formatter:off
+    public static final int EFD_SEMAPHORE = 00000001;
+    public static final int EFD_CLOEXEC   = Fcntl.O_CLOEXEC;
+    public static final int EFD_NONBLOCK  = Fcntl.O_NONBLOCK;
+    // @formatter:on
+
+    private static final long MAX = 0xFFFFFFFFFFFFFFFEL;
+
+    private final boolean semaphore;
+    private long counter;
+
+    public EventFdStream(long initval, int flags) {
+        counter = initval;
+        semaphore = (flags & EFD_SEMAPHORE) != 0;
+        statusFlags = Fcntl.O_RDWR | (flags & EFD_NONBLOCK);
+    }
+
+    @Override
+    public int read(byte[] buf, int offset, int length) throws PosixException {
+        if (length < 8) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        long value;
+        synchronized (this) {
+            while (counter == 0) {
+                if (isNonBlocking()) {
+                    throw new PosixException(Errno.EAGAIN);
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new PosixException(Errno.EINTR);
+                }
+            }
+            if (semaphore) {
+                value = 1;
+                counter--;
+            } else {
+                value = counter;
+                counter = 0;
+            }
+            notifyAll();
+        }
+        notifyWatchers();
+        Endianess.set64bitLE(buf, offset, value);
+        return 8;
+    }
+
+    @Override
+    public int write(byte[] buf, int offset, int length) throws PosixException {
+        if (length < 8) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        long value = Endianess.get64bitLE(buf, offset);
+        if (value == -1) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        synchronized (this) {
+            // the counter is unsigned and must not exceed MAX
+            while (Long.compareUnsigned(value, MAX - counter) > 0) {
+                if (isNonBlocking()) {
+                    throw new PosixException(Errno.EAGAIN);
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new PosixException(Errno.EINTR);
+                }
+            }
+            counter += value;
+            notifyAll();
+        }
+        notifyWatchers();
+        return 8;
+    }
+
+    @Override
+    public synchronized int poll(int events) {
+        int revents = 0;
+        if (counter != 0) {
+            revents |= events & (Poll.POLLIN | Poll.POLLRDNORM);
+        }
+        if (counter != MAX) {
+            revents |= events & (Poll.POLLOUT | Poll.POLLWRNORM);
+        }
+        return revents;
+    }
+
+    @Override
+    public int pread(byte[] buf, int offset, int length, long fileOffset) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public int pwrite(byte[] buf, int offset, int length, long fileOffset) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public int close() throws PosixException {
+        return 0;
+    }
+
+    @Override
+    public long lseek(long offset, int whence) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public void stat(Stat buf) throws PosixException {
+        buf.st_dev = 0;
+        buf.st_ino = 0;
+        buf.st_mode = S_IRUSR | S_IWUSR;
+        buf.st_nlink = 1;
+        buf.st_uid = 0;
+        buf.st_gid = 0;
+        buf.st_rdev = 0;
+        buf.st_size = 0;
+        buf.st_blksize = 4096;
+        buf.st_blocks = 0;
+        buf.st_atim = new Timespec();
+        buf.st_mtim = new Timespec();
+        buf.st_ctim = new Timespec();
+    }
+
+    @Override
+    public void statx(int mask, Statx buf) throws PosixException {
+        buf.stx_mask = Stat.STATX_INO | Stat.STATX_MODE | Stat.STATX_NLINK | Stat.STATX_UID | Stat.STATX_GID | Stat.STATX_SIZE | Stat.STATX_BLOCKS;
+        buf.stx_attributes = 0;
+        buf.stx_attributes_mask = 0;
+        buf.stx_mode = S_IRUSR | S_IWUSR;
+        buf.stx_nlink = 1;
+        buf.stx_blksize = 4096;
+        buf.stx_atime = new StatxTimestamp();
+        buf.stx_mtime = new StatxTimestamp();
+        buf.stx_ctime = new StatxTimestamp();
+    }
+
+    @Override
+    public void ftruncate(long size) throws PosixException {
+        throw new PosixException(Errno.EINVAL);
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.api.io;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.posix.api.Errno;
+import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.net.NetworkStream;
+import org.graalvm.vm.util.log.Trace;
+
+/**
+ * Interest set over one long-lived {@link Selector}; this is the implementation of epoll and poll.
+ *
+ * Socket channels which are in non-blocking mode stay registered with the selector between waits.
+ * Channels in blocking mode can only be selected in non-blocking mode, so they are switched to
+ * non-blocking mode for at most {@link #POLL_INTERVAL} ms at a time while the I/O lock of the
+ * stream is held exclusively ({@link NetworkStream#beginProbe()}). A concurrent read or write on
+ * the channel waits until the channel is in blocking mode again; a channel on which another thread
+ * is blocked in a read or write is skipped until that operation finished. Streams implemented in
+ * Java ({@link PollableStream}) wake up the selector when their state changes. All other streams
+ * are either always ready or are checked periodically ({@link Stream#needsPolling()}).
+ *
+ * Level triggered, edge triggered ({@link Epoll#EPOLLET}) and one-shot ({@link Epoll#EPOLLONESHOT})
+ * notifications are supported. The selector only observes levels of socket channels, so an edge
+ * triggered socket reports each event once and then drops it from its interest set, until the guest
+ * reads from or writes to the socket ({@link NetworkStream#getGeneration()}). Guests that read or
+ * write until EAGAIN, as required by edge triggered epoll, see every change of readiness.
+ */
+public class EventPoll {
+    private static final Logger log = Trace.create(EventPoll.class);
+
+    // interval in ms to check streams without change notifications
+    private static final int POLL_INTERVAL = 10;
+
+    private static final int EVENT_MASK = Poll.POLLIN | Poll.POLLPRI | Poll.POLLOUT | Poll.POLLRDNORM | Poll.POLLRDBAND | Poll.POLLWRNORM | Poll.POLLWRBAND | Poll.POLLMSG | Poll.POLLRDHUP;
+
+    private final Selector selector;
+    // serializes all selection operations and the use of the selected key set
+    private final ReentrantLock selectLock = new ReentrantLock(true);
+    private final Runnable watcher = this::wakeup;
+
+    // guarded by itself
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>();
+
+    private static final class Entry {
+        final Stream stream;
+        final NetworkStream socket;
+        final SelectableChannel channel;
+        int events;
+        long data;
+        boolean disabled;
+        // edge triggered: generation of the stream at the last notification
+        long generation = -1;
+        // edge triggered socket: events reported since the last I/O operation
+        int reported;
+
+        Entry(Stream stream, int events, long data) {
+            this.stream = stream;
+            this.socket = stream instanceof NetworkStream ? (NetworkStream) stream : null;
+            this.channel = socket != null ? socket.getChannel() : null;
+            this.events = events;
+            this.data = data;
+        }
+
+        boolean isEdgeTriggered() {
+            return (events & Epoll.EPOLLET) != 0 && (stream instanceof PollableStream || socket != null);
+        }
+
+        boolean isSelectable() {
+            return channel != null && channel.isOpen() && !channel.isBlocking();
+        }
+
+        // events of an edge triggered socket which must not be reported again
+        int suppressed() {
+            if (socket == null || !isEdgeTriggered()) {
+                return 0;
+            }
+            if (socket.getGeneration() != generation) {
+                reported = 0;
+            }
+            return reported;
+        }
+    }
+
+    public EventPoll() throws PosixException {
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to create selector: " + e.getMessage(), e);
+            throw new PosixException(Errno.ENOMEM);
+        }
+    }
+
+    private void wakeup() {
+        selector.wakeup();
+    }
+
+    private boolean isUsed(SelectableChannel channel) {
+        for (Entry e : entries.values()) {
+            if (e.channel == channel) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(int id, Stream stream, int events, long data) throws PosixException {
+        synchronized (entries) {
+            if (entries.containsKey(id)) {
+                throw new PosixException(Errno.EEXIST);
+            }
+            entries.put(id, new Entry(stream, events, data));
+        }
+        if (stream instanceof PollableStream) {
+            ((PollableStream) stream).addWatcher(watcher);
+        }
+        wakeup();
+    }
+
+    public void modify(int id, int events, long data) throws PosixException {
+        synchronized (entries) {
+            Entry e = entries.get(id);
+            if (e == null) {
+                throw new PosixException(Errno.ENOENT);
+            }
+            e.events = events;
+            e.data = data;
+            e.disabled = false;
+            e.generation = -1;
+            e.reported = 0;
+        }
+        wakeup();
+    }
+
+    public void remove(int id) throws PosixException {
+        Entry e;
+        boolean release;
+        synchronized (entries) {
+            e = entries.remove(id);
+            if (e == null) {
+                throw new PosixException(Errno.ENOENT);
+            }
+            release = e.channel != null && !isUsed(e.channel);
+        }
+        if (e.stream instanceof PollableStream) {
+            ((PollableStream) e.stream).removeWatcher(watcher);
+        }
+        if (release) {
+            release(e.socket);
+        } else {
+            wakeup();
+        }
+    }
+
+    /**
+     * Removes all entries but keeps the selector registrations; channels which are not added again
+     * before the next wait are unregistered then.
+     */
+    public void clear() {
+        List<Entry> old;
+        synchronized (entries) {
+            old = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        for (Entry e : old) {
+            if (e.stream instanceof PollableStream) {
+                ((PollableStream) e.stream).removeWatcher(watcher);
+            }
+        }
+    }
+
+    /**
+     * Called after an I/O operation on the socket; wakes up a waiting thread if the socket has
+     * edge triggered events which are not in the interest set anymore.
+     */
+    public void rearm(NetworkStream socket) {
+        boolean suppressed = false;
+        synchronized (entries) {
+            for (Entry e : entries.values()) {
+                if (e.socket == socket && e.reported != 0) {
+                    suppressed = true;
+                    break;
+                }
+            }
+        }
+        if (suppressed) {
+            wakeup();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Unregisters the channel from the selector. This is necessary before the channel can be
+     * switched to blocking mode.
+     */
+    public void release(NetworkStream socket) {
+        SelectableChannel channel = socket.getChannel();
+        wakeup();
+        selectLock.lock();
+        try {
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null) {
+                key.cancel();
+                // the key is only removed from the selector by the next selection operation
+                selector.selectNow();
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to unregister channel: " + e.getMessage(), e);
+        } finally {
+            selectLock.unlock();
+        }
+        socket.removePoller(this);
+    }
+
+    private static int interestOps(SelectableChannel channel, int events) {
+        int valid = channel.validOps();
+        int ops = 0;
+        if ((events & (Poll.POLLIN | Poll.POLLRDNORM)) != 0) {
+            ops |= valid & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT);
+        }
+        if ((events & (Poll.POLLOUT | Poll.POLLWRNORM)) != 0) {
+            if (channel instanceof SocketChannel && ((SocketChannel) channel).isConnectionPending()) {
+                ops |= SelectionKey.OP_CONNECT;
+            } else {
+                ops |= valid & SelectionKey.OP_WRITE;
+            }
+        }
+        return ops;
+    }
+
+    private static int readyEvents(SelectionKey key) {
+        int ready = key.readyOps();
+        int events = 0;
+        if ((ready & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT)) != 0) {
+            events |= Poll.POLLIN | Poll.POLLRDNORM;
+        }
+        if ((ready & (SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT)) != 0) {
+            events |= Poll.POLLOUT | Poll.POLLWRNORM;
+        }
+        return events;
+    }
+
+    // brings the selector registrations in sync with the interest set; caller holds selectLock
+    private void register() throws IOException {
+        Map<NetworkStream, Integer> ops = new HashMap<>();
+        synchronized (entries) {
+            for (Entry e : entries.values()) {
+                if (e.isSelectable()) {
+                    int o = e.disabled ? 0 : interestOps(e.channel, e.events & ~e.suppressed());
+                    ops.merge(e.socket, o, (a, b) -> a | b);
+                }
+            }
+        }
+
+        boolean cancelled = false;
+        for (SelectionKey key : selector.keys()) {
+            NetworkStream socket = (NetworkStream) key.attachment();
+            if (key.isValid() && !ops.containsKey(socket)) {
+                key.cancel();
+                socket.removePoller(this);
+                cancelled = true;
+            }
+        }
+        if (cancelled) {
+            selector.selectNow();
+        }
+
+        for (Map.Entry<NetworkStream, Integer> entry : ops.entrySet()) {
+            NetworkStream socket = entry.getKey();
+            SelectableChannel channel = socket.getChannel();
+            int o = entry.getValue();
+            SelectionKey key = channel.keyFor(selector);
+            try {
+                if (key == null) {
+                    socket.addPoller(this);
+                    channel.register(selector, o, socket);
+                } else if (key.interestOps() != o) {
+                    key.interestOps(o);
+                }
+            } catch (ClosedChannelException | CancelledKeyException | IllegalBlockingModeException e) {
+                // closed or switched to blocking mode concurrently: will be dropped on the next wait
+            }
+        }
+    }
+
+    /**
+     * Switches the blocking socket channels of the interest set to non-blocking mode and registers
+     * them for one selection; the switched sockets are added to {@code probed}. Caller holds
+     * selectLock.
+     *
+     * @return true if there are blocking socket channels in the interest set
+     */
+    private boolean probe(List<NetworkStream> probed) {
+        Map<NetworkStream, Integer> ops = new HashMap<>();
+        synchronized (entries) {
+            for (Entry e : entries.values()) {
+                if (!e.disabled && e.channel != null && e.channel.isOpen() && e.channel.isBlocking()) {
+                    int o = interestOps(e.channel, e.events & ~e.suppressed());
+                    ops.merge(e.socket, o, (a, b) -> a | b);
+                }
+            }
+        }
+
+        for (Map.Entry<NetworkStream, Integer> entry : ops.entrySet()) {
+            NetworkStream socket = entry.getKey();
+            int o = entry.getValue();
+            if (o == 0 || !socket.beginProbe()) {
+                continue;
+            }
+            probed.add(socket);
+            try {
+                socket.getChannel().register(selector, o, socket);
+            } catch (ClosedChannelException | CancelledKeyException e) {
+                // closed concurrently: not ready
+            }
+        }
+        return !ops.isEmpty();
+    }
+
+    // unregisters the channels switched by probe and switches them back; caller holds selectLock
+    private void unprobe(List<NetworkStream> probed) {
+        if (probed.isEmpty()) {
+            return;
+        }
+        for (NetworkStream socket : probed) {
+            SelectionKey key = socket.getChannel().keyFor(selector);
+            if (key != null) {
+                key.cancel();
+            }
+        }
+        try {
+            // the keys are only removed from the selector by the next selection operation
+            selector.selectNow();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to unregister channel: " + e.getMessage(), e);
+        } finally {
+            for (NetworkStream socket : probed) {
+                socket.endProbe();
+            }
+            probed.clear();
+        }
+    }
+
+    // collects ready entries; caller holds selectLock
+    private int collect(EpollEvent[] events) {
+        Set<SelectionKey> selected = selector.selectedKeys();
+        int n = 0;
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext() && n < events.length) {
+                Entry e = it.next();
+                if (e.disabled) {
+                    continue;
+                }
+                long generation = 0;
+                int ready;
+                if (e.socket != null) {
+                    if (e.channel.isOpen()) {
+                        // registered, probed or not ready to be probed
+                        SelectionKey key = e.channel.keyFor(selector);
+                        if (key != null && key.isValid() && selected.contains(key)) {
+                            ready = readyEvents(key);
+                        } else {
+                            ready = 0;
+                        }
+                    } else {
+                        ready = e.stream.poll(e.events & EVENT_MASK);
+                    }
+                    generation = e.socket.getGeneration();
+                    ready &= ~e.suppressed();
+                } else {
+                    if (e.isEdgeTriggered()) {
+                        generation = ((PollableStream) e.stream).getGeneration();
+                        if (generation == e.generation) {
+                            continue;
+                        }
+                    }
+                    ready = e.stream.poll(e.events & EVENT_MASK);
+                }
+                ready &= e.events & EVENT_MASK | Poll.POLLERR | Poll.POLLHUP | Poll.POLLNVAL;
+                if (ready == 0) {
+                    continue;
+                }
+                events[n++] = new EpollEvent(ready, e.data);
+                if (e.isEdgeTriggered()) {
+                    e.generation = generation;
+                    if (e.socket != null) {
+                        e.reported |= ready;
+                    }
+                }
+                if ((e.events & Epoll.EPOLLONESHOT) != 0) {
+                    e.disabled = true;
+                }
+            }
+        }
+        return n;
+    }
+
+    private boolean needsPolling() {
+        synchronized (entries) {
+            for (Entry e : entries.values()) {
+                if (!e.disabled && e.stream.needsPolling()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until at least one entry is ready or the timeout in ms expires and stores up to
+     * {@code events.length} ready entries in {@code events}. A negative timeout waits forever.
+     *
+     * @return the number of ready entries
+     */
+    public int wait(EpollEvent[] events, int timeout) throws PosixException {
+        long deadline = timeout > 0 ? System.nanoTime() + timeout * 1_000_000L : 0;
+        List<NetworkStream> probed = new ArrayList<>();
+        while (true) {
+            int n;
+            selectLock.lock();
+            try {
+                register();
+                boolean blocking = probe(probed);
+                selector.selectedKeys().clear();
+                selector.selectNow();
+                n = collect(events);
+                if (n == 0 && timeout != 0) {
+                    long wait;
+                    if (timeout < 0) {
+                        wait = 0;
+                    } else {
+                        wait = Math.max(1, (deadline - System.nanoTime()) / 1_000_000L);
+                    }
+                    // blocking channels must not stay in non-blocking mode for long
+                    if ((blocking || needsPolling()) && (wait == 0 || wait > POLL_INTERVAL)) {
+                        wait = POLL_INTERVAL;
+                    }
+                    selector.select(wait);
+                    n = collect(events);
+                }
+            } catch (IOException e) {
+                log.log(Level.INFO, "Error in poll: " + e.getMessage());
+                throw new PosixException(Errno.EIO);
+            } finally {
+                try {
+                    unprobe(probed);
+                } finally {
+                    selectLock.unlock();
+                }
+            }
+            if (n > 0 || timeout == 0) {
+                return n;
+            }
+            if (Thread.interrupted()) {
+                throw new PosixException(Errno.EINTR);
+            }
+            if (timeout > 0 && System.nanoTime() - deadline >= 0) {
+                return 0;
+            }
+        }
+    }
+
+    public void close() {
+        clear();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to close selector: " + e.getMessage(), e);
+        }
+    }
+}
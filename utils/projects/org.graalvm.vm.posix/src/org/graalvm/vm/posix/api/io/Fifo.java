@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.api.io;
+
+import org.graalvm.vm.posix.api.Errno;
+import org.graalvm.vm.posix.api.PosixException;
+
+/**
+ * Buffer of an anonymous pipe created by pipe/pipe2. The two ends are {@link FifoStream}s.
+ */
+public class Fifo {
+    public static final int PIPE_BUF = 4096;
+    public static final int CAPACITY = 65536;
+
+    private final byte[] buffer = new byte[CAPACITY];
+    private int head;
+    private int size;
+
+    private boolean readerOpen = true;
+    private boolean writerOpen = true;
+
+    private final FifoStream reader;
+    private final FifoStream writer;
+
+    public Fifo() {
+        reader = new FifoStream(this, true);
+        writer = new FifoStream(this, false);
+    }
+
+    public FifoStream getReader() {
+        return reader;
+    }
+
+    public FifoStream getWriter() {
+        return writer;
+    }
+
+    private void await() throws PosixException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            throw new PosixException(Errno.EINTR);
+        }
+    }
+
+    int read(byte[] buf, int offset, int length, boolean nonblocking) throws PosixException {
+        if (length == 0) {
+            return 0;
+        }
+        int n;
+        synchronized (this) {
+            while (size == 0) {
+                if (!writerOpen) {
+                    return 0;
+                } else if (nonblocking) {
+                    throw new PosixException(Errno.EAGAIN);
+                }
+                await();
+            }
+            n = Math.min(length, size);
+            int first = Math.min(n, CAPACITY - head);
+            System.arraycopy(buffer, head, buf, offset, first);
+            System.arraycopy(buffer, 0, buf, offset + first, n - first);
+            head = (head + n) % CAPACITY;
+            size -= n;
+            notifyAll();
+        }
+        writer.changed();
+        return n;
+    }
+
+    int write(byte[] buf, int offset, int length, boolean nonblocking) throws PosixException {
+        int written = 0;
+        while (written < length) {
+            int n;
+            synchronized (this) {
+                // writes of up to PIPE_BUF bytes are atomic
+                int required = length - written <= PIPE_BUF ? length - written : 1;
+                while (readerOpen && CAPACITY - size < required) {
+                    if (nonblocking) {
+                        if (written > 0) {
+                            return written;
+                        }
+                        throw new PosixException(Errno.EAGAIN);
+                    }
+                    await();
+                }
+                if (!readerOpen) {
+                    if (written > 0) {
+                        return written;
+                    }
+                    throw new PosixException(Errno.EPIPE);
+                }
+                n = Math.min(length - written, CAPACITY - size);
+                int tail = (head + size) % CAPACITY;
+                int first = Math.min(n, CAPACITY - tail);
+                System.arraycopy(buf, offset + written, buffer, tail, first);
+                System.arraycopy(buf, offset + written + first, buffer, 0, n - first);
+                size += n;
+                notifyAll();
+            }
+            written += n;
+            reader.changed();
+        }
+        return written;
+    }
+
+    synchronized int poll(boolean read, int events) {
+        int revents = 0;
+        if (read) {
+            if (size > 0) {
+                revents |= events & (Poll.POLLIN | Poll.POLLRDNORM);
+            }
+            if (!writerOpen) {
+                revents |= Poll.POLLHUP;
+            }
+        } else {
+            if (size < CAPACITY) {
+                revents |= events & (Poll.POLLOUT | Poll.POLLWRNORM);
+            }
+            if (!readerOpen) {
+                revents |= Poll.POLLERR;
+            }
+        }
+        return revents;
+    }
+
+    synchronized int available() {
+        return size;
+    }
+
+    void close(boolean read) {
+        synchronized (this) {
+            if (read) {
+                readerOpen = false;
+            } else {
+                writerOpen = false;
+            }
+            notifyAll();
+        }
+        // the other end sees POLLHUP/POLLERR now
+        if (read) {
+            writer.changed();
+        } else {
+            reader.changed();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.posix.api.io;
+
+import static org.graalvm.vm.posix.api.io.Stat.S_IFIFO;
+import static org.graalvm.vm.posix.api.io.Stat.S_IRUSR;
+import static org.graalvm.vm.posix.api.io.Stat.S_IWUSR;
+
+import org.graalvm.vm.posix.api.Errno;
+import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.PosixPointer;
+import org.graalvm.vm.posix.api.Timespec;
+
+/**
+ * One end of a {@link Fifo}.
+ */
+public class FifoStream extends PollableStream {
+    private final Fifo fifo;
+    private final boolean read;
+
+    FifoStream(Fifo fifo, boolean read) {
+        this.fifo = fifo;
+        this.read = read;
+        statusFlags = read ? Fcntl.O_RDONLY : Fcntl.O_WRONLY;
+    }
+
+    void changed() {
+        notifyWatchers();
+    }
+
+    @Override
+    public int read(byte[] buf, int offset, int length) throws PosixException {
+        if (!read) {
+            throw new PosixException(Errno.EBADF);
+        }
+        return fifo.read(buf, offset, length, isNonBlocking());
+    }
+
+    @Override
+    public int write(byte[] buf, int offset, int length) throws PosixException {
+        if (read) {
+            throw new PosixException(Errno.EBADF);
+        }
+        return fifo.write(buf, offset, length, isNonBlocking());
+    }
+
+    @Override
+    public int poll(int events) {
+        return fifo.poll(read, events);
+    }
+
+    @Override
+    public int pread(byte[] buf, int offset, int length, long fileOffset) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public int pwrite(byte[] buf, int offset, int length, long fileOffset) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public int close() throws PosixException {
+        fifo.close(read);
+        return 0;
+    }
+
+    @Override
+    public long lseek(long offset, int whence) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public int ioctl(long request, PosixPointer argp) throws PosixException {
+        if (request == Ioctls.FIONREAD) {
+            argp.setI32(fifo.available());
+            return 0;
+        }
+        return super.ioctl(request, argp);
+    }
+
+    @Override
+    public void stat(Stat buf) throws PosixException {
+        buf.st_dev = 0;
+        buf.st_ino = 0;
+        buf.st_mode = S_IFIFO | S_IRUSR | S_IWUSR;
+        buf.st_nlink = 1;
+        buf.st_uid = 0;
+        buf.st_gid = 0;
+        buf.st_rdev = 0;
+        buf.st_size = 0;
+        buf.st_blksize = Fifo.PIPE_BUF;
+        buf.st_blocks = 0;
+        buf.st_atim = new Timespec();
+        buf.st_mtim = new Timespec();
+        buf.st_ctim = new Timespec();
+    }
+
+    @Override
+    public void statx(int mask, Statx buf) throws PosixException {
+        buf.stx_mask = Stat.STATX_INO | Stat.STATX_MODE | Stat.STATX_TYPE | Stat.STATX_NLINK | Stat.STATX_UID | Stat.STATX_GID | Stat.STATX_SIZE | Stat.STATX_BLOCKS;
+        buf.stx_attributes = 0;
+        buf.stx_attributes_mask = 0;
+        buf.stx_mode = S_IFIFO | S_IRUSR | S_IWUSR;
+        buf.stx_nlink = 1;
+        buf.stx_blksize = Fifo.PIPE_BUF;
+        buf.stx_atime = new StatxTimestamp();
+        buf.stx_mtime = new StatxTimestamp();
+        buf.stx_ctime = new StatxTimestamp();
+    }
+
+    @Override
+    public void ftruncate(long size) throws PosixException {
+        throw new PosixException(Errno.EINVAL);
+    }
+}
@@ -115,6 +115,10 @@ public class FileDescriptorManager {
         return fd;
     }
 
+    public FileDescriptor getFileDescriptorOrNull(int fildes) {
+        return fds.get(fildes);
+    }
+
     public void setStream(int filedes, Stream stream) {
         fds.put(filedes, new FileDescriptor(stream));
     }
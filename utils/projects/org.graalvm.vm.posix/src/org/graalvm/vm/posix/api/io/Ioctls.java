@@ -65,6 +65,7 @@ public class Ioctls {
 
     // sockets
     public static final int FIONBIO = 0x8004667e; // Ioctl._IOW('f', 126, 4);
+    public static final int FIONREAD = 0x4004667f; // Ioctl._IOR('f', 127, 4);
 
     static {
         ioctls = new HashMap<>();
@@ -45,9 +45,12 @@ import static org.graalvm.vm.posix.api.io.Stat.S_IRUSR;
 import static org.graalvm.vm.posix.api.io.Stat.S_IWGRP;
 import static org.graalvm.vm.posix.api.io.Stat.S_IWUSR;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
@@ -104,11 +107,59 @@ public class PipeStream extends Stream {
         }
     }
 
+    @Override
+    public int read(ByteBuffer[] dsts) throws PosixException {
+        if (in instanceof FileInputStream) {
+            // scatter read directly from the file descriptor
+            try {
+                long n = ((FileInputStream) in).getChannel().read(dsts);
+                if (n == -1) {
+                    return 0;
+                } else {
+                    return (int) n;
+                }
+            } catch (IOException e) {
+                throw new PosixException(Errno.EBADF); // TODO
+            }
+        } else {
+            return super.read(dsts);
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer[] srcs) throws PosixException {
+        if (out instanceof FileOutputStream) {
+            // gather write directly to the file descriptor
+            int length = remaining(srcs);
+            try {
+                int written = 0;
+                while (written < length) {
+                    written += (int) ((FileOutputStream) out).getChannel().write(srcs);
+                }
+                return written;
+            } catch (IOException e) {
+                throw new PosixException(Errno.EBADF); // TODO
+            }
+        } else {
+            return super.write(srcs);
+        }
+    }
+
     @Override
     public int pread(byte[] buf, int offset, int length, long fileOffset) throws PosixException {
         throw new PosixException(Errno.ESPIPE);
     }
 
+    @Override
+    public int pread(ByteBuffer[] dsts, long fileOffset) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
+    @Override
+    public int pwrite(ByteBuffer[] srcs, long fileOffset) throws PosixException {
+        throw new PosixException(Errno.ESPIPE);
+    }
+
     @Override
     public int pwrite(byte[] buf, int offset, int length, long fileOffset) throws PosixException {
         throw new PosixException(Errno.ESPIPE);
@@ -137,6 +188,29 @@ public class PipeStream extends Stream {
         return 0;
     }
 
+    @Override
+    public int poll(int events) {
+        int revents = 0;
+        if (in != null && (events & Poll.POLLIN) != 0) {
+            try {
+                if (in.available() > 0) {
+                    revents |= Poll.POLLIN;
+                }
+            } catch (IOException e) {
+                revents |= Poll.POLLERR;
+            }
+        }
+        if (out != null) {
+            revents |= events & Poll.POLLOUT;
+        }
+        return revents;
+    }
+
+    @Override
+    public boolean needsPolling() {
+        return in != null;
+    }
+
     @Override
     public long lseek(long offset, int whence) throws PosixException {
         throw new PosixException(Errno.ESPIPE);
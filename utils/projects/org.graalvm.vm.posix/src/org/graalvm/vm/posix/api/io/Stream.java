@@ -40,6 +40,11 @@
  */
 package org.graalvm.vm.posix.api.io;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.MemoryFaultException;
 import org.graalvm.vm.posix.api.PosixException;
@@ -82,6 +87,11 @@ public abstract class Stream {
                 throw new PosixException(Errno.EOVERFLOW);
             }
             return read(buf.getMemory(), (int) off, length);
+        }
+
+        ByteBuffer[] buffers = buf.getBuffers(length, true);
+        if (buffers != null) {
+            return read(buffers);
         } else {
             byte[] b = new byte[length];
             int val = read(b, 0, length);
@@ -109,6 +119,11 @@ public abstract class Stream {
                 throw new PosixException(Errno.EOVERFLOW);
             }
             return write(buf.getMemory(), (int) off, length);
+        }
+
+        ByteBuffer[] buffers = buf.getBuffers(length, false);
+        if (buffers != null) {
+            return write(buffers);
         } else {
             byte[] b = new byte[length];
             PosixPointer p = buf;
@@ -146,6 +161,11 @@ public abstract class Stream {
                 throw new PosixException(Errno.EOVERFLOW);
             }
             return pread(buf.getMemory(), (int) off, length, offset);
+        }
+
+        ByteBuffer[] buffers = buf.getBuffers(length, true);
+        if (buffers != null) {
+            return pread(buffers, offset);
         } else {
             byte[] b = new byte[length];
             int val = pread(b, 0, length, offset);
@@ -173,6 +193,11 @@ public abstract class Stream {
                 throw new PosixException(Errno.EOVERFLOW);
             }
             return pwrite(buf.getMemory(), (int) off, length, offset);
+        }
+
+        ByteBuffer[] buffers = buf.getBuffers(length, false);
+        if (buffers != null) {
+            return pwrite(buffers, offset);
         } else {
             byte[] b = new byte[length];
             PosixPointer p = buf;
@@ -184,6 +209,116 @@ public abstract class Stream {
         }
     }
 
+    /**
+     * Reads into {@code dsts} with a single read operation like readv. The default implementation
+     * reads into a temporary array; streams backed by a channel override this to transfer data
+     * directly into the buffers.
+     */
+    public int read(ByteBuffer[] dsts) throws PosixException {
+        if (dsts.length == 1 && dsts[0].hasArray()) {
+            ByteBuffer dst = dsts[0];
+            int n = read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            dst.position(dst.position() + n);
+            return n;
+        }
+        byte[] b = new byte[remaining(dsts)];
+        int n = read(b, 0, b.length);
+        scatter(b, n, dsts);
+        return n;
+    }
+
+    /**
+     * Writes {@code srcs} with a single write operation like writev. The default implementation
+     * gathers the data in a temporary array.
+     */
+    public int write(ByteBuffer[] srcs) throws PosixException {
+        if (srcs.length == 1 && srcs[0].hasArray()) {
+            ByteBuffer src = srcs[0];
+            int n = write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.position() + n);
+            return n;
+        }
+        byte[] b = gather(srcs);
+        return write(b, 0, b.length);
+    }
+
+    public int pread(ByteBuffer[] dsts, long fileOffset) throws PosixException {
+        if (dsts.length == 1 && dsts[0].hasArray()) {
+            ByteBuffer dst = dsts[0];
+            int n = pread(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(), fileOffset);
+            dst.position(dst.position() + n);
+            return n;
+        }
+        byte[] b = new byte[remaining(dsts)];
+        int n = pread(b, 0, b.length, fileOffset);
+        scatter(b, n, dsts);
+        return n;
+    }
+
+    public int pwrite(ByteBuffer[] srcs, long fileOffset) throws PosixException {
+        if (srcs.length == 1 && srcs[0].hasArray()) {
+            ByteBuffer src = srcs[0];
+            int n = pwrite(src.array(), src.arrayOffset() + src.position(), src.remaining(), fileOffset);
+            src.position(src.position() + n);
+            return n;
+        }
+        byte[] b = gather(srcs);
+        return pwrite(b, 0, b.length, fileOffset);
+    }
+
+    protected static int remaining(ByteBuffer[] buffers) throws PosixException {
+        long size = 0;
+        for (ByteBuffer b : buffers) {
+            size += b.remaining();
+        }
+        if (size != (int) size) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        return (int) size;
+    }
+
+    private static void scatter(byte[] b, int length, ByteBuffer[] dsts) {
+        int offset = 0;
+        for (ByteBuffer dst : dsts) {
+            if (offset == length) {
+                break;
+            }
+            int n = Math.min(dst.remaining(), length - offset);
+            dst.put(b, offset, n);
+            offset += n;
+        }
+    }
+
+    private static byte[] gather(ByteBuffer[] srcs) throws PosixException {
+        byte[] b = new byte[remaining(srcs)];
+        int offset = 0;
+        for (ByteBuffer src : srcs) {
+            int n = src.remaining();
+            src.duplicate().get(b, offset, n);
+            offset += n;
+        }
+        return b;
+    }
+
+    // returns null if any of the vectors cannot be accessed directly
+    private static ByteBuffer[] getBuffers(Iovec[] iov, boolean write) {
+        List<ByteBuffer> result = new ArrayList<>(iov.length);
+        for (Iovec v : iov) {
+            if (v.iov_len == 0) {
+                continue;
+            }
+            if (v.iov_base == null || v.iov_len < 0) {
+                return null;
+            }
+            ByteBuffer[] buffers = v.iov_base.getBuffers(v.iov_len, write);
+            if (buffers == null) {
+                return null;
+            }
+            Collections.addAll(result, buffers);
+        }
+        return result.toArray(new ByteBuffer[result.size()]);
+    }
+
     public abstract int read(byte[] buf, int offset, int length) throws PosixException;
 
     public abstract int write(byte[] buf, int offset, int length) throws PosixException;
@@ -199,6 +334,11 @@ public abstract class Stream {
             throw new PosixException(Errno.EFAULT);
         }
 
+        ByteBuffer[] buffers = getBuffers(iov, true);
+        if (buffers != null) {
+            return buffers.length == 0 ? 0 : read(buffers);
+        }
+
         int total = 0;
         for (Iovec v : iov) {
             if (v.iov_len == 0) {
@@ -218,6 +358,11 @@ public abstract class Stream {
             throw new PosixException(Errno.EFAULT);
         }
 
+        ByteBuffer[] buffers = getBuffers(iov, false);
+        if (buffers != null) {
+            return buffers.length == 0 ? 0 : write(buffers);
+        }
+
         int total = 0;
         for (Iovec v : iov) {
             if (v.iov_len == 0) {
@@ -240,6 +385,27 @@ public abstract class Stream {
 
     public abstract void ftruncate(long size) throws PosixException;
 
+    /**
+     * Returns the subset of {@code events} (see {@link Poll}) which is ready right now, plus
+     * {@link Poll#POLLERR} and {@link Poll#POLLHUP} if applicable. Streams which cannot block, like
+     * regular files, are always ready.
+     */
+    public int poll(int events) {
+        return events & (Poll.POLLIN | Poll.POLLOUT);
+    }
+
+    /**
+     * Returns true if {@link #poll(int)} can change its result without any notification, so
+     * waiting for this stream has to check it periodically.
+     */
+    public boolean needsPolling() {
+        return false;
+    }
+
+    protected boolean isNonBlocking() {
+        return (statusFlags & Fcntl.O_NONBLOCK) != 0;
+    }
+
     @SuppressWarnings("unused")
     public long getFlags() throws PosixException {
         return statusFlags;
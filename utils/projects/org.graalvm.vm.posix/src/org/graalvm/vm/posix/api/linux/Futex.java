@@ -40,12 +40,15 @@
  */
 package org.graalvm.vm.posix.api.linux;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
 import org.graalvm.vm.posix.api.PosixPointer;
+import org.graalvm.vm.posix.api.Timespec;
 
 public class Futex {
     // @formatter:off
@@ -138,56 +141,461 @@ public class Futex {
     }
     // @formatter:on
 
-    private final Map<Long, Object> futexes = new ConcurrentHashMap<>();
+    private static final int BUCKET_COUNT = 256;
+    private static final long NO_TIMEOUT = -1;
 
-    @SuppressWarnings("unused")
-    public int futex(PosixPointer uaddr, int futex_op, int val, PosixPointer timeout, PosixPointer uaddr2, int val3) throws PosixException {
-        switch (futex_op) {
-            case FUTEX_WAKE:
-            case FUTEX_WAKE_PRIVATE: {
-                Object o = futexes.remove(uaddr.getAddress());
-                if (o != null) {
-                    synchronized (o) {
-                        if (val == 1) {
-                            o.notify();
-                        } else {
-                            o.notifyAll();
-                        }
-                    }
-                    return val;
-                } else {
-                    return 0;
+    private final Bucket[] buckets;
+
+    private static final class Waiter {
+        final Thread thread = Thread.currentThread();
+        final int bitset;
+
+        // guarded by the lock of the bucket; the bucket is only changed while holding both locks
+        long address;
+        volatile Bucket bucket;
+        volatile boolean woken;
+
+        Waiter prev;
+        Waiter next;
+
+        Waiter(long address, int bitset) {
+            this.address = address;
+            this.bitset = bitset;
+        }
+    }
+
+    /**
+     * Hash bucket with a FIFO queue of the waiters of all futexes which map to this bucket. The
+     * queue is only accessed while holding the lock of the bucket.
+     */
+    private static final class Bucket {
+        final int id;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Waiter head;
+        Waiter tail;
+
+        long waits;
+        long wakeups;
+        long requeues;
+        long timeouts;
+        long contended;
+
+        Bucket(int id) {
+            this.id = id;
+        }
+
+        void lock() {
+            if (!lock.tryLock()) {
+                lock.lock();
+                contended++;
+            }
+        }
+
+        void unlock() {
+            lock.unlock();
+        }
+
+        void enqueue(Waiter w) {
+            w.bucket = this;
+            w.prev = tail;
+            w.next = null;
+            if (tail == null) {
+                head = w;
+            } else {
+                tail.next = w;
+            }
+            tail = w;
+        }
+
+        void remove(Waiter w) {
+            if (w.prev == null) {
+                head = w.next;
+            } else {
+                w.prev.next = w.next;
+            }
+            if (w.next == null) {
+                tail = w.prev;
+            } else {
+                w.next.prev = w.prev;
+            }
+            w.prev = null;
+            w.next = null;
+        }
+
+        void wake(Waiter w) {
+            remove(w);
+            w.woken = true;
+            LockSupport.unpark(w.thread);
+            wakeups++;
+        }
+    }
+
+    /**
+     * Snapshot of the counters of one hash bucket.
+     */
+    public static final class Statistics {
+        public final int bucket;
+        public final long waits;
+        public final long wakeups;
+        public final long requeues;
+        public final long timeouts;
+        public final long contended;
+
+        Statistics(Bucket b) {
+            bucket = b.id;
+            waits = b.waits;
+            wakeups = b.wakeups;
+            requeues = b.requeues;
+            timeouts = b.timeouts;
+            contended = b.contended;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("bucket %d: %d waits, %d wakeups, %d requeues, %d timeouts, %d contended", bucket, waits, wakeups, requeues, timeouts, contended);
+        }
+    }
+
+    public Futex() {
+        buckets = new Bucket[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new Bucket(i);
+        }
+    }
+
+    private Bucket bucket(long address) {
+        long h = address * 0x9E3779B97F4A7C15L;
+        return buckets[(int) (h >>> 56) & (BUCKET_COUNT - 1)];
+    }
+
+    private static void lock(Bucket b1, Bucket b2) {
+        // lock in a fixed order to avoid deadlocks between two requeue operations
+        if (b1 == b2) {
+            b1.lock();
+        } else if (b1.id < b2.id) {
+            b1.lock();
+            b2.lock();
+        } else {
+            b2.lock();
+            b1.lock();
+        }
+    }
+
+    private static void unlock(Bucket b1, Bucket b2) {
+        b1.unlock();
+        if (b1 != b2) {
+            b2.unlock();
+        }
+    }
+
+    private static long deadline(PosixPointer timeout, boolean absolute, boolean realtime) throws PosixException {
+        if (timeout == null) {
+            return NO_TIMEOUT;
+        }
+        Timespec ts = new Timespec();
+        ts.read64(timeout);
+        if (ts.tv_sec < 0 || ts.tv_nsec < 0 || ts.tv_nsec >= 1_000_000_000L) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        if (ts.tv_sec >= Long.MAX_VALUE / 1_000_000_000L - 1) {
+            return NO_TIMEOUT;
+        }
+        long ns = ts.tv_sec * 1_000_000_000L + ts.tv_nsec;
+        long now = System.nanoTime();
+        if (!absolute) {
+            return now + ns;
+        } else if (realtime) {
+            return now + (ns - System.currentTimeMillis() * 1_000_000L);
+        } else {
+            // CLOCK_MONOTONIC is based on System.nanoTime
+            return ns;
+        }
+    }
+
+    private int wait(PosixPointer uaddr, int val, long deadline, int bitset) throws PosixException {
+        if (bitset == 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        Waiter w = new Waiter(uaddr.getAddress(), bitset);
+        Bucket b = bucket(w.address);
+        b.lock();
+        try {
+            if (uaddr.getI32() != val) {
+                throw new PosixException(Errno.EAGAIN);
+            }
+            b.enqueue(w);
+            b.waits++;
+        } finally {
+            b.unlock();
+        }
+
+        boolean interrupted = false;
+        while (!w.woken) {
+            if (deadline == NO_TIMEOUT) {
+                LockSupport.park(this);
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
                 }
+                LockSupport.parkNanos(this, remaining);
             }
-            case FUTEX_WAIT:
-            case FUTEX_WAIT_PRIVATE: {
-                // is this racy?
-                Object newo = new Object();
-                Object o = futexes.putIfAbsent(uaddr.getAddress(), newo);
-                if (o == null) {
-                    o = newo;
+            if (Thread.interrupted()) {
+                interrupted = true;
+                break;
+            }
+        }
+
+        if (w.woken || !cancel(w)) {
+            if (interrupted) {
+                // the interrupt was not consumed by this call
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        } else if (interrupted) {
+            throw new PosixException(Errno.EINTR);
+        } else {
+            throw new PosixException(Errno.ETIMEDOUT);
+        }
+    }
+
+    // removes a waiter after a timeout; returns false if it was woken up in the meantime
+    private static boolean cancel(Waiter w) {
+        while (true) {
+            Bucket b = w.bucket;
+            b.lock();
+            try {
+                if (w.bucket != b) {
+                    // requeued concurrently
+                    continue;
                 }
-                synchronized (o) {
-                    if (uaddr.getI32() != val) {
-                        if (o == newo) {
-                            futexes.remove(uaddr.getAddress());
-                        }
-                        throw new PosixException(Errno.EAGAIN);
-                    }
-                    try {
-                        o.wait();
-                    } catch (InterruptedException e) {
-                        // nothing
+                if (w.woken) {
+                    return false;
+                }
+                b.remove(w);
+                b.timeouts++;
+                return true;
+            } finally {
+                b.unlock();
+            }
+        }
+    }
+
+    // caller must hold the lock of b
+    private static int wakeLocked(Bucket b, long address, int count, int bitset) {
+        int woken = 0;
+        Waiter w = b.head;
+        while (w != null) {
+            Waiter next = w.next;
+            if (w.address == address && (w.bitset & bitset) != 0) {
+                b.wake(w);
+                // like Linux, at least one waiter is woken up even if count <= 0
+                if (++woken >= count) {
+                    break;
+                }
+            }
+            w = next;
+        }
+        return woken;
+    }
+
+    private int wake(PosixPointer uaddr, int count, int bitset) throws PosixException {
+        if (bitset == 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        long address = uaddr.getAddress();
+        Bucket b = bucket(address);
+        b.lock();
+        try {
+            return wakeLocked(b, address, count, bitset);
+        } finally {
+            b.unlock();
+        }
+    }
+
+    private int requeue(PosixPointer uaddr, int wakeCount, int requeueCount, PosixPointer uaddr2, boolean cmp, int val3) throws PosixException {
+        if (requeueCount < 0 || uaddr2 == null) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        long address = uaddr.getAddress();
+        long address2 = uaddr2.getAddress();
+        Bucket b1 = bucket(address);
+        Bucket b2 = bucket(address2);
+        lock(b1, b2);
+        try {
+            if (cmp && uaddr.getI32() != val3) {
+                throw new PosixException(Errno.EAGAIN);
+            }
+            int woken = 0;
+            List<Waiter> requeued = new ArrayList<>();
+            Waiter w = b1.head;
+            while (w != null) {
+                Waiter next = w.next;
+                if (w.address == address) {
+                    if (woken < wakeCount) {
+                        b1.wake(w);
+                        woken++;
+                    } else if (requeued.size() < requeueCount) {
+                        // move the waiter to the target futex instead of waking it up; it is
+                        // enqueued after the walk, since b2 may be b1 and address2 may be address
+                        b1.remove(w);
+                        requeued.add(w);
+                        b1.requeues++;
+                    } else {
+                        break;
                     }
                 }
-                return 0;
+                w = next;
+            }
+            for (Waiter r : requeued) {
+                r.address = address2;
+                b2.enqueue(r);
+            }
+            return woken + requeued.size();
+        } finally {
+            unlock(b1, b2);
+        }
+    }
+
+    private static int signExtend12(int value) {
+        return (value << 20) >> 20;
+    }
+
+    private int wakeOp(PosixPointer uaddr, int wakeCount, int wakeCount2, PosixPointer uaddr2, int val3) throws PosixException {
+        if (uaddr2 == null) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        int op = (val3 >>> 28) & 0xf;
+        int cmp = (val3 >>> 24) & 0xf;
+        int oparg = signExtend12(val3 >>> 12);
+        int cmparg = signExtend12(val3);
+        if ((op & FUTEX_OP_OPARG_SHIFT) != 0) {
+            oparg = 1 << (oparg & 31);
+            op &= ~FUTEX_OP_OPARG_SHIFT;
+        }
+
+        long address = uaddr.getAddress();
+        long address2 = uaddr2.getAddress();
+        Bucket b1 = bucket(address);
+        Bucket b2 = bucket(address2);
+        lock(b1, b2);
+        try {
+            // guest memory has no compare-and-swap; the update is atomic with respect to all
+            // other futex operations on both addresses
+            int oldval = uaddr2.getI32();
+            int newval;
+            switch (op) {
+                case FUTEX_OP_SET:
+                    newval = oparg;
+                    break;
+                case FUTEX_OP_ADD:
+                    newval = oldval + oparg;
+                    break;
+                case FUTEX_OP_OR:
+                    newval = oldval | oparg;
+                    break;
+                case FUTEX_OP_ANDN:
+                    newval = oldval & ~oparg;
+                    break;
+                case FUTEX_OP_XOR:
+                    newval = oldval ^ oparg;
+                    break;
+                default:
+                    throw new PosixException(Errno.ENOSYS);
             }
+            boolean wake2;
+            switch (cmp) {
+                case FUTEX_OP_CMP_EQ:
+                    wake2 = oldval == cmparg;
+                    break;
+                case FUTEX_OP_CMP_NE:
+                    wake2 = oldval != cmparg;
+                    break;
+                case FUTEX_OP_CMP_LT:
+                    wake2 = oldval < cmparg;
+                    break;
+                case FUTEX_OP_CMP_LE:
+                    wake2 = oldval <= cmparg;
+                    break;
+                case FUTEX_OP_CMP_GT:
+                    wake2 = oldval > cmparg;
+                    break;
+                case FUTEX_OP_CMP_GE:
+                    wake2 = oldval >= cmparg;
+                    break;
+                default:
+                    throw new PosixException(Errno.ENOSYS);
+            }
+            uaddr2.setI32(newval);
+
+            int woken = wakeLocked(b1, address, wakeCount, FUTEX_BITSET_MATCH_ANY);
+            if (wake2) {
+                woken += wakeLocked(b2, address2, wakeCount2, FUTEX_BITSET_MATCH_ANY);
+            }
+            return woken;
+        } finally {
+            unlock(b1, b2);
+        }
+    }
+
+    // for REQUEUE and WAKE_OP, the timeout argument carries a second count
+    private static int val2(PosixPointer timeout) {
+        return timeout == null ? 0 : (int) timeout.getAddress();
+    }
+
+    public int futex(PosixPointer uaddr, int futex_op, int val, PosixPointer timeout, PosixPointer uaddr2, int val3) throws PosixException {
+        if (uaddr == null) {
+            throw new PosixException(Errno.EFAULT);
+        }
+        int cmd = futex_op & FUTEX_CMD_MASK;
+        boolean realtime = (futex_op & FUTEX_CLOCK_REALTIME) != 0;
+        if (realtime && cmd != FUTEX_WAIT && cmd != FUTEX_WAIT_BITSET) {
+            throw new PosixException(Errno.ENOSYS);
+        }
+        switch (cmd) {
+            case FUTEX_WAIT:
+                return wait(uaddr, val, deadline(timeout, false, false), FUTEX_BITSET_MATCH_ANY);
+            case FUTEX_WAIT_BITSET:
+                return wait(uaddr, val, deadline(timeout, true, realtime), val3);
+            case FUTEX_WAKE:
+                return wake(uaddr, val, FUTEX_BITSET_MATCH_ANY);
+            case FUTEX_WAKE_BITSET:
+                return wake(uaddr, val, val3);
+            case FUTEX_REQUEUE:
+                return requeue(uaddr, val, val2(timeout), uaddr2, false, 0);
+            case FUTEX_CMP_REQUEUE:
+                return requeue(uaddr, val, val2(timeout), uaddr2, true, val3);
+            case FUTEX_WAKE_OP:
+                return wakeOp(uaddr, val, val2(timeout), uaddr2, val3);
             default:
+                // FUTEX_FD was removed from Linux; the PI operations need the guest TID
                 throw new PosixException(Errno.ENOSYS);
         }
     }
 
+    /**
+     * Returns the counters of all buckets which were used so far.
+     */
+    public List<Statistics> getStatistics() {
+        List<Statistics> result = new ArrayList<>();
+        for (Bucket b : buckets) {
+            b.lock.lock();
+            try {
+                if (b.waits != 0 || b.wakeups != 0 || b.contended != 0) {
+                    result.add(new Statistics(b));
+                }
+            } finally {
+                b.lock.unlock();
+            }
+        }
+        return result;
+    }
+
     public static String op(int futex_op) {
+        if ((futex_op & FUTEX_CLOCK_REALTIME) != 0) {
+            return op(futex_op & ~FUTEX_CLOCK_REALTIME) + "|FUTEX_CLOCK_REALTIME";
+        }
         switch (futex_op) {
             case FUTEX_WAIT:
                 return "FUTEX_WAIT";
@@ -224,7 +632,7 @@ public class Futex {
             case FUTEX_CMP_REQUEUE_PRIVATE:
                 return "FUTEX_CMP_REQUEUE_PRIVATE";
             case FUTEX_WAKE_OP_PRIVATE:
-                return "FUTEX_CMP_REQUEUE_PRIVATE";
+                return "FUTEX_WAKE_OP_PRIVATE";
             case FUTEX_LOCK_PI_PRIVATE:
                 return "FUTEX_LOCK_PI_PRIVATE";
             case FUTEX_UNLOCK_PI_PRIVATE:
@@ -46,6 +46,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -144,6 +145,10 @@ public class Linux {
         return futex.futex(uaddr, futex_op, val, timeout, uaddr2, val3);
     }
 
+    public List<Futex.Statistics> getFutexStatistics() {
+        return futex.getStatistics();
+    }
+
     public PosixPointer getClearChildTid() {
         return clear_child_tid.get();
     }
@@ -84,9 +84,9 @@ public class DatagramSocketStream extends NetworkStream {
     public void setFlags(int flags) throws PosixException {
         try {
             if (BitTest.test(flags, Fcntl.O_NONBLOCK) && socket.isBlocking()) {
-                socket.configureBlocking(false);
+                configureBlocking(false);
             } else if (!BitTest.test(flags, Fcntl.O_NONBLOCK) && !socket.isBlocking()) {
-                socket.configureBlocking(true);
+                configureBlocking(true);
             }
         } catch (IOException e) {
             log.log(Level.WARNING, "Error while changing stream flags: " + e.getMessage(), e);
@@ -145,6 +145,7 @@ public class DatagramSocketStream extends NetworkStream {
             }
             int port = addr.sin_port;
             SocketAddress remote = new InetSocketAddress(remoteAddr, port);
+            beginIO();
             try {
                 socket.connect(remote);
                 return 0;
@@ -158,6 +159,8 @@ public class DatagramSocketStream extends NetworkStream {
                 throw new PosixException(Errno.EBADF);
             } catch (IOException e) {
                 throw new PosixException(Errno.EIO);
+            } finally {
+                endIO();
             }
         } else if (saddr.sa_family == Socket.AF_INET6) {
             SockaddrIn6 addr = new SockaddrIn6();
@@ -173,6 +176,7 @@ public class DatagramSocketStream extends NetworkStream {
             }
             int port = addr.sin6_port;
             SocketAddress remote = new InetSocketAddress(remoteAddr, port);
+            beginIO();
             try {
                 socket.connect(remote);
                 return 0;
@@ -186,6 +190,8 @@ public class DatagramSocketStream extends NetworkStream {
                 throw new PosixException(Errno.EBADF);
             } catch (IOException e) {
                 throw new PosixException(Errno.EIO);
+            } finally {
+                endIO();
             }
         } else {
             throw new PosixException(Errno.EAFNOSUPPORT);
@@ -267,6 +273,7 @@ public class DatagramSocketStream extends NetworkStream {
     @Override
     public int read(byte[] buf, int offset, int length) throws PosixException {
         ByteBuffer b = ByteBuffer.wrap(buf, offset, length);
+        beginIO();
         try {
             int result = socket.read(b);
             if (result > 0) {
@@ -279,18 +286,23 @@ public class DatagramSocketStream extends NetworkStream {
             }
         } catch (IOException e) {
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
     @Override
     public int write(byte[] buf, int offset, int length) throws PosixException {
         ByteBuffer b = ByteBuffer.wrap(buf, offset, length);
+        beginIO();
         try {
             return socket.write(b);
         } catch (NotYetConnectedException e) {
             throw new PosixException(Errno.ECONNRESET);
         } catch (IOException e) {
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
@@ -322,12 +334,15 @@ public class DatagramSocketStream extends NetworkStream {
             }
         }
         buf.flip();
+        beginIO();
         try {
             return socket.write(buf);
         } catch (NotYetConnectedException e) {
             throw new PosixException(Errno.ECONNRESET);
         } catch (IOException e) {
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
@@ -360,6 +375,7 @@ public class DatagramSocketStream extends NetworkStream {
         }
 
         SocketAddress target = getSocketAddress(dest_addr);
+        beginIO();
         try {
             return socket.send(buf, target);
         } catch (NotYetConnectedException e) {
@@ -368,6 +384,8 @@ public class DatagramSocketStream extends NetworkStream {
             throw new PosixException(Errno.EBADF);
         } catch (IOException e) {
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
@@ -376,6 +394,7 @@ public class DatagramSocketStream extends NetworkStream {
         // TODO: use the flags
         ByteBuffer buf = ByteBuffer.allocate((int) length);
         RecvResult result = new RecvResult();
+        beginIO();
         try {
             SocketAddress addr = socket.receive(buf);
             result.length = buf.position();
@@ -396,6 +415,8 @@ public class DatagramSocketStream extends NetworkStream {
         } catch (IOException e) {
             log.log(Level.WARNING, "I/O error: " + e.getMessage(), e);
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
         return result;
     }
@@ -412,6 +433,7 @@ public class DatagramSocketStream extends NetworkStream {
         }
 
         ByteBuffer buf = ByteBuffer.allocate(length);
+        beginIO();
         try {
             SocketAddress addr = socket.receive(buf);
             length = buf.position();
@@ -441,6 +463,8 @@ public class DatagramSocketStream extends NetworkStream {
         } catch (IOException e) {
             log.log(Level.WARNING, "I/O error: " + e.getMessage(), e);
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
@@ -45,16 +45,23 @@ import static org.graalvm.vm.posix.api.io.Stat.S_IRUSR;
 import static org.graalvm.vm.posix.api.io.Stat.S_IWGRP;
 import static org.graalvm.vm.posix.api.io.Stat.S_IWUSR;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.SelectableChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
 import org.graalvm.vm.posix.api.PosixPointer;
 import org.graalvm.vm.posix.api.Timespec;
+import org.graalvm.vm.posix.api.io.EventPoll;
 import org.graalvm.vm.posix.api.io.Stat;
 import org.graalvm.vm.posix.api.io.Statx;
 import org.graalvm.vm.posix.api.io.StatxTimestamp;
@@ -62,6 +69,104 @@ import org.graalvm.vm.posix.api.io.Stream;
 import org.graalvm.vm.util.io.Endianess;
 
 public abstract class NetworkStream extends Stream {
+    // poll/epoll instances whose selector this channel is registered with
+    private final List<EventPoll> pollers = new CopyOnWriteArrayList<>();
+    // advanced by every I/O operation; edge triggered notifications are re-armed by it
+    private final AtomicLong generation = new AtomicLong();
+
+    public void addPoller(EventPoll poller) {
+        pollers.add(poller);
+    }
+
+    public void removePoller(EventPoll poller) {
+        pollers.remove(poller);
+    }
+
+    // shared by I/O operations, exclusive while a poller switched a blocking channel to
+    // non-blocking mode for a wait; fair, so polling cannot starve a waiting reader or writer
+    private final ReentrantReadWriteLock ioLock = new ReentrantReadWriteLock(true);
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Called before every read, write or connect on the channel; must be followed by
+     * {@link #endIO()}.
+     */
+    protected void beginIO() {
+        ioLock.readLock().lock();
+        generation.incrementAndGet();
+        if (!pollers.isEmpty()) {
+            for (EventPoll poller : pollers) {
+                poller.rearm(this);
+            }
+        }
+    }
+
+    protected void endIO() {
+        ioLock.readLock().unlock();
+    }
+
+    /**
+     * Switches a channel in blocking mode to non-blocking mode so it can be selected, unless an
+     * I/O operation or a mode change is in progress or waiting.
+     *
+     * @return true if the channel was switched; it has to be restored with {@link #endProbe()}
+     */
+    public boolean beginProbe() {
+        try {
+            // unlike tryLock(), this respects the fairness of the lock
+            if (!ioLock.writeLock().tryLock(0, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        SelectableChannel channel = getChannel();
+        try {
+            if (channel.isOpen() && channel.isBlocking()) {
+                channel.configureBlocking(false);
+                return true;
+            }
+        } catch (IOException e) {
+            // closed concurrently
+        }
+        ioLock.writeLock().unlock();
+        return false;
+    }
+
+    /**
+     * Switches the channel back to blocking mode after {@link #beginProbe()}. The channel must not
+     * be registered with any selector anymore.
+     */
+    public void endProbe() {
+        try {
+            getChannel().configureBlocking(true);
+        } catch (IOException e) {
+            // closed concurrently
+        } finally {
+            ioLock.writeLock().unlock();
+        }
+    }
+
+    protected void configureBlocking(boolean blocking) throws IOException {
+        SelectableChannel channel = getChannel();
+        ioLock.readLock().lock();
+        try {
+            if (blocking && channel.isRegistered()) {
+                // a channel in blocking mode must not be registered with any selector
+                for (EventPoll poller : pollers) {
+                    poller.release(this);
+                }
+            }
+            channel.configureBlocking(blocking);
+        } finally {
+            ioLock.readLock().unlock();
+        }
+    }
+
     public abstract int setsockopt(int level, int option_name, int option_value) throws PosixException;
 
     public abstract int connect(PosixPointer address, int addressLen) throws PosixException;
@@ -40,7 +40,6 @@
  */
 package org.graalvm.vm.posix.api.net;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -51,6 +50,7 @@ import java.util.stream.Collectors;
 
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.io.Fcntl;
 import org.graalvm.vm.posix.api.io.Stream;
 import org.graalvm.vm.util.BitTest;
 import org.graalvm.vm.util.log.Trace;
@@ -474,11 +474,11 @@ public class Socket {
 
         if (BitTest.test(type, SOCK_NONBLOCK)) {
             try {
-                socket.getChannel().configureBlocking(true);
-            } catch (IOException e) {
-                log.log(Level.WARNING, "Cannot set socket to non-blocking: " + e.getMessage(), e);
+                socket.setFlags(Fcntl.O_NONBLOCK);
+            } catch (PosixException e) {
+                log.log(Level.WARNING, "Cannot set socket to non-blocking");
                 socket.close();
-                throw new PosixException(Errno.EIO);
+                throw e;
             }
         }
         return socket;
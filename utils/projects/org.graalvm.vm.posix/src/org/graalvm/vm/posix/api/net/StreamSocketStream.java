@@ -86,9 +86,9 @@ public class StreamSocketStream extends NetworkStream {
     public void setFlags(int flags) throws PosixException {
         try {
             if (BitTest.test(flags, Fcntl.O_NONBLOCK) && socket.isBlocking()) {
-                socket.configureBlocking(false);
+                configureBlocking(false);
             } else if (!BitTest.test(flags, Fcntl.O_NONBLOCK) && !socket.isBlocking()) {
-                socket.configureBlocking(true);
+                configureBlocking(true);
             }
         } catch (IOException e) {
             log.log(Level.WARNING, "Error while changing stream flags: " + e.getMessage(), e);
@@ -156,6 +156,7 @@ public class StreamSocketStream extends NetworkStream {
             }
             int port = addr.sin_port;
             SocketAddress remote = new InetSocketAddress(remoteAddr, port);
+            beginIO();
             try {
                 socket.connect(remote);
                 return 0;
@@ -171,6 +172,8 @@ public class StreamSocketStream extends NetworkStream {
                 throw new PosixException(Errno.ECONNREFUSED);
             } catch (IOException e) {
                 throw new PosixException(Errno.EIO);
+            } finally {
+                endIO();
             }
         } else if (saddr instanceof SockaddrIn6) {
             SockaddrIn6 addr = (SockaddrIn6) saddr;
@@ -185,6 +188,7 @@ public class StreamSocketStream extends NetworkStream {
             }
             int port = addr.sin6_port;
             SocketAddress remote = new InetSocketAddress(remoteAddr, port);
+            beginIO();
             try {
                 socket.connect(remote);
                 return 0;
@@ -200,6 +204,8 @@ public class StreamSocketStream extends NetworkStream {
                 throw new PosixException(Errno.ECONNREFUSED);
             } catch (IOException e) {
                 throw new PosixException(Errno.EIO);
+            } finally {
+                endIO();
             }
         } else {
             throw new PosixException(Errno.EAFNOSUPPORT);
@@ -284,6 +290,7 @@ public class StreamSocketStream extends NetworkStream {
     @Override
     public int read(byte[] buf, int offset, int length) throws PosixException {
         ByteBuffer b = ByteBuffer.wrap(buf, offset, length);
+        beginIO();
         try {
             int result = socket.read(b);
             if (result > 0) {
@@ -296,18 +303,57 @@ public class StreamSocketStream extends NetworkStream {
             }
         } catch (IOException e) {
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
     @Override
     public int write(byte[] buf, int offset, int length) throws PosixException {
         ByteBuffer b = ByteBuffer.wrap(buf, offset, length);
+        beginIO();
         try {
             return socket.write(b);
         } catch (NotYetConnectedException e) {
             throw new PosixException(Errno.ECONNRESET);
         } catch (IOException e) {
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer[] dsts) throws PosixException {
+        beginIO();
+        try {
+            long result = socket.read(dsts);
+            if (result > 0) {
+                return (int) result;
+            } else if (result == 0) {
+                throw new PosixException(Errno.EAGAIN);
+            } else {
+                // -1 in Java = eof
+                return 0;
+            }
+        } catch (IOException e) {
+            throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer[] srcs) throws PosixException {
+        beginIO();
+        try {
+            return (int) socket.write(srcs);
+        } catch (NotYetConnectedException e) {
+            throw new PosixException(Errno.ECONNRESET);
+        } catch (IOException e) {
+            throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
@@ -348,6 +394,7 @@ public class StreamSocketStream extends NetworkStream {
         // TODO: use the flags
         ByteBuffer buf = ByteBuffer.allocate((int) length);
         RecvResult result = new RecvResult();
+        beginIO();
         try {
             result.length = socket.read(buf);
             SocketAddress addr = socket.getRemoteAddress();
@@ -368,6 +415,8 @@ public class StreamSocketStream extends NetworkStream {
         } catch (IOException e) {
             log.log(Level.WARNING, "I/O error: " + e.getMessage(), e);
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
         return result;
     }
@@ -386,6 +435,7 @@ public class StreamSocketStream extends NetworkStream {
         ByteBuffer buf = ByteBuffer.allocate(length);
 
         length = 0;
+        beginIO();
         try {
             length = socket.read(buf);
             if (length == -1) {
@@ -426,6 +476,8 @@ public class StreamSocketStream extends NetworkStream {
         } catch (IOException e) {
             log.log(Level.WARNING, "I/O error: " + e.getMessage(), e);
             throw new PosixException(Errno.EIO);
+        } finally {
+            endIO();
         }
     }
 
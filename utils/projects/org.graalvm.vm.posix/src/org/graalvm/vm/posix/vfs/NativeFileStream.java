@@ -56,6 +56,7 @@ import java.nio.file.Path;
 import java.util.logging.Logger;
 
 import org.graalvm.vm.posix.api.ByteBufferPosixPointer;
+import org.graalvm.vm.posix.api.CopyOnWritePosixPointer;
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.Posix;
 import org.graalvm.vm.posix.api.PosixException;
@@ -199,6 +200,82 @@ public class NativeFileStream extends Stream {
         }
     }
 
+    @Override
+    public int read(ByteBuffer[] dsts) throws PosixException {
+        if (!r) {
+            throw new PosixException(Errno.EBADF);
+        }
+        try {
+            long n = file.getChannel().read(dsts);
+            if (n == -1) {
+                return 0;
+            } else {
+                return (int) n;
+            }
+        } catch (IOException e) {
+            throw new PosixException(Errno.EIO);
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer[] srcs) throws PosixException {
+        if (!w) {
+            throw new PosixException(Errno.EBADF);
+        }
+        int length = remaining(srcs);
+        try {
+            FileChannel chan = file.getChannel();
+            int written = 0;
+            while (written < length) {
+                written += (int) chan.write(srcs);
+            }
+            return written;
+        } catch (IOException e) {
+            throw new PosixException(Errno.EIO);
+        }
+    }
+
+    @Override
+    public int pread(ByteBuffer[] dsts, long fileOffset) throws PosixException {
+        if (dsts.length != 1) {
+            return super.pread(dsts, fileOffset);
+        }
+        if (!r) {
+            throw new PosixException(Errno.EBADF);
+        }
+        if (fileOffset < 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        try {
+            int n = file.getChannel().read(dsts[0], fileOffset);
+            if (n == -1) {
+                return 0;
+            } else {
+                return n;
+            }
+        } catch (IOException e) {
+            throw new PosixException(Errno.EIO);
+        }
+    }
+
+    @Override
+    public int pwrite(ByteBuffer[] srcs, long fileOffset) throws PosixException {
+        if (srcs.length != 1) {
+            return super.pwrite(srcs, fileOffset);
+        }
+        if (!w) {
+            throw new PosixException(Errno.EBADF);
+        }
+        if (fileOffset < 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        try {
+            return file.getChannel().write(srcs[0], fileOffset);
+        } catch (IOException e) {
+            throw new PosixException(Errno.EIO);
+        }
+    }
+
     @Override
     public int close() throws PosixException {
         try {
@@ -293,29 +370,26 @@ public class NativeFileStream extends Stream {
                 throw new PosixException(Errno.EINVAL);
             }
             long realsize = roundToPageSize(size);
-            long rem = chan.size() - off;
             assert chan.size() > 0;
-            assert rem > 0;
-            // TODO: why was there a buffer size truncation?
-            // if(Long.compareUnsigned(rem, realsize) < 0) {
-            // realsize = rem;
-            // }
-            if (BitTest.test(flags, Mman.MAP_PRIVATE) && BitTest.test(prot, Mman.PROT_WRITE)) {
-                assert size == (int) size;
-                ByteBuffer buf = ByteBuffer.allocate((int) realsize);
-                chan.read(buf, off);
-                // ByteBuffer buf = chan.map(MapMode.PRIVATE, off, size);
-                return new ByteBufferPosixPointer(buf, 0, roundToPageSize(size), realsize, path.toAbsolutePath().normalize().toString());
-            } else if (BitTest.test(flags, Mman.MAP_SHARED)) {
-                // TODO: implement properly
-                assert size == (int) size;
-                ByteBuffer buf = ByteBuffer.allocate((int) realsize);
-                chan.read(buf, off);
-                return new ByteBufferPosixPointer(buf, 0, roundToPageSize(size), realsize, path.toAbsolutePath().normalize().toString());
+            // only the part inside the file is mapped, the rest of the last page reads as zero
+            long mapped = Math.min(realsize, chan.size() - off);
+            assert mapped > 0;
+            String name = path.toAbsolutePath().normalize().toString();
+            if (BitTest.test(flags, Mman.MAP_SHARED)) {
+                ByteBuffer buf;
+                try {
+                    buf = chan.map(MapMode.READ_WRITE, off, mapped);
+                } catch (NonWritableChannelException e) {
+                    if (BitTest.test(prot, Mman.PROT_WRITE)) {
+                        throw new PosixException(Errno.EACCES);
+                    }
+                    buf = chan.map(MapMode.READ_ONLY, off, mapped);
+                }
+                return new ByteBufferPosixPointer(buf, 0, realsize, mapped, name);
             } else {
-                // TODO: implement write mode
-                ByteBuffer buf = chan.map(MapMode.READ_ONLY, off, size);
-                return new ByteBufferPosixPointer(buf, 0, roundToPageSize(size), realsize, path.toAbsolutePath().normalize().toString());
+                // pages are copied on the first write, everything else stays in the page cache
+                ByteBuffer buf = chan.map(MapMode.READ_ONLY, off, mapped);
+                return new CopyOnWritePosixPointer(buf, realsize, name);
             }
         } catch (IOException e) {
             e.printStackTrace();
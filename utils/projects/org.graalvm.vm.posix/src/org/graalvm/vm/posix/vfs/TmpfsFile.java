@@ -40,6 +40,7 @@
  */
 package org.graalvm.vm.posix.vfs;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Date;
 
@@ -47,8 +48,24 @@ import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
 import org.graalvm.vm.posix.api.io.Stream;
 
+/**
+ * A file in memory. The content is stored in fixed size pages which are allocated on first write,
+ * so that appending and writing at an offset only touch the pages in question. Pages which were
+ * never written are holes and read as zero. Shared mappings access the pages directly, therefore a
+ * page is never moved once it was allocated.
+ */
 public class TmpfsFile extends VFSFile {
-    private byte[] data;
+    public static final int PAGE_SHIFT = 12;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    public static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // the page table is indexed by int
+    public static final long MAX_SIZE = (long) Integer.MAX_VALUE << PAGE_SHIFT;
+
+    private static final byte[][] NO_PAGES = new byte[0][];
+
+    private byte[][] pages;
+    private long size;
     private Date atime;
     private Date mtime;
     private Date ctime;
@@ -58,50 +75,176 @@ public class TmpfsFile extends VFSFile {
         atime = new Date();
         mtime = atime;
         ctime = atime;
-        data = new byte[0];
+        pages = NO_PAGES;
+        size = 0;
     }
 
     public void setContent(byte[] data) {
         mtime = new Date();
-        this.data = data;
+        pages = NO_PAGES;
+        size = 0;
+        store(0, data, 0, data.length);
     }
 
+    /**
+     * Returns a copy of the whole content.
+     */
     public byte[] getContent() {
+        if (size != (int) size) {
+            throw new OutOfMemoryError("file too large");
+        }
+        byte[] data = new byte[(int) size];
+        read(0, data, 0, data.length);
         return data;
     }
 
-    int read(int pos, byte[] buf, int offset, int length) {
-        int len = length;
-        if (pos + length > data.length) {
-            len = data.length - pos;
+    private static int pageIndex(long pos) {
+        assert pos >= 0 && pos < MAX_SIZE;
+        return (int) (pos >>> PAGE_SHIFT);
+    }
+
+    private static void checkEnd(long pos, int length) throws PosixException {
+        if (pos < 0 || pos + length < 0 || pos + length > MAX_SIZE) {
+            throw new PosixException(Errno.EFBIG);
         }
-        if (len < 0) {
+    }
+
+    /**
+     * Returns the page which contains the byte at {@code pos}, or null if it is a hole.
+     */
+    byte[] getPage(long pos) {
+        int idx = pageIndex(pos);
+        if (idx < pages.length) {
+            return pages[idx];
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the page which contains the byte at {@code pos} and allocates it if it is a hole. This
+     * does not change the size of the file.
+     */
+    byte[] getOrCreatePage(long pos) {
+        int idx = pageIndex(pos);
+        if (idx >= pages.length) {
+            int capacity = Math.max(idx + 1, pages.length * 2);
+            pages = Arrays.copyOf(pages, capacity);
+        }
+        byte[] page = pages[idx];
+        if (page == null) {
+            page = new byte[PAGE_SIZE];
+            pages[idx] = page;
+        }
+        return page;
+    }
+
+    int read(long pos, byte[] buf, int offset, int length) {
+        int len = (int) Math.min(length, size - pos);
+        if (len <= 0) {
             return 0;
         }
-        System.arraycopy(data, pos, buf, offset, len);
+        int done = 0;
+        while (done < len) {
+            long p = pos + done;
+            int off = (int) (p & PAGE_MASK);
+            int n = Math.min(len - done, PAGE_SIZE - off);
+            byte[] page = getPage(p);
+            if (page == null) {
+                Arrays.fill(buf, offset + done, offset + done + n, (byte) 0);
+            } else {
+                System.arraycopy(page, off, buf, offset + done, n);
+            }
+            done += n;
+        }
         return len;
     }
 
-    void append(byte[] buf, int offset, int length) {
+    int read(long pos, ByteBuffer dst) {
+        int len = (int) Math.min(dst.remaining(), size - pos);
+        if (len <= 0) {
+            return 0;
+        }
+        int done = 0;
+        while (done < len) {
+            long p = pos + done;
+            int off = (int) (p & PAGE_MASK);
+            int n = Math.min(len - done, PAGE_SIZE - off);
+            byte[] page = getPage(p);
+            if (page == null) {
+                for (int i = 0; i < n; i++) {
+                    dst.put((byte) 0);
+                }
+            } else {
+                dst.put(page, off, n);
+            }
+            done += n;
+        }
+        return len;
+    }
+
+    void write(long pos, byte[] buf, int offset, int length) throws PosixException {
+        checkEnd(pos, length);
+        store(pos, buf, offset, length);
+    }
+
+    private void store(long pos, byte[] buf, int offset, int length) {
         mtime = new Date();
-        int pos = data.length;
-        data = Arrays.copyOf(data, data.length + length);
-        System.arraycopy(buf, offset, data, pos, length);
+        int done = 0;
+        while (done < length) {
+            long p = pos + done;
+            int off = (int) (p & PAGE_MASK);
+            int n = Math.min(length - done, PAGE_SIZE - off);
+            System.arraycopy(buf, offset + done, getOrCreatePage(p), off, n);
+            done += n;
+        }
+        if (pos + length > size) {
+            size = pos + length;
+        }
     }
 
-    void insert(int pos, byte[] buf, int offset, int length) {
+    void write(long pos, ByteBuffer src) throws PosixException {
+        int length = src.remaining();
+        checkEnd(pos, length);
         mtime = new Date();
-        byte[] oldData = data;
-        data = Arrays.copyOf(data, data.length + length);
-        System.arraycopy(buf, offset, data, pos, length);
-        System.arraycopy(oldData, pos, data, pos + length, oldData.length - pos);
+        int done = 0;
+        while (done < length) {
+            long p = pos + done;
+            int off = (int) (p & PAGE_MASK);
+            int n = Math.min(length - done, PAGE_SIZE - off);
+            src.get(getOrCreatePage(p), off, n);
+            done += n;
+        }
+        if (pos + length > size) {
+            size = pos + length;
+        }
     }
 
-    void truncate(int length) throws PosixException {
-        if (length < 0) {
+    void append(byte[] buf, int offset, int length) throws PosixException {
+        write(size, buf, offset, length);
+    }
+
+    void truncate(long length) throws PosixException {
+        if (length < 0 || length > MAX_SIZE) {
             throw new PosixException(Errno.EINVAL);
         }
-        this.data = Arrays.copyOf(data, length);
+        mtime = new Date();
+        if (length < size) {
+            // drop the pages behind the new end and clear the tail of the last page, so that the
+            // old content does not reappear if the file grows again
+            int count = pageIndex(length + PAGE_MASK);
+            for (int i = count; i < pages.length; i++) {
+                pages[i] = null;
+            }
+            byte[] last = getPage(length);
+            if (last != null) {
+                Arrays.fill(last, (int) (length & PAGE_MASK), PAGE_SIZE, (byte) 0);
+            }
+            if (count < pages.length / 2) {
+                pages = Arrays.copyOf(pages, count);
+            }
+        }
+        size = length;
     }
 
     @Override
@@ -112,7 +255,7 @@ public class TmpfsFile extends VFSFile {
 
     @Override
     public long size() {
-        return data.length;
+        return size;
     }
 
     @Override
@@ -40,60 +40,203 @@
  */
 package org.graalvm.vm.posix.vfs;
 
+import static org.graalvm.vm.posix.vfs.TmpfsFile.PAGE_MASK;
+import static org.graalvm.vm.posix.vfs.TmpfsFile.PAGE_SHIFT;
+import static org.graalvm.vm.posix.vfs.TmpfsFile.PAGE_SIZE;
+
+import java.nio.ByteBuffer;
+
+import org.graalvm.vm.posix.api.MemoryFaultException;
 import org.graalvm.vm.posix.api.PosixPointer;
 import org.graalvm.vm.util.io.Endianess;
 
+/**
+ * A mapping of a {@link TmpfsFile}. Shared mappings access the pages of the file, so that writes
+ * through the mapping and writes to the file are visible to each other. Private mappings copy a page
+ * on the first write to it and keep the copy for themselves.
+ */
 public class TmpfsFileMemory implements PosixPointer {
-    private TmpfsFile file;
-    private long offset;
+    private static final byte[] ZERO_PAGE = new byte[PAGE_SIZE];
+
+    private final TmpfsFile file;
+    private final long base;
+    private final long size;
+    private final long offset;
+    private final byte[][] copies;
+
+    public TmpfsFileMemory(TmpfsFile file, long base, long size, boolean shared) {
+        this(file, base, size, 0, shared ? null : new byte[(int) ((size + PAGE_MASK) >>> PAGE_SHIFT)][]);
+        assert (base & PAGE_MASK) == 0;
+    }
 
-    public TmpfsFileMemory(TmpfsFile file, long offset) {
+    private TmpfsFileMemory(TmpfsFile file, long base, long size, long offset, byte[][] copies) {
         this.file = file;
+        this.base = base;
+        this.size = size;
         this.offset = offset;
+        this.copies = copies;
     }
 
     @Override
     public PosixPointer add(long off) {
-        return new TmpfsFileMemory(file, offset + off);
+        return new TmpfsFileMemory(file, base, size, offset + off, copies);
+    }
+
+    @Override
+    public long size() {
+        return size - offset;
+    }
+
+    private long check(int length) {
+        if (offset < 0 || offset + length > size) {
+            throw new MemoryFaultException("access outside of mapping");
+        }
+        return base + offset;
+    }
+
+    private byte[] page(long pos) {
+        if (copies != null) {
+            byte[] copy = copies[(int) ((pos - base) >>> PAGE_SHIFT)];
+            if (copy != null) {
+                return copy;
+            }
+        }
+        return file.getPage(pos);
+    }
+
+    private byte[] writablePage(long pos) {
+        if (copies == null) {
+            return file.getOrCreatePage(pos);
+        }
+        int idx = (int) ((pos - base) >>> PAGE_SHIFT);
+        byte[] copy = copies[idx];
+        if (copy == null) {
+            byte[] page = file.getPage(pos);
+            copy = page == null ? new byte[PAGE_SIZE] : page.clone();
+            copies[idx] = copy;
+        }
+        return copy;
+    }
+
+    private long get(long pos, int length) {
+        long val = 0;
+        for (int i = 0; i < length; i++) {
+            byte[] page = page(pos + i);
+            byte b = page == null ? 0 : page[(int) ((pos + i) & PAGE_MASK)];
+            val = (val << 8) | (b & 0xFF);
+        }
+        return val;
+    }
+
+    private void set(long pos, int length, long val) {
+        for (int i = 0; i < length; i++) {
+            long p = pos + i;
+            writablePage(p)[(int) (p & PAGE_MASK)] = (byte) (val >>> (8 * (length - i - 1)));
+        }
+    }
+
+    private static boolean inPage(long pos, int length) {
+        return (pos & PAGE_MASK) + length <= PAGE_SIZE;
     }
 
     @Override
     public byte getI8() {
-        return file.getContent()[(int) offset];
+        long pos = check(1);
+        byte[] page = page(pos);
+        return page == null ? 0 : page[(int) (pos & PAGE_MASK)];
     }
 
     @Override
     public short getI16() {
-        return Endianess.get16bitBE(file.getContent(), (int) offset);
+        long pos = check(2);
+        if (inPage(pos, 2)) {
+            byte[] page = page(pos);
+            return page == null ? 0 : Endianess.get16bitBE(page, (int) (pos & PAGE_MASK));
+        } else {
+            return (short) get(pos, 2);
+        }
     }
 
     @Override
     public int getI32() {
-        return Endianess.get32bitBE(file.getContent(), (int) offset);
+        long pos = check(4);
+        if (inPage(pos, 4)) {
+            byte[] page = page(pos);
+            return page == null ? 0 : Endianess.get32bitBE(page, (int) (pos & PAGE_MASK));
+        } else {
+            return (int) get(pos, 4);
+        }
     }
 
     @Override
     public long getI64() {
-        return Endianess.get64bitBE(file.getContent(), (int) offset);
+        long pos = check(8);
+        if (inPage(pos, 8)) {
+            byte[] page = page(pos);
+            return page == null ? 0 : Endianess.get64bitBE(page, (int) (pos & PAGE_MASK));
+        } else {
+            return get(pos, 8);
+        }
     }
 
     @Override
     public void setI8(byte val) {
-        file.getContent()[(int) offset] = val;
+        long pos = check(1);
+        writablePage(pos)[(int) (pos & PAGE_MASK)] = val;
     }
 
     @Override
     public void setI16(short val) {
-        Endianess.set16bitBE(file.getContent(), (int) offset, val);
+        long pos = check(2);
+        if (inPage(pos, 2)) {
+            Endianess.set16bitBE(writablePage(pos), (int) (pos & PAGE_MASK), val);
+        } else {
+            set(pos, 2, val);
+        }
     }
 
     @Override
     public void setI32(int val) {
-        Endianess.set32bitBE(file.getContent(), (int) offset, val);
+        long pos = check(4);
+        if (inPage(pos, 4)) {
+            Endianess.set32bitBE(writablePage(pos), (int) (pos & PAGE_MASK), val);
+        } else {
+            set(pos, 4, val);
+        }
     }
 
     @Override
     public void setI64(long val) {
-        Endianess.set64bitBE(file.getContent(), (int) offset, val);
+        long pos = check(8);
+        if (inPage(pos, 8)) {
+            Endianess.set64bitBE(writablePage(pos), (int) (pos & PAGE_MASK), val);
+        } else {
+            set(pos, 8, val);
+        }
+    }
+
+    @Override
+    public ByteBuffer[] getBuffers(int length, boolean write) {
+        if (offset < 0 || offset + length > size) {
+            return null;
+        }
+        long pos = base + offset;
+        int first = (int) (pos >>> PAGE_SHIFT);
+        int last = (int) ((pos + length - 1) >>> PAGE_SHIFT);
+        ByteBuffer[] buffers = new ByteBuffer[length == 0 ? 0 : last - first + 1];
+        int done = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            long p = pos + done;
+            int off = (int) (p & PAGE_MASK);
+            int n = Math.min(length - done, PAGE_SIZE - off);
+            byte[] page = write ? writablePage(p) : page(p);
+            if (page == null) {
+                buffers[i] = ByteBuffer.wrap(ZERO_PAGE, off, n).asReadOnlyBuffer();
+            } else {
+                buffers[i] = ByteBuffer.wrap(page, off, n);
+            }
+            done += n;
+        }
+        return buffers;
     }
 }
@@ -40,6 +40,8 @@
  */
 package org.graalvm.vm.posix.vfs;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.vm.posix.api.Errno;
 import org.graalvm.vm.posix.api.PosixException;
 import org.graalvm.vm.posix.api.PosixPointer;
@@ -47,9 +49,11 @@ import org.graalvm.vm.posix.api.io.Fcntl;
 import org.graalvm.vm.posix.api.io.Stat;
 import org.graalvm.vm.posix.api.io.Statx;
 import org.graalvm.vm.posix.api.io.Stream;
+import org.graalvm.vm.posix.api.mem.Mman;
+import org.graalvm.vm.util.BitTest;
 
 public class TmpfsFileStream extends Stream {
-    private int pos;
+    private long pos;
     private TmpfsFile file;
     private boolean r;
     private boolean w;
@@ -83,7 +87,7 @@ public class TmpfsFileStream extends Stream {
         if (!w) {
             throw new PosixException(Errno.EBADF);
         }
-        file.insert(pos, buf, offset, length);
+        file.write(pos, buf, offset, length);
         pos += length;
         return length;
     }
@@ -93,10 +97,10 @@ public class TmpfsFileStream extends Stream {
         if (!r) {
             throw new PosixException(Errno.EBADF);
         }
-        if ((int) fileOffset != fileOffset) {
-            throw new PosixException(Errno.EOVERFLOW);
+        if (fileOffset < 0) {
+            throw new PosixException(Errno.EINVAL);
         }
-        int bytes = file.read((int) fileOffset, buf, offset, length);
+        int bytes = file.read(fileOffset, buf, offset, length);
         return bytes;
     }
 
@@ -105,13 +109,79 @@ public class TmpfsFileStream extends Stream {
         if (!w) {
             throw new PosixException(Errno.EBADF);
         }
-        if ((int) fileOffset != fileOffset) {
-            throw new PosixException(Errno.EOVERFLOW);
+        if (fileOffset < 0) {
+            throw new PosixException(Errno.EINVAL);
         }
-        file.insert((int) fileOffset, buf, offset, length);
+        file.write(fileOffset, buf, offset, length);
         return length;
     }
 
+    @Override
+    public int read(ByteBuffer[] dsts) throws PosixException {
+        if (!r) {
+            throw new PosixException(Errno.EBADF);
+        }
+        int bytes = 0;
+        for (ByteBuffer dst : dsts) {
+            bytes += file.read(pos + bytes, dst);
+            if (dst.hasRemaining()) {
+                break;
+            }
+        }
+        pos += bytes;
+        return bytes;
+    }
+
+    @Override
+    public int write(ByteBuffer[] srcs) throws PosixException {
+        if (!w) {
+            throw new PosixException(Errno.EBADF);
+        }
+        int bytes = 0;
+        for (ByteBuffer src : srcs) {
+            int length = src.remaining();
+            file.write(pos + bytes, src);
+            bytes += length;
+        }
+        pos += bytes;
+        return bytes;
+    }
+
+    @Override
+    public int pread(ByteBuffer[] dsts, long fileOffset) throws PosixException {
+        if (!r) {
+            throw new PosixException(Errno.EBADF);
+        }
+        if (fileOffset < 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        int bytes = 0;
+        for (ByteBuffer dst : dsts) {
+            bytes += file.read(fileOffset + bytes, dst);
+            if (dst.hasRemaining()) {
+                break;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public int pwrite(ByteBuffer[] srcs, long fileOffset) throws PosixException {
+        if (!w) {
+            throw new PosixException(Errno.EBADF);
+        }
+        if (fileOffset < 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        int bytes = 0;
+        for (ByteBuffer src : srcs) {
+            int length = src.remaining();
+            file.write(fileOffset + bytes, src);
+            bytes += length;
+        }
+        return bytes;
+    }
+
     @Override
     public int close() throws PosixException {
         return 0;
@@ -139,11 +209,7 @@ public class TmpfsFileStream extends Stream {
         if (newpos < 0) {
             throw new PosixException(Errno.EINVAL);
         }
-        // truncate to int
-        if ((int) newpos != newpos) {
-            throw new PosixException(Errno.EOVERFLOW);
-        }
-        pos = (int) newpos;
+        pos = newpos;
         return pos;
     }
 
@@ -159,14 +225,22 @@ public class TmpfsFileStream extends Stream {
 
     @Override
     public void ftruncate(long length) throws PosixException {
-        if (length != (int) length) {
-            throw new PosixException(Errno.EFBIG);
-        }
-        file.truncate((int) length);
+        file.truncate(length);
     }
 
     @Override
     public PosixPointer mmap(long size, int prot, int flags, long off) throws PosixException {
-        return new TmpfsFileMemory(file, off);
+        if (off < 0 || (off & TmpfsFile.PAGE_MASK) != 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        long realsize = (size + TmpfsFile.PAGE_MASK) & ~TmpfsFile.PAGE_MASK;
+        if (realsize <= 0) {
+            throw new PosixException(Errno.EINVAL);
+        }
+        if (off + realsize < 0 || off + realsize > TmpfsFile.MAX_SIZE) {
+            throw new PosixException(Errno.EOVERFLOW);
+        }
+        boolean shared = BitTest.test(flags, Mman.MAP_SHARED);
+        return new TmpfsFileMemory(file, off, realsize, shared);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.util.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.graalvm.vm.util.io.BlockCompressedInputStream;
+import org.graalvm.vm.util.io.BlockCompressedOutputStream;
+import org.junit.Test;
+
+public class BlockCompressedStreamTest {
+    private static byte[] data(int size) {
+        // compressible data: random runs of random bytes
+        Random rng = new Random(42);
+        byte[] data = new byte[size];
+        int i = 0;
+        while (i < size) {
+            int len = Math.min(size - i, 1 + rng.nextInt(64));
+            Arrays.fill(data, i, i + len, (byte) rng.nextInt());
+            i += len;
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data, int blockSize, boolean finish) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        BlockCompressedOutputStream out = new BlockCompressedOutputStream(buf, blockSize, Deflater.BEST_SPEED);
+        // mix single byte and bulk writes
+        out.write(data, 0, data.length / 3);
+        for (int i = data.length / 3; i < data.length / 2; i++) {
+            out.write(data[i]);
+        }
+        out.write(data, data.length / 2, data.length - data.length / 2);
+        if (finish) {
+            out.close();
+        } else {
+            out.flush();
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[777];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundtrip() throws IOException {
+        byte[] data = data(1000000);
+        byte[] compressed = compress(data, 4096, true);
+        assertTrue(compressed.length < data.length);
+        try (BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compressed), 3)) {
+            assertArrayEquals(data, readAll(in));
+            assertEquals(compressed.length, in.getCompressedPosition());
+        }
+    }
+
+    @Test
+    public void singleBytes() throws IOException {
+        byte[] data = data(10000);
+        try (BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compress(data, 1000, true)))) {
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(Byte.toUnsignedInt(data[i]), in.read());
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void unfinished() throws IOException {
+        // a trace of a crashed process has no end marker
+        byte[] data = data(50000);
+        try (BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compress(data, 4096, false)))) {
+            assertArrayEquals(data, readAll(in));
+        }
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        byte[] compressed = compress(data(50000), 4096, true);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        try (BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(truncated))) {
+            readAll(in);
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void detect() throws IOException {
+        InputStream compressed = new ByteArrayInputStream(compress(data(100), 4096, true));
+        assertTrue(BlockCompressedInputStream.isCompressed(compressed));
+        assertTrue(BlockCompressedInputStream.isCompressed(compressed));
+        assertFalse(BlockCompressedInputStream.isCompressed(new ByteArrayInputStream(data(100))));
+        assertFalse(BlockCompressedInputStream.isCompressed(new ByteArrayInputStream(new byte[2])));
+    }
+}
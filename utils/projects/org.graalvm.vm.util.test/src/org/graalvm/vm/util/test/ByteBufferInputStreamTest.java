@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.util.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.graalvm.vm.util.io.BEInputStream;
+import org.graalvm.vm.util.io.ByteBufferInputStream;
+import org.graalvm.vm.util.io.LEInputStream;
+import org.graalvm.vm.util.io.WordInputStream;
+import org.junit.Test;
+
+public class ByteBufferInputStreamTest {
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static void compare(WordInputStream expected, WordInputStream actual) throws IOException {
+        byte[] buf1 = new byte[13];
+        byte[] buf2 = new byte[13];
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.read8bit(), actual.read8bit());
+            assertEquals(expected.read16bit(), actual.read16bit());
+            assertEquals(expected.read24bit(), actual.read24bit());
+            assertEquals(expected.read32bit(), actual.read32bit());
+            assertEquals(expected.read64bit(), actual.read64bit());
+            assertEquals(13, expected.read(buf1));
+            assertEquals(13, actual.read(buf2));
+            assertArrayEquals(buf1, buf2);
+            assertEquals(expected.tell(), actual.tell());
+        }
+    }
+
+    @Test
+    public void bigEndian() throws IOException {
+        byte[] data = data(4096);
+        compare(new BEInputStream(new ByteArrayInputStream(data)), new ByteBufferInputStream(ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    public void littleEndian() throws IOException {
+        byte[] data = data(4096);
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        compare(new LEInputStream(new ByteArrayInputStream(data)), new ByteBufferInputStream(buf));
+    }
+
+    @Test
+    public void sharedPosition() throws IOException {
+        byte[] data = data(64);
+        ByteBufferInputStream be = new ByteBufferInputStream(ByteBuffer.wrap(data));
+        WordInputStream le = LEInputStream.wrap(be);
+        assertSame(be, BEInputStream.wrap(be));
+        be.read32bit();
+        assertEquals(4, le.tell());
+        int value = le.read32bit();
+        assertEquals(Integer.reverseBytes(ByteBuffer.wrap(data).getInt(4)), value);
+        assertEquals(8, be.tell());
+    }
+
+    @Test
+    public void eof() throws IOException {
+        ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(data(6)));
+        in.read32bit();
+        try {
+            in.read64bit();
+            fail();
+        } catch (EOFException e) {
+            assertTrue(in.isEOF());
+        }
+
+        in = new ByteBufferInputStream(ByteBuffer.wrap(data(6)));
+        byte[] buf = new byte[8];
+        assertEquals(6, in.read(buf));
+        try {
+            in.read(buf);
+            fail();
+        } catch (EOFException e) {
+            assertTrue(in.isEOF());
+        }
+    }
+
+    @Test
+    public void markReset() throws IOException {
+        ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(data(64)));
+        in.read16bit();
+        in.mark(0);
+        long value = in.read64bit();
+        assertEquals(8, in.skip(8));
+        assertEquals(18, in.tell());
+        in.reset();
+        assertEquals(2, in.tell());
+        assertEquals(value, in.read64bit());
+    }
+
+    @Test
+    public void mappedFile() throws IOException {
+        byte[] data = data(100000);
+        File file = File.createTempFile("bbis", ".bin");
+        try {
+            Files.write(file.toPath(), data);
+            try (ByteBufferInputStream in = ByteBufferInputStream.map(file)) {
+                assertEquals(data.length, in.size());
+                compare(new BEInputStream(new ByteArrayInputStream(data)), in);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -42,8 +42,10 @@ package org.graalvm.vm.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteOrder;
 
 public class BEInputStream extends WordInputStream {
+    private final byte[] buf = new byte[8];
     private boolean debug = false;
 
     public BEInputStream(InputStream parent) {
@@ -54,6 +56,20 @@ public class BEInputStream extends WordInputStream {
         super(parent, offset);
     }
 
+    /**
+     * Returns a big endian stream reading from the given stream. Memory mapped streams stay memory
+     * mapped, so reading values does not allocate.
+     */
+    public static WordInputStream wrap(InputStream in) {
+        if (in instanceof BEInputStream) {
+            return (BEInputStream) in;
+        } else if (in instanceof ByteBufferInputStream) {
+            return ((ByteBufferInputStream) in).order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return new BEInputStream(in);
+        }
+    }
+
     @Override
     public int read8bit() throws IOException {
         if (debug) {
@@ -66,8 +82,7 @@ public class BEInputStream extends WordInputStream {
 
     @Override
     public short read16bit() throws IOException {
-        byte[] buf = new byte[2];
-        read(buf);
+        read(buf, 0, 2);
         if (debug) {
             short r = Endianess.get16bitBE(buf);
             System.out.println("u16: " + Short.toUnsignedInt(r) + " (s16: " + r + "; bin: " + Integer.toString(Short.toUnsignedInt(r), 2) + ")");
@@ -78,8 +93,7 @@ public class BEInputStream extends WordInputStream {
 
     @Override
     public int read24bit() throws IOException {
-        byte[] buf = new byte[3];
-        read(buf);
+        read(buf, 0, 3);
         if (debug) {
             int r = Endianess.get24bitBE(buf);
             System.out.println("u24: " + Integer.toUnsignedString(r) + " (s24: " + (r << 8 >> 8) + "; bin: " + Integer.toUnsignedString(r, 2) + ")");
@@ -90,8 +104,7 @@ public class BEInputStream extends WordInputStream {
 
     @Override
     public int read32bit() throws IOException {
-        byte[] buf = new byte[4];
-        read(buf);
+        read(buf, 0, 4);
         if (debug) {
             int r = Endianess.get32bitBE(buf);
             System.out.println("u32: " + Integer.toUnsignedString(r) + " (s32: " + r + "; bin: " + Integer.toUnsignedString(r, 2) + ")");
@@ -102,8 +115,7 @@ public class BEInputStream extends WordInputStream {
 
     @Override
     public long read64bit() throws IOException {
-        byte[] buf = new byte[8];
-        read(buf);
+        read(buf, 0, 8);
         if (debug) {
             long r = Endianess.get64bitBE(buf);
             System.out.println("u64: " + Long.toUnsignedString(r) + " (s64: " + r + "; bin: " + Long.toUnsignedString(r, 2) + ")");
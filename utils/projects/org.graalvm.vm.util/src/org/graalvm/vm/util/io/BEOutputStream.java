@@ -44,6 +44,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 public class BEOutputStream extends WordOutputStream {
+    private final byte[] buf = new byte[8];
+
     public BEOutputStream(OutputStream parent) {
         super(parent);
     }
@@ -55,26 +57,31 @@ public class BEOutputStream extends WordOutputStream {
 
     @Override
     public void write16bit(short value) throws IOException {
-        write(Endianess.set16bitBE(new byte[2], value));
+        Endianess.set16bitBE(buf, value);
+        write(buf, 0, 2);
     }
 
     @Override
     public void write32bit(int value) throws IOException {
-        write(Endianess.set32bitBE(new byte[4], value));
+        Endianess.set32bitBE(buf, value);
+        write(buf, 0, 4);
     }
 
     @Override
     public void write32bit(float value) throws IOException {
-        write(Endianess.set32bitBE(new byte[4], value));
+        Endianess.set32bitBE(buf, value);
+        write(buf, 0, 4);
     }
 
     @Override
     public void write64bit(long value) throws IOException {
-        write(Endianess.set64bitBE(new byte[8], value));
+        Endianess.set64bitBE(buf, value);
+        write(buf, 0, 8);
     }
 
     @Override
     public void write64bit(double value) throws IOException {
-        write(Endianess.set64bitBE(new byte[8], value));
+        Endianess.set64bitBE(buf, value);
+        write(buf, 0, 8);
     }
 }
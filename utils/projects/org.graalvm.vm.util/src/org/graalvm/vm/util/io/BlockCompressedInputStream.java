@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.util.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a stream written by {@link BlockCompressedOutputStream}. Compressed frames are read ahead
+ * of the consumer and inflated in parallel by a small pool of decoder threads.
+ */
+public class BlockCompressedInputStream extends InputStream {
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final InputStream in;
+    private final ExecutorService pool;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final int ahead;
+    private final int blockSize;
+    private final byte[] header = new byte[8];
+
+    private byte[] block;
+    private int pos;
+    private long compressedPosition;
+    private boolean end = false;
+
+    public BlockCompressedInputStream(InputStream in) throws IOException {
+        this(in, THREADS);
+    }
+
+    public BlockCompressedInputStream(InputStream in, int threads) throws IOException {
+        this.in = in;
+        if (readFully(header, 8) != 8 || Endianess.get32bitBE(header) != BlockCompressedOutputStream.MAGIC) {
+            throw new IOException("not a compressed stream");
+        }
+        blockSize = Endianess.get32bitBE(header, 4);
+        if (blockSize <= 0) {
+            throw new IOException("invalid block size " + blockSize);
+        }
+        compressedPosition = 8;
+        ahead = 2 * threads;
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "inflate");
+            t.setDaemon(true);
+            return t;
+        });
+        block = new byte[0];
+        pos = 0;
+    }
+
+    /**
+     * Checks if the stream starts with a compressed stream header. The stream has to support
+     * {@link InputStream#mark(int)}; its position is not changed.
+     */
+    public static boolean isCompressed(InputStream in) throws IOException {
+        byte[] magic = new byte[4];
+        in.mark(magic.length);
+        try {
+            int n = 0;
+            while (n < magic.length) {
+                int r = in.read(magic, n, magic.length - n);
+                if (r == -1) {
+                    return false;
+                }
+                n += r;
+            }
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            in.reset();
+        }
+        return Endianess.get32bitBE(magic) == BlockCompressedOutputStream.MAGIC;
+    }
+
+    // returns the number of bytes read, which is only less than len at the end of the stream
+    private int readFully(byte[] buf, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        try {
+            while (n < len) {
+                int r = in.read(buf, n, len - n);
+                if (r == -1) {
+                    break;
+                }
+                n += r;
+            }
+        } catch (EOFException e) {
+            // WordInputStream signals EOF with an exception
+        }
+        return n;
+    }
+
+    private static byte[] inflate(byte[] data, int rawlen) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[rawlen];
+            int n = 0;
+            while (n < rawlen && !inflater.finished()) {
+                int r = inflater.inflate(result, n, rawlen - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += r;
+            }
+            if (n != rawlen) {
+                throw new IOException("corrupt frame: expected " + rawlen + " bytes, got " + n);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt frame: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // reads the next compressed frame and queues it for decompression
+    private boolean submit() throws IOException {
+        if (end) {
+            return false;
+        }
+        int n = readFully(header, 8);
+        if (n == 0) {
+            // stream was not finished properly, e.g. because the writer crashed
+            end = true;
+            return false;
+        } else if (n != 8) {
+            throw new EOFException("truncated frame header at " + compressedPosition);
+        }
+        int rawlen = Endianess.get32bitBE(header);
+        int complen = Endianess.get32bitBE(header, 4);
+        compressedPosition += 8;
+        if (rawlen == 0 && complen == 0) {
+            end = true;
+            return false;
+        }
+        if (rawlen < 0 || rawlen > blockSize || complen < 0) {
+            throw new IOException("corrupt frame header at " + (compressedPosition - 8));
+        }
+        byte[] data = new byte[complen];
+        if (readFully(data, complen) != complen) {
+            throw new EOFException("truncated frame at " + (compressedPosition - 8));
+        }
+        compressedPosition += complen;
+        pending.add(pool.submit(() -> inflate(data, rawlen)));
+        return true;
+    }
+
+    private boolean nextBlock() throws IOException {
+        while (pending.size() < ahead && submit()) {
+            // fill the pipeline
+        }
+        Future<byte[]> next = pending.poll();
+        if (next == null) {
+            return false;
+        }
+        try {
+            block = next.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("interrupted", e);
+        }
+        pos = 0;
+        return true;
+    }
+
+    /**
+     * Returns the position in the compressed stream, including frames which were read ahead.
+     */
+    public long getCompressedPosition() {
+        return compressedPosition;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (pos == block.length) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        return Byte.toUnsignedInt(block[pos++]);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < len) {
+            if (pos == block.length && !nextBlock()) {
+                break;
+            }
+            int cnt = Math.min(len - n, block.length - pos);
+            System.arraycopy(block, pos, b, off + n, cnt);
+            pos += cnt;
+            n += cnt;
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public int available() {
+        return block.length - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        pending.clear();
+        in.close();
+    }
+}
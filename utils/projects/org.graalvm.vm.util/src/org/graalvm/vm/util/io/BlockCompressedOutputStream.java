@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.util.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Writes data as a sequence of independently deflated frames. Every frame starts with the length
+ * of the uncompressed and the compressed data, so a reader can skip frames without inflating them
+ * and can inflate several frames in parallel (see {@link BlockCompressedInputStream}).
+ *
+ * Stream layout: {@code MAGIC blocksize {rawlen complen data}* 0 0}. All integers are 32bit big
+ * endian.
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+    public static final int MAGIC = 0x5854525a; // XTRZ
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final byte[] block;
+    private final byte[] header = new byte[8];
+    private byte[] compressed;
+    private int pos = 0;
+    private boolean finished = false;
+
+    public BlockCompressedOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.BEST_SPEED);
+    }
+
+    public BlockCompressedOutputStream(OutputStream out, int blockSize, int level) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("invalid block size " + blockSize);
+        }
+        this.out = out;
+        this.deflater = new Deflater(level);
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize + blockSize / 16 + 64];
+        Endianess.set32bitBE(header, 0, MAGIC);
+        Endianess.set32bitBE(header, 4, blockSize);
+        out.write(header);
+    }
+
+    private void writeFrame() throws IOException {
+        if (pos == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block, 0, pos);
+        deflater.finish();
+        int len = 0;
+        while (!deflater.finished()) {
+            if (len == compressed.length) {
+                byte[] buf = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, buf, 0, len);
+                compressed = buf;
+            }
+            len += deflater.deflate(compressed, len, compressed.length - len);
+        }
+        Endianess.set32bitBE(header, 0, pos);
+        Endianess.set32bitBE(header, 4, len);
+        out.write(header);
+        out.write(compressed, 0, len);
+        pos = 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (pos == block.length) {
+            writeFrame();
+        }
+        block[pos++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (pos == block.length) {
+                writeFrame();
+            }
+            int n = Math.min(remaining, block.length - pos);
+            System.arraycopy(b, offset, block, pos, n);
+            pos += n;
+            offset += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * Writes the buffered data as a (possibly short) frame and flushes the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeFrame();
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining data and the end marker without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeFrame();
+        Endianess.set32bitBE(header, 0, 0);
+        Endianess.set32bitBE(header, 4, 0);
+        out.write(header);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.util.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link WordInputStream} which reads directly from a {@link ByteBuffer}. Unlike
+ * {@link BEInputStream} and {@link LEInputStream}, reading a value does not allocate anything.
+ *
+ * Files are memory mapped in windows of {@link #WINDOW_SIZE} bytes, so files larger than 2GB can be
+ * read as well. Streams created with {@link #order(ByteOrder)} share the position with the stream
+ * they were created from; this allows to read a header in one byte order and the payload in
+ * another.
+ */
+public class ByteBufferInputStream extends WordInputStream {
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static class Source {
+        final FileChannel channel;
+        final long size;
+
+        ByteBuffer buffer;
+        long base;
+
+        long mark = -1;
+        boolean eof = false;
+
+        Source(ByteBuffer buffer) {
+            this.channel = null;
+            this.size = buffer.remaining();
+            this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+            this.base = 0;
+        }
+
+        Source(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        private void map(long pos) throws IOException {
+            long len = Math.min(WINDOW_SIZE, size - pos);
+            buffer = channel.map(MapMode.READ_ONLY, pos, len);
+            base = pos;
+        }
+
+        long tell() {
+            return base + buffer.position();
+        }
+
+        // switch to the next window; returns false at the end of the data
+        boolean next() throws IOException {
+            long end = base + buffer.limit();
+            if (channel == null || end >= size) {
+                return false;
+            }
+            map(end);
+            return true;
+        }
+
+        void seek(long pos) throws IOException {
+            if (pos >= base && pos <= base + buffer.limit()) {
+                buffer.position((int) (pos - base));
+            } else {
+                map(pos);
+            }
+        }
+    }
+
+    private final Source src;
+    private final boolean le;
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this(new Source(buffer), buffer.order() == ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ByteBufferInputStream(Source src, boolean le) {
+        this.src = src;
+        this.le = le;
+    }
+
+    /**
+     * Maps the file into memory. The stream uses big endian byte order.
+     */
+    public static ByteBufferInputStream map(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ByteBufferInputStream(new Source(channel), false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a stream with the given byte order which shares the position with this stream.
+     */
+    public ByteBufferInputStream order(ByteOrder order) {
+        boolean little = order == ByteOrder.LITTLE_ENDIAN;
+        if (little == le) {
+            return this;
+        } else {
+            return new ByteBufferInputStream(src, little);
+        }
+    }
+
+    public ByteOrder order() {
+        return le ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    }
+
+    public long size() {
+        return src.size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (src.channel != null) {
+            src.channel.close();
+        }
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(src.size - src.tell(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot seek with negative offset");
+        }
+        long pos = src.tell();
+        long skipped = Math.min(n, src.size - pos);
+        src.seek(pos + skipped);
+        return skipped;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        src.mark = src.tell();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        if (src.mark == -1) {
+            throw new IOException("mark not set");
+        }
+        src.seek(src.mark);
+        src.eof = false;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean isEOF() {
+        return src.eof;
+    }
+
+    @Override
+    public long tell() {
+        return src.tell();
+    }
+
+    private EOFException eof() {
+        src.eof = true;
+        return new EOFException();
+    }
+
+    @Override
+    public int read() throws IOException {
+        ByteBuffer buffer = src.buffer;
+        if (!buffer.hasRemaining()) {
+            if (!src.next()) {
+                throw eof();
+            }
+            buffer = src.buffer;
+        }
+        return Byte.toUnsignedInt(buffer.get());
+    }
+
+    // guarantee that read always reads as many bytes as requested
+    @Override
+    public int read(byte[] buffer, int off, int length) throws IOException {
+        int bytes = 0;
+        while (bytes < length) {
+            ByteBuffer buf = src.buffer;
+            if (!buf.hasRemaining() && !src.next()) {
+                break;
+            }
+            buf = src.buffer;
+            int n = Math.min(length - bytes, buf.remaining());
+            buf.get(buffer, off + bytes, n);
+            bytes += n;
+        }
+        if (bytes == 0 && length > 0) {
+            throw eof();
+        }
+        return bytes;
+    }
+
+    // slow path for values which cross a window boundary
+    private long readBytes(int n) throws IOException {
+        long value = 0;
+        if (le) {
+            for (int i = 0; i < n; i++) {
+                value |= (long) read() << (i * 8);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                value = (value << 8) | read();
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public int read8bit() throws IOException {
+        return read();
+    }
+
+    @Override
+    public short read16bit() throws IOException {
+        ByteBuffer buffer = src.buffer;
+        if (buffer.remaining() >= 2) {
+            short value = buffer.getShort();
+            return le ? Short.reverseBytes(value) : value;
+        } else {
+            return (short) readBytes(2);
+        }
+    }
+
+    @Override
+    public int read24bit() throws IOException {
+        return (int) readBytes(3);
+    }
+
+    @Override
+    public int read32bit() throws IOException {
+        ByteBuffer buffer = src.buffer;
+        if (buffer.remaining() >= 4) {
+            int value = buffer.getInt();
+            return le ? Integer.reverseBytes(value) : value;
+        } else {
+            return (int) readBytes(4);
+        }
+    }
+
+    @Override
+    public long read64bit() throws IOException {
+        ByteBuffer buffer = src.buffer;
+        if (buffer.remaining() >= 8) {
+            long value = buffer.getLong();
+            return le ? Long.reverseBytes(value) : value;
+        } else {
+            return readBytes(8);
+        }
+    }
+}
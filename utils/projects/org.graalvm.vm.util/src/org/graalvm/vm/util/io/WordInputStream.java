@@ -49,6 +49,10 @@ public abstract class WordInputStream extends InputStream {
     private boolean eof = false;
     private long offset = 0;
 
+    protected WordInputStream() {
+        this.parent = null;
+    }
+
     public WordInputStream(InputStream parent) {
         this.parent = parent;
     }
@@ -167,3 +167,9 @@ JNIEXPORT jint JNICALL Java_org_graalvm_vm_memory_hardware_MMU_mprotect
 	}
 	return 0;
 }
+
+JNIEXPORT jobject JNICALL Java_org_graalvm_vm_memory_hardware_MMU_buffer
+  (JNIEnv* env, jclass self, jlong addr, jlong len)
+{
+	return (*env)->NewDirectByteBuffer(env, (void*) addr, len);
+}
@@ -40,6 +40,8 @@
  */
 package org.graalvm.vm.memory.svm;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.nativeimage.Platform;
 import org.graalvm.nativeimage.Platforms;
 import org.graalvm.vm.memory.svm.headers.Mman;
@@ -108,4 +110,10 @@ final class Target_org_graalvm_vm_memory_hardware_MMU {
         }
         return result;
     }
+
+    @Substitute
+    public static ByteBuffer buffer(long addr, long len) {
+        // no direct buffers over raw memory, callers copy the data instead
+        return null;
+    }
 }
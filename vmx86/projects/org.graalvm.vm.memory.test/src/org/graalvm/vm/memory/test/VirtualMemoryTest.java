@@ -41,6 +41,10 @@
 package org.graalvm.vm.memory.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 
 import org.graalvm.vm.memory.ByteMemory;
 import org.graalvm.vm.memory.JavaVirtualMemory;
@@ -48,6 +52,8 @@ import org.graalvm.vm.memory.Memory;
 import org.graalvm.vm.memory.MemoryPage;
 import org.graalvm.vm.memory.VirtualMemory;
 import org.graalvm.vm.posix.api.PosixException;
+import org.graalvm.vm.posix.api.PosixPointer;
+import org.graalvm.vm.posix.api.io.PipeStream;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -161,4 +167,50 @@ public class VirtualMemoryTest {
 
         assertEquals(0xC0DEBABE, m.getI32(0x1d6010));
     }
+
+    @Test
+    public void buffers001() {
+        Memory m1 = new ByteMemory(4096);
+        Memory m2 = new ByteMemory(4096);
+        vm.add(new MemoryPage(m1, 0x10000, 4096));
+        vm.add(new MemoryPage(m2, 0x11000, 4096));
+
+        ByteBuffer[] buffers = vm.getBuffers(0x10ff0, 0x20, true);
+        assertEquals(2, buffers.length);
+        assertEquals(0x10, buffers[0].remaining());
+        assertEquals(0x10, buffers[1].remaining());
+        buffers[0].put(0x10ff8 - 0x10000, (byte) 0x42);
+        buffers[1].put(4, (byte) 0x43);
+        assertEquals(0x42, vm.getI8(0x10ff8));
+        assertEquals(0x43, vm.getI8(0x11004));
+
+        // not mapped
+        assertNull(vm.getBuffers(0x11ff0, 0x20, false));
+    }
+
+    @Test
+    public void buffers002() throws PosixException {
+        Memory m = new ByteMemory(4096);
+        MemoryPage p = new MemoryPage(m, 0x10000, 4096);
+        vm.add(p);
+        vm.mprotect(0x10000, 4096, true, false, false);
+        assertNull(vm.getBuffers(0x10000, 0x10, true));
+        assertEquals(1, vm.getBuffers(0x10000, 0x10, false).length);
+    }
+
+    @Test
+    public void buffers003() throws PosixException {
+        vm.add(new MemoryPage(new ByteMemory(4096), 0x10000, 4096));
+        vm.add(new MemoryPage(new ByteMemory(4096), 0x11000, 4096));
+        byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        PipeStream in = new PipeStream(new ByteArrayInputStream(data));
+        PosixPointer ptr = vm.getPosixPointer(0x10f80);
+        assertEquals(256, in.read(ptr, 256));
+        for (int i = 0; i < data.length; i++) {
+            assertEquals((byte) i, vm.getI8(0x10f80 + i));
+        }
+    }
 }
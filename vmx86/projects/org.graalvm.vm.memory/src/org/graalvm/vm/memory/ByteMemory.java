@@ -40,6 +40,8 @@
  */
 package org.graalvm.vm.memory;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.vm.memory.exception.SegmentationViolation;
 import org.graalvm.vm.util.io.Endianess;
 
@@ -236,6 +238,14 @@ public class ByteMemory extends Memory {
         data = null;
     }
 
+    @Override
+    public ByteBuffer getBuffer(long pos, int len, boolean write) {
+        if (data == null || pos < 0 || pos + len > data.length) {
+            return null;
+        }
+        return ByteBuffer.wrap(data, (int) pos, len);
+    }
+
     @Override
     public void memcpy(byte[] dst, long off) {
         assert off == (int) off : String.format("Invalid offset 0x%016X", off);
@@ -41,8 +41,11 @@
 package org.graalvm.vm.memory;
 
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
@@ -114,6 +117,7 @@ public class JavaVirtualMemory extends VirtualMemory {
                     System.out.printf("Removing old page: 0x%016X-0x%016X, new page is 0x%016X-0x%016X\n", oldPage.base, oldPage.end, page.base, page.end);
                 }
                 pages.remove(oldPage.base);
+                oldPage.untrackCode();
                 cache = null;
                 cache2 = null;
 
@@ -147,6 +151,7 @@ public class JavaVirtualMemory extends VirtualMemory {
                                     System.out.printf("Page fully contained, removing page 0x%016X-0x%016X\n", p.base, p.end);
                                 }
                                 pages.remove(p.base);
+                                p.untrackCode();
                             } else if (page.contains(p.base)) {
                                 // split
                                 CompilerDirectives.transferToInterpreter();
@@ -248,6 +253,7 @@ public class JavaVirtualMemory extends VirtualMemory {
                         System.out.printf("Splitting old page: 0x%016X-0x%016X, removed page is 0x%016X-0x%016X\n", page.base, page.end, addr, addr + length);
                     }
                     pages.remove(page.base);
+                    page.untrackCode();
                     allocator.free(page.base, page.size);
                     long size1 = addr - page.base;
                     long size2 = page.end - (addr + length);
@@ -282,12 +288,14 @@ public class JavaVirtualMemory extends VirtualMemory {
                     long sz = page.size - length;
                     MemoryPage tail = new MemoryPage(page, page.base + length, sz);
                     pages.remove(page.base);
+                    page.untrackCode();
                     allocator.free(page.base, length);
                     pages.put(page.base + length, tail);
                     allocator.allocat(page.base + length, sz);
                     p = page.end;
                 } else {
                     pages.remove(page.base);
+                    page.untrackCode();
                     allocator.free(page.base, page.size);
                     p = page.end;
                 }
@@ -333,6 +341,7 @@ public class JavaVirtualMemory extends VirtualMemory {
     @Override
     public void free(long address) {
         MemoryPage page = pages.remove(address);
+        page.untrackCode();
         allocator.free(address, page.size);
     }
 
@@ -377,6 +386,33 @@ public class JavaVirtualMemory extends VirtualMemory {
         return getFloorEntry(addr);
     }
 
+    @TruffleBoundary
+    @Override
+    public ByteBuffer[] getBuffers(long address, int size, boolean write) {
+        if (enableAccessTrace || size < 0) {
+            return null;
+        }
+        List<ByteBuffer> buffers = new ArrayList<>(1);
+        long addr = addr(address);
+        long remaining = size;
+        while (remaining > 0) {
+            Map.Entry<Long, MemoryPage> entry = pages.floorEntry(addr);
+            if (entry == null || !entry.getValue().contains(addr)) {
+                return null;
+            }
+            MemoryPage page = entry.getValue();
+            long len = Math.min(remaining, page.end - addr);
+            ByteBuffer buffer = page.getBuffer(addr, (int) len, write);
+            if (buffer == null) {
+                return null;
+            }
+            buffers.add(buffer);
+            addr += len;
+            remaining -= len;
+        }
+        return buffers.toArray(new ByteBuffer[buffers.size()]);
+    }
+
     @TruffleBoundary
     @Override
     public boolean contains(long address) {
@@ -759,6 +795,19 @@ public class JavaVirtualMemory extends VirtualMemory {
         }
     }
 
+    @TruffleBoundary
+    @Override
+    public void msync(long address, long len) throws PosixException {
+        long start = addr(address);
+        long end = start + roundToPageSize(len);
+        Long first = pages.floorKey(start);
+        for (MemoryPage page : pages.subMap(first != null ? first : start, true, end, false).values()) {
+            if (Long.compareUnsigned(page.end, start) > 0) {
+                page.getMemory().msync();
+            }
+        }
+    }
+
     @TruffleBoundary
     @Override
     public void mprotect(long address, long len, boolean r, boolean w, boolean x) throws PosixException {
@@ -783,6 +832,7 @@ public class JavaVirtualMemory extends VirtualMemory {
                 p1.w = w;
                 p1.x = x;
                 pages.remove(page.base);
+                page.untrackCode();
                 pages.put(p1.base, p1);
                 pages.put(p2.base, p2);
                 cache = null;
@@ -804,6 +854,7 @@ public class JavaVirtualMemory extends VirtualMemory {
                     p3.w = w;
                     p3.x = x;
                     pages.remove(page.base);
+                    page.untrackCode();
                     pages.put(p1.base, p1);
                     pages.put(p3.base, p3);
                     pages.put(p4.base, p4);
@@ -812,6 +863,7 @@ public class JavaVirtualMemory extends VirtualMemory {
                     p2.w = w;
                     p2.x = x;
                     pages.remove(page.base);
+                    page.untrackCode();
                     pages.put(p1.base, p1);
                     pages.put(p2.base, p2);
                 }
@@ -40,11 +40,14 @@
  */
 package org.graalvm.vm.memory;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.vm.memory.exception.DoubleFreeException;
 import org.graalvm.vm.memory.exception.SegmentationViolation;
 import org.graalvm.vm.memory.vector.Vector128;
 import org.graalvm.vm.memory.vector.Vector256;
 import org.graalvm.vm.memory.vector.Vector512;
+import org.graalvm.vm.posix.api.PosixException;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
@@ -370,6 +373,21 @@ public abstract class Memory {
         }
     }
 
+    /**
+     * Returns a buffer over [pos, pos + len) for bulk transfers or null if this memory cannot be
+     * accessed directly.
+     */
+    public ByteBuffer getBuffer(@SuppressWarnings("unused") long pos, @SuppressWarnings("unused") int len, @SuppressWarnings("unused") boolean write) {
+        return null;
+    }
+
+    /**
+     * Writes modified content back to the file if this memory is a shared file mapping.
+     */
+    public void msync() throws PosixException {
+        // nothing to do
+    }
+
     public byte[] get(long off, long len) {
         assert len == (int) len : String.format("Invalid length 0x%016X", off);
         byte[] out = new byte[(int) len];
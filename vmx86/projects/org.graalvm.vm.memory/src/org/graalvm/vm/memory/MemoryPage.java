@@ -40,6 +40,7 @@
  */
 package org.graalvm.vm.memory;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
 import org.graalvm.vm.memory.exception.SegmentationViolation;
@@ -67,6 +68,9 @@ public class MemoryPage {
     public final String name;
     public final long fileOffset;
 
+    // set if translated code was read from this page
+    private volatile CodeInvalidationListener code;
+
     private final long id = nextID();
     private static long seq = 0;
 
@@ -133,6 +137,7 @@ public class MemoryPage {
         this.x = page.x;
         this.name = page.name;
         this.fileOffset = page.fileOffset;
+        this.code = page.code;
 
         assert Long.compareUnsigned(base, end) < 0;
         assert end - base == size;
@@ -149,6 +154,7 @@ public class MemoryPage {
         this.offset = page.offset + address - page.base;
         this.name = page.name;
         this.fileOffset = page.fileOffset + (address - page.base);
+        this.code = page.code;
 
         assert Long.compareUnsigned(base, end) < 0;
         assert end - base == size;
@@ -252,8 +258,8 @@ public class MemoryPage {
     }
 
     public void setI8(long addr, byte val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 1);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -266,8 +272,8 @@ public class MemoryPage {
     }
 
     public void setI16(long addr, short val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 2);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -280,8 +286,8 @@ public class MemoryPage {
     }
 
     public void setI32(long addr, int val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 4);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -294,8 +300,8 @@ public class MemoryPage {
     }
 
     public void setI64(long addr, long val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 8);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -308,8 +314,8 @@ public class MemoryPage {
     }
 
     public void setI128(long addr, Vector128 val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 16);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -322,8 +328,8 @@ public class MemoryPage {
     }
 
     public void setI256(long addr, Vector256 val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 32);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -336,8 +342,8 @@ public class MemoryPage {
     }
 
     public void setI512(long addr, Vector512 val) {
-        if (x) {
-            invalidateCodeCache(addr);
+        if (x && code != null) {
+            invalidateCodeCache(addr, 64);
         }
         if (!w) {
             throw new SegmentationViolation(addr);
@@ -360,9 +366,51 @@ public class MemoryPage {
         }
     }
 
+    /**
+     * Returns a buffer over [addr, addr + len) or null if the access is not permitted or the memory
+     * cannot be accessed directly. Writes through the buffer bypass code invalidation, therefore no
+     * buffer is returned for writes to pages with translated code.
+     */
+    public ByteBuffer getBuffer(long addr, int len, boolean write) {
+        if (write ? !w || (x && code != null) : !r) {
+            return null;
+        }
+        return memory.getBuffer(getOffset(addr), len, write);
+    }
+
+    /**
+     * Reports writes to this page to the listener from now on.
+     */
+    public synchronized void trackCode(CodeInvalidationListener listener) {
+        code = listener;
+    }
+
+    /**
+     * Stops reporting writes to this page, e.g. because it was unmapped.
+     */
+    public synchronized void untrackCode() {
+        code = null;
+    }
+
+    public boolean isCodeTracked() {
+        return code != null;
+    }
+
     @TruffleBoundary
-    private static void invalidateCodeCache(long addr) {
+    private void invalidateCodeCache(long addr, int len) {
         log.log(Levels.DEBUG, () -> String.format("Invalidate code cache: write to 0x%016x", addr));
+        CodeInvalidationListener listener = code;
+        if (listener == null) {
+            return;
+        }
+        listener.invalidateCode(addr, addr + len);
+        synchronized (this) {
+            // the write evicted the translated code; forget the listener once no code is left,
+            // unless another thread already translated new code from this page
+            if (code == listener && !listener.hasCode(base, end)) {
+                code = null;
+            }
+        }
     }
 
     @Override
@@ -40,7 +40,10 @@
  */
 package org.graalvm.vm.memory;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.vm.memory.exception.SegmentationViolation;
+import org.graalvm.vm.posix.api.PosixException;
 import org.graalvm.vm.posix.api.PosixPointer;
 
 import com.oracle.truffle.api.CompilerAsserts;
@@ -211,6 +214,26 @@ public class PosixMemory extends Memory {
         return ptr.size();
     }
 
+    @TruffleBoundary
+    @Override
+    public ByteBuffer getBuffer(long pos, int len, boolean write) {
+        if (write && readonly) {
+            return null;
+        }
+        ByteBuffer[] buffers = ptr(pos).getBuffers(len, write);
+        if (buffers != null && buffers.length == 1) {
+            return buffers[0];
+        } else {
+            return null;
+        }
+    }
+
+    @TruffleBoundary
+    @Override
+    public void msync() throws PosixException {
+        ptr.msync();
+    }
+
     @Override
     public String toString() {
         CompilerAsserts.neverPartOfCompilation();
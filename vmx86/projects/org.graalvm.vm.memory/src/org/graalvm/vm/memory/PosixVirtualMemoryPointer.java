@@ -40,6 +40,8 @@
  */
 package org.graalvm.vm.memory;
 
+import java.nio.ByteBuffer;
+
 import org.graalvm.vm.memory.exception.SegmentationViolation;
 import org.graalvm.vm.posix.api.MemoryFaultException;
 import org.graalvm.vm.posix.api.PosixPointer;
@@ -146,6 +148,11 @@ public class PosixVirtualMemoryPointer implements PosixPointer {
         }
     }
 
+    @Override
+    public ByteBuffer[] getBuffers(int size, boolean write) {
+        return memory.getBuffers(offset, size, write);
+    }
+
     @Override
     public String toString() {
         CompilerAsserts.neverPartOfCompilation();
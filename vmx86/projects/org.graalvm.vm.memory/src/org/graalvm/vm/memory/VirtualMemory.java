@@ -41,9 +41,11 @@
 package org.graalvm.vm.memory;
 
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.logging.Logger;
 
+import org.graalvm.vm.memory.exception.SegmentationViolation;
 import org.graalvm.vm.memory.hardware.HybridVirtualMemory;
 import org.graalvm.vm.memory.hardware.NativeVirtualMemory;
 import org.graalvm.vm.memory.vector.Vector128;
@@ -91,6 +93,8 @@ public abstract class VirtualMemory {
 
     @CompilationFinal MemoryAccessListener logger;
 
+    private CodeInvalidationListener codeListener;
+
     public static final VirtualMemory create() {
         if (VERIFY) {
             if (!NativeVirtualMemory.isSupported()) {
@@ -133,6 +137,42 @@ public abstract class VirtualMemory {
         enableAccessTrace = true;
     }
 
+    public void setCodeInvalidationListener(CodeInvalidationListener listener) {
+        this.codeListener = listener;
+    }
+
+    /**
+     * Marks [start, end) as source of translated code, so that writes to it are reported to the
+     * {@link CodeInvalidationListener}. Only memory which is represented by {@link MemoryPage}s can
+     * observe writes; for all other memory this does nothing.
+     */
+    public void trackCode(long start, long end) {
+        if (codeListener == null) {
+            return;
+        }
+        for (long addr = pageStart(start); Long.compareUnsigned(addr, end) < 0; addr += PAGE_SIZE) {
+            MemoryPage page;
+            try {
+                page = get(addr);
+            } catch (SegmentationViolation e) {
+                continue;
+            }
+            if (page != null) {
+                page.trackCode(codeListener);
+            }
+        }
+    }
+
+    /**
+     * Notifies the {@link CodeInvalidationListener} that [start, end) changed, e.g. because it was
+     * unmapped, remapped or its protection changed.
+     */
+    public void invalidateCode(long start, long end) {
+        if (codeListener != null) {
+            codeListener.invalidateCode(start, end);
+        }
+    }
+
     public void set32bit() {
         CompilerDirectives.transferToInterpreterAndInvalidate();
         mask = 0x00000000FFFFFFFFL;
@@ -271,6 +311,23 @@ public abstract class VirtualMemory {
         return new PosixVirtualMemoryPointer(this, addr);
     }
 
+    /**
+     * Returns buffers which cover [address, address + size) in order, or null if the range cannot be
+     * accessed directly, e.g. because part of it is not mapped or accessible, or because memory
+     * accesses are traced. This allows I/O to transfer data between guest memory and files or
+     * sockets without copying it byte by byte. See {@link PosixPointer#getBuffers(int, boolean)}.
+     */
+    public ByteBuffer[] getBuffers(@SuppressWarnings("unused") long address, @SuppressWarnings("unused") int size, @SuppressWarnings("unused") boolean write) {
+        return null;
+    }
+
+    /**
+     * Writes shared file mappings in [address, address + len) back to their files.
+     */
+    public void msync(@SuppressWarnings("unused") long address, @SuppressWarnings("unused") long len) throws PosixException {
+        // nothing to do
+    }
+
     public abstract boolean contains(long address);
 
     public abstract byte getI8(long address);
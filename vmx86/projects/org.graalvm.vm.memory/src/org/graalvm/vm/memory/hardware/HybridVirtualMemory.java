@@ -41,6 +41,7 @@
 package org.graalvm.vm.memory.hardware;
 
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
@@ -164,6 +165,20 @@ public class HybridVirtualMemory extends VirtualMemory {
         }
     }
 
+    @Override
+    public ByteBuffer[] getBuffers(long address, int size, boolean write) {
+        if (MAP_NATIVE && address < 0) {
+            return null;
+        } else if (Long.compareUnsigned(address, nmem.getVirtualHigh()) >= 0) {
+            return jmem.getBuffers(address, size, write);
+        } else if (Long.compareUnsigned(address + size, nmem.getVirtualHigh()) <= 0) {
+            return nmem.getBuffers(address, size, write);
+        } else {
+            // crosses the boundary between native and Java memory
+            return null;
+        }
+    }
+
     @Override
     public boolean isExecutable(long address) {
         if (MAP_NATIVE && address < 0) {
@@ -448,6 +463,16 @@ public class HybridVirtualMemory extends VirtualMemory {
         return true;
     }
 
+    @Override
+    public void msync(long address, long len) throws PosixException {
+        if (Long.compareUnsigned(address, nmem.getVirtualHigh()) < 0) {
+            nmem.msync(address, len);
+        }
+        if (Long.compareUnsigned(address + len, nmem.getVirtualHigh()) > 0) {
+            jmem.msync(address, len);
+        }
+    }
+
     @Override
     public void mprotect(long address, long len, boolean r, boolean w, boolean x) throws PosixException {
         if (MAP_NATIVE && address < 0) {
@@ -40,6 +40,7 @@
  */
 package org.graalvm.vm.memory.hardware;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -121,4 +122,9 @@ public class MMU {
     public static native int munmap(long addr, long len) throws PosixException;
 
     public static native int mprotect(long addr, long len, boolean r, boolean w, boolean x) throws PosixException;
+
+    /**
+     * Creates a direct buffer over [addr, addr + len) or returns null if this is not supported.
+     */
+    public static native ByteBuffer buffer(long addr, long len);
 }
@@ -42,7 +42,9 @@ package org.graalvm.vm.memory.hardware;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -90,6 +92,23 @@ public class NativeVirtualMemory extends VirtualMemory {
 
     private List<MemorySegment> map;
 
+    // shared file mappings: native memory holds a copy, which is written back on msync
+    private final List<SharedMapping> shared = new ArrayList<>();
+
+    private static class SharedMapping {
+        final long base;
+        final long end;
+        final Memory memory;
+        final long offset;
+
+        SharedMapping(long base, long end, Memory memory, long offset) {
+            this.base = base;
+            this.end = end;
+            this.memory = memory;
+            this.offset = offset;
+        }
+    }
+
     private static long getLow() {
         switch (ARCH) {
             case "aarch64":
@@ -160,6 +179,9 @@ public class NativeVirtualMemory extends VirtualMemory {
         } catch (PosixException e) {
             log.log(Levels.ERROR, "Error while initializing native memory: " + e);
         }
+        synchronized (shared) {
+            shared.clear();
+        }
         updateMemoryMap();
     }
 
@@ -389,6 +411,50 @@ public class NativeVirtualMemory extends VirtualMemory {
         return phy;
     }
 
+    // drops [start, end) from the shared mappings, splitting partially covered ones
+    private void unshare(long start, long end) {
+        synchronized (shared) {
+            List<SharedMapping> split = new ArrayList<>();
+            for (Iterator<SharedMapping> it = shared.iterator(); it.hasNext();) {
+                SharedMapping m = it.next();
+                if (Long.compareUnsigned(m.end, start) <= 0 || Long.compareUnsigned(m.base, end) >= 0) {
+                    continue;
+                }
+                it.remove();
+                if (Long.compareUnsigned(m.base, start) < 0) {
+                    split.add(new SharedMapping(m.base, start, m.memory, m.offset));
+                }
+                if (Long.compareUnsigned(m.end, end) > 0) {
+                    split.add(new SharedMapping(end, m.end, m.memory, m.offset + (end - m.base)));
+                }
+            }
+            shared.addAll(split);
+        }
+    }
+
+    @TruffleBoundary
+    @Override
+    public void msync(long address, long len) throws PosixException {
+        long end = address + len;
+        synchronized (shared) {
+            for (SharedMapping m : shared) {
+                long start = Long.compareUnsigned(m.base, address) > 0 ? m.base : address;
+                long stop = Long.compareUnsigned(m.end, end) < 0 ? m.end : end;
+                if (Long.compareUnsigned(start, stop) >= 0) {
+                    continue;
+                }
+                try {
+                    for (long p = start; p != stop; p++) {
+                        m.memory.setI8(m.offset + (p - m.base), getI8(p));
+                    }
+                } catch (SegmentationViolation e) {
+                    // not readable anymore: nothing to write back
+                }
+                m.memory.msync();
+            }
+        }
+    }
+
     @TruffleBoundary
     @Override
     public void mprotect(long address, long len, boolean r, boolean w, boolean x) throws PosixException {
@@ -402,8 +468,6 @@ public class NativeVirtualMemory extends VirtualMemory {
     public void add(MemoryPage page) {
         Memory mem = page.getMemory();
         if (mem instanceof PosixMemory) {
-            assert ((PosixMemory) mem).isReadOnly();
-
             // copy
             long size = mem.size();
             Memory memory = new ByteMemory(size, false);
@@ -413,10 +477,17 @@ public class NativeVirtualMemory extends VirtualMemory {
             }
             MemoryPage pag = new MemoryPage(memory, page.base, page.size, page.name, page.fileOffset);
             add(pag);
+            if (!((PosixMemory) mem).isReadOnly()) {
+                synchronized (shared) {
+                    shared.add(new SharedMapping(page.base, page.base + Math.min(page.size, sz), mem, 0));
+                }
+            }
             return;
         } else if (!(mem instanceof ByteMemory) && !(mem instanceof NullMemory)) {
             throw new IllegalArgumentException("not a ByteMemory");
         }
+        // the page replaces whatever was mapped here
+        unshare(page.base, page.end);
         long addr = addr(page.base);
         long phy = phy(addr);
         long start = pageStart(phy);
@@ -492,6 +563,7 @@ public class NativeVirtualMemory extends VirtualMemory {
     @Override
     public void remove(long address, long len) throws PosixException {
         long addr = addr(address);
+        unshare(address, address + len);
         allocator.free(address, len);
         long phy = phy(addr);
         MMU.munmap(phy, len);
@@ -537,6 +609,41 @@ public class NativeVirtualMemory extends VirtualMemory {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns a direct buffer over the native memory. The protection of every page is checked first
+     * by accessing one byte of it, so that the buffer is never used on inaccessible memory; the
+     * segfault handler records such an access instead of crashing.
+     */
+    @TruffleBoundary
+    @Override
+    public ByteBuffer[] getBuffers(long address, int size, boolean write) {
+        if (enableAccessTrace || size <= 0) {
+            return null;
+        }
+        long addr = addr(address);
+        long end = addr + size;
+        if (Long.compareUnsigned(addr, virtualLo) < 0 || Long.compareUnsigned(end, virtualHi) > 0 || Long.compareUnsigned(end, addr) < 0) {
+            return null;
+        }
+        long phy = addr - virtualLo + physicalLo;
+        long phyEnd = phy + size;
+        for (long p = phy; Long.compareUnsigned(p, phyEnd) < 0; p = pageStart(p) + PAGE_SIZE) {
+            byte val = NativeMemory.i8(p);
+            if (write) {
+                // does not modify the memory, but requires write permission
+                NativeMemory.cmpxchgI8(p, val, val);
+            }
+            if (MMU.getSegfaultAddress() != 0) {
+                return null;
+            }
+        }
+        ByteBuffer buffer = MMU.buffer(phy, size);
+        if (buffer == null) {
+            return null;
+        }
+        return new ByteBuffer[]{buffer};
+    }
+
     @Override
     public boolean contains(long address) {
         long addr = addr(address);
@@ -52,9 +52,12 @@ import org.graalvm.vm.posix.elf.SymbolResolver;
 import org.graalvm.vm.x86.el.ast.BooleanExpression;
 import org.graalvm.vm.x86.isa.CpuState;
 import org.graalvm.vm.x86.node.debug.trace.ExecutionTraceWriter;
+import org.graalvm.vm.x86.node.debug.trace.FunctionTraceWindow;
 import org.graalvm.vm.x86.node.debug.trace.LogStreamHandler;
 import org.graalvm.vm.x86.node.debug.trace.MemoryAccessTracer;
+import org.graalvm.vm.x86.node.debug.trace.SamplingTraceWindow;
 import org.graalvm.vm.x86.node.debug.trace.TraceStatus;
+import org.graalvm.vm.x86.node.debug.trace.TraceWindow;
 import org.graalvm.vm.x86.node.flow.TraceRegistry;
 import org.graalvm.vm.x86.posix.PosixEnvironment;
 import org.graalvm.vm.x86.posix.SyscallException;
@@ -125,6 +128,7 @@ public class AMD64Context implements TraceStatus {
     private long callbacks;
 
     private final ExecutionTraceWriter traceWriter;
+    private final TraceWindow traceWindow;
     private final LogStreamHandler logHandler;
 
     private InteropCallback interopCallback;
@@ -199,8 +203,15 @@ public class AMD64Context implements TraceStatus {
         memory = VirtualMemory.create();
 
         if (traceWriter != null) {
-            MemoryAccessTracer memoryTracer = new MemoryAccessTracer(traceWriter, Options.getString(Options.EXEC_TRON) != null ? this : null);
+            TraceStatus status = Options.getString(Options.EXEC_TRON) != null ? this : null;
+            traceWindow = createTraceWindow(status);
+            if (traceWindow != null) {
+                status = traceWindow;
+            }
+            MemoryAccessTracer memoryTracer = new MemoryAccessTracer(traceWriter, status);
             memory.setAccessLogger(memoryTracer);
+        } else {
+            traceWindow = null;
         }
 
         posix = new PosixEnvironment(memory, ARCH_NAME, traceWriter);
@@ -217,6 +228,26 @@ public class AMD64Context implements TraceStatus {
         traceStatus = true;
     }
 
+    private TraceWindow createTraceWindow(TraceStatus parent) {
+        String mode = Options.getString(Options.EXEC_TRACE_MODE);
+        switch (mode) {
+            case "full":
+            case "flight":
+                return null;
+            case "sample":
+                return new SamplingTraceWindow(parent, Options.getLong(Options.EXEC_TRACE_SAMPLE_STEPS), Options.getLong(Options.EXEC_TRACE_SAMPLE_INTERVAL));
+            case "function": {
+                String functions = Options.getString(Options.EXEC_TRACE_FUNCTIONS);
+                if (functions == null) {
+                    throw new IllegalArgumentException("trace mode function requires vmx86.exec.trace.functions");
+                }
+                return new FunctionTraceWindow(parent, functions.split(","), this::getSymbolResolver);
+            }
+            default:
+                throw new IllegalArgumentException("unknown trace mode " + mode);
+        }
+    }
+
     public static ContextReference<AMD64Context> getContextReference() {
         return CTXREF;
     }
@@ -422,6 +453,10 @@ public class AMD64Context implements TraceStatus {
         return traceWriter;
     }
 
+    public TraceWindow getTraceWindow() {
+        return traceWindow;
+    }
+
     LogStreamHandler getLogHandler() {
         return logHandler;
     }
@@ -54,7 +54,9 @@ import org.graalvm.vm.x86.el.ElParser;
 import org.graalvm.vm.x86.el.ast.BooleanExpression;
 import org.graalvm.vm.x86.node.InterpreterStartNode;
 import org.graalvm.vm.x86.node.InterpreterThreadRootNode;
+import org.graalvm.vm.x86.node.debug.trace.AsyncExecutionTraceWriter;
 import org.graalvm.vm.x86.node.debug.trace.ExecutionTraceWriter;
+import org.graalvm.vm.x86.node.debug.trace.FlightRecorderTraceWriter;
 import org.graalvm.vm.x86.node.debug.trace.LogStreamHandler;
 import org.graalvm.vm.x86.node.init.InitializerNode;
 
@@ -116,12 +118,30 @@ public class AMD64Language extends TruffleLanguage<AMD64Context> {
             log.info("Opening trace file " + traceFile);
             try {
                 OutputStream out = new BufferedOutputStream(new FileOutputStream(traceFile), BUFSZ);
-                ExecutionTraceWriter trace = new ExecutionTraceWriter(out);
+                boolean compress = Options.getBoolean(Options.EXEC_TRACE_COMPRESS);
+                ExecutionTraceWriter trace;
+                if (Options.getString(Options.EXEC_TRACE_MODE).equals("flight")) {
+                    if (Options.getBoolean(Options.EXEC_TRACE_ASYNC)) {
+                        log.warning("Flight recorder mode does not support asynchronous trace writing");
+                    }
+                    int steps = (int) Options.getLong(Options.EXEC_TRACE_FLIGHT_STEPS);
+                    boolean dumpMemory = Options.getBoolean(Options.EXEC_TRACE_KEYFRAME_MEMORY);
+                    trace = new FlightRecorderTraceWriter(out, compress, steps, dumpMemory);
+                } else if (Options.getBoolean(Options.EXEC_TRACE_ASYNC)) {
+                    int slots = (int) Options.getLong(Options.EXEC_TRACE_ASYNC_BUFFER);
+                    boolean drop = Options.getBoolean(Options.EXEC_TRACE_ASYNC_DROP);
+                    trace = new AsyncExecutionTraceWriter(out, compress, slots, drop);
+                } else {
+                    trace = new ExecutionTraceWriter(out, compress);
+                }
                 LogStreamHandler handler = new LogStreamHandler(trace);
                 Logger.getLogger("").addHandler(handler);
 
                 AMD64Context ctx = new AMD64Context(this, env, trace, handler);
                 ArchitecturalState state = ctx.getState();
+                if (trace instanceof FlightRecorderTraceWriter) {
+                    ((FlightRecorderTraceWriter) trace).setMemory(ctx.getMemory());
+                }
 
                 // parse TRON/TROFF expressions
                 String tronExpr = Options.getString(Options.EXEC_TRON);
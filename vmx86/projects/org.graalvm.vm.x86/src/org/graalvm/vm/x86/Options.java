@@ -91,6 +91,16 @@ public class Options {
 
     // tracing
     public static final BooleanOption EXEC_TRACE = new BooleanOption("vmx86.exec.trace", false);
+    public static final BooleanOption EXEC_TRACE_COMPRESS = new BooleanOption("vmx86.exec.trace.compress", false);
+    public static final BooleanOption EXEC_TRACE_ASYNC = new BooleanOption("vmx86.exec.trace.async", false);
+    public static final LongOption EXEC_TRACE_ASYNC_BUFFER = new LongOption("vmx86.exec.trace.async.buffer", 4096);
+    public static final BooleanOption EXEC_TRACE_ASYNC_DROP = new BooleanOption("vmx86.exec.trace.async.drop", false);
+    public static final StringOption EXEC_TRACE_MODE = new StringOption("vmx86.exec.trace.mode", "full");
+    public static final LongOption EXEC_TRACE_SAMPLE_STEPS = new LongOption("vmx86.exec.trace.sample.steps", 10000);
+    public static final LongOption EXEC_TRACE_SAMPLE_INTERVAL = new LongOption("vmx86.exec.trace.sample.interval", 1000000);
+    public static final BooleanOption EXEC_TRACE_KEYFRAME_MEMORY = new BooleanOption("vmx86.exec.trace.keyframe.memory", true);
+    public static final StringOption EXEC_TRACE_FUNCTIONS = new StringOption("vmx86.exec.trace.functions", null);
+    public static final LongOption EXEC_TRACE_FLIGHT_STEPS = new LongOption("vmx86.exec.trace.flight.steps", 100000);
     public static final StringOption EXEC_TRON = new StringOption("vmx86.exec.tron", null);
     public static final StringOption EXEC_TROFF = new StringOption("vmx86.exec.troff", null);
 
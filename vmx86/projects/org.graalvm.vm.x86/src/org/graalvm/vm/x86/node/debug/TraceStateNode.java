@@ -43,16 +43,16 @@ package org.graalvm.vm.x86.node.debug;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.graalvm.vm.memory.MemorySegment;
-import org.graalvm.vm.memory.VirtualMemory;
-import org.graalvm.vm.util.io.Endianess;
 import org.graalvm.vm.x86.AMD64Context;
+import org.graalvm.vm.x86.Options;
 import org.graalvm.vm.x86.el.ast.BooleanExpression;
 import org.graalvm.vm.x86.isa.AMD64Instruction;
 import org.graalvm.vm.x86.isa.CpuState;
 import org.graalvm.vm.x86.isa.Register;
 import org.graalvm.vm.x86.node.AMD64Node;
+import org.graalvm.vm.x86.node.ReadNode;
 import org.graalvm.vm.x86.node.debug.trace.ExecutionTraceWriter;
+import org.graalvm.vm.x86.node.debug.trace.TraceWindow;
 import org.graalvm.vm.x86.node.init.CopyToCpuStateNode;
 
 import com.oracle.truffle.api.CompilerAsserts;
@@ -67,11 +67,15 @@ public class TraceStateNode extends AMD64Node {
     private final int gprMaskSlot;
     private final int avxMaskSlot;
     private final ExecutionTraceWriter traceWriter;
+    private final TraceWindow window;
+    private final boolean keyframeMemory;
 
     private final int trace;
+    private final int instructionCount;
 
     @Child private BooleanExpression tron;
     @Child private BooleanExpression troff;
+    @Child private ReadNode readSP;
 
     private final ContextReference<AMD64Context> ctxref;
 
@@ -80,6 +84,11 @@ public class TraceStateNode extends AMD64Node {
         gprMaskSlot = ctx.getGPRMask();
         avxMaskSlot = ctx.getAVXMask();
         traceWriter = ctx.getTraceWriter();
+        window = ctx.getTraceWindow();
+        if (window != null) {
+            readSP = ctx.getState().getRegisters().getRegister(Register.RSP).createRead();
+        }
+        keyframeMemory = Options.getBoolean(Options.EXEC_TRACE_KEYFRAME_MEMORY);
 
         if (ctx.getTron() != null) {
             tron = ctx.getTron().clone();
@@ -92,6 +101,7 @@ public class TraceStateNode extends AMD64Node {
             troff = null;
         }
         trace = ctx.getTrace();
+        instructionCount = ctx.getState().getInstructionCount();
 
         ctxref = getContextReference();
     }
@@ -142,19 +152,35 @@ public class TraceStateNode extends AMD64Node {
     private void dumpMemory() {
         CompilerAsserts.neverPartOfCompilation();
         AMD64Context ctx = ctxref.get(this);
-        VirtualMemory mem = ctx.getMemory();
-        ExecutionTraceWriter trc = ctx.getTraceWriter();
-        for (MemorySegment segment : mem.getSegments()) {
-            if (segment.permissions.isRead()) {
-                // dump complete segment
-                byte[] data = new byte[(int) segment.length];
-                for (long addr = segment.start, i = 0; Long.compareUnsigned(addr, segment.end) < 0; addr += 8, i += 8) {
-                    long value = mem.getI64(addr);
-                    Endianess.set64bitLE(data, (int) i, value);
-                }
-                trc.memoryDump(segment.start, data);
+        ctx.getTraceWriter().memoryDump(ctx.getMemory());
+    }
+
+    @TruffleBoundary
+    private void keyframe() {
+        if (keyframeMemory) {
+            dumpMemory();
+        }
+        traceWriter.keyframe();
+    }
+
+    private boolean checkWindow(VirtualFrame frame, long pc) {
+        int action = window.check(pc, readSP.executeI64(frame), frame.getLong(instructionCount));
+        if (action == TraceWindow.SKIP) {
+            if (window.isOpen()) {
+                CompilerDirectives.transferToInterpreter();
+                window.setTraceStatus(false);
+            }
+            return false;
+        }
+        if (!window.isOpen()) {
+            // keyframe only when the window opens, not for a START inside an open window
+            CompilerDirectives.transferToInterpreter();
+            window.setTraceStatus(true);
+            if (action == TraceWindow.START) {
+                keyframe();
             }
         }
+        return true;
     }
 
     public void execute(VirtualFrame frame, long pc, AMD64Instruction insn) {
@@ -166,6 +192,7 @@ public class TraceStateNode extends AMD64Node {
                     CompilerDirectives.transferToInterpreter();
                     frame.setBoolean(trace, false);
                     ctxref.get(this).setTraceStatus(false);
+                    traceWriter.dump();
                 }
             } else {
                 if (tron != null) {
@@ -182,6 +209,10 @@ public class TraceStateNode extends AMD64Node {
             }
         }
 
+        if (record && window != null) {
+            record = checkWindow(frame, pc);
+        }
+
         if (record) {
             CpuState state = getState(frame, pc);
             writeTrace(state, insn);
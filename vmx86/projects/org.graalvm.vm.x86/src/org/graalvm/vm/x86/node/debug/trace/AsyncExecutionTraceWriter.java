@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.x86.node.debug.trace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.memory.vector.Vector128;
+import org.graalvm.vm.posix.elf.Symbol;
+import org.graalvm.vm.util.log.Trace;
+import org.graalvm.vm.x86.isa.AMD64Instruction;
+import org.graalvm.vm.x86.isa.CpuState;
+import org.graalvm.vm.x86.posix.PosixEnvironment;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Execution trace writer which moves encoding and I/O off the guest threads. Steps and memory
+ * accesses are copied into fixed size slots of a per-thread {@link TraceRingBuffer}, all other
+ * (rare, variable sized) records are queued as objects. Every record gets a number from a global
+ * sequence, and a background thread writes the records strictly in sequence order, so the trace is
+ * identical to the one of the synchronous writer. Delta encoding of the CPU state is done by the
+ * background thread as well.
+ *
+ * If a ring is full, the guest thread either waits for the background thread or, if {@code drop}
+ * is set, discards the record. Both cases are counted.
+ */
+public class AsyncExecutionTraceWriter extends ExecutionTraceWriter {
+    private static final Logger log = Trace.create(AsyncExecutionTraceWriter.class);
+
+    private static final int SPIN = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private static final byte KIND_STEP = 0;
+    private static final byte KIND_MEMORY = 1;
+    private static final byte KIND_MEMORY64 = 2;
+    private static final byte KIND_MEMORY128 = 3;
+
+    private static final int ACTION_NONE = 0;
+    private static final int ACTION_FLUSH = 1;
+    private static final int ACTION_KEYFRAME = 2;
+
+    // slot layout
+    private static final int SEQ = 0;
+    private static final int KIND = 8;
+    private static final int TID = 12;
+    private static final int CODE_LENGTH = 16;
+    private static final int CODE = 17;
+    private static final int STATE = 32;
+    private static final int XMM = STATE + 21 * 8;
+    private static final int ADDRESS = 16;
+    private static final int WRITE = 24;
+    private static final int SIZE = 25;
+    private static final int VALUE = 32;
+
+    private static final int MAX_CODE = STATE - CODE;
+
+    private final int slots;
+    private final boolean drop;
+
+    private final ThreadLocal<TraceRingBuffer> ring;
+    private final List<TraceRingBuffer> rings = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Thread drainer;
+
+    // only modified by the drain thread
+    private volatile long next = 0;
+    private TraceRingBuffer current = null;
+
+    private volatile boolean closed = false;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+
+    // record which does not fit into a ring slot, or an action which has to happen in trace order
+    private static class Entry {
+        final long seq;
+        final Record record;
+        final byte[] code;
+        final CpuState state;
+        final int tid;
+        final int action;
+
+        Entry(long seq, Record record) {
+            this.seq = seq;
+            this.record = record;
+            this.code = null;
+            this.state = null;
+            this.tid = 0;
+            this.action = ACTION_NONE;
+        }
+
+        Entry(long seq, byte[] code, CpuState state, int tid) {
+            this.seq = seq;
+            this.record = null;
+            this.code = code;
+            this.state = state;
+            this.tid = tid;
+            this.action = ACTION_NONE;
+        }
+
+        Entry(long seq, int action) {
+            this.seq = seq;
+            this.record = null;
+            this.code = null;
+            this.state = null;
+            this.tid = 0;
+            this.action = action;
+        }
+    }
+
+    public AsyncExecutionTraceWriter(OutputStream out, boolean compress, int slots, boolean drop) throws IOException {
+        super(out, compress);
+        this.slots = slots;
+        this.drop = drop;
+        ring = ThreadLocal.withInitial(this::createRing);
+        drainer = new Thread(this::drain, "trace-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private TraceRingBuffer createRing() {
+        TraceRingBuffer buf = new TraceRingBuffer(Thread.currentThread(), slots);
+        rings.add(buf);
+        return buf;
+    }
+
+    public long getDroppedRecords() {
+        return dropped.sum();
+    }
+
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    // returns the offset of a free slot in the ring of the current thread or -1 if the record has
+    // to be dropped
+    private int claim(TraceRingBuffer buf) {
+        int off = buf.claim();
+        if (off != -1) {
+            return off;
+        }
+        if (drop || closed) {
+            dropped.increment();
+            return -1;
+        }
+        stalls.increment();
+        LockSupport.unpark(drainer);
+        int spin = 0;
+        while ((off = buf.claim()) == -1) {
+            if (closed) {
+                dropped.increment();
+                return -1;
+            }
+            if (++spin < SPIN) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        return off;
+    }
+
+    private void enqueue(Record record) {
+        synchronized (pending) {
+            pending.add(new Entry(sequence.getAndIncrement(), record));
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void step(CpuState state, AMD64Instruction insn) {
+        byte[] code = insn.getBytes();
+        if (code.length > MAX_CODE) {
+            synchronized (pending) {
+                pending.add(new Entry(sequence.getAndIncrement(), code, state, PosixEnvironment.getTid()));
+            }
+            return;
+        }
+
+        TraceRingBuffer buf = ring.get();
+        int off = claim(buf);
+        if (off == -1) {
+            return;
+        }
+        ByteBuffer slot = buf.getBuffer();
+        slot.putLong(off + SEQ, sequence.getAndIncrement());
+        slot.put(off + KIND, KIND_STEP);
+        slot.putInt(off + TID, PosixEnvironment.getTid());
+        slot.put(off + CODE_LENGTH, (byte) code.length);
+        for (int i = 0; i < code.length; i++) {
+            slot.put(off + CODE + i, code[i]);
+        }
+        int p = off + STATE;
+        slot.putLong(p, state.rax);
+        slot.putLong(p + 8, state.rcx);
+        slot.putLong(p + 16, state.rdx);
+        slot.putLong(p + 24, state.rbx);
+        slot.putLong(p + 32, state.rsp);
+        slot.putLong(p + 40, state.rbp);
+        slot.putLong(p + 48, state.rsi);
+        slot.putLong(p + 56, state.rdi);
+        slot.putLong(p + 64, state.r8);
+        slot.putLong(p + 72, state.r9);
+        slot.putLong(p + 80, state.r10);
+        slot.putLong(p + 88, state.r11);
+        slot.putLong(p + 96, state.r12);
+        slot.putLong(p + 104, state.r13);
+        slot.putLong(p + 112, state.r14);
+        slot.putLong(p + 120, state.r15);
+        slot.putLong(p + 128, state.rip);
+        slot.putLong(p + 136, state.fs);
+        slot.putLong(p + 144, state.gs);
+        slot.putLong(p + 152, state.getRFL());
+        slot.putLong(p + 160, state.instructionCount);
+        p = off + XMM;
+        for (int i = 0; i < 16; i++) {
+            slot.putLong(p + i * 16, state.xmm[i].getI64(0));
+            slot.putLong(p + i * 16 + 8, state.xmm[i].getI64(1));
+        }
+        buf.publish();
+    }
+
+    private ByteBuffer memory(TraceRingBuffer buf, int off, byte kind, long address, boolean write, int size) {
+        ByteBuffer slot = buf.getBuffer();
+        slot.putLong(off + SEQ, sequence.getAndIncrement());
+        slot.put(off + KIND, kind);
+        slot.putInt(off + TID, PosixEnvironment.getTid());
+        slot.putLong(off + ADDRESS, address);
+        slot.put(off + WRITE, (byte) (write ? 1 : 0));
+        slot.put(off + SIZE, (byte) size);
+        return slot;
+    }
+
+    @Override
+    @TruffleBoundary
+    public void memoryAccess(long address, boolean write, int size) {
+        TraceRingBuffer buf = ring.get();
+        int off = claim(buf);
+        if (off != -1) {
+            memory(buf, off, KIND_MEMORY, address, write, size);
+            buf.publish();
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void memoryAccess(long address, boolean write, int size, long value) {
+        TraceRingBuffer buf = ring.get();
+        int off = claim(buf);
+        if (off != -1) {
+            ByteBuffer slot = memory(buf, off, KIND_MEMORY64, address, write, size);
+            slot.putLong(off + VALUE, value);
+            buf.publish();
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void memoryAccess(long address, boolean write, int size, Vector128 value) {
+        TraceRingBuffer buf = ring.get();
+        int off = claim(buf);
+        if (off != -1) {
+            ByteBuffer slot = memory(buf, off, KIND_MEMORY128, address, write, size);
+            slot.putLong(off + VALUE, value.getI64(0));
+            slot.putLong(off + VALUE + 8, value.getI64(1));
+            buf.publish();
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void keyframe() {
+        synchronized (pending) {
+            pending.add(new Entry(sequence.getAndIncrement(), ACTION_KEYFRAME));
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void symbolTable(long loadBias, String filename, long address, long size, NavigableMap<Long, Symbol> symbols) {
+        enqueue(new SymbolTableRecord(loadBias, filename, address, size, symbols));
+    }
+
+    @Override
+    @TruffleBoundary
+    public void log(long seq, long time, int level, long threadID, String logger, String clazz, String method, String msg, Throwable throwable) {
+        enqueue(new SystemLogRecord(seq, time, level, threadID, logger, clazz, method, msg, throwable));
+    }
+
+    @Override
+    @TruffleBoundary
+    public void memoryDump(long address, byte[] data) {
+        enqueue(new MemoryDumpRecord(address, data.clone()));
+    }
+
+    @Override
+    @TruffleBoundary
+    public void mmap(long addr, long len, int prot, int flags, int fildes, long off, long result, String filename, byte[] data) {
+        MmapRecord record = new MmapRecord(addr, len, prot, flags, fildes, off, filename, result);
+        record.setData(data == null ? null : data.clone());
+        enqueue(record);
+    }
+
+    @Override
+    @TruffleBoundary
+    public void munmap(long addr, long len, int result) {
+        enqueue(new MunmapRecord(addr, len, result));
+    }
+
+    @Override
+    @TruffleBoundary
+    public void mprotect(long addr, long len, int prot, int result) {
+        enqueue(new MprotectRecord(addr, len, prot, result));
+    }
+
+    @Override
+    @TruffleBoundary
+    public void brk(long addr, long result) {
+        enqueue(new BrkRecord(addr, result));
+    }
+
+    /**
+     * Waits until all records which were traced before this call are written and flushes the
+     * output stream.
+     */
+    @Override
+    @TruffleBoundary
+    public void flush() {
+        long seq;
+        synchronized (pending) {
+            seq = sequence.getAndIncrement();
+            pending.add(new Entry(seq, ACTION_FLUSH));
+        }
+        LockSupport.unpark(drainer);
+        while (next <= seq && drainer.isAlive()) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(drainer);
+        boolean interrupted = false;
+        while (drainer.isAlive()) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        long lost = dropped.sum();
+        if (lost > 0) {
+            log.log(Level.WARNING, "Trace is incomplete: " + lost + " records dropped");
+        }
+        log.log(Level.INFO, "Async trace writer: " + next + " records, " + lost + " dropped, " + stalls.sum() + " stalls");
+        super.close();
+    }
+
+    private void drain() {
+        int idle = 0;
+        while (true) {
+            if (writeNext()) {
+                idle = 0;
+                continue;
+            }
+            if (closed && next == sequence.get()) {
+                break;
+            }
+            if (++idle < SPIN) {
+                Thread.onSpinWait();
+            } else {
+                removeDeadRings();
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    // a ring can be removed once its thread terminated and all its records are written
+    private void removeDeadRings() {
+        for (TraceRingBuffer buf : rings) {
+            if (!buf.getOwner().isAlive() && buf.isEmpty()) {
+                rings.remove(buf);
+                if (current == buf) {
+                    current = null;
+                }
+            }
+        }
+    }
+
+    // writes the record with the next sequence number if it is already available
+    private boolean writeNext() {
+        if (current != null && writeFrom(current)) {
+            return true;
+        }
+
+        Entry entry = null;
+        synchronized (pending) {
+            Entry e = pending.peek();
+            if (e != null && e.seq == next) {
+                entry = pending.poll();
+            }
+        }
+        if (entry != null) {
+            write(entry);
+            return true;
+        }
+
+        for (TraceRingBuffer buf : rings) {
+            if (buf != current && writeFrom(buf)) {
+                current = buf;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(Entry entry) {
+        if (entry.action == ACTION_FLUSH) {
+            super.flush();
+        } else if (entry.action == ACTION_KEYFRAME) {
+            super.keyframe();
+        } else if (entry.record != null) {
+            try {
+                write(entry.record);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Error while writing trace record: " + e.getMessage(), e);
+            }
+        } else {
+            writeStep(entry.code, entry.state, entry.tid);
+        }
+        next++;
+    }
+
+    private boolean writeFrom(TraceRingBuffer buf) {
+        int off = buf.peek();
+        if (off == -1) {
+            return false;
+        }
+        ByteBuffer slot = buf.getBuffer();
+        if (slot.getLong(off + SEQ) != next) {
+            return false;
+        }
+        int tid = slot.getInt(off + TID);
+        byte kind = slot.get(off + KIND);
+        if (kind == KIND_STEP) {
+            byte[] code = new byte[slot.get(off + CODE_LENGTH)];
+            for (int i = 0; i < code.length; i++) {
+                code[i] = slot.get(off + CODE + i);
+            }
+            CpuState state = new CpuState();
+            int p = off + STATE;
+            state.rax = slot.getLong(p);
+            state.rcx = slot.getLong(p + 8);
+            state.rdx = slot.getLong(p + 16);
+            state.rbx = slot.getLong(p + 24);
+            state.rsp = slot.getLong(p + 32);
+            state.rbp = slot.getLong(p + 40);
+            state.rsi = slot.getLong(p + 48);
+            state.rdi = slot.getLong(p + 56);
+            state.r8 = slot.getLong(p + 64);
+            state.r9 = slot.getLong(p + 72);
+            state.r10 = slot.getLong(p + 80);
+            state.r11 = slot.getLong(p + 88);
+            state.r12 = slot.getLong(p + 96);
+            state.r13 = slot.getLong(p + 104);
+            state.r14 = slot.getLong(p + 112);
+            state.r15 = slot.getLong(p + 120);
+            state.rip = slot.getLong(p + 128);
+            state.fs = slot.getLong(p + 136);
+            state.gs = slot.getLong(p + 144);
+            state.setRFL(slot.getLong(p + 152));
+            state.instructionCount = slot.getLong(p + 160);
+            p = off + XMM;
+            for (int i = 0; i < 16; i++) {
+                state.xmm[i] = new Vector128(slot.getLong(p + i * 16), slot.getLong(p + i * 16 + 8));
+            }
+            buf.release();
+            writeStep(code, state, tid);
+        } else {
+            long address = slot.getLong(off + ADDRESS);
+            boolean write = slot.get(off + WRITE) != 0;
+            int size = slot.get(off + SIZE);
+            MemoryEventRecord record;
+            switch (kind) {
+                case KIND_MEMORY64:
+                    record = new MemoryEventRecord(address, write, size, slot.getLong(off + VALUE));
+                    break;
+                case KIND_MEMORY128:
+                    record = new MemoryEventRecord(address, write, size, new Vector128(slot.getLong(off + VALUE), slot.getLong(off + VALUE + 8)));
+                    break;
+                default:
+                    record = new MemoryEventRecord(address, write, size);
+                    break;
+            }
+            buf.release();
+            record.setTid(tid);
+            try {
+                write(record);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Error while writing memory access: " + e.getMessage(), e);
+            }
+        }
+        next++;
+        return true;
+    }
+
+    private void writeStep(byte[] code, CpuState state, int tid) {
+        CpuStateRecord record = createStepRecord(code, state);
+        record.setTid(tid);
+        try {
+            write(record);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Error while writing cpu step event: " + e.getMessage(), e);
+        }
+    }
+}
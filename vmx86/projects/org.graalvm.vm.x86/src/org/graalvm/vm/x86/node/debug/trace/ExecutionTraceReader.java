@@ -52,7 +52,7 @@ public class ExecutionTraceReader implements Closeable {
     private CpuStateRecord lastState;
 
     public ExecutionTraceReader(InputStream in) {
-        this.in = new BEInputStream(in);
+        this.in = BEInputStream.wrap(in);
     }
 
     public long tell() {
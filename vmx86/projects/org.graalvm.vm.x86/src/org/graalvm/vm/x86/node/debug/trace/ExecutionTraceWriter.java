@@ -50,10 +50,14 @@ import java.util.NavigableMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.graalvm.vm.memory.MemorySegment;
+import org.graalvm.vm.memory.VirtualMemory;
 import org.graalvm.vm.memory.vector.Vector128;
 import org.graalvm.vm.posix.elf.Elf;
 import org.graalvm.vm.posix.elf.Symbol;
 import org.graalvm.vm.util.io.BEOutputStream;
+import org.graalvm.vm.util.io.BlockCompressedOutputStream;
+import org.graalvm.vm.util.io.Endianess;
 import org.graalvm.vm.util.io.WordOutputStream;
 import org.graalvm.vm.util.log.Trace;
 import org.graalvm.vm.x86.isa.AMD64Instruction;
@@ -73,8 +77,16 @@ public class ExecutionTraceWriter implements Closeable {
         this(new BufferedOutputStream(new FileOutputStream(out)));
     }
 
+    public ExecutionTraceWriter(File out, boolean compress) throws IOException {
+        this(new BufferedOutputStream(new FileOutputStream(out)), compress);
+    }
+
     public ExecutionTraceWriter(OutputStream out) throws IOException {
-        this.out = new BEOutputStream(out);
+        this(out, false);
+    }
+
+    public ExecutionTraceWriter(OutputStream out, boolean compress) throws IOException {
+        this.out = new BEOutputStream(compress ? new BlockCompressedOutputStream(out) : out);
         this.out.write32bit(MAGIC);
         this.out.write16bit(Elf.EM_X86_64);
     }
@@ -90,16 +102,43 @@ public class ExecutionTraceWriter implements Closeable {
         out.close();
     }
 
-    @TruffleBoundary
-    public synchronized void step(CpuState state, AMD64Instruction insn) {
+    // computes the (delta) record for the next step; steps have to be passed in trace order
+    protected CpuStateRecord createStepRecord(byte[] code, CpuState state) {
         CpuStateRecord record;
-        byte[] code = insn.getBytes();
         if (lastState == null) {
             record = new FullCpuStateRecord(code, state);
         } else {
             record = DeltaCpuStateRecord.get(code, lastState, state);
         }
         lastState = state;
+        return record;
+    }
+
+    protected void write(Record record) throws IOException {
+        record.write(out);
+    }
+
+    /**
+     * Forces the next step to be written as full CPU state, so the trace can be analyzed from this
+     * point on even if steps before were not traced.
+     */
+    @TruffleBoundary
+    public synchronized void keyframe() {
+        lastState = null;
+    }
+
+    /**
+     * Writes trace data which was held back by the writer. This writer writes everything
+     * immediately, so there is nothing to do.
+     */
+    @TruffleBoundary
+    public void dump() {
+        // nothing
+    }
+
+    @TruffleBoundary
+    public synchronized void step(CpuState state, AMD64Instruction insn) {
+        CpuStateRecord record = createStepRecord(insn.getBytes(), state);
         try {
             record.write(out);
         } catch (IOException e) {
@@ -167,6 +206,22 @@ public class ExecutionTraceWriter implements Closeable {
         }
     }
 
+    // dumps all readable memory segments
+    @TruffleBoundary
+    public void memoryDump(VirtualMemory mem) {
+        for (MemorySegment segment : mem.getSegments()) {
+            if (segment.permissions.isRead()) {
+                // dump complete segment
+                byte[] data = new byte[(int) segment.length];
+                for (long addr = segment.start, i = 0; Long.compareUnsigned(addr, segment.end) < 0; addr += 8, i += 8) {
+                    long value = mem.getI64(addr);
+                    Endianess.set64bitLE(data, (int) i, value);
+                }
+                memoryDump(segment.start, data);
+            }
+        }
+    }
+
     @TruffleBoundary
     public synchronized void mmap(long addr, long len, int prot, int flags, int fildes, long off, long result, String filename, byte[] data) {
         MmapRecord record = new MmapRecord(addr, len, prot, flags, fildes, off, filename, result);
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.x86.node.debug.trace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.graalvm.vm.memory.VirtualMemory;
+import org.graalvm.vm.memory.vector.Vector128;
+import org.graalvm.vm.util.log.Trace;
+import org.graalvm.vm.x86.isa.AMD64Instruction;
+import org.graalvm.vm.x86.isa.CpuState;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Keeps only the last {@code steps} steps and their memory accesses in memory and writes them on
+ * {@link #dump()}, which happens on troff and when the trace is closed (guest exit or crash). Every
+ * dump starts with a full CPU state; the memory dump which follows the steps matches the memory at
+ * the end of the dumped steps. All other records (mmap, symbols, ...) are written immediately, so
+ * the memory map is always complete.
+ */
+public class FlightRecorderTraceWriter extends ExecutionTraceWriter {
+    private static final Logger log = Trace.create(FlightRecorderTraceWriter.class);
+
+    private final int steps;
+    private final boolean dumpMemory;
+    private final ArrayDeque<Record> buffer = new ArrayDeque<>();
+    private int bufferedSteps = 0;
+
+    private VirtualMemory memory;
+
+    public FlightRecorderTraceWriter(OutputStream out, boolean compress, int steps, boolean dumpMemory) throws IOException {
+        super(out, compress);
+        if (steps <= 0) {
+            throw new IllegalArgumentException("invalid flight recorder size: " + steps);
+        }
+        this.steps = steps;
+        this.dumpMemory = dumpMemory;
+    }
+
+    public void setMemory(VirtualMemory memory) {
+        this.memory = memory;
+    }
+
+    // drops the oldest step including the memory accesses which belong to it
+    private void evict() {
+        buffer.removeFirst();
+        while (!buffer.isEmpty() && !(buffer.peekFirst() instanceof CpuStateRecord)) {
+            buffer.removeFirst();
+        }
+        bufferedSteps--;
+    }
+
+    @Override
+    @TruffleBoundary
+    public synchronized void step(CpuState state, AMD64Instruction insn) {
+        if (bufferedSteps == steps) {
+            evict();
+        }
+        buffer.addLast(new FullCpuStateRecord(insn.getBytes(), state));
+        bufferedSteps++;
+    }
+
+    private void memoryEvent(MemoryEventRecord record) {
+        // accesses before the first step of the buffer cannot be analyzed anyway
+        if (bufferedSteps > 0) {
+            buffer.addLast(record);
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public synchronized void memoryAccess(long address, boolean write, int size) {
+        memoryEvent(new MemoryEventRecord(address, write, size));
+    }
+
+    @Override
+    @TruffleBoundary
+    public synchronized void memoryAccess(long address, boolean write, int size, long value) {
+        memoryEvent(new MemoryEventRecord(address, write, size, value));
+    }
+
+    @Override
+    @TruffleBoundary
+    public synchronized void memoryAccess(long address, boolean write, int size, Vector128 value) {
+        memoryEvent(new MemoryEventRecord(address, write, size, value));
+    }
+
+    @Override
+    @TruffleBoundary
+    public synchronized void dump() {
+        if (bufferedSteps == 0) {
+            return;
+        }
+        keyframe();
+        for (Record record : buffer) {
+            try {
+                if (record instanceof FullCpuStateRecord) {
+                    FullCpuStateRecord step = (FullCpuStateRecord) record;
+                    CpuStateRecord delta = createStepRecord(step.getMachinecode(), step.getState());
+                    delta.setTid(step.getTid());
+                    write(delta);
+                } else {
+                    write(record);
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Error while writing flight recorder data: " + e.getMessage(), e);
+                break;
+            }
+        }
+        buffer.clear();
+        bufferedSteps = 0;
+        if (dumpMemory && memory != null) {
+            memoryDump(memory);
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        dump();
+        super.close();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.x86.node.debug.trace;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.graalvm.vm.posix.elf.Symbol;
+import org.graalvm.vm.posix.elf.SymbolResolver;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Traces calls of the given functions, including everything they call. The names are resolved
+ * again whenever the symbol resolver changes, e.g. after a library was loaded. A window starts at
+ * the entry point of a function and ends when the outermost call returns, i.e. when the stack
+ * pointer is above its value at the entry. Recursive calls and calls of other traced functions
+ * inside the window only increase the nesting depth.
+ */
+public final class FunctionTraceWindow extends TraceWindow {
+    private final String[] names;
+    private final Supplier<SymbolResolver> resolver;
+
+    private volatile SymbolResolver lastResolver;
+    private volatile long[] entries = new long[0];
+
+    private static final class CallState extends WindowState {
+        // stack pointers at the entries of the active calls, innermost last
+        long[] sp = new long[8];
+        int depth;
+    }
+
+    public FunctionTraceWindow(TraceStatus parent, String[] names, Supplier<SymbolResolver> resolver) {
+        super(parent);
+        this.names = names;
+        this.resolver = resolver;
+    }
+
+    @Override
+    protected WindowState createState() {
+        return new CallState();
+    }
+
+    private synchronized void resolve(SymbolResolver symbols) {
+        if (symbols != lastResolver) {
+            long[] e = new long[names.length];
+            int n = 0;
+            for (String name : names) {
+                Symbol sym = symbols.getSymbol(name);
+                if (sym != null && sym.getSize() > 0) {
+                    e[n++] = sym.getValue();
+                }
+            }
+            entries = Arrays.copyOf(e, n);
+            lastResolver = symbols;
+        }
+    }
+
+    private boolean isEntry(long pc) {
+        SymbolResolver symbols = resolver.get();
+        if (symbols != lastResolver) {
+            resolve(symbols);
+        }
+        for (long entry : entries) {
+            if (pc == entry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @TruffleBoundary
+    public int check(long pc, long sp, long instructionCount) {
+        CallState state = (CallState) getState();
+
+        // calls which returned
+        while (state.depth > 0 && Long.compareUnsigned(sp, state.sp[state.depth - 1]) > 0) {
+            state.depth--;
+        }
+
+        if (isEntry(pc)) {
+            if (state.depth > 0 && state.sp[state.depth - 1] == sp) {
+                // jump to the entry within the same frame, e.g. a tail call
+                return TRACE;
+            }
+            if (state.depth == state.sp.length) {
+                state.sp = Arrays.copyOf(state.sp, state.sp.length * 2);
+            }
+            state.sp[state.depth++] = sp;
+            return state.depth == 1 ? START : TRACE;
+        }
+        return state.depth > 0 ? TRACE : SKIP;
+    }
+}
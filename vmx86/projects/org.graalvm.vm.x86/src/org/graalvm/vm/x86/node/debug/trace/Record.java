@@ -86,6 +86,11 @@ public abstract class Record {
         return tid;
     }
 
+    // used if the record is not created on the thread it belongs to
+    void setTid(int tid) {
+        this.tid = tid;
+    }
+
     @SuppressWarnings("unchecked")
     public static final <T extends Record> T read(WordInputStream in, CpuStateRecord lastState) throws IOException {
         int type;
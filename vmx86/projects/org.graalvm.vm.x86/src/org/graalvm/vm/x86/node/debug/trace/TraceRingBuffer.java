@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.x86.node.debug.trace;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer single consumer ring of fixed size slots in off-heap memory. The producer is the
+ * guest thread which owns the ring, the consumer is the drain thread of the
+ * {@link AsyncExecutionTraceWriter}. Only absolute accesses are used on the buffer, so both threads
+ * can share it without synchronization; the head and tail counters order the slot contents.
+ */
+final class TraceRingBuffer {
+    public static final int SLOT_SIZE = 512;
+
+    private final Thread owner;
+    private final ByteBuffer buffer;
+    private final int slots;
+    private final int mask;
+
+    // written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+
+    // producer local copy of head, avoids reading the shared counter for every slot
+    private long cachedHead;
+
+    TraceRingBuffer(Thread owner, int slots) {
+        int size = Integer.highestOneBit(Math.max(slots, 2) - 1) << 1;
+        this.owner = owner;
+        this.slots = size;
+        this.mask = size - 1;
+        this.buffer = ByteBuffer.allocateDirect(size * SLOT_SIZE);
+    }
+
+    Thread getOwner() {
+        return owner;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    int getSlots() {
+        return slots;
+    }
+
+    // producer: returns the offset of the next free slot or -1 if the ring is full
+    int claim() {
+        long t = tail.get();
+        if (t - cachedHead >= slots) {
+            cachedHead = head.get();
+            if (t - cachedHead >= slots) {
+                return -1;
+            }
+        }
+        return (int) (t & mask) * SLOT_SIZE;
+    }
+
+    // producer: makes the claimed slot visible to the consumer
+    void publish() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    // consumer: returns the offset of the oldest slot or -1 if the ring is empty
+    int peek() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return -1;
+        }
+        return (int) (h & mask) * SLOT_SIZE;
+    }
+
+    // consumer: frees the oldest slot
+    void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
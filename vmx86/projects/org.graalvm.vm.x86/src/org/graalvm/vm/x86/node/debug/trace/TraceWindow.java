@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.x86.node.debug.trace;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Restricts tracing to windows of the execution. The window decides per step whether it is traced;
+ * {@link #START} marks the first step of a new window, where the trace needs a keyframe (full CPU
+ * state and memory dump) so it can be analyzed although the steps before were not traced.
+ *
+ * As {@link TraceStatus}, the window tells the memory access tracer if the current step is traced.
+ * Windows are opened and closed per guest thread: a thread entering a traced function does not
+ * start tracing the memory accesses of the other threads.
+ */
+public abstract class TraceWindow implements TraceStatus {
+    public static final int SKIP = 0;
+    public static final int TRACE = 1;
+    public static final int START = 2;
+
+    private final TraceStatus parent;
+    private final ThreadLocal<WindowState> state = ThreadLocal.withInitial(this::createState);
+
+    protected static class WindowState {
+        boolean open = true;
+    }
+
+    protected TraceWindow(TraceStatus parent) {
+        this.parent = parent;
+    }
+
+    protected WindowState createState() {
+        return new WindowState();
+    }
+
+    @TruffleBoundary
+    protected WindowState getState() {
+        return state.get();
+    }
+
+    /**
+     * Decides if the step at {@code pc} is traced. {@code sp} is the stack pointer before the step.
+     */
+    public abstract int check(long pc, long sp, long instructionCount);
+
+    public boolean isOpen() {
+        return getState().open;
+    }
+
+    @Override
+    public boolean getTraceStatus() {
+        return isOpen() && (parent == null || parent.getTraceStatus());
+    }
+
+    @Override
+    public void setTraceStatus(boolean status) {
+        getState().open = status;
+    }
+}
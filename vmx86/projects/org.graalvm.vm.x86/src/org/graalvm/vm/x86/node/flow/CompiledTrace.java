@@ -67,9 +67,17 @@ public class CompiledTrace {
         successors = new CompiledTrace[8];
     }
 
+    public boolean isValid() {
+        return trace.isCodeValid();
+    }
+
+    public void invalidate() {
+        trace.invalidateCode();
+    }
+
     public CompiledTrace getNext(long pc) {
         for (int i = 0; i < usedSuccessors; i++) {
-            if (successors[i].trace.getStartAddress() == pc) {
+            if (successors[i].trace.getStartAddress() == pc && successors[i].isValid()) {
                 // TODO: sort as LRU
                 return successors[i];
             }
@@ -82,6 +90,10 @@ public class CompiledTrace {
         for (int i = 0; i < usedSuccessors; i++) {
             if (successors[i] == trc) {
                 return;
+            } else if (successors[i].trace.getStartAddress() == trc.trace.getStartAddress()) {
+                // replace invalidated trace
+                successors[i] = trc;
+                return;
             }
         }
 
@@ -74,9 +74,6 @@ public class InterTraceDispatchNode extends AbstractDispatchNode {
     public static final boolean PRINT_STATS = getBoolean(Options.PRINT_DISPATCH_STATS);
     public static final boolean USE_LOOP_NODE = getBoolean(Options.USE_LOOP_NODE);
 
-    private long noSuccessor = 0;
-    private long hasSuccessor = 0;
-
     private long insncnt = 0;
 
     @Child private LoopNode loop = Truffle.getRuntime().createLoopNode(new LoopBody());
@@ -97,9 +94,19 @@ public class InterTraceDispatchNode extends AbstractDispatchNode {
     @TruffleBoundary
     private void printStats() {
         Trace.log.printf("Traces: %d\n", traces.size());
-        Trace.log.printf("Successor chain used: %d (%s%%)\n", hasSuccessor, (double) hasSuccessor / (hasSuccessor + noSuccessor) * 100);
-        Trace.log.printf("No successor chain used: %d (%s%%)\n", noSuccessor, (double) noSuccessor / (hasSuccessor + noSuccessor) * 100);
+        Trace.log.printf("Invalidated traces: %d\n", traces.getInvalidations());
         Trace.log.printf("Executed instructions: %d\n", insncnt);
+        traces.printStatistics();
+    }
+
+    @TruffleBoundary
+    private void countTransition(boolean successor) {
+        DispatchStatistics stats = traces.getStatistics();
+        if (successor) {
+            stats.successorUsed++;
+        } else {
+            stats.noSuccessor++;
+        }
     }
 
     public CompiledTrace getStartTrace() {
@@ -122,12 +129,16 @@ public class InterTraceDispatchNode extends AbstractDispatchNode {
             }
             CompiledTrace next = currentTrace.getNext(state.rip);
             if (next == null) {
-                noSuccessor++;
+                if (PRINT_STATS) {
+                    countTransition(false);
+                }
                 next = traces.get(state.rip);
                 currentTrace.setNext(next);
                 // assert next.trace.getStartAddress() == state.rip;
             } else {
-                hasSuccessor++;
+                if (PRINT_STATS) {
+                    countTransition(true);
+                }
                 // assert next.trace.getStartAddress() == state.rip;
             }
             currentTrace = next;
@@ -140,7 +151,7 @@ public class InterTraceDispatchNode extends AbstractDispatchNode {
     public CpuState execute(VirtualFrame frame, CpuState state) {
         frame.setObject(stateSlot, state);
         CompiledTrace currentTrace = startTrace;
-        if (currentTrace == null || currentTrace.trace.getStartAddress() != state.rip) {
+        if (currentTrace == null || currentTrace.trace.getStartAddress() != state.rip || !currentTrace.isValid()) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             currentTrace = traces.get(state.rip);
             startTrace = currentTrace;
@@ -165,7 +176,7 @@ public class InterTraceDispatchNode extends AbstractDispatchNode {
         CpuState state = readState.execute(frame, pc);
         frame.setObject(stateSlot, state);
         CompiledTrace currentTrace = startTrace;
-        if (currentTrace == null || currentTrace.trace.getStartAddress() != state.rip) {
+        if (currentTrace == null || currentTrace.trace.getStartAddress() != state.rip || !currentTrace.isValid()) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             currentTrace = traces.get(state.rip);
             startTrace = currentTrace;
@@ -184,11 +195,15 @@ public class InterTraceDispatchNode extends AbstractDispatchNode {
                     frame.setObject(stateSlot, state);
                     CompiledTrace next = currentTrace.getNext(state.rip);
                     if (next == null) {
-                        noSuccessor++;
+                        if (PRINT_STATS) {
+                            countTransition(false);
+                        }
                         next = traces.get(state.rip);
                         currentTrace.setNext(next);
                     } else {
-                        hasSuccessor++;
+                        if (PRINT_STATS) {
+                            countTransition(true);
+                        }
                     }
                     currentTrace = next;
                     frame.setObject(traceSlot, currentTrace);
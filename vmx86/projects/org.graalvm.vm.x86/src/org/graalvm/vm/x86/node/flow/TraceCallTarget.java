@@ -66,6 +66,7 @@ import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.TruffleLanguage.ContextReference;
 import com.oracle.truffle.api.frame.FrameDescriptor;
@@ -92,6 +93,9 @@ public class TraceCallTarget extends AMD64RootNode {
 
     private final ContextReference<AMD64Context> ctxref;
 
+    // invalidated if the code of this trace was modified
+    private final Assumption codeValid;
+
     protected TraceCallTarget(TruffleLanguage<AMD64Context> language, FrameDescriptor fd, long pc) {
         super(language, fd);
         startPC = pc;
@@ -102,7 +106,8 @@ public class TraceCallTarget extends AMD64RootNode {
         avxMaskSlot = ctx.getAVXMask();
         trace = ctx.getTrace();
         singleThreaded = ctx.getSingleThreadedAssumption();
-        dispatch = new TraceDispatchNode(ctx.getState(), ctx.getPosixEnvironment(), startPC);
+        codeValid = Truffle.getRuntime().createAssumption("code valid");
+        dispatch = new TraceDispatchNode(ctx.getState(), ctx.getPosixEnvironment(), startPC, codeValid);
         try {
             sym = ctx.getSymbolResolver().getSymbol(pc);
         } catch (Throwable t) {
@@ -309,6 +314,14 @@ public class TraceCallTarget extends AMD64RootNode {
         return dispatch.getStartAddress();
     }
 
+    public boolean isCodeValid() {
+        return codeValid.isValid();
+    }
+
+    public void invalidateCode() {
+        codeValid.invalidate();
+    }
+
     @Override
     public String getName() {
         return toString();
@@ -79,6 +79,7 @@ import org.graalvm.vm.x86.posix.InteropException;
 import org.graalvm.vm.x86.posix.PosixEnvironment;
 import org.graalvm.vm.x86.substitution.SubstitutionRegistry;
 
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -119,9 +120,14 @@ public class TraceDispatchNode extends AMD64Node {
 
     private final PosixEnvironment posix;
 
-    public TraceDispatchNode(ArchitecturalState state, PosixEnvironment posix, long pc) {
+    private final TraceRegistry traces;
+    private final Assumption codeValid;
+
+    public TraceDispatchNode(ArchitecturalState state, PosixEnvironment posix, long pc, Assumption codeValid) {
         this.posix = posix;
+        this.codeValid = codeValid;
         memory = state.getMemory();
+        traces = state.getTraceRegistry();
         reader = new CodeMemoryReader(memory, 0);
         substitutions = state.getSubstitutions();
         readPC = state.getRegisters().getPC().createRead();
@@ -250,6 +256,8 @@ public class TraceDispatchNode extends AMD64Node {
             printf("Block content:\n%s\n", block.toString());
         }
         blockLookup.put(block.getAddress(), block);
+        AMD64Instruction last = block.getLastInstruction();
+        traces.trackCode(startPC, block.getAddress(), last.getPC() + last.getSize());
         if (usedBlocks == blocks.length) {
             // resize
             int newSize = blocks.length + blocks.length / 2;
@@ -316,6 +324,10 @@ public class TraceDispatchNode extends AMD64Node {
                     } else {
                         index = blocks[index].successor2;
                     }
+                    if (!codeValid.isValid()) {
+                        // code of this trace was modified, continue with a new trace
+                        return blocks[index].getAddress();
+                    }
                 } catch (IndirectException e) {
                     return e.getBTA();
                 }
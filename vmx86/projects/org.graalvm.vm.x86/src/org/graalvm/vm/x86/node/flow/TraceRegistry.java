@@ -40,67 +40,312 @@
  */
 package org.graalvm.vm.x86.node.flow;
 
+import static org.graalvm.vm.x86.Options.getBoolean;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
 
+import org.graalvm.vm.memory.CodeInvalidationListener;
+import org.graalvm.vm.memory.VirtualMemory;
 import org.graalvm.vm.util.HexFormatter;
+import org.graalvm.vm.util.log.Levels;
+import org.graalvm.vm.util.log.Trace;
 import org.graalvm.vm.x86.AMD64Context;
 import org.graalvm.vm.x86.AMD64Language;
+import org.graalvm.vm.x86.Options;
 
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerDirectives;
-import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.TruffleLanguage.ContextReference;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 
-public class TraceRegistry {
+/**
+ * Maps entry points to compiled traces. The registry also tracks which 4K pages the code of each
+ * trace was read from; if such a page is written, unmapped or its protection changes, all traces
+ * which contain code from this page are invalidated and evicted.
+ *
+ * Lookups never lock, so all guest threads dispatch as fast as a single threaded guest. Traces are
+ * created under one of several stripe locks selected by the entry point: two threads which miss
+ * on the same entry point build only one trace, while misses on different entry points proceed in
+ * parallel. The table and the page maps are only modified while holding {@link #lock} once the
+ * guest is multithreaded.
+ */
+public class TraceRegistry implements CodeInvalidationListener {
+    private static final Logger log = Trace.create(TraceRegistry.class);
+
+    private static final boolean PRINT_STATS = getBoolean(Options.PRINT_DISPATCH_STATS);
+    private static final int STRIPES = 64;
+
     private final TruffleLanguage<AMD64Context> language;
     private final FrameDescriptor frameDescriptor;
 
-    private final Map<Long, CompiledTrace> traces;
+    private final TraceTable traces;
+    // page number -> entry points of traces with code on this page
+    private final Map<Long, Set<Long>> codePages;
+    // entry point -> page numbers of its code
+    private final Map<Long, Set<Long>> tracePages;
+    private VirtualMemory memory;
+    private long invalidations;
     private final ContextReference<AMD64Context> ctxref;
     private final Object lock = new Object();
-    @CompilationFinal private Assumption singleThreaded;
+    private final Object[] stripes;
+    private Assumption singleThreaded;
+
+    private final ThreadLocal<DispatchStatistics> statistics;
+    private final List<DispatchStatistics> allStatistics;
 
     public TraceRegistry(TruffleLanguage<AMD64Context> language, FrameDescriptor frameDescriptor) {
         this.language = language;
         this.frameDescriptor = frameDescriptor;
-        traces = new HashMap<>();
+        traces = new TraceTable();
+        stripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        if (PRINT_STATS) {
+            allStatistics = new ArrayList<>();
+            statistics = ThreadLocal.withInitial(this::createStatistics);
+        } else {
+            allStatistics = null;
+            statistics = null;
+        }
+        codePages = new HashMap<>();
+        tracePages = new HashMap<>();
         ctxref = ContextReference.create(AMD64Language.class);
     }
 
     public void initialize(AMD64Context ctx) {
         singleThreaded = ctx.getSingleThreadedAssumption();
+        memory = ctx.getMemory();
+        memory.setCodeInvalidationListener(this);
+    }
+
+    private static long page(long addr) {
+        return addr >>> 12;
+    }
+
+    private void doTrackCode(long pc, long start, long end) {
+        Set<Long> pages = tracePages.computeIfAbsent(pc, x -> new HashSet<>());
+        for (long p = page(start); p <= page(end - 1); p++) {
+            if (pages.add(p)) {
+                codePages.computeIfAbsent(p, x -> new HashSet<>()).add(pc);
+            }
+        }
     }
 
+    /**
+     * Records that the trace with the entry point pc contains code from [start, end).
+     */
     @TruffleBoundary
-    private CompiledTrace doGet(long pc) {
-        CompiledTrace trace = traces.get(pc);
-        if (trace == null) {
-            TraceCallTarget target = new TraceCallTarget(language, frameDescriptor, pc);
-            trace = new CompiledTrace(target, ctxref.get(null).getSingleThreadedAssumption());
-            traces.put(pc, trace);
+    public void trackCode(long pc, long start, long end) {
+        if (singleThreaded.isValid()) {
+            doTrackCode(pc, start, end);
+        } else {
+            synchronized (lock) {
+                doTrackCode(pc, start, end);
+            }
         }
-        if (trace.trace.getStartAddress() != pc) {
-            CompilerDirectives.transferToInterpreter();
-            throw new RuntimeException("error: " + HexFormatter.tohex(trace.trace.getStartAddress(), 16) + " vs " + HexFormatter.tohex(pc, 16));
+        memory.trackCode(start, end);
+    }
+
+    private void evict(long pc) {
+        CompiledTrace trace = traces.remove(pc);
+        if (trace != null) {
+            trace.invalidate();
+            invalidations++;
+        }
+        Set<Long> pages = tracePages.remove(pc);
+        if (pages != null) {
+            for (long p : pages) {
+                Set<Long> pcs = codePages.get(p);
+                if (pcs != null) {
+                    pcs.remove(pc);
+                    if (pcs.isEmpty()) {
+                        codePages.remove(p);
+                    }
+                }
+            }
         }
-        return trace;
     }
 
-    public CompiledTrace get(long pc) {
+    private void doInvalidateCode(long start, long end) {
+        if (codePages.isEmpty()) {
+            return;
+        }
+        long first = page(start);
+        long last = page(end - 1);
+        if (last - first >= codePages.size()) {
+            // large range (e.g. munmap of a library): check the tracked pages instead
+            for (Long p : codePages.keySet().toArray(new Long[codePages.size()])) {
+                if (p >= first && p <= last) {
+                    invalidatePage(p);
+                }
+            }
+        } else {
+            for (long p = first; p <= last; p++) {
+                invalidatePage(p);
+            }
+        }
+    }
+
+    private void invalidatePage(long page) {
+        Set<Long> pcs = codePages.get(page);
+        if (pcs != null) {
+            for (long pc : pcs.toArray(new Long[pcs.size()])) {
+                log.log(Levels.DEBUG, () -> String.format("Invalidating trace at 0x%016x", pc));
+                evict(pc);
+            }
+        }
+    }
+
+    @TruffleBoundary
+    @Override
+    public void invalidateCode(long start, long end) {
+        if (singleThreaded.isValid()) {
+            doInvalidateCode(start, end);
+        } else {
+            synchronized (lock) {
+                doInvalidateCode(start, end);
+            }
+        }
+    }
+
+    private boolean doHasCode(long start, long end) {
+        if (codePages.isEmpty()) {
+            return false;
+        }
+        long first = page(start);
+        long last = page(end - 1);
+        if (last - first >= codePages.size()) {
+            for (long p : codePages.keySet()) {
+                if (p >= first && p <= last) {
+                    return true;
+                }
+            }
+        } else {
+            for (long p = first; p <= last; p++) {
+                if (codePages.containsKey(p)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @TruffleBoundary
+    @Override
+    public boolean hasCode(long start, long end) {
+        if (singleThreaded.isValid()) {
+            return doHasCode(start, end);
+        } else {
+            synchronized (lock) {
+                return doHasCode(start, end);
+            }
+        }
+    }
+
+    private DispatchStatistics createStatistics() {
+        DispatchStatistics stats = new DispatchStatistics(Thread.currentThread().getName());
+        synchronized (allStatistics) {
+            allStatistics.add(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the dispatch statistics of the current thread. Only available if
+     * {@link Options#PRINT_DISPATCH_STATS} is set.
+     */
+    @TruffleBoundary
+    public DispatchStatistics getStatistics() {
+        return statistics.get();
+    }
+
+    @TruffleBoundary
+    public void printStatistics() {
+        if (allStatistics == null) {
+            return;
+        }
+        synchronized (allStatistics) {
+            for (DispatchStatistics stats : allStatistics) {
+                stats.print();
+            }
+        }
+    }
+
+    private void put(CompiledTrace trace) {
         if (singleThreaded.isValid()) {
-            return doGet(pc);
+            traces.put(trace);
         } else {
             synchronized (lock) {
-                return doGet(pc);
+                traces.put(trace);
             }
         }
     }
 
+    private CompiledTrace create(long pc, DispatchStatistics stats) {
+        TraceCallTarget target = new TraceCallTarget(language, frameDescriptor, pc);
+        CompiledTrace trace = new CompiledTrace(target, ctxref.get(null).getSingleThreadedAssumption());
+        put(trace);
+        if (stats != null) {
+            stats.created++;
+        }
+        return trace;
+    }
+
+    private static boolean isUsable(CompiledTrace trace) {
+        return trace != null && trace.isValid();
+    }
+
+    private CompiledTrace lookup(long pc, DispatchStatistics stats) {
+        if (singleThreaded.isValid()) {
+            CompiledTrace trace = traces.get(pc);
+            return isUsable(trace) ? trace : create(pc, stats);
+        }
+
+        Object stripe = stripes[(int) (pc ^ (pc >>> 12)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            // another thread might have created the trace in the meantime
+            CompiledTrace trace = traces.get(pc);
+            if (isUsable(trace)) {
+                if (stats != null) {
+                    stats.contended++;
+                }
+                return trace;
+            }
+            return create(pc, stats);
+        }
+    }
+
+    @TruffleBoundary
+    public CompiledTrace get(long pc) {
+        DispatchStatistics stats = PRINT_STATS ? statistics.get() : null;
+        if (stats != null) {
+            stats.lookups++;
+        }
+        CompiledTrace trace = traces.get(pc);
+        if (!isUsable(trace)) {
+            trace = lookup(pc, stats);
+        }
+        if (trace.trace.getStartAddress() != pc) {
+            CompilerDirectives.transferToInterpreter();
+            throw new RuntimeException("error: " + HexFormatter.tohex(trace.trace.getStartAddress(), 16) + " vs " + HexFormatter.tohex(pc, 16));
+        }
+        return trace;
+    }
+
     public int size() {
         return traces.size();
     }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
 }
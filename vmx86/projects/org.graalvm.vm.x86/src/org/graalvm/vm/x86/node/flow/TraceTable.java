@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.vm.x86.node.flow;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Open addressing hash table from entry point to {@link CompiledTrace}. Lookups are lock-free: they
+ * read the current slot array once and probe it without synchronization. All modifications have
+ * to be serialized by the caller. Removed entries leave a tombstone, so concurrent probes do not
+ * stop early; tombstones are dropped when the table is rehashed into a new slot array.
+ */
+final class TraceTable {
+    private static final Object TOMBSTONE = new Object();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile AtomicReferenceArray<Object> slots;
+    private int size;
+    private int used; // entries + tombstones
+
+    TraceTable() {
+        slots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    }
+
+    private static int hash(long pc) {
+        long h = pc * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long key(Object entry) {
+        return ((CompiledTrace) entry).trace.getStartAddress();
+    }
+
+    CompiledTrace get(long pc) {
+        AtomicReferenceArray<Object> table = slots;
+        int mask = table.length() - 1;
+        for (int i = hash(pc) & mask;; i = (i + 1) & mask) {
+            Object entry = table.get(i);
+            if (entry == null) {
+                return null;
+            } else if (entry != TOMBSTONE && key(entry) == pc) {
+                return (CompiledTrace) entry;
+            }
+        }
+    }
+
+    // caller must hold the write lock
+    void put(CompiledTrace trace) {
+        long pc = trace.trace.getStartAddress();
+        if ((used + 1) * 4 >= slots.length() * 3) {
+            rehash();
+        }
+        AtomicReferenceArray<Object> table = slots;
+        int mask = table.length() - 1;
+        int free = -1;
+        for (int i = hash(pc) & mask;; i = (i + 1) & mask) {
+            Object entry = table.get(i);
+            if (entry == null) {
+                if (free == -1) {
+                    free = i;
+                    used++;
+                }
+                size++;
+                table.set(free, trace);
+                return;
+            } else if (entry == TOMBSTONE) {
+                if (free == -1) {
+                    free = i;
+                }
+            } else if (key(entry) == pc) {
+                table.set(i, trace);
+                return;
+            }
+        }
+    }
+
+    // caller must hold the write lock
+    CompiledTrace remove(long pc) {
+        AtomicReferenceArray<Object> table = slots;
+        int mask = table.length() - 1;
+        for (int i = hash(pc) & mask;; i = (i + 1) & mask) {
+            Object entry = table.get(i);
+            if (entry == null) {
+                return null;
+            } else if (entry != TOMBSTONE && key(entry) == pc) {
+                table.set(i, TOMBSTONE);
+                size--;
+                return (CompiledTrace) entry;
+            }
+        }
+    }
+
+    private void rehash() {
+        AtomicReferenceArray<Object> old = slots;
+        int capacity = old.length();
+        if (size * 2 >= capacity / 2) {
+            capacity *= 2;
+        }
+        AtomicReferenceArray<Object> table = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int n = 0; n < old.length(); n++) {
+            Object entry = old.get(n);
+            if (entry != null && entry != TOMBSTONE) {
+                int i = hash(key(entry)) & mask;
+                while (table.get(i) != null) {
+                    i = (i + 1) & mask;
+                }
+                table.set(i, entry);
+            }
+        }
+        used = size;
+        // readers which still probe the old array see a consistent snapshot
+        slots = table;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -76,6 +76,7 @@ import org.graalvm.vm.posix.api.Timespec;
 import org.graalvm.vm.posix.api.Timeval;
 import org.graalvm.vm.posix.api.Tms;
 import org.graalvm.vm.posix.api.Utsname;
+import org.graalvm.vm.posix.api.io.EpollEvent;
 import org.graalvm.vm.posix.api.io.Fcntl;
 import org.graalvm.vm.posix.api.io.FileDescriptorManager;
 import org.graalvm.vm.posix.api.io.Iovec;
@@ -947,8 +948,10 @@ public class PosixEnvironment {
     }
 
     public long mmap(long addr, long length, int pr, int fl, int fildes, long offset) throws SyscallException {
-        int flags = fl | Mman.MAP_PRIVATE;
-        int prot = pr | Mman.PROT_WRITE;
+        // private mappings are always writable, they are copied on write anyway
+        boolean shared = BitTest.test(fl, Mman.MAP_SHARED);
+        int flags = shared ? fl : fl | Mman.MAP_PRIVATE;
+        int prot = shared ? pr : pr | Mman.PROT_WRITE;
         try {
             if (mem.pageStart(addr) != mem.addr(addr)) {
                 throw new PosixException(Errno.EINVAL);
@@ -956,7 +959,7 @@ public class PosixEnvironment {
             if (length == 0) {
                 throw new PosixException(Errno.EINVAL);
             }
-            if (BitTest.test(flags, Mman.MAP_ANONYMOUS) && BitTest.test(flags, Mman.MAP_PRIVATE)) {
+            if (BitTest.test(flags, Mman.MAP_ANONYMOUS)) {
                 if (strace) {
                     log.log(Levels.INFO, () -> String.format("mmap(0x%016x, %d, %s, %s, %d, %d)", addr,
                                     length, Mman.prot(prot), Mman.flags(flags), fildes, offset));
@@ -978,6 +981,10 @@ public class PosixEnvironment {
                     throw new PosixException(Errno.ENOMEM);
                 }
                 page.x = BitTest.test(prot, Mman.PROT_EXEC);
+                if (BitTest.test(flags, Mman.MAP_FIXED) || addr != 0) {
+                    // the mapping may replace code
+                    mem.invalidateCode(page.base, page.end);
+                }
                 logMmap(addr, length, pr, fl, fildes, offset, page.base);
                 return page.base;
             }
@@ -990,6 +997,7 @@ public class PosixEnvironment {
             long result;
             if (BitTest.test(flags, Mman.MAP_FIXED)) {
                 result = getPointer(ptr, addr, mem.roundToPageSize(length), r, w, x, offset, priv);
+                mem.invalidateCode(result, result + mem.roundToPageSize(length));
             } else {
                 assert mem.roundToPageSize(ptr.size()) == mem.roundToPageSize(length);
                 result = getPointer(ptr, r, w, x, offset, priv);
@@ -1014,7 +1022,9 @@ public class PosixEnvironment {
         }
         try {
             // return posix.munmap(posixPointer(addr), length);
+            mem.msync(addr, length);
             mem.remove(addr, mem.roundToPageSize(length));
+            mem.invalidateCode(addr, addr + mem.roundToPageSize(length));
             if (traceWriter != null) {
                 traceWriter.munmap(addr, length, 0);
             }
@@ -1030,6 +1040,30 @@ public class PosixEnvironment {
         }
     }
 
+    public int msync(long addr, long length, int flags) throws SyscallException {
+        if (strace) {
+            log.log(Level.INFO, () -> String.format("msync(0x%016x, %d, %s)", addr, length, flags));
+        }
+        try {
+            if (mem.pageStart(addr) != mem.addr(addr)) {
+                throw new PosixException(Errno.EINVAL);
+            }
+            if ((flags & ~(Mman.MS_ASYNC | Mman.MS_INVALIDATE | Mman.MS_SYNC)) != 0) {
+                throw new PosixException(Errno.EINVAL);
+            }
+            if (BitTest.test(flags, Mman.MS_ASYNC) && BitTest.test(flags, Mman.MS_SYNC)) {
+                throw new PosixException(Errno.EINVAL);
+            }
+            mem.msync(addr, length);
+            return 0;
+        } catch (PosixException e) {
+            if (strace) {
+                log.log(Level.INFO, "msync failed: " + Errno.toString(e.getErrno()));
+            }
+            throw new SyscallException(e.getErrno());
+        }
+    }
+
     public int mprotect(long addr, long size, int prot) throws SyscallException {
         if (strace) {
             log.log(Level.INFO, () -> String.format("mprotect(0x%016x, %d, %s)", addr, size, Mman.prot(prot)));
@@ -1039,6 +1073,8 @@ public class PosixEnvironment {
             boolean w = BitTest.test(prot, Mman.PROT_WRITE);
             boolean x = BitTest.test(prot, Mman.PROT_EXEC);
             mem.mprotect(addr, size, r, w, x);
+            // e.g. W^X JIT compilers make code writable, modify it and make it executable again
+            mem.invalidateCode(addr, addr + mem.roundToPageSize(size));
             if (traceWriter != null) {
                 traceWriter.mprotect(addr, size, prot, 0);
             }
@@ -1362,6 +1398,76 @@ public class PosixEnvironment {
         }
     }
 
+    public int epoll_create1(int flags) throws SyscallException {
+        try {
+            return posix.epoll_create1(flags);
+        } catch (PosixException e) {
+            if (strace) {
+                log.log(Level.INFO, "epoll_create1 failed: " + Errno.toString(e.getErrno()));
+            }
+            throw new SyscallException(e.getErrno());
+        }
+    }
+
+    public int epoll_ctl(int epfd, int op, int fd, long event) throws SyscallException {
+        try {
+            EpollEvent ev = null;
+            if (event != 0) {
+                ev = new EpollEvent();
+                ev.read(posixPointer(event));
+            }
+            return posix.epoll_ctl(epfd, op, fd, ev);
+        } catch (PosixException e) {
+            if (strace) {
+                log.log(Level.INFO, "epoll_ctl failed: " + Errno.toString(e.getErrno()));
+            }
+            throw new SyscallException(e.getErrno());
+        }
+    }
+
+    public int epoll_wait(int epfd, long events, int maxevents, int timeout) throws SyscallException {
+        try {
+            EpollEvent[] result = posix.epoll_wait(epfd, maxevents, timeout);
+            PosixPointer ptr = posixPointer(events);
+            for (EpollEvent ev : result) {
+                ptr = ev.write(ptr);
+            }
+            return result.length;
+        } catch (PosixException e) {
+            if (strace) {
+                log.log(Level.INFO, "epoll_wait failed: " + Errno.toString(e.getErrno()));
+            }
+            throw new SyscallException(e.getErrno());
+        }
+    }
+
+    public int eventfd2(int initval, int flags) throws SyscallException {
+        try {
+            return posix.eventfd2(initval, flags);
+        } catch (PosixException e) {
+            if (strace) {
+                log.log(Level.INFO, "eventfd2 failed: " + Errno.toString(e.getErrno()));
+            }
+            throw new SyscallException(e.getErrno());
+        }
+    }
+
+    public int pipe2(long fildes, int flags) throws SyscallException {
+        try {
+            int[] fds = new int[2];
+            int result = posix.pipe2(fds, flags);
+            PosixPointer ptr = posixPointer(fildes);
+            ptr.setI32(fds[0]);
+            ptr.add(4).setI32(fds[1]);
+            return result;
+        } catch (PosixException e) {
+            if (strace) {
+                log.log(Level.INFO, "pipe2 failed: " + Errno.toString(e.getErrno()));
+            }
+            throw new SyscallException(e.getErrno());
+        }
+    }
+
     public int socket(int domain, int type, int protocol) throws SyscallException {
         try {
             return posix.socket(domain, type, protocol);
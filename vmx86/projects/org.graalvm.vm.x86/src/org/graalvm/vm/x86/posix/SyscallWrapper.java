@@ -213,6 +213,27 @@ public class SyscallWrapper extends AMD64Node {
                 return posix.lstat(a1, a2);
             case Syscalls.SYS_poll:
                 return posix.poll(a1, (int) a2, (int) a3);
+            case Syscalls.SYS_pipe:
+                return posix.pipe2(a1, 0);
+            case Syscalls.SYS_pipe2:
+                return posix.pipe2(a1, (int) a2);
+            case Syscalls.SYS_epoll_create:
+                if ((int) a1 <= 0) {
+                    throw new SyscallException(Errno.EINVAL);
+                }
+                return posix.epoll_create1(0);
+            case Syscalls.SYS_epoll_create1:
+                return posix.epoll_create1((int) a1);
+            case Syscalls.SYS_epoll_ctl:
+                return posix.epoll_ctl((int) a1, (int) a2, (int) a3, a4);
+            case Syscalls.SYS_epoll_wait:
+            case Syscalls.SYS_epoll_pwait:
+                // the signal mask of epoll_pwait is ignored like in ppoll
+                return posix.epoll_wait((int) a1, a2, (int) a3, (int) a4);
+            case Syscalls.SYS_eventfd:
+                return posix.eventfd2((int) a1, 0);
+            case Syscalls.SYS_eventfd2:
+                return posix.eventfd2((int) a1, (int) a2);
             case Syscalls.SYS_lseek:
                 return posix.lseek((int) a1, a2, (int) a3);
             case Syscalls.SYS_mmap:
@@ -221,6 +242,8 @@ public class SyscallWrapper extends AMD64Node {
                 return posix.mprotect(a1, a2, (int) a3);
             case Syscalls.SYS_munmap:
                 return posix.munmap(a1, a2);
+            case Syscalls.SYS_msync:
+                return posix.msync(a1, a2, (int) a3);
             case Syscalls.SYS_brk:
                 return brk(a1);
             case Syscalls.SYS_rt_sigaction:
@@ -62,7 +62,9 @@ public class Syscalls {
     public static final int SYS_readv = 19;
     public static final int SYS_writev = 20;
     public static final int SYS_access = 21;
+    public static final int SYS_pipe = 22;
     public static final int SYS_sched_yield = 24;
+    public static final int SYS_msync = 26;
     public static final int SYS_dup = 32;
     public static final int SYS_dup2 = 33;
     public static final int SYS_nanosleep = 35;
@@ -106,6 +108,7 @@ public class Syscalls {
     public static final int SYS_gettid = 186;
     public static final int SYS_time = 201;
     public static final int SYS_futex = 202;
+    public static final int SYS_epoll_create = 213;
     public static final int SYS_getdents64 = 217;
     public static final int SYS_set_tid_address = 218;
     public static final int SYS_timer_create = 222;
@@ -115,12 +118,19 @@ public class Syscalls {
     public static final int SYS_clock_getres = 229;
     public static final int SYS_clock_nanosleep = 230;
     public static final int SYS_exit_group = 231;
+    public static final int SYS_epoll_wait = 232;
+    public static final int SYS_epoll_ctl = 233;
     public static final int SYS_tgkill = 234;
     public static final int SYS_openat = 257;
     public static final int SYS_newfstatat = 262;
     public static final int SYS_readlinkat = 267;
     public static final int SYS_set_robust_list = 273;
+    public static final int SYS_epoll_pwait = 281;
+    public static final int SYS_eventfd = 284;
+    public static final int SYS_eventfd2 = 290;
+    public static final int SYS_epoll_create1 = 291;
     public static final int SYS_dup3 = 292;
+    public static final int SYS_pipe2 = 293;
     public static final int SYS_prlimit64 = 302;
     public static final int SYS_getrandom = 318;
     public static final int SYS_statx = 332;